@@ -0,0 +1,321 @@
+/**
+ * Encoder for the binary IR format (`.irb`, see ir-binary-v1.md) for JavaScript/TypeScript IR producers.
+ *
+ * Takes the same object a producer would `JSON.stringify` as IR JSON and returns the binary document.
+ * Missing fields are encoded like absent JSON fields (null, empty list, false), so java-to-xmi reads
+ * the result into the same model as the JSON. Element order is kept as given; java-to-xmi normalizes
+ * on read, so producers do not need to sort.
+ *
+ * Usage:
+ *   import { encodeIr } from "./ir-binary-encoder.mjs";
+ *   await fs.promises.writeFile("model.irb", encodeIr(ir));
+ */
+
+const MAGIC = [0x4a, 0x32, 0x58, 0x42]; // "J2XB"
+const FORMAT_VERSION = 1;
+
+const V_NULL = 0;
+const V_FALSE = 1;
+const V_TRUE = 2;
+const V_INT = 3;
+const V_DOUBLE = 4;
+const V_STRING = 5;
+const V_LIST = 6;
+const V_MAP = 7;
+const V_BIG_INTEGER = 8;
+
+const INT64_MIN = -(1n << 63n);
+const INT64_MAX = (1n << 63n) - 1n;
+
+const utf8 = new TextEncoder();
+
+class Buf {
+  constructor() {
+    this.bytes = new Uint8Array(256);
+    this.size = 0;
+  }
+
+  ensure(n) {
+    if (this.size + n <= this.bytes.length) return;
+    let cap = this.bytes.length * 2;
+    while (cap < this.size + n) cap *= 2;
+    const grown = new Uint8Array(cap);
+    grown.set(this.bytes.subarray(0, this.size));
+    this.bytes = grown;
+  }
+
+  byte(b) {
+    this.ensure(1);
+    this.bytes[this.size++] = b & 0xff;
+  }
+
+  raw(bytes) {
+    this.ensure(bytes.length);
+    this.bytes.set(bytes, this.size);
+    this.size += bytes.length;
+  }
+
+  /** Unsigned LEB128 of a non-negative safe integer. */
+  varint(v) {
+    while (v >= 0x80) {
+      this.byte((v % 0x80) | 0x80);
+      v = Math.floor(v / 0x80);
+    }
+    this.byte(v);
+  }
+
+  /** Unsigned LEB128 of a non-negative bigint. */
+  varintBig(v) {
+    while (v >= 0x80n) {
+      this.byte(Number(v & 0x7fn) | 0x80);
+      v >>= 7n;
+    }
+    this.byte(Number(v));
+  }
+
+  float64(v) {
+    const view = new DataView(new ArrayBuffer(8));
+    view.setFloat64(0, v, false);
+    this.raw(new Uint8Array(view.buffer));
+  }
+
+  view() {
+    return this.bytes.subarray(0, this.size);
+  }
+}
+
+const list = (v) => (Array.isArray(v) ? v : []);
+const orNull = (v) => (v === undefined || v === null ? null : v);
+
+class Encoder {
+  constructor() {
+    /** @type {Map<string, number>} */
+    this.ids = new Map();
+    /** @type {string[]} */
+    this.strings = [];
+  }
+
+  str(b, s) {
+    s = orNull(s);
+    if (s === null) {
+      b.varint(0);
+      return;
+    }
+    s = String(s);
+    let id = this.ids.get(s);
+    if (id === undefined) {
+      id = this.strings.length;
+      this.ids.set(s, id);
+      this.strings.push(s);
+    }
+    b.varint(id + 1);
+  }
+
+  list(b, items, write) {
+    items = list(items);
+    b.varint(items.length);
+    for (const item of items) write(b, item);
+  }
+
+  nullableInt(b, v) {
+    v = orNull(v);
+    if (v === null) {
+      b.varint(0);
+      return;
+    }
+    const n = BigInt(Math.trunc(v));
+    b.varintBig((n >= 0n ? n << 1n : ((-n) << 1n) - 1n) + 1n);
+  }
+
+  section(items, write) {
+    items = list(items);
+    const records = new Buf();
+    for (const item of items) write(records, item);
+    const section = new Buf();
+    section.varint(items.length);
+    section.varint(records.size);
+    section.raw(records.view());
+    return section;
+  }
+
+  stereotypeDefinition(b, d) {
+    this.str(b, d.id);
+    this.str(b, d.name);
+    this.str(b, d.qualifiedName);
+    this.str(b, d.profileName);
+    this.list(b, d.appliesTo, (bb, s) => this.str(bb, s));
+    this.list(b, d.properties, (bb, p) => {
+      this.str(bb, p.name);
+      this.str(bb, orNull(p.type) ?? "string");
+      bb.byte(p.isMulti ? 1 : 0);
+    });
+  }
+
+  irPackage(b, p) {
+    this.str(b, p.id);
+    this.str(b, p.name);
+    this.str(b, p.qualifiedName);
+    this.str(b, p.parentId);
+    this.list(b, p.taggedValues, (bb, tv) => this.taggedValue(bb, tv));
+  }
+
+  classifier(b, c) {
+    this.str(b, c.id);
+    this.str(b, c.name);
+    this.str(b, c.qualifiedName);
+    this.str(b, c.packageId);
+    this.str(b, c.kind);
+    this.str(b, c.visibility);
+    this.list(b, c.attributes, (bb, a) => this.attribute(bb, a));
+    this.list(b, c.operations, (bb, o) => this.operation(bb, o));
+    this.common(b, c);
+  }
+
+  attribute(b, a) {
+    this.str(b, a.id);
+    this.str(b, a.name);
+    this.str(b, a.visibility);
+    b.byte((a.isStatic ? 1 : 0) | (a.isFinal ? 2 : 0));
+    this.typeRef(b, a.type);
+    this.common(b, a);
+  }
+
+  operation(b, o) {
+    this.str(b, o.id);
+    this.str(b, o.name);
+    this.str(b, o.visibility);
+    b.byte((o.isStatic ? 1 : 0) | (o.isAbstract ? 2 : 0) | (o.isConstructor ? 4 : 0));
+    this.typeRef(b, o.returnType);
+    this.list(b, o.parameters, (bb, p) => {
+      this.str(bb, p.name);
+      this.typeRef(bb, p.type);
+      this.list(bb, p.taggedValues, (bbb, tv) => this.taggedValue(bbb, tv));
+    });
+    this.common(b, o);
+  }
+
+  relation(b, r) {
+    this.str(b, r.id);
+    this.str(b, r.kind);
+    this.str(b, r.sourceId);
+    this.str(b, r.targetId);
+    this.str(b, r.name);
+    this.common(b, r);
+  }
+
+  /** stereotypes, stereotypeRefs, taggedValues, source: the tail shared by classifiers, members and relations. */
+  common(b, e) {
+    this.list(b, e.stereotypes, (bb, s) => {
+      this.str(bb, s.name);
+      this.str(bb, s.qualifiedName);
+    });
+    this.list(b, e.stereotypeRefs, (bb, r) => {
+      this.str(bb, r.stereotypeId);
+      this.map(bb, r.values ?? {});
+    });
+    this.list(b, e.taggedValues, (bb, tv) => this.taggedValue(bb, tv));
+    this.source(b, e.source);
+  }
+
+  typeRef(b, t) {
+    if (orNull(t) === null) {
+      b.byte(0);
+      return;
+    }
+    b.byte(1);
+    this.str(b, t.kind);
+    this.str(b, t.name);
+    this.list(b, t.typeArgs, (bb, a) => this.typeRef(bb, a));
+    this.typeRef(b, t.elementType);
+    this.list(b, t.taggedValues, (bb, tv) => this.taggedValue(bb, tv));
+  }
+
+  source(b, s) {
+    if (orNull(s) === null) {
+      b.byte(0);
+      return;
+    }
+    b.byte(1);
+    this.str(b, s.file);
+    this.nullableInt(b, s.line);
+    this.nullableInt(b, s.col);
+  }
+
+  taggedValue(b, tv) {
+    this.str(b, tv.key);
+    this.str(b, tv.value);
+  }
+
+  map(b, values) {
+    // Sorted by key, like java-to-xmi's writer; undefined entries are dropped as JSON.stringify would.
+    const keys = Object.keys(values).filter((k) => values[k] !== undefined).sort();
+    b.varint(keys.length);
+    for (const k of keys) {
+      this.str(b, k);
+      this.value(b, values[k]);
+    }
+  }
+
+  value(b, v) {
+    if (v === null || v === undefined) {
+      b.byte(V_NULL);
+    } else if (typeof v === "boolean") {
+      b.byte(v ? V_TRUE : V_FALSE);
+    } else if (typeof v === "bigint" || (typeof v === "number" && Number.isInteger(v))) {
+      const n = BigInt(v);
+      if (n < INT64_MIN || n > INT64_MAX) {
+        b.byte(V_BIG_INTEGER);
+        this.str(b, n.toString());
+      } else {
+        b.byte(V_INT);
+        b.varintBig(n >= 0n ? n << 1n : ((-n) << 1n) - 1n);
+      }
+    } else if (typeof v === "number") {
+      b.byte(V_DOUBLE);
+      b.float64(v);
+    } else if (typeof v === "string") {
+      b.byte(V_STRING);
+      this.str(b, v);
+    } else if (Array.isArray(v)) {
+      b.byte(V_LIST);
+      b.varint(v.length);
+      for (const item of v) this.value(b, item);
+    } else if (typeof v === "object") {
+      b.byte(V_MAP);
+      this.map(b, v);
+    } else {
+      throw new TypeError(`Unsupported stereotype value: ${typeof v}`);
+    }
+  }
+}
+
+/**
+ * Encode an IR model object as a binary IR document.
+ * @param {object} ir the IR model, shaped like IR JSON
+ * @returns {Uint8Array}
+ */
+export function encodeIr(ir) {
+  const e = new Encoder();
+  const schemaVersion = new Buf();
+  e.str(schemaVersion, ir.schemaVersion ?? "1.0");
+  const sections = [
+    e.section(ir.stereotypeDefinitions, (b, d) => e.stereotypeDefinition(b, d)),
+    e.section(ir.packages, (b, p) => e.irPackage(b, p)),
+    e.section(ir.classifiers, (b, c) => e.classifier(b, c)),
+    e.section(ir.relations, (b, r) => e.relation(b, r)),
+    e.section(ir.taggedValues, (b, tv) => e.taggedValue(b, tv)),
+  ];
+
+  const out = new Buf();
+  out.raw(MAGIC);
+  out.varint(FORMAT_VERSION);
+  out.varint(e.strings.length);
+  for (const s of e.strings) {
+    const bytes = utf8.encode(s);
+    out.varint(bytes.length);
+    out.raw(bytes);
+  }
+  out.raw(schemaVersion.view());
+  for (const section of sections) out.raw(section.view());
+  return out.view();
+}
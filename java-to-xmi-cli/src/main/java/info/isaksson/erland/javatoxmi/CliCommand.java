@@ -0,0 +1,10 @@
+package info.isaksson.erland.javatoxmi;
+
+import java.io.PrintStream;
+
+/** A one-shot CLI run ({@link Main#run(String[], PrintStream, PrintStream)}) as used by the long-running modes. */
+@FunctionalInterface
+public interface CliCommand {
+    /** @return the exit code */
+    int run(String[] args, PrintStream stdout, PrintStream stderr);
+}
@@ -4,19 +4,33 @@ import info.isaksson.erland.javatoxmi.core.JavaToXmiOptions;
 import info.isaksson.erland.javatoxmi.core.JavaToXmiResult;
 import info.isaksson.erland.javatoxmi.core.JavaToXmiService;
 import info.isaksson.erland.javatoxmi.uml.AssociationPolicy;
+import info.isaksson.erland.javatoxmi.uml.IdHashMode;
 import info.isaksson.erland.javatoxmi.uml.NestedTypesMode;
 import info.isaksson.erland.javatoxmi.report.ReportGenerator;
+import info.isaksson.erland.javatoxmi.ir.IrBinary;
 import info.isaksson.erland.javatoxmi.ir.IrJson;
 import info.isaksson.erland.javatoxmi.ir.IrModel;
+import info.isaksson.erland.javatoxmi.ir.IrNdjson;
+import info.isaksson.erland.javatoxmi.ir.IrSummary;
 import info.isaksson.erland.javatoxmi.bridge.JModelToIrAdapter;
+import info.isaksson.erland.javatoxmi.batch.BatchMode;
+import info.isaksson.erland.javatoxmi.server.WorkerMode;
+import info.isaksson.erland.javatoxmi.server.XmiHttpServer;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import org.eclipse.uml2.uml.Model;
 
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -39,25 +53,51 @@ public final class Main {
      * Testable entrypoint that returns an exit code instead of calling System.exit.
      */
     public static int run(String[] args) {
+        return run(args, System.out, System.err);
+    }
+
+    /** {@link #run(String[])} printing to the given streams, so several runs can share a JVM. */
+    public static int run(String[] args, PrintStream stdout, PrintStream stderr) {
+        if (args.length > 0 && "serve".equals(args[0])) {
+            return XmiHttpServer.run(Arrays.copyOfRange(args, 1, args.length));
+        }
+
         CliArgs parsed;
         try {
             parsed = CliArgs.parse(args);
         } catch (IllegalArgumentException ex) {
-            System.err.println("Error: " + ex.getMessage());
-            System.err.println();
-            CliArgs.printHelp();
+            stderr.println("Error: " + ex.getMessage());
+            stderr.println();
+            CliArgs.printHelp(stdout);
             return 1;
 }
 
         if (parsed.help) {
-            CliArgs.printHelp();
+            CliArgs.printHelp(stdout);
             return 0;
         }
 
+        if (parsed.worker) {
+            if (parsed.source != null || parsed.ir != null) {
+                stderr.println("Error: --worker reads its jobs from stdin; do not combine it with --source or --ir.");
+                return 1;
+            }
+            return WorkerMode.run(System.in, new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), Main::run);
+        }
+
+        if (parsed.batch != null) {
+            if (parsed.source != null || parsed.ir != null || parsed.worker) {
+                stderr.println("Error: --batch takes its inputs from the manifest; do not combine it with --source, --ir or --worker.");
+                return 1;
+            }
+            return BatchMode.run(Paths.get(parsed.batch), parsed.batchThreads, batchCommonArgs(args),
+                    parsed.batchSummary != null ? Paths.get(parsed.batchSummary) : null, Main::run, stdout, stderr);
+        }
+
         if (parsed.ir == null && parsed.source == null) {
-            System.err.println("Error: --source is required.");
-            System.err.println();
-            CliArgs.printHelp();
+            stderr.println("Error: --source is required.");
+            stderr.println();
+            CliArgs.printHelp(stdout);
             return 1;
 }
 
@@ -67,11 +107,11 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
 } else {
     sourcePath = Paths.get(parsed.source).toAbsolutePath().normalize();
     if (!Files.exists(sourcePath)) {
-        System.err.println("Error: --source does not exist: " + sourcePath);
+        stderr.println("Error: --source does not exist: " + sourcePath);
         return 1;
     }
-    if (!Files.isDirectory(sourcePath)) {
-        System.err.println("Error: --source must be a directory: " + sourcePath);
+    if (!Files.isDirectory(sourcePath) && !isZipFile(sourcePath)) {
+        stderr.println("Error: --source must be a directory or a .zip file: " + sourcePath);
         return 1;
     }
 }
@@ -80,7 +120,9 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
         // Resolve output paths
         final String modelName = (parsed.name != null && !parsed.name.isBlank())
                 ? parsed.name
-                : (sourcePath != null ? sourcePath.getFileName().toString() : "model");
+                : (sourcePath != null
+                        ? (isZipFile(sourcePath) ? stripExtension(sourcePath.getFileName().toString()) : sourcePath.getFileName().toString())
+                        : "model");
 
         final Path xmiOut = resolveXmiOutput(parsed.output, sourcePath);
         final Path reportOut = resolveReportOutput(parsed.report, xmiOut);
@@ -89,74 +131,80 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
             Files.createDirectories(xmiOut.toAbsolutePath().normalize().getParent());
             Files.createDirectories(reportOut.toAbsolutePath().normalize().getParent());
         } catch (IOException e) {
-            System.err.println("Error: could not create output directory.");
-            System.err.println(e.getMessage());
+            stderr.println("Error: could not create output directory.");
+            stderr.println(e.getMessage());
             return 2;
 }
 
 // IR-first mode: read IR JSON and emit XMI directly (for Node/TS/React/Angular extractors)
 if (parsed.ir != null && !parsed.ir.isBlank()) {
     final Path irPath = Paths.get(parsed.ir).toAbsolutePath().normalize();
-    if (!Files.exists(irPath) || Files.isDirectory(irPath)) {
-        System.err.println("Error: --ir must point to an existing IR JSON file: " + irPath);
+    if (!Files.exists(irPath)) {
+        stderr.println("Error: --ir must point to an existing IR file or shard directory: " + irPath);
         return 1;
     }
 
-    final IrModel irModel;
-    try {
-        irModel = IrJson.read(irPath);
-    } catch (IOException e) {
-        System.err.println("Error: could not read IR JSON: " + irPath);
-        System.err.println(e.getMessage());
-        return 2;
-    }
-
     final String irModelName = (parsed.name != null && !parsed.name.isBlank())
             ? parsed.name
             : stripExtension(irPath.getFileName().toString());
 
+    // The IR is streamed into the emitter; it is never held as a whole.
+    final IrSummary irSummary;
     try {
         JavaToXmiOptions opts = toCoreOptions(parsed, irModelName);
-        JavaToXmiResult res = SERVICE.generateFromIr(irModel, opts);
-        Files.writeString(xmiOut, res.xmiString);
+        opts.retainModels = false;
+        try (OutputStream out = Files.newOutputStream(xmiOut)) {
+            irSummary = SERVICE.generateFromIr(irPath, opts, out).irSummary;
+        }
+    } catch (JsonProcessingException | IrBinary.MalformedIrException e) {
+        deletePartialOutput(xmiOut);
+        stderr.println("Error: could not read IR: " + irPath);
+        stderr.println(e.getMessage());
+        return 2;
     } catch (RuntimeException | IOException ex) {
-        System.err.println("Error: XMI emission from IR failed.");
-        System.err.println(ex.getMessage());
+        deletePartialOutput(xmiOut);
+        stderr.println("Error: XMI emission from IR failed.");
+        stderr.println(ex.getMessage());
         return 2;
     }
 
     // Optional minimal report (only if user explicitly set --report)
     if (parsed.report != null && !parsed.report.isBlank()) {
         try {
-            writeIrModeReport(reportOut, irPath, xmiOut, irModel);
+            writeIrModeReport(reportOut, irPath, xmiOut, irSummary);
         } catch (IOException e) {
-            System.err.println("Error: could not write report to: " + reportOut);
-            System.err.println(e.getMessage());
+            stderr.println("Error: could not write report to: " + reportOut);
+            stderr.println(e.getMessage());
             return 2;
         }
     }
 
-    System.out.println(
+    stdout.println(
             "java-to-xmi (IR mode)\n" +
             "- IR: " + irPath + "\n" +
             "- XMI: " + xmiOut + "\n" +
             (parsed.report != null ? "- Report: " + reportOut + "\n" : "") +
-            "- Classifiers: " + (irModel.classifiers == null ? 0 : irModel.classifiers.size()) + "\n" +
-            "- Relations: " + (irModel.relations == null ? 0 : irModel.relations.size())
+            "- Classifiers: " + irSummary.classifierCount + "\n" +
+            "- Relations: " + irSummary.relationCount
     );
     return 0;
 }
 
-        // Core pipeline (scan + extract + UML build + XMI string)
+        // Core pipeline (scan + extract + UML build + XMI streamed to the output file)
         final JavaToXmiResult res;
         try {
             JavaToXmiOptions opts = toCoreOptions(parsed, modelName);
             opts.includeTests = parsed.includeTests;
-            res = SERVICE.generateFromSource(sourcePath, parsed.excludes, opts);
-            Files.writeString(xmiOut, res.xmiString);
+            // A .zip source is read in place (no unpacking); paths in the result are relative to the archive root.
+            try (OutputStream out = Files.newOutputStream(xmiOut)) {
+                res = isZipFile(sourcePath)
+                        ? SERVICE.generateFromZip(sourcePath, parsed.excludes, opts, out)
+                        : SERVICE.generateFromSource(sourcePath, parsed.excludes, opts, out);
+            }
         } catch (RuntimeException | IOException e) {
-            System.err.println("Error: conversion failed.");
-            System.err.println(e.getMessage());
+            deletePartialOutput(xmiOut);
+            stderr.println("Error: conversion failed.");
+            stderr.println(e.getMessage());
             return 2;
         }
 
@@ -170,8 +218,8 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
                 IrModel outIr = new JModelToIrAdapter().toIr(res.jModel);
                 IrJson.write(outIr, irOut);
             } catch (IOException e) {
-                System.err.println("Error: could not write IR to: " + irOut);
-                System.err.println(e.getMessage());
+                stderr.println("Error: could not write IR to: " + irOut);
+                stderr.println(e.getMessage());
                 return 2;
             }
         }
@@ -191,19 +239,19 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
                     parsed.failOnUnresolved
             );
         } catch (IOException e) {
-            System.err.println("Error: could not write report to: " + reportOut);
-            System.err.println(e.getMessage());
+            stderr.println("Error: could not write report to: " + reportOut);
+            stderr.println(e.getMessage());
             return 2;
 }
 
         // Exit code rules
         if (parsed.failOnUnresolved && res.unresolvedTypeCount > 0) {
-            System.err.println("Unresolved (unknown) types present (" + res.unresolvedTypeCount + ") and --fail-on-unresolved is set.");
-            System.err.println("See report: " + reportOut);
+            stderr.println("Unresolved (unknown) types present (" + res.unresolvedTypeCount + ") and --fail-on-unresolved is set.");
+            stderr.println("See report: " + reportOut);
             return 3;
 }
 
-        System.out.println(
+        stdout.println(
                 "java-to-xmi\n" +
                 "- Source: " + sourcePath + "\n" +
                 "- XMI: " + xmiOut + "\n" +
@@ -217,6 +265,15 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
         return 0;
     }
 
+    /** The XMI is streamed to its file; don't leave a truncated document behind when conversion fails. */
+    private static void deletePartialOutput(Path xmiOut) {
+        try {
+            Files.deleteIfExists(xmiOut);
+        } catch (IOException ignored) {
+            // best effort
+        }
+    }
+
     private static JavaToXmiOptions toCoreOptions(CliArgs parsed, String modelName) {
         JavaToXmiOptions o = new JavaToXmiOptions();
         o.modelName = modelName;
@@ -227,11 +284,16 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
         o.includeAccessors = parsed.includeAccessors;
         o.includeConstructors = parsed.includeConstructors;
         o.failOnUnresolved = parsed.failOnUnresolved;
+        o.parseThreads = parsed.parseThreads;
+        o.extractionCacheDir = parsed.cacheDir == null ? null : Paths.get(parsed.cacheDir);
+        o.streamingExtraction = parsed.streaming;
+        o.idHashMode = parsed.idHashMode;
         return o;
     }
 
     private static Path resolveIrOutput(String irArg, Path xmiOut) {
-        if (irArg != null && irArg.toLowerCase().endsWith(".json")) {
+        if (irArg != null && (irArg.toLowerCase().endsWith(".json") || IrBinary.isBinaryPath(Paths.get(irArg))
+                || IrNdjson.isNdjsonPath(Paths.get(irArg)))) {
             return Paths.get(irArg).toAbsolutePath().normalize();
         }
         String dir = (irArg == null || irArg.isBlank()) ? xmiOut.getParent().toString() : irArg;
@@ -255,6 +317,20 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
         return xmiOut.getParent().resolve("report.md");
     }
 
+    /** The command line of a {@code --batch} run without the batch options, applied to every entry. */
+    static List<String> batchCommonArgs(String[] args) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if ("--batch".equals(a) || "--batch-threads".equals(a) || "--batch-summary".equals(a)) {
+                i++;
+                continue;
+            }
+            out.add(a);
+        }
+        return out;
+    }
+
     /** Minimal CLI argument parsing without external dependencies. */
     static final class CliArgs {
         boolean help = false;
@@ -292,6 +368,26 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
         boolean includeTests = false;
         final List<String> excludes = new ArrayList<>();
 
+        // Parallel parsing (0 = one thread per available processor)
+        int parseThreads = 0;
+
+        // Persistent per-unit extraction cache (null = disabled)
+        String cacheDir;
+
+        // Bounded-memory two-pass extraction
+        boolean streaming = false;
+
+        // Hash function behind xmi:ids
+        IdHashMode idHashMode = IdHashMode.COMPATIBLE;
+
+        // Persistent worker: run length-prefixed JSON jobs from stdin
+        boolean worker = false;
+
+        // Batch: run every entry of a JSON/CSV manifest in this JVM
+        String batch;
+        int batchThreads = 0;
+        String batchSummary;
+
         static CliArgs parse(String[] args) {
             CliArgs out = new CliArgs();
 
@@ -355,6 +451,30 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
                     case "--include-constructors":
                         out.includeConstructors = parseBoolean(requireValue(args, ++i, "--include-constructors"), "--include-constructors");
                         break;
+                    case "--parse-threads":
+                        out.parseThreads = parseNonNegativeInt(requireValue(args, ++i, "--parse-threads"), "--parse-threads");
+                        break;
+                    case "--cache-dir":
+                        out.cacheDir = requireValue(args, ++i, "--cache-dir");
+                        break;
+                    case "--streaming":
+                        out.streaming = parseBoolean(requireValue(args, ++i, "--streaming"), "--streaming");
+                        break;
+                    case "--id-hash":
+                        out.idHashMode = IdHashMode.parseCli(requireValue(args, ++i, "--id-hash"));
+                        break;
+                    case "--worker":
+                        out.worker = true;
+                        break;
+                    case "--batch":
+                        out.batch = requireValue(args, ++i, "--batch");
+                        break;
+                    case "--batch-threads":
+                        out.batchThreads = parseNonNegativeInt(requireValue(args, ++i, "--batch-threads"), "--batch-threads");
+                        break;
+                    case "--batch-summary":
+                        out.batchSummary = requireValue(args, ++i, "--batch-summary");
+                        break;
                     default:
                         if (a.startsWith("--")) {
                             throw new IllegalArgumentException("Unknown argument: " + a);
@@ -390,6 +510,17 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
             throw new IllegalArgumentException("Invalid boolean for " + flag + ": " + v);
         }
 
+        static int parseNonNegativeInt(String v, String flag) {
+            if (v == null) throw new IllegalArgumentException("Missing value for " + flag);
+            try {
+                int n = Integer.parseInt(v.trim());
+                if (n < 0) throw new IllegalArgumentException("Invalid value for " + flag + " (must be >= 0): " + v);
+                return n;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid integer for " + flag + ": " + v);
+            }
+        }
+
         static boolean looksLikeBoolean(String v) {
             if (v == null) return false;
             String s = v.trim().toLowerCase();
@@ -397,14 +528,22 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
         }
 
         static void printHelp() {
-            System.out.println(
+            printHelp(System.out);
+        }
+
+        static void printHelp(PrintStream out) {
+            out.println(
                     "java-to-xmi\n" +
                     "\n" +
                     "Usage:\n" +
                     "  java -jar java-to-xmi.jar --source <path> [--output <dir|file.xmi>] [options]\n" +
+                    "  java -jar java-to-xmi.jar serve [--port <n>] [options]   (HTTP server; see serve --help)\n" +
+                    "  java -jar java-to-xmi.jar --worker                       (run jobs from stdin, see below)\n" +
+                    "  java -jar java-to-xmi.jar --batch <manifest> [options]   (convert many inputs in one JVM)\n" +
                     "\n" +
                     "Options:\n" +
-                    "  --source <path>        Root folder containing Java sources (required)\n" +
+                    "  --source <path>        Root folder containing Java sources, or a .zip archive of it (required).\n" +
+                    "                         Archives are read in place without unpacking.\n" +
                     "  --output <path>        Output folder (default: ./output)\n" +
                     "  --exclude <glob>       Exclude paths matching glob (repeatable). Matches are evaluated\n" +
                     "                         against paths *relative to --source* using '/' separators.\n" +
@@ -424,6 +563,25 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
                     "                         Default: false (getters/setters are suppressed when a field exists).\n" +
                     "  --include-constructors <bool> Include constructors as operations.\n" +
                     "                         Default: false.\n" +
+                    "  --parse-threads <n>    Number of threads used to parse Java sources (or IR shard files).\n" +
+                    "                         Default: 0 (one per available processor); 1 parses sequentially.\n" +
+                    "  --cache-dir <path>     Reuse per-file extraction results from this directory between runs.\n" +
+                    "                         Unchanged files are not re-parsed; the XMI is identical to an uncached run.\n" +
+                    "  --streaming <bool>     Bounded-memory extraction: index declaration headers first, then parse and\n" +
+                    "                         extract file by file, keeping at most one AST per parse thread. Default: false.\n" +
+                    "  --id-hash <mode>       Hash function behind xmi:ids. Modes:\n" +
+                    "                         compatible (SHA-256, the IDs of earlier releases) | fast (default: compatible)\n" +
+                    "  --worker               Stay running and execute jobs read from stdin. Each job and each reply is a\n" +
+                    "                         4-byte big-endian length followed by UTF-8 JSON. Job: {\"id\":..,\"args\":[..]}\n" +
+                    "                         (the arguments of a normal run); reply: {\"id\":..,\"exitCode\":n,\"stdout\":..,\n" +
+                    "                         \"stderr\":..,\"heapUsed\":bytes,\"heapMax\":bytes}. Exits when stdin closes.\n" +
+                    "  --batch <manifest>     Convert every entry of a JSON or CSV manifest in this JVM. An entry names\n" +
+                    "                         source|ir, output and optionally id, name, report, writeIr and args; paths are\n" +
+                    "                         relative to the manifest. Other options on the command line apply to every\n" +
+                    "                         entry. A failing entry does not stop the others; the exit code is the highest\n" +
+                    "                         entry exit code.\n" +
+                    "  --batch-threads <n>    Entries converted at once. Default: 0 (one per available processor).\n" +
+                    "  --batch-summary <file> Write per-entry exit codes, timings and output as JSON.\n" +
                     "  -h, --help             Show help\n" +
                     "\n" +
                     "Examples:\n" +
@@ -434,6 +592,13 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
         }
     }
 
+    private static boolean isZipFile(Path p) {
+        return p != null
+                && p.getFileName() != null
+                && p.getFileName().toString().toLowerCase().endsWith(".zip")
+                && Files.isRegularFile(p);
+    }
+
     private static String stripExtension(String fileName) {
         if (fileName == null) return "";
         int idx = fileName.lastIndexOf('.');
@@ -444,16 +609,14 @@ if (parsed.ir != null && !parsed.ir.isBlank()) {
     /**
      * Minimal report for IR-first mode (no Java extractor inputs available).
      */
-    private static void writeIrModeReport(Path reportOut, Path irPath, Path xmiOut, IrModel irModel) throws IOException {
+    private static void writeIrModeReport(Path reportOut, Path irPath, Path xmiOut, IrSummary irSummary) throws IOException {
         StringBuilder sb = new StringBuilder();
         sb.append("# java-to-xmi report (IR mode)\n\n");
         sb.append("- IR: ").append(irPath.toAbsolutePath().normalize()).append("\n");
         sb.append("- XMI: ").append(xmiOut.toAbsolutePath().normalize()).append("\n");
-        sb.append("- IR schemaVersion: ").append(irModel == null ? "?" : irModel.schemaVersion).append("\n");
-        int cls = irModel == null || irModel.classifiers == null ? 0 : irModel.classifiers.size();
-        int rel = irModel == null || irModel.relations == null ? 0 : irModel.relations.size();
-        sb.append("- Classifiers: ").append(cls).append("\n");
-        sb.append("- Relations: ").append(rel).append("\n");
+        sb.append("- IR schemaVersion: ").append(irSummary.schemaVersion).append("\n");
+        sb.append("- Classifiers: ").append(irSummary.classifierCount).append("\n");
+        sb.append("- Relations: ").append(irSummary.relationCount).append("\n");
         sb.append("\n");
         Files.writeString(reportOut, sb.toString());
     }
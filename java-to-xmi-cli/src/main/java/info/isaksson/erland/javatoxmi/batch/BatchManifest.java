@@ -0,0 +1,203 @@
+package info.isaksson.erland.javatoxmi.batch;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The list of conversions run by {@code --batch}, read from JSON or CSV.
+ *
+ * <p>JSON is either an array of entries or {@code {"args": [...], "entries": [...]}}, where {@code args} are CLI
+ * options applied to every entry. An entry is {@code {"id", "source" | "ir", "output", "name", "report",
+ * "writeIr", "args": [...]}}. CSV ({@code .csv}) has a header row naming the same columns; its {@code args}
+ * column holds whitespace-separated options. Paths are resolved against the manifest's directory.</p>
+ *
+ * <p>An entry that cannot be turned into CLI arguments is kept with an {@link Entry#error}, so it fails on its
+ * own instead of failing the whole batch.</p>
+ */
+final class BatchManifest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> ROW = new TypeReference<>() {};
+
+    /** One conversion. */
+    static final class Entry {
+        final String id;
+        /** CLI arguments of this entry (without the manifest-wide ones). */
+        final List<String> args;
+        /** Present when the entry is invalid. */
+        final String error;
+
+        private Entry(String id, List<String> args, String error) {
+            this.id = id;
+            this.args = args;
+            this.error = error;
+        }
+    }
+
+    /** CLI options applied to every entry, before the entry's own. */
+    final List<String> args;
+    final List<Entry> entries;
+
+    private BatchManifest(List<String> args, List<Entry> entries) {
+        this.args = args;
+        this.entries = entries;
+    }
+
+    /** @throws IllegalArgumentException if the manifest is malformed as a whole */
+    static BatchManifest read(Path manifest) throws IOException {
+        Path base = manifest.toAbsolutePath().normalize().getParent();
+        String fileName = manifest.getFileName().toString().toLowerCase(Locale.ROOT);
+        List<Map<String, Object>> rows;
+        List<String> common;
+        if (fileName.endsWith(".csv")) {
+            rows = readCsv(Files.readAllLines(manifest, StandardCharsets.UTF_8));
+            common = List.of();
+        } else {
+            JsonNode root = MAPPER.readTree(manifest.toFile());
+            JsonNode entries = root;
+            common = List.of();
+            if (root != null && root.isObject()) {
+                common = strings(root.get("args"), "args");
+                entries = root.get("entries");
+            }
+            if (entries == null || !entries.isArray()) {
+                throw new IllegalArgumentException("Batch manifest must be an array of entries or an object with \"entries\"");
+            }
+            rows = new ArrayList<>();
+            for (JsonNode e : entries) {
+                rows.add(e.isObject() ? MAPPER.convertValue(e, ROW) : Map.of());
+            }
+        }
+
+        List<Entry> out = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            out.add(entry(rows.get(i), i, base));
+        }
+        return new BatchManifest(common, Collections.unmodifiableList(out));
+    }
+
+    private static Entry entry(Map<String, Object> row, int index, Path base) {
+        String source = text(row.get("source"));
+        String ir = text(row.get("ir"));
+        String output = text(row.get("output"));
+        String id = text(row.get("id"));
+        if (id == null) {
+            String input = source != null ? source : ir;
+            id = input != null ? input : "#" + (index + 1);
+        }
+
+        try {
+            if ((source == null) == (ir == null)) {
+                throw new IllegalArgumentException("needs exactly one of \"source\" or \"ir\"");
+            }
+            if (output == null) {
+                // Every entry would write to ./output otherwise.
+                throw new IllegalArgumentException("\"output\" is required");
+            }
+            List<String> args = new ArrayList<>();
+            add(args, source != null ? "--source" : "--ir", base.resolve(source != null ? source : ir).normalize().toString());
+            add(args, "--output", base.resolve(output).normalize().toString());
+            String name = text(row.get("name"));
+            if (name != null) add(args, "--name", name);
+            String report = text(row.get("report"));
+            if (report != null) add(args, "--report", base.resolve(report).normalize().toString());
+            String writeIr = text(row.getOrDefault("writeIr", row.get("write-ir")));
+            if (writeIr != null) add(args, "--write-ir", base.resolve(writeIr).normalize().toString());
+            Object extra = row.get("args");
+            if (extra instanceof String) {
+                for (String a : ((String) extra).trim().split("\\s+")) {
+                    if (!a.isEmpty()) args.add(a);
+                }
+            } else if (extra != null) {
+                args.addAll(strings(MAPPER.valueToTree(extra), "args"));
+            }
+            return new Entry(id, List.copyOf(args), null);
+        } catch (IllegalArgumentException e) {
+            return new Entry(id, List.of(), "Invalid batch entry " + id + ": " + e.getMessage());
+        }
+    }
+
+    private static void add(List<String> args, String flag, String value) {
+        args.add(flag);
+        args.add(value);
+    }
+
+    private static String text(Object v) {
+        if (v == null) return null;
+        String s = v.toString().trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    private static List<String> strings(JsonNode node, String field) {
+        if (node == null || node.isNull()) return List.of();
+        if (!node.isArray()) throw new IllegalArgumentException("\"" + field + "\" must be an array of strings");
+        List<String> out = new ArrayList<>();
+        for (JsonNode n : node) {
+            if (!n.isTextual()) throw new IllegalArgumentException("\"" + field + "\" must be an array of strings");
+            out.add(n.asText());
+        }
+        return out;
+    }
+
+    /** Header row + one entry per line; {@code #} comments and blank lines are skipped. */
+    static List<Map<String, Object>> readCsv(List<String> lines) {
+        List<String> header = null;
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (String line : lines) {
+            if (line.isBlank() || line.trim().startsWith("#")) continue;
+            List<String> cells = csvCells(line);
+            if (header == null) {
+                header = new ArrayList<>();
+                for (String h : cells) header.add(h.trim());
+                continue;
+            }
+            Map<String, Object> row = new HashMap<>();
+            for (int i = 0; i < cells.size() && i < header.size(); i++) {
+                row.put(header.get(i), cells.get(i));
+            }
+            rows.add(row);
+        }
+        if (header == null) throw new IllegalArgumentException("Batch manifest CSV has no header row");
+        return rows;
+    }
+
+    private static List<String> csvCells(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+}
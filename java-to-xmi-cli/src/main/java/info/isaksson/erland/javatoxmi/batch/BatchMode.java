@@ -0,0 +1,203 @@
+package info.isaksson.erland.javatoxmi.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import info.isaksson.erland.javatoxmi.CliCommand;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code --batch}: run every entry of a {@link BatchManifest} in this JVM on a bounded pool, so a nightly job over
+ * hundreds of repositories pays JVM startup and class loading once instead of per repository.
+ *
+ * <p>Each entry is a normal CLI run with its own captured output. A failing entry (bad arguments, unreadable
+ * source, an exception) is reported with its exit code and does not stop the others. The batch exits with the
+ * highest entry exit code, so {@code 0} means every entry succeeded. An {@link Error} (e.g. OutOfMemoryError)
+ * ends the whole batch, since the heap may be left in any state.</p>
+ *
+ * <p>Entries share the processors: unless an entry sets {@code --parse-threads} itself, it parses with
+ * {@code processors / threads} (at least one) threads instead of a pool per processor of its own.</p>
+ */
+public final class BatchMode {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private BatchMode() {}
+
+    /** Outcome of one entry. */
+    static final class Outcome {
+        final BatchManifest.Entry entry;
+        final List<String> args;
+        final int exitCode;
+        final long millis;
+        final String stdout;
+        final String stderr;
+
+        Outcome(BatchManifest.Entry entry, List<String> args, int exitCode, long millis, String stdout, String stderr) {
+            this.entry = entry;
+            this.args = args;
+            this.exitCode = exitCode;
+            this.millis = millis;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+    }
+
+    /**
+     * @param manifest    JSON or CSV manifest
+     * @param threads     entries converted at once (0 = one per available processor)
+     * @param commonArgs  CLI options applied to every entry (after the manifest's, before the entry's own)
+     * @param summaryJson optional file receiving per-entry results as JSON
+     * @param cli         the one-shot CLI entrypoint
+     * @return the highest entry exit code; {@code 1}/{@code 2} if the manifest itself is invalid/unreadable
+     */
+    public static int run(Path manifest, int threads, List<String> commonArgs, Path summaryJson,
+                          CliCommand cli, PrintStream stdout, PrintStream stderr) {
+        BatchManifest m;
+        try {
+            m = BatchManifest.read(manifest);
+        } catch (IllegalArgumentException e) {
+            stderr.println("Error: " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            stderr.println("Error: cannot read batch manifest " + manifest + ": " + e.getMessage());
+            return 2;
+        }
+
+        int n = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        n = Math.max(1, Math.min(n, m.entries.size()));
+        int parseThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / n);
+        long start = System.nanoTime();
+        List<Outcome> outcomes = new ArrayList<>();
+        AtomicInteger done = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r, "java-to-xmi-batch");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Outcome>> futures = new ArrayList<>();
+            for (BatchManifest.Entry e : m.entries) {
+                futures.add(pool.submit(() -> {
+                    Outcome o = runEntry(e, m.args, commonArgs, parseThreads, cli);
+                    synchronized (stdout) {
+                        stdout.println("[" + done.incrementAndGet() + "/" + m.entries.size() + "] "
+                                + (o.exitCode == 0 ? "ok" : "FAILED (" + o.exitCode + ")") + "  " + e.id
+                                + "  " + o.millis + " ms");
+                    }
+                    return o;
+                }));
+            }
+            for (Future<Outcome> f : futures) {
+                outcomes.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stderr.println("Error: batch interrupted");
+            return 2;
+        } catch (ExecutionException e) {
+            // runEntry catches every exception an entry can throw; what is left is an Error.
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        int exitCode = 0;
+        int failed = 0;
+        for (Outcome o : outcomes) {
+            exitCode = Math.max(exitCode, o.exitCode);
+            if (o.exitCode != 0) {
+                failed++;
+                stderr.println("--- " + o.entry.id + " (exit " + o.exitCode + ")");
+                stderr.print(o.stderr);
+            }
+        }
+
+        stdout.println();
+        stdout.println("java-to-xmi batch");
+        stdout.println("- Manifest: " + manifest.toAbsolutePath().normalize());
+        stdout.println("- Entries: " + outcomes.size() + " (ok: " + (outcomes.size() - failed) + ", failed: " + failed + ")");
+        stdout.println("- Threads: " + n);
+        stdout.println("- Wall time: " + wallMillis + " ms");
+
+        if (summaryJson != null) {
+            try {
+                writeSummary(summaryJson, manifest, n, wallMillis, outcomes);
+                stdout.println("- Summary: " + summaryJson.toAbsolutePath().normalize());
+            } catch (IOException e) {
+                stderr.println("Error: cannot write batch summary " + summaryJson + ": " + e.getMessage());
+                exitCode = Math.max(exitCode, 2);
+            }
+        }
+        return exitCode;
+    }
+
+    static Outcome runEntry(BatchManifest.Entry entry, List<String> manifestArgs, List<String> commonArgs,
+                            int parseThreads, CliCommand cli) {
+        List<String> args = new ArrayList<>(manifestArgs);
+        args.addAll(commonArgs);
+        args.addAll(entry.args);
+        if (!args.contains("--parse-threads")) {
+            args.add("--parse-threads");
+            args.add(Integer.toString(parseThreads));
+        }
+        String error = entry.error;
+        if (error == null && (args.contains("--batch") || args.contains("--worker"))) {
+            error = "--batch and --worker cannot run as batch entries";
+        }
+        if (error != null) {
+            return new Outcome(entry, args, 1, 0, "", "Error: " + error + System.lineSeparator());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream errStream = new PrintStream(err, true, StandardCharsets.UTF_8);
+        long start = System.nanoTime();
+        int exitCode;
+        try {
+            exitCode = cli.run(args.toArray(new String[0]), new PrintStream(out, true, StandardCharsets.UTF_8), errStream);
+        } catch (RuntimeException e) {
+            errStream.println("Error: " + e);
+            exitCode = 2;
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        return new Outcome(entry, args, exitCode, millis, out.toString(StandardCharsets.UTF_8), err.toString(StandardCharsets.UTF_8));
+    }
+
+    private static void writeSummary(Path file, Path manifest, int threads, long wallMillis, List<Outcome> outcomes) throws IOException {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("manifest", manifest.toAbsolutePath().normalize().toString());
+        root.put("threads", threads);
+        root.put("wallMillis", wallMillis);
+        ArrayNode entries = root.putArray("entries");
+        for (Outcome o : outcomes) {
+            ObjectNode e = entries.addObject();
+            e.put("id", o.entry.id);
+            e.put("exitCode", o.exitCode);
+            e.put("millis", o.millis);
+            ArrayNode args = e.putArray("args");
+            o.args.forEach(args::add);
+            e.put("stdout", o.stdout);
+            e.put("stderr", o.stderr);
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        MAPPER.writeValue(file.toFile(), root);
+    }
+}
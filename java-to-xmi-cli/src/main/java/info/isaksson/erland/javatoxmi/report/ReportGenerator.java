@@ -73,7 +73,9 @@ public final class ReportGenerator {
 
         report.append("## Discovered files\n");
         for (Path p : discoveredJavaFiles) {
-            report.append("- `").append(sourcePath.relativize(p).toString().replace("\\", "/")).append("`\n");
+            // Files from a ZIP source are already relative to the archive root.
+            Path rel = p.isAbsolute() ? sourcePath.relativize(p) : p;
+            report.append("- `").append(rel.toString().replace("\\", "/")).append("`\n");
         }
 
         report.append("\n## Extracted types\n\n");
@@ -0,0 +1,374 @@
+package info.isaksson.erland.javatoxmi.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal {@code multipart/form-data} parser for the serve mode, without external dependencies.
+ *
+ * <p>The body is parsed as it is read (bounded by the caller's limit). Uploaded files are streamed to temporary
+ * files, as are text fields beyond {@link #TEXT_IN_MEMORY_BYTES}; only small text fields stay in memory. The
+ * temporary files are deleted by {@link #close()}.</p>
+ */
+final class MultipartForm implements Closeable {
+
+    private static final Pattern PARAM = Pattern.compile("(\\w+)\\s*=\\s*(?:\"([^\"]*)\"|([^;\\s]+))");
+
+    /** Text fields up to this size are kept in memory. */
+    static final int TEXT_IN_MEMORY_BYTES = 1 << 20;
+
+    /** Limit on the header block of one part. */
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+
+    /** One form part: a text field or an uploaded file. */
+    static final class Part {
+        final String name;
+        /** Present for file uploads. */
+        final String filename;
+        /** The content when held in memory, else null. */
+        private final byte[] bytes;
+        /** The temporary file holding the content, else null. */
+        final Path file;
+        private final long size;
+
+        private Part(String name, String filename, byte[] bytes, Path file, long size) {
+            this.name = name;
+            this.filename = filename;
+            this.bytes = bytes;
+            this.file = file;
+            this.size = size;
+        }
+
+        long size() {
+            return size;
+        }
+
+        InputStream open() throws IOException {
+            return file != null ? Files.newInputStream(file) : new ByteArrayInputStream(bytes);
+        }
+
+        String text() {
+            if (file == null) return new String(bytes, StandardCharsets.UTF_8);
+            try {
+                return Files.readString(file, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private final Map<String, List<Part>> parts = new LinkedHashMap<>();
+    private final List<Path> tempFiles = new ArrayList<>();
+
+    private MultipartForm() {}
+
+    /** First text value of a field, or {@code null}. */
+    String field(String name) {
+        List<Part> list = parts.get(name);
+        if (list == null) return null;
+        for (Part p : list) {
+            if (p.filename == null) return p.text();
+        }
+        return null;
+    }
+
+    /** All values of a repeatable field, in request order. */
+    List<String> fields(String name) {
+        List<String> out = new ArrayList<>();
+        for (Part p : parts.getOrDefault(name, List.of())) {
+            out.add(p.text());
+        }
+        return out;
+    }
+
+    /** First uploaded file of a field, or {@code null}. */
+    Part file(String name) {
+        List<Part> list = parts.get(name);
+        if (list == null) return null;
+        for (Part p : list) {
+            if (p.filename != null) return p;
+        }
+        return null;
+    }
+
+    /** Deletes the temporary files of the parts. */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Path f : tempFiles) {
+            try {
+                Files.deleteIfExists(f);
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        tempFiles.clear();
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Reads and parses a request body; {@code contentLength} is {@code -1} when unknown. The caller closes the form.
+     *
+     * @throws IllegalArgumentException if the content type is not multipart/form-data or the body is malformed
+     * @throws TooLargeException if the body exceeds {@code maxBytes}
+     */
+    static MultipartForm read(String contentType, InputStream body, long contentLength, long maxBytes) throws IOException {
+        String boundary = boundary(contentType);
+        if (boundary == null) {
+            throw new IllegalArgumentException("Expected a multipart/form-data request");
+        }
+        if (contentLength > maxBytes) throw new TooLargeException(maxBytes);
+        return parse(new BoundedInputStream(body, maxBytes), boundary);
+    }
+
+    static MultipartForm parse(InputStream body, String boundary) throws IOException {
+        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] partEnd = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] headerEnd = {'\r', '\n', '\r', '\n'};
+
+        MultipartForm form = new MultipartForm();
+        try {
+            Scanner in = new Scanner(body, partEnd.length);
+            if (!in.copyUntil(delimiter, OutputStream.nullOutputStream(), Long.MAX_VALUE)) {
+                throw new IllegalArgumentException("Malformed multipart body: missing boundary");
+            }
+            while (true) {
+                if (in.skip("--")) return form;
+                if (!in.skip("\r\n")) throw new IllegalArgumentException("Malformed multipart body");
+
+                ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+                if (!in.copyUntil(headerEnd, headerBytes, MAX_HEADER_BYTES)) {
+                    throw new IllegalArgumentException("Malformed multipart body: unterminated part headers");
+                }
+                String name = null;
+                String filename = null;
+                for (String header : headerBytes.toString(StandardCharsets.UTF_8).split("\r\n")) {
+                    int colon = header.indexOf(':');
+                    if (colon < 0 || !header.substring(0, colon).trim().equalsIgnoreCase("Content-Disposition")) continue;
+                    Matcher m = PARAM.matcher(header.substring(colon + 1));
+                    while (m.find()) {
+                        String value = m.group(2) != null ? m.group(2) : m.group(3);
+                        if (m.group(1).equalsIgnoreCase("name")) name = value;
+                        else if (m.group(1).equalsIgnoreCase("filename")) filename = value;
+                    }
+                }
+
+                try (PartSink data = new PartSink(form, name == null ? -1 : filename != null ? 0 : TEXT_IN_MEMORY_BYTES)) {
+                    if (!in.copyUntil(partEnd, data, Long.MAX_VALUE)) {
+                        throw new IllegalArgumentException("Malformed multipart body: unterminated part");
+                    }
+                    data.flush();
+                    if (name != null) {
+                        form.parts.computeIfAbsent(name, k -> new ArrayList<>())
+                                .add(new Part(name, filename, data.bytes(), data.file, data.size));
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                form.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    static String boundary(String contentType) {
+        if (contentType == null) return null;
+        int semi = contentType.indexOf(';');
+        String type = (semi < 0 ? contentType : contentType.substring(0, semi)).trim().toLowerCase(Locale.ROOT);
+        if (!type.equals("multipart/form-data") || semi < 0) return null;
+        Matcher m = PARAM.matcher(contentType.substring(semi + 1));
+        while (m.find()) {
+            if (m.group(1).equalsIgnoreCase("boundary")) {
+                String b = m.group(2) != null ? m.group(2) : m.group(3);
+                return b.isEmpty() ? null : b;
+            }
+        }
+        return null;
+    }
+
+    /** Buffered view of the body that copies up to a delimiter, holding back what might be its start. */
+    private static final class Scanner {
+        private final InputStream in;
+        private final byte[] buf;
+        private int start;
+        private int end;
+        private boolean eof;
+
+        Scanner(InputStream in, int longestDelimiter) {
+            this.in = in;
+            this.buf = new byte[Math.max(64 * 1024, 2 * longestDelimiter)];
+        }
+
+        /**
+         * Copies the bytes before the next {@code delimiter} to {@code sink} and consumes the delimiter.
+         *
+         * @return false if the body ends first
+         * @throws IllegalArgumentException if more than {@code limit} bytes precede the delimiter
+         */
+        boolean copyUntil(byte[] delimiter, OutputStream sink, long limit) throws IOException {
+            long copied = 0;
+            while (true) {
+                int at = indexOf(buf, start, end, delimiter);
+                int upTo = at >= 0 ? at : Math.max(start, end - (delimiter.length - 1));
+                copied += upTo - start;
+                if (copied > limit) throw new IllegalArgumentException("Malformed multipart body: part headers too long");
+                sink.write(buf, start, upTo - start);
+                start = upTo;
+                if (at >= 0) {
+                    start += delimiter.length;
+                    return true;
+                }
+                if (!fill()) return false;
+            }
+        }
+
+        /** Consumes {@code ascii} if the body continues with it. */
+        boolean skip(String ascii) throws IOException {
+            while (end - start < ascii.length()) {
+                if (!fill()) return false;
+            }
+            for (int i = 0; i < ascii.length(); i++) {
+                if (buf[start + i] != ascii.charAt(i)) return false;
+            }
+            start += ascii.length();
+            return true;
+        }
+
+        /** Moves the unread bytes to the front and reads more; false at the end of the body. */
+        private boolean fill() throws IOException {
+            if (eof) return false;
+            if (start > 0) {
+                System.arraycopy(buf, start, buf, 0, end - start);
+                end -= start;
+                start = 0;
+            }
+            int n = in.read(buf, end, buf.length - end);
+            if (n < 0) {
+                eof = true;
+                return false;
+            }
+            end += n;
+            return true;
+        }
+
+        private static int indexOf(byte[] data, int from, int to, byte[] pattern) {
+            byte first = pattern[0];
+            int last = to - pattern.length;
+            outer:
+            for (int i = from; i <= last; i++) {
+                if (data[i] != first) continue;
+                for (int j = 1; j < pattern.length; j++) {
+                    if (data[i + j] != pattern[j]) continue outer;
+                }
+                return i;
+            }
+            return -1;
+        }
+    }
+
+    /** Part content: in memory up to a limit, then in a temporary file registered with the form. */
+    private static final class PartSink extends OutputStream {
+        private final MultipartForm form;
+        /** Bytes kept in memory before spilling; -1 discards the content. */
+        private final long memoryLimit;
+        private final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        Path file;
+        private OutputStream fileOut;
+        long size;
+
+        PartSink(MultipartForm form, long memoryLimit) {
+            this.form = form;
+            this.memoryLimit = memoryLimit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0 || memoryLimit < 0) return;
+            size += len;
+            if (fileOut == null && size > memoryLimit) {
+                file = Files.createTempFile("xmi-upload-", ".part");
+                form.tempFiles.add(file);
+                fileOut = Files.newOutputStream(file);
+                memory.writeTo(fileOut);
+                memory.reset();
+            }
+            if (fileOut != null) fileOut.write(b, off, len);
+            else memory.write(b, off, len);
+        }
+
+        byte[] bytes() {
+            return file == null ? memory.toByteArray() : null;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (fileOut != null) fileOut.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOut != null) fileOut.close();
+        }
+    }
+
+    /** Fails with {@link TooLargeException} once more than {@code maxBytes} have been read. */
+    private static final class BoundedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long read;
+
+        BoundedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count(n);
+            return n;
+        }
+
+        private void count(int n) throws TooLargeException {
+            read += n;
+            if (read > maxBytes) throw new TooLargeException(maxBytes);
+        }
+    }
+
+    /** The request body is larger than the configured limit. */
+    static final class TooLargeException extends IOException {
+        TooLargeException(long maxBytes) {
+            super("Request body exceeds the limit of " + maxBytes + " bytes");
+        }
+    }
+}
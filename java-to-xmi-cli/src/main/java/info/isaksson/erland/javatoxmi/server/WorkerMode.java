@@ -0,0 +1,161 @@
+package info.isaksson.erland.javatoxmi.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import info.isaksson.erland.javatoxmi.CliCommand;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code --worker}: a persistent process that runs CLI jobs read from stdin, so a front end can keep warm JVMs
+ * instead of starting one per conversion.
+ *
+ * <p>Every message in both directions is a frame: a 4-byte big-endian length followed by that many bytes of UTF-8
+ * JSON. A job is {@code {"id": ..., "args": ["--source", "/in/src.zip", "--output", "/out/model.xmi", ...]}}
+ * with the same arguments as a one-shot run; the reply is
+ * {@code {"id": ..., "exitCode": n, "stdout": "...", "stderr": "...", "heapUsed": bytes, "heapMax": bytes}}.
+ * {@code heapUsed} is measured after a garbage collection, so it counts what the worker retains rather than
+ * garbage the job left behind. Jobs run one at a time; what a job prints is captured into its reply, and anything else written to
+ * {@code System.out} goes to stderr, so stdout carries nothing but frames.
+ * The worker exits when stdin is closed.</p>
+ *
+ * <p>A failing job is reported through its exit code and stderr and the worker keeps serving. Only an
+ * unreadable frame or an {@link Error} (e.g. OutOfMemoryError) ends the worker, after a final reply.</p>
+ */
+public final class WorkerMode {
+
+    /** Larger frames are taken as a desynchronized stream. */
+    static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private WorkerMode() {}
+
+    /**
+     * Serve jobs until {@code in} ends.
+     *
+     * @param cli the one-shot CLI entrypoint, returning an exit code
+     * @return {@code 0} on end of input, {@code 2} if the worker had to stop early
+     */
+    public static int run(InputStream in, OutputStream out, CliCommand cli) {
+        DataInputStream frames = new DataInputStream(in);
+        DataOutputStream replies = new DataOutputStream(out);
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        System.setOut(stderr);
+        try {
+            while (true) {
+                byte[] request;
+                try {
+                    request = readFrame(frames);
+                } catch (EOFException eof) {
+                    return 0;
+                }
+                if (request == null) {
+                    writeFrame(replies, failure(null, "Error: invalid frame length"));
+                    return 2;
+                }
+
+                JsonNode id = null;
+                String[] args;
+                try {
+                    JsonNode job = MAPPER.readTree(request);
+                    id = job.get("id");
+                    args = args(job);
+                } catch (IOException | IllegalArgumentException e) {
+                    writeFrame(replies, failure(id, "Error: invalid job: " + e.getMessage()));
+                    continue;
+                }
+
+                ByteArrayOutputStream jobOut = new ByteArrayOutputStream();
+                ByteArrayOutputStream jobErr = new ByteArrayOutputStream();
+                PrintStream jobErrStream = new PrintStream(jobErr, true, StandardCharsets.UTF_8);
+                int exitCode;
+                Error fatal = null;
+                try {
+                    exitCode = cli.run(args, new PrintStream(jobOut, true, StandardCharsets.UTF_8), jobErrStream);
+                } catch (RuntimeException e) {
+                    jobErrStream.println("Error: " + e);
+                    exitCode = 2;
+                } catch (Error e) {
+                    jobErrStream.println("Error: " + e);
+                    exitCode = 2;
+                    fatal = e;
+                }
+
+                writeFrame(replies, reply(id, exitCode, jobOut.toString(StandardCharsets.UTF_8), jobErr.toString(StandardCharsets.UTF_8)));
+                if (fatal != null) {
+                    // The heap may be in any state; let the pool start a fresh worker.
+                    return 2;
+                }
+            }
+        } catch (IOException e) {
+            stderr.println("Error: worker I/O failed: " + e.getMessage());
+            return 2;
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    private static String[] args(JsonNode job) {
+        JsonNode args = job.get("args");
+        if (args == null || !args.isArray()) {
+            throw new IllegalArgumentException("\"args\" must be an array of strings");
+        }
+        List<String> out = new ArrayList<>();
+        for (JsonNode a : args) {
+            if (!a.isTextual()) throw new IllegalArgumentException("\"args\" must be an array of strings");
+            out.add(a.asText());
+        }
+        if (!out.isEmpty() && (out.get(0).equals("serve") || out.contains("--worker"))) {
+            throw new IllegalArgumentException("serve and --worker cannot run as jobs");
+        }
+        return out.toArray(new String[0]);
+    }
+
+    /** @return the frame payload, or {@code null} for an impossible length */
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) return null;
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    static void writeFrame(DataOutputStream out, JsonNode message) throws IOException {
+        byte[] payload = MAPPER.writeValueAsBytes(message);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+    }
+
+    private static ObjectNode reply(JsonNode id, int exitCode, String stdout, String stderr) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memory.gc();
+        ObjectNode reply = MAPPER.createObjectNode();
+        reply.set("id", id);
+        reply.put("exitCode", exitCode);
+        reply.put("stdout", stdout);
+        reply.put("stderr", stderr);
+        reply.put("heapUsed", memory.getHeapMemoryUsage().getUsed());
+        reply.put("heapMax", Runtime.getRuntime().maxMemory());
+        return reply;
+    }
+
+    private static ObjectNode failure(JsonNode id, String message) {
+        return reply(id, 1, "", message + "\n");
+    }
+}
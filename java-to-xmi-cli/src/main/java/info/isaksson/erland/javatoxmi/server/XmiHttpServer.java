@@ -0,0 +1,547 @@
+package info.isaksson.erland.javatoxmi.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import info.isaksson.erland.javatoxmi.bridge.JModelToIrAdapter;
+import info.isaksson.erland.javatoxmi.core.JavaToXmiOptions;
+import info.isaksson.erland.javatoxmi.core.JavaToXmiResult;
+import info.isaksson.erland.javatoxmi.core.JavaToXmiService;
+import info.isaksson.erland.javatoxmi.core.XmiResultCache;
+import info.isaksson.erland.javatoxmi.ir.IrJson;
+import info.isaksson.erland.javatoxmi.uml.AssociationPolicy;
+import info.isaksson.erland.javatoxmi.uml.NestedTypesMode;
+import org.eclipse.uml2.uml.UMLPackage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Long-running HTTP conversion server ({@code java -jar java-to-xmi.jar serve}).
+ *
+ * <p>Serves the same contract as {@code services/xmi-service} ({@code GET /health}, multipart
+ * {@code POST /v1/xmi}) from one warm JVM: EMF/UML2 and JavaParser are loaded and JIT-compiled once instead of
+ * once per request. Requests are handled on a fixed pool of {@code --max-concurrent} threads (further requests
+ * wait for a free thread) and bodies larger than {@code --max-request-bytes} are rejected with 413.</p>
+ *
+ * <p>XMI is streamed into the response as it is serialized; conversion errors that happen before the first byte
+ * are reported as JSON {@code {"error": ...}} like the Node service does.</p>
+ */
+public final class XmiHttpServer {
+
+    /** multer's fileSize limit in the Node service. */
+    static final long DEFAULT_MAX_REQUEST_BYTES = 300L * 1024 * 1024;
+
+    /**
+     * How much of a rejected body is read and discarded before answering 413. Closing a connection with unread
+     * input resets it, and the reset can discard the response before the client reads it.
+     */
+    static final long MAX_SWALLOW_BYTES = 2L * 1024 * 1024;
+
+    static final long DEFAULT_RESULT_CACHE_DIR_BYTES = 1024L * 1024 * 1024;
+
+    private static final long GIT_CLONE_TIMEOUT_MINUTES = 5;
+
+    private final JavaToXmiService service = new JavaToXmiService();
+    private final ServeArgs args;
+    private final XmiResultCache resultCache;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private XmiHttpServer(ServeArgs args) throws IOException {
+        this.args = args;
+        this.resultCache = args.resultCacheBytes > 0 || args.resultCacheDir != null
+                ? new XmiResultCache(args.resultCacheBytes, args.resultCacheDir == null ? null : Path.of(args.resultCacheDir),
+                        args.resultCacheDirBytes)
+                : null;
+        this.server = HttpServer.create(new InetSocketAddress(args.host, args.port), 0);
+        this.executor = Executors.newFixedThreadPool(args.maxConcurrent, r -> {
+            Thread t = new Thread(r, "xmi-http");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /** Start serving on the configured address (port {@code 0} picks a free port). */
+    public static XmiHttpServer start(ServeArgs args) throws IOException {
+        // Load the UML metamodel up front rather than on the first request.
+        UMLPackage.eINSTANCE.eClass();
+        XmiHttpServer s = new XmiHttpServer(args);
+        s.server.start();
+        return s;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Stop accepting requests, give running ones a moment to finish, then release the threads. */
+    public void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    /** Entrypoint for {@code serve [options]}; blocks until the JVM shuts down. */
+    public static int run(String[] argv) {
+        ServeArgs parsed;
+        try {
+            parsed = ServeArgs.parse(argv);
+        } catch (IllegalArgumentException ex) {
+            System.err.println("Error: " + ex.getMessage());
+            System.err.println();
+            ServeArgs.printHelp();
+            return 1;
+        }
+        if (parsed.help) {
+            ServeArgs.printHelp();
+            return 0;
+        }
+
+        XmiHttpServer s;
+        try {
+            s = start(parsed);
+        } catch (IOException e) {
+            System.err.println("Error: could not start server on " + parsed.host + ":" + parsed.port);
+            System.err.println(e.getMessage());
+            return 2;
+        }
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            s.stop();
+            stopped.countDown();
+        }));
+        System.out.println("java-to-xmi serve listening on " + parsed.host + ":" + s.port()
+                + " (max concurrent: " + parsed.maxConcurrent + ", max request bytes: " + parsed.maxRequestBytes + ")");
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        String path = ex.getRequestURI().getPath();
+        if (path.equals("/health")) {
+            if (!ex.getRequestMethod().equals("GET")) {
+                sendJson(ex, 405, error("Method not allowed"));
+            } else {
+                sendJson(ex, 200, "{\"ok\":true}");
+            }
+        } else if (path.equals("/v1/xmi")) {
+            if (!ex.getRequestMethod().equals("POST")) {
+                sendJson(ex, 405, error("Method not allowed"));
+            } else {
+                LazyResponseBody body = new LazyResponseBody(ex);
+                try {
+                    convert(ex, body);
+                } catch (Exception e) {
+                    if (body.committed()) {
+                        // Headers are out. Leave the exchange unfinished so the server drops the connection and the
+                        // client sees a broken response instead of a complete-looking, truncated document.
+                        System.err.println("Error: conversion failed while streaming the response: " + e.getMessage());
+                        throw new IOException(e.getMessage(), e);
+                    }
+                    respondError(ex, e);
+                }
+            }
+        } else {
+            sendJson(ex, 404, error("Not found"));
+        }
+        ex.close();
+    }
+
+    private void convert(HttpExchange ex, LazyResponseBody body) throws Exception {
+        String contentLength = ex.getRequestHeaders().getFirst("Content-Length");
+        try (MultipartForm form = MultipartForm.read(
+                ex.getRequestHeaders().getFirst("Content-Type"),
+                ex.getRequestBody(),
+                contentLength == null ? -1 : Long.parseLong(contentLength.trim()),
+                args.maxRequestBytes)) {
+            convert(ex, body, form);
+        }
+    }
+
+    private void convert(HttpExchange ex, LazyResponseBody body, MultipartForm form) throws Exception {
+        String resultFormat = lower(form.field("resultFormat"), "xmi");
+        if (!resultFormat.equals("xmi") && !resultFormat.equals("ir")) {
+            sendJson(ex, 400, error("Invalid field: resultFormat (expected 'xmi' or 'ir')"));
+            return;
+        }
+
+        MultipartForm.Part irFile = form.file("irFile");
+        String irJson = form.field("irJson");
+        if ((irFile != null && irFile.size() > 0) || (irJson != null && !irJson.trim().isEmpty())) {
+            convertIr(ex, body, form, irFile != null && irFile.size() > 0 ? irFile : null, irJson, resultFormat);
+            return;
+        }
+
+        if (!lower(form.field("language"), "").equals("java")) {
+            sendJson(ex, 400, error("Provide irJson, or language=java with inputZip/repoUrl"));
+            return;
+        }
+
+        String repoUrl = form.field("repoUrl");
+        MultipartForm.Part inputZip = form.file("inputZip");
+        if ((repoUrl == null || repoUrl.isEmpty()) && inputZip == null) {
+            sendJson(ex, 400, error("Provide inputZip or repoUrl"));
+            return;
+        }
+
+        // The Node service names the upload source.zip (or clones into source/), hence the default model name.
+        JavaToXmiOptions opts = toCoreOptions(form, "source");
+        List<String> excludes = form.fields("exclude");
+        boolean ir = resultFormat.equals("ir");
+        // The Java model is only needed for the IR snapshot, which a cached document cannot provide.
+        opts.retainModels = ir;
+        if (!ir) opts.resultCache = resultCache;
+
+        final OutputStream xmiOut;
+        if (ir) {
+            xmiOut = OutputStream.nullOutputStream();
+        } else if (opts.failOnUnresolved) {
+            // Held back in memory: nothing may be sent if the quality gate fails.
+            xmiOut = null;
+        } else {
+            body.contentType = "application/xml";
+            xmiOut = body;
+        }
+
+        JavaToXmiResult res;
+        Path workdir = null;
+        try {
+            if (repoUrl != null && !repoUrl.isEmpty()) {
+                workdir = Files.createTempDirectory("xmi-");
+                Path source = workdir.resolve("source");
+                gitClone(repoUrl, source);
+                res = xmiOut == null
+                        ? service.generateFromSource(source, excludes, opts)
+                        : service.generateFromSource(source, excludes, opts, xmiOut);
+            } else {
+                try (InputStream zip = inputZip.open()) {
+                    res = xmiOut == null
+                            ? service.generateFromZip(zip, excludes, opts)
+                            : service.generateFromZip(zip, excludes, opts, xmiOut);
+                }
+            }
+        } finally {
+            if (workdir != null) deleteRecursively(workdir);
+        }
+
+        if (opts.failOnUnresolved && res.unresolvedTypeCount > 0) {
+            sendJson(ex, 500, error("Unresolved (unknown) types present (" + res.unresolvedTypeCount
+                    + ") and --fail-on-unresolved is set."));
+            return;
+        }
+        if (ir) {
+            ex.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"model.ir.json\"");
+            body.contentType = "application/json";
+            IrJson.write(new JModelToIrAdapter().toIr(res.jModel), body);
+        } else if (xmiOut == null) {
+            body.contentType = "application/xml";
+            body.write(res.xmiBytes());
+        }
+        body.close();
+    }
+
+    private void convertIr(HttpExchange ex, LazyResponseBody body, MultipartForm form, MultipartForm.Part irFile,
+                           String irJson, String resultFormat) throws IOException {
+        if (resultFormat.equals("ir")) {
+            // IR in, IR out: echo the document unchanged, like the Node service.
+            ex.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"model.ir.json\"");
+            body.contentType = "application/json";
+            if (irFile != null) {
+                try (InputStream in = irFile.open()) {
+                    in.transferTo(body);
+                }
+            } else {
+                body.write(irJson.getBytes(StandardCharsets.UTF_8));
+            }
+            body.close();
+            return;
+        }
+
+        // The Node service stores the IR as model.ir.json; the CLI derives the model name from that file name.
+        JavaToXmiOptions opts = toCoreOptions(form, "model.ir");
+        opts.retainModels = false;
+        opts.resultCache = resultCache;
+        body.contentType = "application/xml";
+        // Streamed into the emitter element by element. With a result cache the service reads the whole IR first,
+        // since the cache key is computed from the parsed model.
+        try (InputStream in = irFile != null ? irFile.open() : new ByteArrayInputStream(irJson.getBytes(StandardCharsets.UTF_8))) {
+            service.generateFromIr(in, opts, body);
+        }
+        body.close();
+    }
+
+    private static void respondError(HttpExchange ex, Exception e) throws IOException {
+        if (e instanceof MultipartForm.TooLargeException) {
+            swallow(ex.getRequestBody());
+            sendJson(ex, 413, error(e.getMessage()));
+        } else if (e instanceof IllegalArgumentException) {
+            sendJson(ex, 400, error(String.valueOf(e.getMessage())));
+        } else {
+            sendJson(ex, 500, error(String.valueOf(e.getMessage())));
+        }
+    }
+
+    private static JavaToXmiOptions toCoreOptions(MultipartForm form, String defaultName) {
+        JavaToXmiOptions o = new JavaToXmiOptions();
+        String name = form.field("name");
+        o.modelName = name == null || name.isEmpty() ? defaultName : name;
+        String associations = form.field("associations");
+        if (associations != null && !associations.isEmpty()) o.associationPolicy = AssociationPolicy.parseCli(associations);
+        String nestedTypes = form.field("nestedTypes");
+        if (nestedTypes != null && !nestedTypes.isEmpty()) o.nestedTypesMode = NestedTypesMode.parseCli(nestedTypes);
+        o.includeDependencies = parseBoolean(form.field("deps"), "deps", o.includeDependencies);
+        o.includeAccessors = parseBoolean(form.field("includeAccessors"), "includeAccessors", o.includeAccessors);
+        o.includeConstructors = parseBoolean(form.field("includeConstructors"), "includeConstructors", o.includeConstructors);
+        o.failOnUnresolved = parseBoolean(form.field("failOnUnresolved"), "failOnUnresolved", o.failOnUnresolved);
+        o.includeStereotypes = !"true".equalsIgnoreCase(String.valueOf(form.field("noStereotypes")));
+        return o;
+    }
+
+    private static boolean parseBoolean(String v, String field, boolean defaultValue) {
+        if (v == null || v.isEmpty()) return defaultValue;
+        String s = v.trim().toLowerCase(Locale.ROOT);
+        if (s.equals("true") || s.equals("1") || s.equals("yes")) return true;
+        if (s.equals("false") || s.equals("0") || s.equals("no")) return false;
+        throw new IllegalArgumentException("Invalid boolean for " + field + ": " + v);
+    }
+
+    private static String lower(String v, String defaultValue) {
+        return v == null || v.isEmpty() ? defaultValue : v.toLowerCase(Locale.ROOT);
+    }
+
+    private static void gitClone(String repoUrl, Path dest) throws IOException, InterruptedException {
+        Process p = new ProcessBuilder("git", "clone", "--depth", "1", "--", repoUrl, dest.toString())
+                .redirectErrorStream(true)
+                .start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Thread drain = new Thread(() -> {
+            try (InputStream in = p.getInputStream()) {
+                in.transferTo(output);
+            } catch (IOException ignored) {
+                // process output is diagnostics only
+            }
+        });
+        drain.start();
+        if (!p.waitFor(GIT_CLONE_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            p.destroyForcibly();
+            throw new IOException("Command timed out: git clone " + repoUrl);
+        }
+        drain.join();
+        if (p.exitValue() != 0) {
+            throw new IOException("Command failed (" + p.exitValue() + "): git clone " + repoUrl + "\n"
+                    + output.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        } catch (IOException ignored) {
+            // best effort
+        }
+    }
+
+    private static void swallow(InputStream body) {
+        // read(), not skip(): the server's fixed-length body stream inherits FilterInputStream.skip, which skips
+        // on the connection past the end of the body and blocks.
+        byte[] buf = new byte[8192];
+        try {
+            long left = MAX_SWALLOW_BYTES;
+            int n;
+            while (left > 0 && (n = body.read(buf, 0, (int) Math.min(buf.length, left))) > 0) left -= n;
+        } catch (IOException ignored) {
+            // the connection is closed after the response either way
+        }
+    }
+
+    private static void sendJson(HttpExchange ex, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        ex.getResponseBody().write(bytes);
+    }
+
+    private static String error(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":\"");
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append("\"}").toString();
+    }
+
+    /** Sends the 200 headers on the first write, so failures before any output can still become JSON errors. */
+    private static final class LazyResponseBody extends OutputStream {
+        private final HttpExchange ex;
+        String contentType = "application/octet-stream";
+        private OutputStream out;
+
+        LazyResponseBody(HttpExchange ex) {
+            this.ex = ex;
+        }
+
+        boolean committed() {
+            return out != null;
+        }
+
+        private OutputStream out() throws IOException {
+            if (out == null) {
+                ex.getResponseHeaders().set("Content-Type", contentType);
+                ex.sendResponseHeaders(200, 0);
+                out = ex.getResponseBody();
+            }
+            return out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) out().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (out != null) out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out().close();
+        }
+    }
+
+    /** {@code serve} arguments. */
+    public static final class ServeArgs {
+        public boolean help = false;
+        public String host = "0.0.0.0";
+        public int port = 7072;
+        public int maxConcurrent = Runtime.getRuntime().availableProcessors();
+        public long maxRequestBytes = DEFAULT_MAX_REQUEST_BYTES;
+        /** Memory for cached XMI documents; {@code 0} keeps none in memory. */
+        public long resultCacheBytes = 0;
+        /** Directory of the on-disk result cache, or {@code null} for none. */
+        public String resultCacheDir;
+        public long resultCacheDirBytes = DEFAULT_RESULT_CACHE_DIR_BYTES;
+
+        static ServeArgs parse(String[] args) {
+            ServeArgs out = new ServeArgs();
+            for (int i = 0; i < args.length; i++) {
+                String a = args[i];
+                if (a == null) continue;
+                switch (a) {
+                    case "--help":
+                    case "-h":
+                        out.help = true;
+                        break;
+                    case "--host":
+                        out.host = requireValue(args, ++i, a);
+                        break;
+                    case "--port":
+                        out.port = (int) parseLong(requireValue(args, ++i, a), a, 0, 65535);
+                        break;
+                    case "--max-concurrent":
+                        out.maxConcurrent = (int) parseLong(requireValue(args, ++i, a), a, 1, 1024);
+                        break;
+                    case "--max-request-bytes":
+                        // Bodies are buffered in one array.
+                        out.maxRequestBytes = parseLong(requireValue(args, ++i, a), a, 1, Long.MAX_VALUE);
+                        break;
+                    case "--result-cache-bytes":
+                        out.resultCacheBytes = parseLong(requireValue(args, ++i, a), a, 0, Long.MAX_VALUE);
+                        break;
+                    case "--result-cache-dir":
+                        out.resultCacheDir = requireValue(args, ++i, a);
+                        break;
+                    case "--result-cache-dir-bytes":
+                        out.resultCacheDirBytes = parseLong(requireValue(args, ++i, a), a, 1, Long.MAX_VALUE);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown serve argument: " + a);
+                }
+            }
+            return out;
+        }
+
+        private static String requireValue(String[] args, int index, String flag) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + flag);
+            }
+            String v = args[index];
+            if (v == null || v.isBlank() || v.startsWith("--")) {
+                throw new IllegalArgumentException("Invalid value for " + flag + ": " + v);
+            }
+            return v;
+        }
+
+        private static long parseLong(String v, String flag, long min, long max) {
+            try {
+                long n = Long.parseLong(v.trim());
+                if (n < min || n > max) {
+                    throw new IllegalArgumentException("Invalid value for " + flag + " (must be " + min + ".." + max + "): " + v);
+                }
+                return n;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid integer for " + flag + ": " + v);
+            }
+        }
+
+        static void printHelp() {
+            System.out.println(
+                    "java-to-xmi serve\n" +
+                    "\n" +
+                    "Usage:\n" +
+                    "  java -jar java-to-xmi.jar serve [options]\n" +
+                    "\n" +
+                    "Runs the xmi-service HTTP API (GET /health, POST /v1/xmi) in one long-running JVM.\n" +
+                    "\n" +
+                    "Options:\n" +
+                    "  --host <addr>              Address to bind (default: 0.0.0.0)\n" +
+                    "  --port <n>                 Port to listen on (default: 7072; 0 picks a free port)\n" +
+                    "  --max-concurrent <n>       Requests handled at the same time; further requests wait.\n" +
+                    "                             Default: one per available processor.\n" +
+                    "  --max-request-bytes <n>    Reject larger request bodies with 413 (default: 314572800 = 300 MiB)\n" +
+                    "  --result-cache-bytes <n>   Keep up to n bytes of generated XMI in memory and answer repeated\n" +
+                    "                             requests (same input and options) from it. Default: 0 (off).\n" +
+                    "  --result-cache-dir <path>  Also keep generated XMI in this directory (shared between restarts).\n" +
+                    "  --result-cache-dir-bytes <n>  Size bound of --result-cache-dir (default: 1073741824 = 1 GiB)\n" +
+                    "  -h, --help                 Show help\n"
+            );
+        }
+    }
+}
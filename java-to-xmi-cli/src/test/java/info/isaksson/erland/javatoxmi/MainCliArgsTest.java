@@ -3,6 +3,7 @@ package info.isaksson.erland.javatoxmi;
 import info.isaksson.erland.javatoxmi.testutil.TestPaths;
 import org.junit.jupiter.api.Test;
 import info.isaksson.erland.javatoxmi.uml.AssociationPolicy;
+import info.isaksson.erland.javatoxmi.uml.IdHashMode;
 
 import java.util.List;
 
@@ -48,6 +49,46 @@ public class MainCliArgsTest {
         assertTrue(ex.getMessage().contains("Invalid boolean"));
     }
 
+    @Test
+    void parsesParseThreads() {
+        Main.CliArgs parsed = Main.CliArgs.parse(new String[] {"--source", "x", "--parse-threads", "8"});
+        assertEquals(8, parsed.parseThreads);
+        assertEquals(0, Main.CliArgs.parse(new String[] {"--source", "x"}).parseThreads);
+        assertThrows(IllegalArgumentException.class,
+                () -> Main.CliArgs.parse(new String[] {"--source", "x", "--parse-threads", "many"}));
+    }
+
+    @Test
+    void parsesStreaming() {
+        assertTrue(Main.CliArgs.parse(new String[] {"--source", "x", "--streaming", "true"}).streaming);
+        assertFalse(Main.CliArgs.parse(new String[] {"--source", "x"}).streaming);
+    }
+
+    @Test
+    void parsesIdHash() {
+        assertEquals(IdHashMode.FAST, Main.CliArgs.parse(new String[] {"--source", "x", "--id-hash", "fast"}).idHashMode);
+        assertEquals(IdHashMode.COMPATIBLE, Main.CliArgs.parse(new String[] {"--source", "x"}).idHashMode);
+        assertThrows(IllegalArgumentException.class,
+                () -> Main.CliArgs.parse(new String[] {"--source", "x", "--id-hash", "md5"}));
+    }
+
+    @Test
+    void parsesWorker() {
+        assertTrue(Main.CliArgs.parse(new String[] {"--worker"}).worker);
+        assertFalse(Main.CliArgs.parse(new String[] {"--source", "x"}).worker);
+        assertEquals(1, Main.run(new String[] {"--worker", "--source", "x"}));
+    }
+
+    @Test
+    void parsesBatch() {
+        Main.CliArgs a = Main.CliArgs.parse(new String[] {"--batch", "repos.json", "--batch-threads", "3", "--batch-summary", "s.json", "--deps", "false"});
+        assertEquals("repos.json", a.batch);
+        assertEquals(3, a.batchThreads);
+        assertEquals("s.json", a.batchSummary);
+        assertEquals(List.of("--deps", "false"), Main.batchCommonArgs(new String[] {"--batch", "repos.json", "--deps", "false", "--batch-threads", "3"}));
+        assertEquals(1, Main.run(new String[] {"--batch", "repos.json", "--source", "x"}));
+    }
+
     @Test
     void unknownFlagThrows() {
         assertThrows(IllegalArgumentException.class, () -> Main.CliArgs.parse(new String[] {"--nope"}));
@@ -0,0 +1,38 @@
+package info.isaksson.erland.javatoxmi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MainZipSourceSmokeTest {
+
+    @Test
+    void acceptsZipArchiveAsSource(@TempDir Path tmp) throws Exception {
+        Path zip = tmp.resolve("shop.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
+            zos.putNextEntry(new ZipEntry("src/main/java/demo/A.java"));
+            zos.write("package demo; public class A { B b; }".getBytes());
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("src/main/java/demo/B.java"));
+            zos.write("package demo; public class B { }".getBytes());
+            zos.closeEntry();
+        }
+
+        Path xmi = tmp.resolve("out/model.xmi");
+        int code = Main.run(new String[] {"--source", zip.toString(), "--output", xmi.toString()});
+        assertEquals(0, code);
+
+        String xmiText = Files.readString(xmi);
+        assertTrue(xmiText.contains("name=\"shop\""), "Model name should be derived from the archive name");
+        assertTrue(xmiText.contains("name=\"A\"") && xmiText.contains("name=\"B\""));
+
+        String report = Files.readString(tmp.resolve("out/report.md"));
+        assertTrue(report.contains("- `src/main/java/demo/A.java`"), report);
+    }
+}
@@ -0,0 +1,135 @@
+package info.isaksson.erland.javatoxmi.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import info.isaksson.erland.javatoxmi.CliCommand;
+import info.isaksson.erland.javatoxmi.Main;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Entries run concurrently in one JVM, produce the same XMI as single runs, and fail on their own. */
+public class BatchModeTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void runsJsonManifestAndIsolatesFailures(@TempDir Path tmp) throws Exception {
+        copyFixture(tmp.resolve("in/react-mini.json"));
+        Files.createDirectories(tmp.resolve("src/com/acme"));
+        Files.writeString(tmp.resolve("src/com/acme/Order.java"), "package com.acme; public class Order { }");
+        Files.writeString(tmp.resolve("batch.json"), "{\n"
+                + "  \"args\": [\"--no-stereotypes\"],\n"
+                + "  \"entries\": [\n"
+                + "    {\"id\": \"react\", \"ir\": \"in/react-mini.json\", \"output\": \"out/react/model.xmi\"},\n"
+                + "    {\"id\": \"java\", \"source\": \"src\", \"output\": \"out/java/model.xmi\", \"args\": [\"--deps\", \"false\"]},\n"
+                + "    {\"id\": \"missing\", \"source\": \"nope\", \"output\": \"out/missing/model.xmi\"},\n"
+                + "    {\"id\": \"noOutput\", \"ir\": \"in/react-mini.json\"}\n"
+                + "  ]\n"
+                + "}\n");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Path summary = tmp.resolve("out/summary.json");
+        int code = BatchMode.run(tmp.resolve("batch.json"), 2, List.of("--name", "batched"), summary, Main::run,
+                new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+
+        assertEquals(1, code);
+        String stdout = out.toString(StandardCharsets.UTF_8);
+        assertTrue(stdout.contains("- Entries: 4 (ok: 2, failed: 2)"), stdout);
+        String stderr = err.toString(StandardCharsets.UTF_8);
+        assertTrue(stderr.contains("--- missing (exit 1)"), stderr);
+        assertTrue(stderr.contains("\"output\" is required"), stderr);
+
+        // Same document as a single run with the combined arguments.
+        Path single = tmp.resolve("single/model.xmi");
+        assertEquals(0, Main.run(new String[] {"--no-stereotypes", "--name", "batched",
+                "--ir", tmp.resolve("in/react-mini.json").toString(), "--output", single.toString()}));
+        assertEquals(Files.readString(single), Files.readString(tmp.resolve("out/react/model.xmi")));
+        assertTrue(Files.readString(tmp.resolve("out/java/model.xmi")).contains("Order"));
+
+        JsonNode entries = MAPPER.readTree(summary.toFile()).get("entries");
+        assertEquals(4, entries.size());
+        assertEquals("react", entries.get(0).get("id").asText());
+        assertEquals(0, entries.get(0).get("exitCode").asInt());
+        assertEquals(0, entries.get(1).get("exitCode").asInt(), entries.get(1).toString());
+        assertEquals(1, entries.get(2).get("exitCode").asInt());
+        assertTrue(entries.get(2).get("stderr").asText().contains("--source does not exist"));
+    }
+
+    @Test
+    void entriesShareTheProcessorsForParsing(@TempDir Path tmp) throws Exception {
+        Files.writeString(tmp.resolve("batch.json"), "{\"entries\": ["
+                + "{\"id\": \"own\", \"ir\": \"a.json\", \"output\": \"a\", \"args\": [\"--parse-threads\", \"3\"]},"
+                + "{\"id\": \"shared\", \"ir\": \"b.json\", \"output\": \"b\"}]}");
+        BatchManifest m = BatchManifest.read(tmp.resolve("batch.json"));
+        List<List<String>> seen = new ArrayList<>();
+        CliCommand cli = (args, o, e) -> {
+            seen.add(List.of(args));
+            return 0;
+        };
+
+        BatchMode.runEntry(m.entries.get(0), List.of(), List.of(), 2, cli);
+        BatchMode.runEntry(m.entries.get(1), List.of(), List.of(), 2, cli);
+        assertEquals(1, Collections.frequency(seen.get(0), "--parse-threads"));
+        assertEquals("3", seen.get(0).get(seen.get(0).indexOf("--parse-threads") + 1));
+        assertEquals(List.of("--parse-threads", "2"), seen.get(1).subList(seen.get(1).size() - 2, seen.get(1).size()));
+    }
+
+    @Test
+    void errorsStopTheBatch(@TempDir Path tmp) throws Exception {
+        Files.writeString(tmp.resolve("batch.json"), "{\"entries\": [{\"ir\": \"a.json\", \"output\": \"a\"}]}");
+        assertThrows(OutOfMemoryError.class, () -> BatchMode.run(tmp.resolve("batch.json"), 1, List.of(), null,
+                (args, o, e) -> { throw new OutOfMemoryError("test"); }, System.out, System.err));
+    }
+
+    @Test
+    void readsCsvManifest(@TempDir Path tmp) throws Exception {
+        Files.writeString(tmp.resolve("batch.csv"), "id,ir,output,args\n"
+                + "# nightly\n"
+                + "\n"
+                + "a,in/a.json,out/a,\"--deps false --id-hash fast\"\n"
+                + ",\"in/b,1.json\",out/b,\n");
+
+        BatchManifest m = BatchManifest.read(tmp.resolve("batch.csv"));
+        assertEquals(2, m.entries.size());
+        BatchManifest.Entry a = m.entries.get(0);
+        assertEquals("a", a.id);
+        assertNull(a.error);
+        assertEquals(List.of("--ir", tmp.resolve("in/a.json").toString(), "--output", tmp.resolve("out/a").toString(),
+                "--deps", "false", "--id-hash", "fast"), a.args);
+        assertEquals("in/b,1.json", m.entries.get(1).id);
+    }
+
+    @Test
+    void rejectsMalformedManifest(@TempDir Path tmp) throws Exception {
+        Files.writeString(tmp.resolve("bad.json"), "{\"entries\": 3}");
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        assertEquals(1, BatchMode.run(tmp.resolve("bad.json"), 1, List.of(), null, (args, o, e) -> 0,
+                System.out, new PrintStream(err, true, StandardCharsets.UTF_8)));
+        assertEquals(2, BatchMode.run(tmp.resolve("missing.json"), 1, List.of(), null, (args, o, e) -> 0,
+                System.out, System.err));
+
+        assertEquals(List.of(Map.of("id", "x", "ir", "y")), BatchManifest.readCsv(List.of("id,ir", "x,y")));
+    }
+
+    private static void copyFixture(Path target) throws Exception {
+        Files.createDirectories(target.getParent());
+        try (InputStream in = BatchModeTest.class.getResourceAsStream("/ir/golden/react-mini.json")) {
+            assertNotNull(in, "fixture must exist in test resources");
+            Files.copy(in, target);
+        }
+    }
+}
@@ -68,4 +68,53 @@ public class SourceScannerTest {
         assertEquals(1, files.size());
         assertEquals("src/main/java/p/Keep.java", tmp.relativize(files.get(0)).toString().replace("\\", "/"));
     }
+
+    @Test
+    void prunesExcludedSubtreesAndRecordsCounters(@TempDir Path tmp) throws Exception {
+        Path keep = tmp.resolve("mod/src/main/java/p/Keep.java");
+        Path nestedTarget = tmp.resolve("mod/target/classes/p/Nested.java");
+        Path gen = tmp.resolve("mod/src/main/java/p/generated/deep/Gen.java");
+        Path test = tmp.resolve("mod/src/test/java/p/KeepTest.java");
+        for (Path p : List.of(keep, nestedTarget, gen, test)) {
+            Files.createDirectories(p.getParent());
+            Files.writeString(p, "package p; class X {}");
+        }
+        Files.createDirectories(tmp.resolve("node_modules/lib/src"));
+        Files.writeString(tmp.resolve("node_modules/lib/src/Lib.java"), "class Lib {}");
+
+        ScanStats stats = new ScanStats();
+        List<Path> files = SourceScanner.scan(tmp, List.of("**/generated/**"), false, stats);
+
+        // Only root-level build folders are excluded (nested "mod/target" is kept, as before).
+        assertEquals(List.of("mod/src/main/java/p/Keep.java", "mod/target/classes/p/Nested.java"),
+                files.stream().map(f -> tmp.relativize(f).toString().replace("\\", "/")).toList());
+
+        // node_modules, mod/src/test and .../generated are skipped without being entered.
+        assertEquals(3, stats.prunedDirectories());
+        // tmp, mod, mod/src, mod/src/main, mod/src/main/java, mod/src/main/java/p, mod/target, mod/target/classes, mod/target/classes/p
+        assertEquals(9, stats.visitedDirectories());
+        assertEquals(2, stats.javaFiles());
+    }
+
+    @Test
+    void pruningMatchesUnprunedFiltering(@TempDir Path tmp) throws Exception {
+        String[] rels = {
+                "A.java", "test/T.java", "src/it/I.java", "lib/tests/u/U.java", "lib/testsuite/S.java",
+                "build/B.java", "sub/build/SB.java", "gen/G.java", "x/gen/XG.java", "README.md"
+        };
+        for (String r : rels) {
+            Path p = tmp.resolve(r);
+            Files.createDirectories(p.getParent());
+            Files.writeString(p, "class X {}");
+        }
+
+        List<String> noTests = SourceScanner.scan(tmp, List.of("gen"), false).stream()
+                .map(f -> tmp.relativize(f).toString().replace("\\", "/")).toList();
+        assertEquals(List.of("A.java", "lib/testsuite/S.java", "sub/build/SB.java", "x/gen/XG.java"), noTests);
+
+        List<String> withTests = SourceScanner.scan(tmp, List.of("gen"), true).stream()
+                .map(f -> tmp.relativize(f).toString().replace("\\", "/")).toList();
+        assertEquals(List.of("A.java", "lib/tests/u/U.java", "lib/testsuite/S.java", "src/it/I.java",
+                "sub/build/SB.java", "test/T.java", "x/gen/XG.java"), withTests);
+    }
 }
@@ -0,0 +1,127 @@
+package info.isaksson.erland.javatoxmi.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Uploads are parsed as they arrive: files go to temporary files, small text fields stay in memory. */
+public class MultipartFormTest {
+
+    private static final String BOUNDARY = "j2x-form-boundary";
+    private static final String CONTENT_TYPE = "multipart/form-data; boundary=" + BOUNDARY;
+
+    @Test
+    void filePartsAreStreamedToTemporaryFilesThatCloseDeletes() throws Exception {
+        byte[] upload = new byte[300_000];
+        for (int i = 0; i < upload.length; i++) {
+            // Includes CR, LF and '-' bytes that partially match the delimiter.
+            upload[i] = (byte) "\r\n--j2x-form-bound\r\n-".charAt(i % 21);
+        }
+        byte[] body = body(upload);
+
+        Path file;
+        try (MultipartForm form = MultipartForm.read(CONTENT_TYPE, new Trickle(body), body.length, body.length)) {
+            assertEquals("xmi", form.field("resultFormat"));
+            assertEquals(List.of("**/a/**", "**/b/**"), form.fields("exclude"));
+
+            MultipartForm.Part zip = form.file("inputZip");
+            assertEquals("source.zip", zip.filename);
+            assertEquals(upload.length, zip.size());
+            file = zip.file;
+            assertNotNull(file, "file uploads are kept on disk");
+            try (InputStream in = zip.open()) {
+                assertArrayEquals(upload, in.readAllBytes());
+            }
+        }
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void largeTextFieldsRoundTripThroughTheSpill() throws Exception {
+        String big = "x".repeat(MultipartForm.TEXT_IN_MEMORY_BYTES + 1);
+        byte[] body = new Form().field("irJson", big).bytes();
+
+        try (MultipartForm form = MultipartForm.read(CONTENT_TYPE, new ByteArrayInputStream(body), -1, body.length)) {
+            assertEquals(big, form.field("irJson"));
+        }
+    }
+
+    @Test
+    void rejectsBodiesOverTheLimitWhileReading() {
+        byte[] body = body(new byte[4096]);
+        assertThrows(MultipartForm.TooLargeException.class,
+                () -> MultipartForm.read(CONTENT_TYPE, new ByteArrayInputStream(body), -1, 1024));
+        assertThrows(MultipartForm.TooLargeException.class,
+                () -> MultipartForm.read(CONTENT_TYPE, new ByteArrayInputStream(body), body.length, 1024));
+    }
+
+    @Test
+    void rejectsTruncatedBodies() {
+        byte[] body = body(new byte[100]);
+        byte[] truncated = Arrays.copyOf(body, body.length - 10);
+        assertThrows(IllegalArgumentException.class,
+                () -> MultipartForm.read(CONTENT_TYPE, new ByteArrayInputStream(truncated), -1, body.length));
+    }
+
+    private static byte[] body(byte[] upload) {
+        return new Form()
+                .field("resultFormat", "xmi")
+                .field("exclude", "**/a/**")
+                .file("inputZip", "source.zip", upload)
+                .field("exclude", "**/b/**")
+                .bytes();
+    }
+
+    /** Hands out the body a few bytes at a time, so delimiters straddle reads. */
+    private static final class Trickle extends FilterInputStream {
+        private int next;
+
+        Trickle(byte[] body) {
+            super(new ByteArrayInputStream(body));
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            next = next % 7 + 1;
+            return super.read(b, off, Math.min(len, next));
+        }
+    }
+
+    private static final class Form {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Form field(String name, String value) {
+            part("Content-Disposition: form-data; name=\"" + name + "\"\r\n",
+                    value.getBytes(StandardCharsets.UTF_8));
+            return this;
+        }
+
+        Form file(String name, String filename, byte[] content) {
+            part("Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n", content);
+            return this;
+        }
+
+        private void part(String headers, byte[] content) {
+            out.writeBytes(("--" + BOUNDARY + "\r\n" + headers + "\r\n").getBytes(StandardCharsets.UTF_8));
+            out.writeBytes(content);
+            out.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] bytes() {
+            out.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            return out.toByteArray();
+        }
+    }
+}
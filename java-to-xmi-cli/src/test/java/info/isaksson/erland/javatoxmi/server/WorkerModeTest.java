@@ -0,0 +1,104 @@
+package info.isaksson.erland.javatoxmi.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import info.isaksson.erland.javatoxmi.Main;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Jobs run in-process one after another; failures are replies, not the end of the worker. */
+public class WorkerModeTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void runsJobsUntilStdinCloses(@TempDir Path tmp) throws Exception {
+        Path ir = tmp.resolve("react-mini.json");
+        try (InputStream in = WorkerModeTest.class.getResourceAsStream("/ir/golden/react-mini.json")) {
+            assertNotNull(in, "fixture must exist in test resources");
+            Files.copy(in, ir);
+        }
+        Path xmi = tmp.resolve("out/model.xmi");
+
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        DataOutputStream frames = new DataOutputStream(requests);
+        frame(frames, "{\"id\":1,\"args\":[\"--ir\"," + MAPPER.writeValueAsString(ir.toString())
+                + ",\"--output\"," + MAPPER.writeValueAsString(xmi.toString()) + ",\"--no-stereotypes\"]}");
+        frame(frames, "{\"id\":\"two\",\"args\":[\"--nope\"]}");
+        frame(frames, "not json");
+        frame(frames, "{\"id\":4,\"args\":[\"--worker\"]}");
+
+        PrintStreamGuard guard = new PrintStreamGuard();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int code = WorkerMode.run(new ByteArrayInputStream(requests.toByteArray()), out, Main::run);
+        guard.assertRestored();
+        assertEquals(0, code);
+
+        List<JsonNode> replies = replies(out.toByteArray());
+        assertEquals(4, replies.size());
+
+        assertEquals(1, replies.get(0).get("id").asInt());
+        assertEquals(0, replies.get(0).get("exitCode").asInt(), replies.get(0).toString());
+        assertTrue(replies.get(0).get("stdout").asText().contains("java-to-xmi (IR mode)"));
+        assertTrue(replies.get(0).get("heapMax").asLong() > 0);
+        assertTrue(Files.readString(xmi).contains("xmi:XMI"));
+
+        assertEquals("two", replies.get(1).get("id").asText());
+        assertEquals(1, replies.get(1).get("exitCode").asInt());
+        assertTrue(replies.get(1).get("stderr").asText().contains("Unknown argument: --nope"));
+
+        assertTrue(replies.get(2).get("id").isNull());
+        assertTrue(replies.get(2).get("stderr").asText().startsWith("Error: invalid job"));
+
+        assertEquals(4, replies.get(3).get("id").asInt());
+        assertEquals(1, replies.get(3).get("exitCode").asInt());
+    }
+
+    @Test
+    void stopsOnAnImpossibleFrameLength() throws Exception {
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        new DataOutputStream(requests).writeInt(-5);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, WorkerMode.run(new ByteArrayInputStream(requests.toByteArray()), out, (args, stdout, stderr) -> 0));
+        assertEquals(1, replies(out.toByteArray()).size());
+    }
+
+    private static void frame(DataOutputStream out, String json) throws Exception {
+        byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    private static List<JsonNode> replies(byte[] bytes) throws Exception {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        List<JsonNode> out = new ArrayList<>();
+        while (in.available() > 0) {
+            out.add(MAPPER.readTree(WorkerMode.readFrame(in)));
+        }
+        return out;
+    }
+
+    private static final class PrintStreamGuard {
+        private final java.io.PrintStream out = System.out;
+        private final java.io.PrintStream err = System.err;
+
+        void assertRestored() {
+            assertSame(out, System.out);
+            assertSame(err, System.err);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package info.isaksson.erland.javatoxmi.server;
+
+import info.isaksson.erland.javatoxmi.core.JavaToXmiOptions;
+import info.isaksson.erland.javatoxmi.core.JavaToXmiService;
+import info.isaksson.erland.javatoxmi.ir.IrJson;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** The serve mode must answer the xmi-service contract with the same documents as the core service. */
+public class XmiHttpServerTest {
+
+    private static final String BOUNDARY = "j2x-test-boundary";
+
+    private static XmiHttpServer server;
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = XmiHttpServer.start(XmiHttpServer.ServeArgs.parse(new String[] {
+                "--host", "127.0.0.1", "--port", "0", "--max-concurrent", "2", "--max-request-bytes", "65536"}));
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void health() throws Exception {
+        HttpResponse<String> res = client.send(HttpRequest.newBuilder(uri("/health")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, res.statusCode());
+        assertEquals("{\"ok\":true}", res.body());
+    }
+
+    @Test
+    void convertsIrFileLikeTheService() throws Exception {
+        byte[] ir = fixture("/ir/golden/react-mini.json");
+
+        HttpResponse<String> res = post(new Form().file("irFile", "model.ir.json", ir).field("noStereotypes", "true"));
+        assertEquals(200, res.statusCode());
+        assertEquals("application/xml", res.headers().firstValue("content-type").orElse(""));
+
+        JavaToXmiOptions opts = new JavaToXmiOptions();
+        opts.modelName = "model.ir";
+        opts.includeStereotypes = false;
+        String expected = new JavaToXmiService().generateFromIr(IrJson.readFromString(new String(ir, StandardCharsets.UTF_8)), opts).xmiString();
+        assertEquals(expected, res.body());
+
+        HttpResponse<String> echo = post(new Form().field("irJson", new String(ir, StandardCharsets.UTF_8)).field("resultFormat", "ir"));
+        assertEquals(200, echo.statusCode());
+        assertEquals(new String(ir, StandardCharsets.UTF_8), echo.body());
+    }
+
+    @Test
+    void convertsJavaZipToXmiAndIr() throws Exception {
+        byte[] zip = zip("src/main/java/com/acme/Order.java", "package com.acme; public class Order { Customer customer; }",
+                "src/main/java/com/acme/Customer.java", "package com.acme; public class Customer { }",
+                "src/main/java/com/acme/gen/Gen.java", "package com.acme.gen; public class Gen { }");
+
+        HttpResponse<String> xmi = post(new Form().field("language", "java").file("inputZip", "in.zip", zip)
+                .field("exclude", "**/gen/**").field("associations", "smart"));
+        assertEquals(200, xmi.statusCode());
+
+        JavaToXmiOptions opts = new JavaToXmiOptions();
+        opts.modelName = "source";
+        opts.associationPolicy = info.isaksson.erland.javatoxmi.uml.AssociationPolicy.SMART;
+        String expected = new JavaToXmiService().generateFromZip(zip, List.of("**/gen/**"), opts).xmiString();
+        assertEquals(expected, xmi.body());
+
+        HttpResponse<String> ir = post(new Form().field("language", "java").file("inputZip", "in.zip", zip).field("resultFormat", "ir"));
+        assertEquals(200, ir.statusCode());
+        assertTrue(ir.headers().firstValue("content-disposition").orElse("").contains("model.ir.json"));
+        assertTrue(ir.body().contains("com.acme.Order"), ir.body());
+    }
+
+    @Test
+    void rejectsBadRequests() throws Exception {
+        assertEquals(400, post(new Form().field("resultFormat", "pdf")).statusCode());
+        assertEquals(400, post(new Form().field("language", "cobol")).statusCode());
+        HttpResponse<String> noInput = post(new Form().field("language", "java"));
+        assertEquals(400, noInput.statusCode());
+        assertEquals("{\"error\":\"Provide inputZip or repoUrl\"}", noInput.body());
+
+        assertEquals(413, post(new Form().file("irFile", "big.json", new byte[70_000])).statusCode());
+        assertEquals(500, post(new Form().field("irJson", "{ not json")).statusCode());
+        assertEquals(404, client.send(HttpRequest.newBuilder(uri("/nope")).build(), HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    void parsesServeArgs() {
+        XmiHttpServer.ServeArgs a = XmiHttpServer.ServeArgs.parse(new String[] {"--port", "8080", "--max-concurrent", "3"});
+        assertEquals(8080, a.port);
+        assertEquals(3, a.maxConcurrent);
+        assertEquals(XmiHttpServer.DEFAULT_MAX_REQUEST_BYTES, a.maxRequestBytes);
+        assertEquals(0, a.resultCacheBytes);
+        XmiHttpServer.ServeArgs c = XmiHttpServer.ServeArgs.parse(new String[] {"--result-cache-bytes", "1048576", "--result-cache-dir", "/tmp/x"});
+        assertEquals(1048576, c.resultCacheBytes);
+        assertEquals("/tmp/x", c.resultCacheDir);
+        assertEquals(XmiHttpServer.DEFAULT_RESULT_CACHE_DIR_BYTES, c.resultCacheDirBytes);
+        assertThrows(IllegalArgumentException.class, () -> XmiHttpServer.ServeArgs.parse(new String[] {"--max-concurrent", "0"}));
+        assertThrows(IllegalArgumentException.class, () -> XmiHttpServer.ServeArgs.parse(new String[] {"--source", "x"}));
+    }
+
+    private static HttpResponse<String> post(Form form) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri("/v1/xmi"))
+                        .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(form.bytes()))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.port() + path);
+    }
+
+    private static byte[] fixture(String resource) throws Exception {
+        try (InputStream in = XmiHttpServerTest.class.getResourceAsStream(resource)) {
+            assertNotNull(in, "fixture must exist in test resources: " + resource);
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] zip(String... pathsAndContents) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < pathsAndContents.length; i += 2) {
+                zos.putNextEntry(new ZipEntry(pathsAndContents[i]));
+                zos.write(pathsAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static final class Form {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Form field(String name, String value) {
+            return part("Content-Disposition: form-data; name=\"" + name + "\"\r\n", value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Form file(String name, String filename, byte[] data) {
+            return part("Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n", data);
+        }
+
+        private Form part(String headers, byte[] data) {
+            out.writeBytes(("--" + BOUNDARY + "\r\n" + headers + "\r\n").getBytes(StandardCharsets.UTF_8));
+            out.writeBytes(data);
+            out.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+            return this;
+        }
+
+        byte[] bytes() {
+            ByteArrayOutputStream all = new ByteArrayOutputStream();
+            all.writeBytes(out.toByteArray());
+            all.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            return all.toByteArray();
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package info.isaksson.erland.javatoxmi.core;
 
 import info.isaksson.erland.javatoxmi.uml.AssociationPolicy;
+import info.isaksson.erland.javatoxmi.uml.IdHashMode;
 import info.isaksson.erland.javatoxmi.uml.NestedTypesMode;
 
+import java.nio.file.Path;
+
 /**
  * Core (server-friendly) options for java-to-xmi conversion.
  *
@@ -27,6 +30,62 @@ public final class JavaToXmiOptions {
     /** Source scanning controls (Java mode). */
     public boolean includeTests = false;
 
+    /**
+     * Number of threads used to parse Java compilation units (Java mode), or to read the shards of a sharded
+     * NDJSON IR directory (IR mode).
+     *
+     * <p>{@code 0} (default) uses one thread per available processor, {@code 1} parses sequentially.
+     * The generated XMI is identical regardless of this setting.</p>
+     */
+    public int parseThreads = 0;
+
+    /**
+     * Directory of a persistent per-compilation-unit extraction cache (Java mode), or {@code null} to disable.
+     *
+     * <p>Unchanged files are served from the cache instead of being parsed again; the output is identical
+     * to an uncached run.</p>
+     */
+    public Path extractionCacheDir = null;
+
+    /**
+     * Bounded-memory extraction (Java mode): a first pass only builds the project type index, a second pass
+     * parses, extracts and drops each compilation unit in turn, so at most one AST per parse thread is alive.
+     *
+     * <p>The first pass reads declaration headers only; the output is identical to the default mode.</p>
+     */
+    public boolean streamingExtraction = false;
+
+    /**
+     * Hash function behind the deterministic xmi:ids.
+     *
+     * <p>{@link IdHashMode#COMPATIBLE} (default) keeps the IDs of earlier releases byte-for-byte;
+     * {@link IdHashMode#FAST} is cheaper on very large models but yields different (still deterministic) IDs.</p>
+     */
+    public IdHashMode idHashMode = IdHashMode.COMPATIBLE;
+
+    /**
+     * Verification mode: before writing, compare the xmi:ids taken from the build-time id table with the legacy
+     * whole-tree assignment and fail with an {@link IllegalStateException} if any differ. Slower; for diagnostics.
+     */
+    public boolean verifyXmiIds = false;
+
+    /**
+     * Whether the result keeps the {@code JModel}, the UML model, the IR model and the Java file list.
+     *
+     * <p>Turn off in servers that only need the XMI, so the model graphs can be collected as soon as the
+     * document is written. Counts and build stats are kept either way.</p>
+     */
+    public boolean retainModels = true;
+
+    /**
+     * Cache of generated documents shared between conversions, or {@code null} (default) to always run the pipeline.
+     *
+     * <p>A hit returns the same XMI without extracting or building anything, so the result holds no model graphs
+     * or file list regardless of {@link #retainModels}; see {@link JavaToXmiResult#fromCache}. With
+     * {@link #verifyXmiIds} on, the cache is bypassed.</p>
+     */
+    public XmiResultCache resultCache = null;
+
     /**
      * If true, callers may treat unresolved types as an error condition.
      * (Core does not throw by default; this is for upstream policy.)
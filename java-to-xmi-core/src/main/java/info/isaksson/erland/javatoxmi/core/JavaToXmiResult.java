@@ -1,6 +1,7 @@
 package info.isaksson.erland.javatoxmi.core;
 
 import info.isaksson.erland.javatoxmi.ir.IrModel;
+import info.isaksson.erland.javatoxmi.ir.IrSummary;
 import info.isaksson.erland.javatoxmi.model.JModel;
 import info.isaksson.erland.javatoxmi.uml.UmlBuildStats;
 import org.eclipse.uml2.uml.Model;
@@ -8,31 +9,43 @@ import org.eclipse.uml2.uml.Model;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
-/** Conversion result container for programmatic usage. */
+/**
+ * Conversion result container for programmatic usage.
+ *
+ * <p>When the XMI was written to a caller's stream the result does not hold the document at all;
+ * otherwise it keeps the string and encodes the bytes only when asked for. With
+ * {@link JavaToXmiOptions#retainModels} off, the model graphs and the file list are not kept either.</p>
+ */
 public final class JavaToXmiResult {
-    /** UTF-8 encoded XMI document. */
-    public final byte[] xmiBytes;
+    private final String xmi;
+    private byte[] xmiBytes;
 
-    /** Convenience: decoded XMI. */
-    public final String xmiString;
-
-    /** Present for Java-source mode. */
+    /** Present for Java-source mode (unless models are not retained). */
     public final JModel jModel;
 
-    /** Present when the UML object graph was built (Java-source mode and IR mode). */
+    /** Present when the UML object graph was built (Java-source mode and IR mode, unless models are not retained). */
     public final Model umlModel;
 
     /** UML build stats (Java-source mode and IR mode). */
     public final UmlBuildStats stats;
 
-    /** Present for IR mode. */
+    /** Present for IR mode (unless models are not retained). */
     public final IrModel irModel;
 
-    /** Present for Java-source mode. */
+    /** Present for Java-source mode (unless models are not retained). */
     public final List<java.nio.file.Path> javaFiles;
 
     public final int unresolvedTypeCount;
 
+    /** Key of this conversion in {@link JavaToXmiOptions#resultCache}, or {@code null} without a cache. */
+    public final String cacheKey;
+
+    /** Whether the document was served from {@link JavaToXmiOptions#resultCache}; such results hold no models. */
+    public final boolean fromCache;
+
+    /** Size of the IR (IR mode, unless served from the cache). */
+    public final IrSummary irSummary;
+
     JavaToXmiResult(
             String xmi,
             JModel jModel,
@@ -42,13 +55,47 @@ public final class JavaToXmiResult {
             List<java.nio.file.Path> javaFiles,
             int unresolvedTypeCount
     ) {
-        this.xmiString = xmi;
-        this.xmiBytes = xmi.getBytes(StandardCharsets.UTF_8);
+        this(xmi, jModel, umlModel, stats, irModel, javaFiles, unresolvedTypeCount, null, false, null);
+    }
+
+    JavaToXmiResult(
+            String xmi,
+            JModel jModel,
+            Model umlModel,
+            UmlBuildStats stats,
+            IrModel irModel,
+            List<java.nio.file.Path> javaFiles,
+            int unresolvedTypeCount,
+            String cacheKey,
+            boolean fromCache,
+            IrSummary irSummary
+    ) {
+        this.xmi = xmi;
         this.jModel = jModel;
         this.umlModel = umlModel;
         this.stats = stats;
         this.irModel = irModel;
         this.javaFiles = javaFiles;
         this.unresolvedTypeCount = unresolvedTypeCount;
+        this.cacheKey = cacheKey;
+        this.fromCache = fromCache;
+        this.irSummary = irSummary;
+    }
+
+    /** The XMI document, or {@code null} if it was written to a stream instead. */
+    public String xmiString() {
+        return xmi;
+    }
+
+    /**
+     * UTF-8 encoded XMI document, or {@code null} if it was written to a stream instead.
+     *
+     * <p>Encoded on first use; the returned array is shared, do not modify it.</p>
+     */
+    public synchronized byte[] xmiBytes() {
+        if (xmiBytes == null && xmi != null) {
+            xmiBytes = xmi.getBytes(StandardCharsets.UTF_8);
+        }
+        return xmiBytes;
     }
 }
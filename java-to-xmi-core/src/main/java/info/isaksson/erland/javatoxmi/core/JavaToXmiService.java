@@ -2,14 +2,25 @@ package info.isaksson.erland.javatoxmi.core;
 
 import info.isaksson.erland.javatoxmi.emitter.EmitterOptions;
 import info.isaksson.erland.javatoxmi.emitter.XmiEmitter;
+import info.isaksson.erland.javatoxmi.extract.ExtractionCache;
 import info.isaksson.erland.javatoxmi.extract.JavaExtractor;
+import info.isaksson.erland.javatoxmi.io.SourceReader;
 import info.isaksson.erland.javatoxmi.io.SourceScanner;
+import info.isaksson.erland.javatoxmi.io.ZipSourceReader;
+import info.isaksson.erland.javatoxmi.io.ZipSources;
+import info.isaksson.erland.javatoxmi.ir.IrJson;
 import info.isaksson.erland.javatoxmi.ir.IrModel;
+import info.isaksson.erland.javatoxmi.ir.IrSummary;
 import info.isaksson.erland.javatoxmi.model.JModel;
 import info.isaksson.erland.javatoxmi.uml.UmlBuilder;
+import info.isaksson.erland.javatoxmi.uml.UmlIdStrategy;
+import info.isaksson.erland.javatoxmi.uml.UmlModelSource;
 import info.isaksson.erland.javatoxmi.xmi.XmiWriter;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -17,19 +28,92 @@ import java.util.List;
  * Core (server-friendly) API for generating UML XMI.
  *
  * <p>CLI and server wrappers should use this class instead of re-implementing the pipeline.</p>
+ *
+ * <p>Every entry point has an overload taking an {@link OutputStream}: the XMI (UTF-8) is written straight to it
+ * and the result does not hold the document. The stream is flushed, not closed. For a
+ * {@link java.nio.channels.WritableByteChannel} pass {@link java.nio.channels.Channels#newOutputStream}.</p>
+ *
+ * <p>With {@link JavaToXmiOptions#resultCache} set, a conversion whose input and options were seen before
+ * returns the cached document without running the pipeline.</p>
  */
 public final class JavaToXmiService {
 
     /** Generate XMI from a Java source directory. */
     public JavaToXmiResult generateFromSource(Path sourceRoot, List<String> excludeGlobs, JavaToXmiOptions options) throws IOException {
+        return generateFromSource(sourceRoot, excludeGlobs, options, null);
+    }
+
+    /** Generate XMI from a Java source directory, writing it to {@code out}. */
+    public JavaToXmiResult generateFromSource(Path sourceRoot, List<String> excludeGlobs, JavaToXmiOptions options, OutputStream out) throws IOException {
         if (sourceRoot == null) throw new IllegalArgumentException("sourceRoot must not be null");
         if (options == null) options = new JavaToXmiOptions();
 
         List<Path> javaFiles = SourceScanner.scan(sourceRoot, excludeGlobs == null ? List.of() : excludeGlobs, options.includeTests);
+        return generateFromJavaFiles(sourceRoot, javaFiles, SourceReader.fileSystem(), options, out);
+    }
+
+    /**
+     * Generate XMI from Java sources inside a ZIP file, without unpacking it.
+     *
+     * <p>Exclude globs and the test-folder rule are applied to entry paths relative to the archive root.
+     * {@link JavaToXmiResult#javaFiles} are relative to the archive root as well.</p>
+     */
+    public JavaToXmiResult generateFromZip(Path zipFile, List<String> excludeGlobs, JavaToXmiOptions options) throws IOException {
+        return generateFromZip(zipFile, excludeGlobs, options, null);
+    }
+
+    /** Generate XMI from Java sources inside a ZIP file, writing it to {@code out}. */
+    public JavaToXmiResult generateFromZip(Path zipFile, List<String> excludeGlobs, JavaToXmiOptions options, OutputStream out) throws IOException {
+        if (zipFile == null) throw new IllegalArgumentException("zipFile must not be null");
+        if (options == null) options = new JavaToXmiOptions();
+        ZipSources sources = ZipSourceReader.read(zipFile, excludeGlobs == null ? List.of() : excludeGlobs, options.includeTests);
+        return generateFromJavaFiles(sources.root(), sources.javaFiles, sources, options, out);
+    }
+
+    /** Generate XMI from Java sources inside an in-memory ZIP archive. */
+    public JavaToXmiResult generateFromZip(byte[] zipBytes, List<String> excludeGlobs, JavaToXmiOptions options) throws IOException {
+        return generateFromZip(zipBytes, excludeGlobs, options, null);
+    }
+
+    /** Generate XMI from Java sources inside an in-memory ZIP archive, writing it to {@code out}. */
+    public JavaToXmiResult generateFromZip(byte[] zipBytes, List<String> excludeGlobs, JavaToXmiOptions options, OutputStream out) throws IOException {
+        if (zipBytes == null) throw new IllegalArgumentException("zipBytes must not be null");
+        if (options == null) options = new JavaToXmiOptions();
+        ZipSources sources = ZipSourceReader.read(zipBytes, excludeGlobs == null ? List.of() : excludeGlobs, options.includeTests);
+        return generateFromJavaFiles(sources.root(), sources.javaFiles, sources, options, out);
+    }
+
+    /** Generate XMI from Java sources inside a ZIP stream. The stream is consumed but not closed. */
+    public JavaToXmiResult generateFromZip(InputStream zipStream, List<String> excludeGlobs, JavaToXmiOptions options) throws IOException {
+        return generateFromZip(zipStream, excludeGlobs, options, null);
+    }
+
+    /** Generate XMI from Java sources inside a ZIP stream, writing it to {@code out}. */
+    public JavaToXmiResult generateFromZip(InputStream zipStream, List<String> excludeGlobs, JavaToXmiOptions options, OutputStream out) throws IOException {
+        if (zipStream == null) throw new IllegalArgumentException("zipStream must not be null");
+        if (options == null) options = new JavaToXmiOptions();
+        ZipSources sources = ZipSourceReader.read(zipStream, excludeGlobs == null ? List.of() : excludeGlobs, options.includeTests);
+        return generateFromJavaFiles(sources.root(), sources.javaFiles, sources, options, out);
+    }
+
+    private JavaToXmiResult generateFromJavaFiles(Path sourceRoot, List<Path> javaFiles, SourceReader reader, JavaToXmiOptions options,
+                                                  OutputStream out) throws IOException {
+        XmiResultCache resultCache = resultCache(options);
+        String key = null;
+        if (resultCache != null) {
+            key = XmiResultCache.sourceKey(sourceRoot, javaFiles, reader.listAllFiles(sourceRoot), reader, options);
+            JavaToXmiResult hit = cached(resultCache, key, out);
+            if (hit != null) return hit;
+            if (out != null) out = new XmiResultCache.CapturingOutputStream(out, resultCache.maxEntryBytes());
+        }
 
-        JModel jModel = new JavaExtractor().extract(sourceRoot, javaFiles, options.includeDependencies);
+        ExtractionCache cache = options.extractionCacheDir == null ? null : new ExtractionCache(options.extractionCacheDir);
+        JModel jModel = new JavaExtractor(options.parseThreads, cache, options.streamingExtraction).extract(sourceRoot, javaFiles, options.includeDependencies, reader);
 
-        UmlBuilder.Result uml = new UmlBuilder().build(
+        UmlBuilder.Result uml;
+        String xmi = null;
+        UmlIdStrategy ids = UmlIdStrategy.of(options.idHashMode);
+        uml = new UmlBuilder(ids).build(
                 jModel,
                 options.modelName,
                 options.includeStereotypes,
@@ -39,31 +123,135 @@ public final class JavaToXmiService {
                 options.includeAccessors,
                 options.includeConstructors
         );
-
-        String xmi = XmiWriter.writeToString(uml.umlModel, options.includeStereotypes ? jModel : null);
+        if (options.verifyXmiIds) XmiWriter.requireDeterministicIds(uml.umlModel, ids);
+        UmlModelSource stereotypeSource = options.includeStereotypes ? UmlModelSource.of(jModel) : null;
+        if (out != null) {
+            XmiWriter.write(uml.umlModel, stereotypeSource, ids, out);
+        } else {
+            xmi = XmiWriter.writeToString(uml.umlModel, stereotypeSource, ids);
+        }
 
         int unresolved = jModel.unresolvedTypes == null ? 0 : jModel.unresolvedTypes.size();
-        return new JavaToXmiResult(xmi, jModel, uml.umlModel, uml.stats, null, javaFiles, unresolved);
+        JavaToXmiResult result = options.retainModels
+                ? new JavaToXmiResult(xmi, jModel, uml.umlModel, uml.stats, null, javaFiles, unresolved, key, false, null)
+                : new JavaToXmiResult(xmi, null, null, uml.stats, null, null, unresolved, key, false, null);
+        return remember(resultCache, key, out, result);
     }
 
     /** Generate XMI from a cross-language IR model. */
     public JavaToXmiResult generateFromIr(IrModel irModel, JavaToXmiOptions options) throws IOException {
+        return generateFromIr(irModel, options, null);
+    }
+
+    /** Generate XMI from a cross-language IR model, writing it to {@code out}. */
+    public JavaToXmiResult generateFromIr(IrModel irModel, JavaToXmiOptions options, OutputStream out) throws IOException {
         if (irModel == null) throw new IllegalArgumentException("irModel must not be null");
         if (options == null) options = new JavaToXmiOptions();
 
+        XmiResultCache resultCache = resultCache(options);
+        String key = null;
+        if (resultCache != null) {
+            key = XmiResultCache.irKey(irModel, options);
+            JavaToXmiResult hit = cached(resultCache, key, out);
+            if (hit != null) return hit;
+            if (out != null) out = new XmiResultCache.CapturingOutputStream(out, resultCache.maxEntryBytes());
+        }
+
         XmiEmitter emitter = new XmiEmitter();
+        EmitterOptions emitterOptions = emitterOptions(options);
+
+        String xmi = null;
+        XmiEmitter.Result build;
+        if (out != null) {
+            build = emitter.emitToStream(irModel, emitterOptions, out);
+        } else {
+            XmiEmitter.StringResult res = emitter.emitToStringWithResult(irModel, emitterOptions);
+            xmi = res.xmi;
+            build = res.build;
+        }
+        JavaToXmiResult result = options.retainModels
+                ? new JavaToXmiResult(xmi, null, build.umlModel, build.stats, irModel, null, 0, key, false, IrSummary.of(irModel))
+                : new JavaToXmiResult(xmi, null, null, build.stats, null, null, 0, key, false, IrSummary.of(irModel));
+        return remember(resultCache, key, out, result);
+    }
+
+    /**
+     * Generate XMI from IR JSON read from {@code irJson} (not closed), writing it to {@code out}.
+     *
+     * <p>The IR is streamed into the emitter ({@link XmiEmitter#emitToStream(InputStream, EmitterOptions, OutputStream)})
+     * instead of being parsed into an {@link IrModel} first, so very large IR files need far less heap. The result
+     * has no {@link JavaToXmiResult#irModel}; {@link JavaToXmiResult#irSummary} tells what was read. With a
+     * {@link JavaToXmiOptions#resultCache} the model is parsed after all, as the cache keys on its canonical JSON.</p>
+     */
+    public JavaToXmiResult generateFromIr(InputStream irJson, JavaToXmiOptions options, OutputStream out) throws IOException {
+        if (irJson == null) throw new IllegalArgumentException("irJson must not be null");
+        if (out == null) throw new IllegalArgumentException("out must not be null");
+        if (options == null) options = new JavaToXmiOptions();
+        if (resultCache(options) != null) {
+            return generateFromIr(IrJson.read(irJson), options, out);
+        }
+
+        XmiEmitter.Result build = new XmiEmitter().emitToStream(irJson, emitterOptions(options), out);
+        return new JavaToXmiResult(null, null, options.retainModels ? build.umlModel : null, build.stats, null, null, 0,
+                null, false, build.irSummary);
+    }
 
-        EmitterOptions emitterOptions = new EmitterOptions(
+    /**
+     * Generate XMI from an IR file in any format (JSON, binary, NDJSON) or a directory of NDJSON shards, streaming
+     * it like {@link #generateFromIr(InputStream, JavaToXmiOptions, OutputStream)}. Shards are read by
+     * {@link JavaToXmiOptions#parseThreads} threads.
+     */
+    public JavaToXmiResult generateFromIr(Path ir, JavaToXmiOptions options, OutputStream out) throws IOException {
+        if (ir == null) throw new IllegalArgumentException("ir must not be null");
+        if (out == null) throw new IllegalArgumentException("out must not be null");
+        if (options == null) options = new JavaToXmiOptions();
+        if (resultCache(options) != null) {
+            return generateFromIr(IrJson.read(ir), options, out);
+        }
+
+        XmiEmitter.Result build = new XmiEmitter().emitToStream(ir, options.parseThreads, emitterOptions(options), out);
+        return new JavaToXmiResult(null, null, options.retainModels ? build.umlModel : null, build.stats, null, null, 0,
+                null, false, build.irSummary);
+    }
+
+    private static EmitterOptions emitterOptions(JavaToXmiOptions options) {
+        return new EmitterOptions(
                 options.modelName,
                 options.includeStereotypes,
                 options.includeDependencies,
                 options.associationPolicy,
                 options.nestedTypesMode,
                 options.includeAccessors,
-                options.includeConstructors
+                options.includeConstructors,
+                options.idHashMode,
+                options.verifyXmiIds
         );
+    }
+
+    private static XmiResultCache resultCache(JavaToXmiOptions options) {
+        return options.verifyXmiIds ? null : options.resultCache;
+    }
+
+    /** The cached result for {@code key}, written to {@code out} if given, or {@code null} on a miss. */
+    private static JavaToXmiResult cached(XmiResultCache cache, String key, OutputStream out) throws IOException {
+        XmiResultCache.Entry e = cache.get(key);
+        if (e == null) return null;
+        String xmi = null;
+        if (out != null) {
+            out.write(e.xmi);
+            out.flush();
+        } else {
+            xmi = new String(e.xmi, StandardCharsets.UTF_8);
+        }
+        return new JavaToXmiResult(xmi, null, null, e.stats(), null, null, e.unresolvedTypeCount, key, true, null);
+    }
 
-        XmiEmitter.StringResult res = emitter.emitToStringWithResult(irModel, emitterOptions);
-        return new JavaToXmiResult(res.xmi, null, res.build.umlModel, res.build.stats, irModel, null, 0);
+    private static JavaToXmiResult remember(XmiResultCache cache, String key, OutputStream out, JavaToXmiResult result) {
+        if (cache == null) return result;
+        byte[] xmi = out instanceof XmiResultCache.CapturingOutputStream
+                ? ((XmiResultCache.CapturingOutputStream) out).captured()
+                : result.xmiBytes();
+        if (xmi != null) cache.put(key, new XmiResultCache.Entry(xmi, result.stats, result.unresolvedTypeCount));
+        return result;
     }
 }
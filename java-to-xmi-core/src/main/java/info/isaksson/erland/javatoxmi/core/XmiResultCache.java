@@ -0,0 +1,488 @@
+package info.isaksson.erland.javatoxmi.core;
+
+import info.isaksson.erland.javatoxmi.io.SourceReader;
+import info.isaksson.erland.javatoxmi.ir.IrJson;
+import info.isaksson.erland.javatoxmi.ir.IrModel;
+import info.isaksson.erland.javatoxmi.uml.UmlBuildStats;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of generated XMI documents, set on {@link JavaToXmiOptions#resultCache}.
+ *
+ * <p>The key is the SHA-256 of the input and of every option that affects the document:</p>
+ * <ul>
+ *   <li>Java sources (directory or ZIP): the relative path of every file and the content hash of every Java file
+ *       that survives the exclude rules, so the same sources hit wherever they are unpacked;</li>
+ *   <li>IR: the canonical (normalized) JSON of the model, so formatting and key order do not matter.</li>
+ * </ul>
+ * <p>Options that do not change the output ({@code parseThreads}, {@code extractionCacheDir},
+ * {@code streamingExtraction}, {@code retainModels}) are not part of the key.</p>
+ *
+ * <p>Documents are kept in an in-memory LRU bounded by bytes and, optionally, in a directory bounded by size
+ * (least recently used entries are deleted first). Like {@link info.isaksson.erland.javatoxmi.extract.ExtractionCache}
+ * the disk tier is best-effort: unreadable entries are misses and write failures are ignored. Entries are
+ * written atomically, so several processes may share a directory.</p>
+ *
+ * <p>Instances are thread-safe and meant to be shared by every conversion of a process.</p>
+ */
+public final class XmiResultCache {
+
+    /** Bumped whenever the generated XMI or the entry format changes. */
+    static final String FORMAT_VERSION = "1";
+
+    private static final int MAGIC = 0x4A32584D; // "J2XM"
+    private static final String SUFFIX = ".xmi-result";
+    /** Counters of a {@link UmlBuildStats} in an entry; see {@link #toArray}. */
+    private static final int STATS_LENGTH = 14;
+
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private final AtomicLong diskBytes = new AtomicLong(-1);
+    private final Object diskLock = new Object();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** A cached document with the counters a result reports. */
+    static final class Entry {
+        final byte[] xmi;
+        final int[] stats;
+        final int unresolvedTypeCount;
+
+        Entry(byte[] xmi, UmlBuildStats stats, int unresolvedTypeCount) {
+            this(xmi, toArray(stats), unresolvedTypeCount);
+        }
+
+        private Entry(byte[] xmi, int[] stats, int unresolvedTypeCount) {
+            this.xmi = xmi;
+            this.stats = stats;
+            this.unresolvedTypeCount = unresolvedTypeCount;
+        }
+
+        UmlBuildStats stats() {
+            return fromArray(stats);
+        }
+    }
+
+    /** Memory-only cache. */
+    public XmiResultCache(long maxMemoryBytes) {
+        this(maxMemoryBytes, null, 0);
+    }
+
+    /**
+     * @param maxMemoryBytes upper bound of the XMI bytes held in memory ({@code 0} disables the memory tier)
+     * @param directory      directory of the disk tier, or {@code null} for none
+     * @param maxDiskBytes   upper bound of the disk tier's size
+     */
+    public XmiResultCache(long maxMemoryBytes, Path directory, long maxDiskBytes) {
+        if (maxMemoryBytes < 0) throw new IllegalArgumentException("maxMemoryBytes must be >= 0");
+        if (directory != null && maxDiskBytes <= 0) throw new IllegalArgumentException("maxDiskBytes must be > 0");
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    /** Conversions served from memory. */
+    public long memoryHits() {
+        return memoryHits.get();
+    }
+
+    /** Conversions served from the disk tier. */
+    public long diskHits() {
+        return diskHits.get();
+    }
+
+    public long hits() {
+        return memoryHits.get() + diskHits.get();
+    }
+
+    /** Conversions that had to run the pipeline. */
+    public long misses() {
+        return misses.get();
+    }
+
+    /** Entries dropped from either tier to stay within its bound. */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    public synchronized long memoryBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized int memoryEntries() {
+        return memory.size();
+    }
+
+    /** Size of the disk tier as last seen by this instance ({@code 0} without one). */
+    public long diskBytes() {
+        if (directory == null) return 0;
+        long known = diskBytes.get();
+        return known >= 0 ? known : scanDisk();
+    }
+
+    /**
+     * Drop one entry from both tiers.
+     *
+     * @param key a {@link JavaToXmiResult#cacheKey}
+     * @return whether anything was removed
+     */
+    public boolean invalidate(String key) {
+        if (key == null) return false;
+        boolean removed;
+        synchronized (this) {
+            Entry e = memory.remove(key);
+            removed = e != null;
+            if (e != null) memoryBytes -= e.xmi.length;
+        }
+        if (directory != null) {
+            try {
+                Path p = entry(key);
+                long size = Files.isRegularFile(p) ? Files.size(p) : 0;
+                if (Files.deleteIfExists(p)) {
+                    removed = true;
+                    diskBytes.accumulateAndGet(size, (cur, s) -> cur >= 0 ? cur - s : cur);
+                }
+            } catch (IOException ignored) {
+                // best-effort
+            }
+        }
+        return removed;
+    }
+
+    /** Drop every entry from both tiers. */
+    public void invalidateAll() {
+        synchronized (this) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+        if (directory != null) {
+            for (Path p : diskEntries()) {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignored) {
+                    // best-effort
+                }
+            }
+            diskBytes.set(-1);
+        }
+    }
+
+    // ---- keys
+
+    /** Key of a Java-source conversion. {@code javaFiles} and {@code allFiles} are in deterministic order. */
+    static String sourceKey(Path root, List<Path> javaFiles, List<Path> allFiles, SourceReader reader, JavaToXmiOptions o)
+            throws IOException {
+        MessageDigest md = sha256();
+        update(md, FORMAT_VERSION + "|source|" + optionsKey(o));
+        for (Path p : allFiles) {
+            update(md, "|f|" + relative(root, p));
+        }
+        for (Path p : javaFiles) {
+            update(md, "|j|" + relative(root, p) + "|");
+            md.update(sha256().digest(reader.read(p).getBytes(StandardCharsets.UTF_8)));
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /** Key of an IR conversion. */
+    static String irKey(IrModel ir, JavaToXmiOptions o) throws IOException {
+        MessageDigest md = sha256();
+        update(md, FORMAT_VERSION + "|ir|" + optionsKey(o) + "|");
+        try (DigestOutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), md)) {
+            IrJson.write(ir, out);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private static String optionsKey(JavaToXmiOptions o) {
+        return o.modelName.length() + ":" + o.modelName
+                + "|" + o.includeStereotypes
+                + "|" + o.includeDependencies
+                + "|" + o.associationPolicy
+                + "|" + o.nestedTypesMode
+                + "|" + o.includeAccessors
+                + "|" + o.includeConstructors
+                + "|" + o.includeTests
+                + "|" + o.idHashMode
+                + "|" + o.failOnUnresolved;
+    }
+
+    private static String relative(Path root, Path p) {
+        Path r = root != null && p.isAbsolute() && p.startsWith(root) ? root.relativize(p) : p;
+        return r.toString().replace('\\', '/');
+    }
+
+    private static void update(MessageDigest md, String s) {
+        md.update(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // ---- lookup / store
+
+    /** @return the cached document, or {@code null} (counted as a miss) */
+    Entry get(String key) {
+        synchronized (this) {
+            Entry e = memory.get(key);
+            if (e != null) {
+                memoryHits.incrementAndGet();
+                return e;
+            }
+        }
+        Entry e = directory == null ? null : load(key);
+        if (e == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        remember(key, e);
+        return e;
+    }
+
+    void put(String key, Entry e) {
+        remember(key, e);
+        if (directory != null) store(key, e);
+    }
+
+    /** Largest document worth capturing for {@link #put}. */
+    long maxEntryBytes() {
+        return Math.max(maxMemoryBytes, directory == null ? 0 : maxDiskBytes);
+    }
+
+    private synchronized void remember(String key, Entry e) {
+        if (e.xmi.length > maxMemoryBytes) return;
+        Entry old = memory.put(key, e);
+        if (old != null) memoryBytes -= old.xmi.length;
+        memoryBytes += e.xmi.length;
+        Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            memoryBytes -= eldest.xmi.length;
+            evictions.incrementAndGet();
+        }
+    }
+
+    private Path entry(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + SUFFIX);
+    }
+
+    private Entry load(String key) {
+        Path p = entry(key);
+        if (!Files.isRegularFile(p)) return null;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(p))) {
+            if (in.readInt() != MAGIC || !FORMAT_VERSION.equals(in.readUTF())) return null;
+            int unresolved = in.readInt();
+            int statsLength = in.readInt();
+            if (statsLength != STATS_LENGTH) return null;
+            int[] stats = new int[statsLength];
+            for (int i = 0; i < stats.length; i++) stats[i] = in.readInt();
+            byte[] xmi = in.readAllBytes();
+            // Recently used entries survive eviction.
+            Files.setLastModifiedTime(p, FileTime.fromMillis(System.currentTimeMillis()));
+            return new Entry(xmi, stats, unresolved);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void store(String key, Entry e) {
+        Path p = entry(key);
+        Path tmp = null;
+        try {
+            Files.createDirectories(p.getParent());
+            tmp = Files.createTempFile(p.getParent(), key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(FORMAT_VERSION);
+                out.writeInt(e.unresolvedTypeCount);
+                out.writeInt(e.stats.length);
+                for (int s : e.stats) out.writeInt(s);
+                out.write(e.xmi);
+            }
+            long size = Files.size(tmp);
+            long old = Files.isRegularFile(p) ? Files.size(p) : 0;
+            Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+            if (diskBytes.get() < 0) scanDisk();
+            else diskBytes.addAndGet(size - old);
+            if (diskBytes.get() > maxDiskBytes) evictDisk();
+        } catch (Exception ex) {
+            // best-effort: a failed write only costs a future miss
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private void evictDisk() {
+        synchronized (diskLock) {
+            // Other processes may share the directory: start from what is actually there.
+            List<DiskEntry> entries = new ArrayList<>();
+            long total = 0;
+            for (Path p : diskEntries()) {
+                try {
+                    DiskEntry e = new DiskEntry(p, Files.getLastModifiedTime(p), Files.size(p));
+                    entries.add(e);
+                    total += e.size;
+                } catch (IOException ignored) {
+                    // deleted concurrently
+                }
+            }
+            entries.sort(Comparator.comparing(DiskEntry::modified));
+            for (DiskEntry e : entries) {
+                if (total <= maxDiskBytes) break;
+                try {
+                    if (Files.deleteIfExists(e.path)) evictions.incrementAndGet();
+                    total -= e.size;
+                } catch (IOException ignored) {
+                    // best-effort
+                }
+            }
+            diskBytes.set(total);
+        }
+    }
+
+    private record DiskEntry(Path path, FileTime modified, long size) {}
+
+    private long scanDisk() {
+        long total = 0;
+        for (Path p : diskEntries()) {
+            try {
+                total += Files.size(p);
+            } catch (IOException ignored) {
+                // deleted concurrently
+            }
+        }
+        diskBytes.set(total);
+        return total;
+    }
+
+    private List<Path> diskEntries() {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (Stream<Path> s = Files.walk(directory, 2)) {
+            return s.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).toList();
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    // ---- stats (UmlBuildStats is a plain counter bag, kept as an int array)
+
+    private static int[] toArray(UmlBuildStats s) {
+        return new int[] {
+                s.packagesCreated, s.packageImportsCreated, s.classifiersCreated, s.attributesCreated,
+                s.operationsCreated, s.parametersCreated, s.generalizationsCreated, s.interfaceRealizationsCreated,
+                s.dependenciesCreated, s.associationsCreated, s.associationMerges, s.enumLiteralsCreated,
+                s.externalStubsCreated, s.commentsCreated
+        };
+    }
+
+    private static UmlBuildStats fromArray(int[] a) {
+        UmlBuildStats s = new UmlBuildStats();
+        int i = 0;
+        s.packagesCreated = a[i++];
+        s.packageImportsCreated = a[i++];
+        s.classifiersCreated = a[i++];
+        s.attributesCreated = a[i++];
+        s.operationsCreated = a[i++];
+        s.parametersCreated = a[i++];
+        s.generalizationsCreated = a[i++];
+        s.interfaceRealizationsCreated = a[i++];
+        s.dependenciesCreated = a[i++];
+        s.associationsCreated = a[i++];
+        s.associationMerges = a[i++];
+        s.enumLiteralsCreated = a[i++];
+        s.externalStubsCreated = a[i++];
+        s.commentsCreated = a[i];
+        return s;
+    }
+
+    /**
+     * Passes the document through to the caller's stream and keeps a copy for {@link #put}, unless it grows
+     * beyond what the cache could hold.
+     */
+    static final class CapturingOutputStream extends OutputStream {
+        private final OutputStream target;
+        private final long limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CapturingOutputStream(OutputStream target, long limit) {
+            this.target = target;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        private void checkLimit() {
+            if (copy.size() > limit) copy = null;
+        }
+
+        /** The captured document, or {@code null} if it was too large. */
+        byte[] captured() {
+            return copy == null ? null : copy.toByteArray();
+        }
+    }
+}
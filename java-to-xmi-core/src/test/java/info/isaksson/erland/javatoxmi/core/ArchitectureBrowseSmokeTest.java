@@ -154,8 +154,8 @@ public class ArchitectureBrowseSmokeTest {
 
         JavaToXmiResult res = new JavaToXmiService().generateFromSource(root, List.of(), opt);
         assertNotNull(res);
-        assertNotNull(res.xmiString);
-        String xmi = res.xmiString;
+        assertNotNull(res.xmiString());
+        String xmi = res.xmiString();
 
         // Runtime stereotypes should be injected (post-processing strategy)
         assertTrue(xmi.contains("JavaAnnotations:FiresEvent"), "Expected FiresEvent stereotype application");
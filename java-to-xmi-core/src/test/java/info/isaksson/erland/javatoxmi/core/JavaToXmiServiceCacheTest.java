@@ -0,0 +1,83 @@
+package info.isaksson.erland.javatoxmi.core;
+
+import info.isaksson.erland.javatoxmi.extract.ExtractionCache;
+import info.isaksson.erland.javatoxmi.extract.JavaExtractor;
+import info.isaksson.erland.javatoxmi.io.SourceScanner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** A cached run must produce the same XMI as a cold run, and only re-extract what changed. */
+public class JavaToXmiServiceCacheTest {
+
+    @Test
+    void cachedRunsMatchUncachedRuns(@TempDir Path tmp) throws Exception {
+        Path root = tmp.resolve("src");
+        Path cacheDir = tmp.resolve("cache");
+        write(root, "com/acme/Order.java", """
+                package com.acme;
+                import java.util.List;
+                import javax.enterprise.event.Event;
+                import javax.inject.Inject;
+                public class Order {
+                  private List<OrderLine> lines;
+                  private Customer customer;
+                  @Inject Event<OrderPlaced> placed;
+                  public void add(OrderLine l) { new OrderLine(); placed.fire(new OrderPlaced()); }
+                  public static class Note { }
+                }
+                """);
+        write(root, "com/acme/OrderLine.java", "package com.acme; public class OrderLine { Order.Note note; }");
+        write(root, "com/acme/Customer.java", "package com.acme; public class Customer { }");
+        write(root, "com/acme/OrderPlaced.java", """
+                package com.acme;
+                import javax.enterprise.event.Observes;
+                public class OrderPlaced { void on(@Observes OrderPlaced e) { } }
+                """);
+
+        assertCachedMatchesUncached(cacheDir, root, 0, 4);  // cold
+        assertCachedMatchesUncached(cacheDir, root, 4, 0);  // warm
+
+        // A body-only change re-extracts just that file.
+        write(root, "com/acme/Customer.java", "package com.acme; public class Customer { Order last; }");
+        assertCachedMatchesUncached(cacheDir, root, 3, 1);
+
+        // A new project type may change how every file resolves its references.
+        write(root, "com/acme/Address.java", "package com.acme; public class Address { }");
+        assertCachedMatchesUncached(cacheDir, root, 0, 5);
+        assertCachedMatchesUncached(cacheDir, root, 5, 0);
+    }
+
+    /**
+     * Runs uncached, cached through the service (cache dir {@code xmi}) and cached through the extractor (cache dir
+     * {@code counted}). Both cache dirs see the same sequence of runs, so they hold the same entries.
+     */
+    private static void assertCachedMatchesUncached(Path cacheDir, Path root, long hits, long misses) throws Exception {
+        JavaToXmiService service = new JavaToXmiService();
+        JavaToXmiOptions uncached = new JavaToXmiOptions();
+        JavaToXmiOptions cached = new JavaToXmiOptions();
+        cached.extractionCacheDir = cacheDir.resolve("xmi");
+
+        JavaToXmiResult expected = service.generateFromSource(root, List.of(), uncached);
+        JavaToXmiResult actual = service.generateFromSource(root, List.of(), cached);
+        assertEquals(expected.xmiString(), actual.xmiString());
+        assertEquals(expected.jModel.runtimeRelations.size(), actual.jModel.runtimeRelations.size());
+
+        ExtractionCache cache = new ExtractionCache(cacheDir.resolve("counted"));
+        List<Path> files = SourceScanner.scan(root, List.of(), false);
+        new JavaExtractor(1, cache).extract(root, files, true);
+        assertEquals(hits, cache.hits());
+        assertEquals(misses, cache.misses());
+    }
+
+    private static void write(Path root, String rel, String content) throws Exception {
+        Path p = root.resolve(rel);
+        Files.createDirectories(p.getParent());
+        Files.writeString(p, content);
+    }
+}
@@ -0,0 +1,64 @@
+package info.isaksson.erland.javatoxmi.core;
+
+import info.isaksson.erland.javatoxmi.ir.IrJson;
+import info.isaksson.erland.javatoxmi.ir.IrModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Streamed output must match the in-memory result; without retention only the summary is kept. */
+public class JavaToXmiServiceStreamTest {
+
+    @Test
+    void streamedSourceOutputMatchesString(@TempDir Path tmp) throws Exception {
+        Path root = tmp.resolve("src");
+        write(root, "com/acme/Order.java", "package com.acme; import java.util.List; public class Order { List<Line> lines; }");
+        write(root, "com/acme/Line.java", "package com.acme; public class Line { Missing m; }");
+
+        JavaToXmiService service = new JavaToXmiService();
+        JavaToXmiResult inMemory = service.generateFromSource(root, List.of(), new JavaToXmiOptions());
+        assertArrayEquals(inMemory.xmiString().getBytes(StandardCharsets.UTF_8), inMemory.xmiBytes());
+
+        JavaToXmiOptions lean = new JavaToXmiOptions();
+        lean.retainModels = false;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JavaToXmiResult streamed = service.generateFromSource(root, List.of(), lean, out);
+
+        assertEquals(inMemory.xmiString(), out.toString(StandardCharsets.UTF_8));
+        assertNull(streamed.xmiString());
+        assertNull(streamed.xmiBytes());
+        assertNull(streamed.jModel);
+        assertNull(streamed.umlModel);
+        assertNull(streamed.javaFiles);
+        assertNotNull(streamed.stats);
+        assertEquals(inMemory.unresolvedTypeCount, streamed.unresolvedTypeCount);
+    }
+
+    @Test
+    void streamedIrOutputMatchesString() throws Exception {
+        IrModel ir = IrJson.read(Path.of("../java-to-xmi-emitter/src/test/resources/ir/golden/angular-mini.json"));
+
+        JavaToXmiService service = new JavaToXmiService();
+        JavaToXmiResult inMemory = service.generateFromIr(ir, new JavaToXmiOptions());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JavaToXmiResult streamed = service.generateFromIr(ir, new JavaToXmiOptions(), out);
+
+        assertEquals(inMemory.xmiString(), out.toString(StandardCharsets.UTF_8));
+        assertNull(streamed.xmiString());
+        assertSame(ir, streamed.irModel);
+        assertNotNull(streamed.umlModel);
+    }
+
+    private static void write(Path root, String rel, String content) throws Exception {
+        Path p = root.resolve(rel);
+        Files.createDirectories(p.getParent());
+        Files.writeString(p, content);
+    }
+}
@@ -0,0 +1,112 @@
+package info.isaksson.erland.javatoxmi.core;
+
+import info.isaksson.erland.javatoxmi.io.ZipSourceReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** ZIP input must produce the same XMI as the unpacked directory. */
+public class JavaToXmiServiceZipTest {
+
+    @Test
+    void zipInputMatchesUnpackedDirectory(@TempDir Path tmp) throws Exception {
+        Path root = tmp.resolve("src-root");
+        write(root, "src/main/java/com/acme/Order.java", """
+                package com.acme;
+                import java.util.List;
+                public class Order {
+                  private List<OrderLine> lines;
+                  private Customer customer;
+                  public void add(OrderLine l) { new OrderLine(); }
+                }
+                """);
+        write(root, "src/main/java/com/acme/OrderLine.java", "package com.acme; public class OrderLine { }");
+        write(root, "src/main/java/com/acme/Customer.java", "package com.acme; public class Customer { }");
+        write(root, "src/main/java/com/acme/generated/Gen.java", "package com.acme.generated; public class Gen { }");
+        write(root, "src/test/java/com/acme/OrderTest.java", "package com.acme; public class OrderTest { }");
+        write(root, "target/classes/Stale.java", "public class Stale { }");
+        write(root, "src/main/resources/db/migration/V1__init.sql", "create table t(id int);");
+
+        Path zip = tmp.resolve("input.zip");
+        try (OutputStream os = Files.newOutputStream(zip); ZipOutputStream zos = new ZipOutputStream(os);
+             Stream<Path> files = Files.walk(root)) {
+            for (Path p : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                zos.putNextEntry(new ZipEntry(root.relativize(p).toString().replace('\\', '/')));
+                zos.write(Files.readAllBytes(p));
+                zos.closeEntry();
+            }
+        }
+
+        JavaToXmiService service = new JavaToXmiService();
+        JavaToXmiOptions opts = new JavaToXmiOptions();
+        opts.modelName = "zipped";
+        List<String> excludes = List.of("**/generated/**");
+
+        JavaToXmiResult fromDir = service.generateFromSource(root, excludes, opts);
+        JavaToXmiResult fromZipFile = service.generateFromZip(zip, excludes, opts);
+        JavaToXmiResult fromBytes = service.generateFromZip(Files.readAllBytes(zip), excludes, opts);
+        JavaToXmiResult fromStream = service.generateFromZip(new ByteArrayInputStream(Files.readAllBytes(zip)), excludes, opts);
+
+        assertEquals(3, fromDir.javaFiles.size());
+        assertEquals(List.of("src/main/java/com/acme/Customer.java", "src/main/java/com/acme/Order.java",
+                        "src/main/java/com/acme/OrderLine.java"),
+                fromZipFile.javaFiles.stream().map(p -> p.toString().replace('\\', '/')).collect(Collectors.toList()));
+        assertEquals(1, fromZipFile.jModel.migrationArtifacts.size());
+
+        assertEquals(fromDir.xmiString(), fromZipFile.xmiString());
+        assertEquals(fromDir.xmiString(), fromBytes.xmiString());
+        assertEquals(fromDir.xmiString(), fromStream.xmiString());
+    }
+
+    @Test
+    void rejectsEntriesEscapingTheArchiveRoot(@TempDir Path tmp) throws Exception {
+        Path zip = tmp.resolve("evil.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
+            zos.putNextEntry(new ZipEntry("../Evil.java"));
+            zos.write("class Evil {}".getBytes());
+            zos.closeEntry();
+        }
+        assertThrows(java.io.IOException.class,
+                () -> new JavaToXmiService().generateFromZip(zip, List.of(), new JavaToXmiOptions()));
+    }
+
+    @Test
+    void enforcesEntryCountAndDecompressedSizeLimits(@TempDir Path tmp) throws Exception {
+        Path zip = tmp.resolve("big.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (int i = 0; i < 3; i++) {
+                zos.putNextEntry(new ZipEntry("src/main/java/A" + i + ".java"));
+                zos.write(new byte[1000]);
+                zos.closeEntry();
+            }
+        }
+        byte[] bytes = Files.readAllBytes(zip);
+
+        assertEquals(3, ZipSourceReader.read(zip, List.of(), false, new ZipSourceReader.Limits(3, 1000, 3000)).javaFiles.size());
+        assertThrows(java.io.IOException.class,
+                () -> ZipSourceReader.read(zip, List.of(), false, new ZipSourceReader.Limits(2, 1000, 3000)));
+        assertThrows(java.io.IOException.class,
+                () -> ZipSourceReader.read(zip, List.of(), false, new ZipSourceReader.Limits(3, 999, 3000)));
+        assertThrows(java.io.IOException.class,
+                () -> ZipSourceReader.read(bytes, List.of(), false, new ZipSourceReader.Limits(3, 999, 3000)));
+        assertThrows(java.io.IOException.class,
+                () -> ZipSourceReader.read(bytes, List.of(), false, new ZipSourceReader.Limits(3, 1000, 2999)));
+    }
+
+    private static void write(Path root, String rel, String content) throws Exception {
+        Path p = root.resolve(rel);
+        Files.createDirectories(p.getParent());
+        Files.writeString(p, content);
+    }
+}
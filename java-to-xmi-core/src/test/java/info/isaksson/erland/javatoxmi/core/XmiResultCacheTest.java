@@ -0,0 +1,165 @@
+package info.isaksson.erland.javatoxmi.core;
+
+import info.isaksson.erland.javatoxmi.ir.IrJson;
+import info.isaksson.erland.javatoxmi.ir.IrModel;
+import info.isaksson.erland.javatoxmi.uml.AssociationPolicy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** A cache hit must return exactly what the pipeline would have produced, for the same input and options only. */
+public class XmiResultCacheTest {
+
+    private static final Path JAVA_MINI = Path.of("../java-to-xmi-emitter/src/test/resources/ir/golden/java-mini.json");
+
+    private final JavaToXmiService service = new JavaToXmiService();
+
+    @Test
+    void servesIdenticalSourcesFromAnyLocation(@TempDir Path tmp) throws Exception {
+        Path a = tmp.resolve("a");
+        Path b = tmp.resolve("b");
+        for (Path root : List.of(a, b)) {
+            write(root, "com/acme/Order.java", "package com.acme; public class Order { Customer customer; }");
+            write(root, "com/acme/Customer.java", "package com.acme; public class Customer { }");
+            write(root, "db/migration/V1__init.sql", "create table orders();");
+        }
+        XmiResultCache cache = new XmiResultCache(1 << 20);
+
+        JavaToXmiResult cold = service.generateFromSource(a, List.of(), options(cache));
+        assertFalse(cold.fromCache);
+        assertNotNull(cold.jModel);
+        JavaToXmiResult warm = service.generateFromSource(b, List.of(), options(cache));
+        assertTrue(warm.fromCache);
+        assertEquals(cold.cacheKey, warm.cacheKey);
+        assertEquals(service.generateFromSource(b, List.of(), new JavaToXmiOptions()).xmiString(), warm.xmiString());
+        assertEquals(cold.stats.classifiersCreated, warm.stats.classifiersCreated);
+        assertNull(warm.jModel);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+
+        // Streamed hits write the same bytes.
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        JavaToXmiResult hit = service.generateFromSource(b, List.of(), options(cache), streamed);
+        assertTrue(hit.fromCache);
+        assertNull(hit.xmiString());
+        assertEquals(cold.xmiString(), streamed.toString(StandardCharsets.UTF_8));
+
+        // Content, file set and options are all part of the key.
+        write(b, "com/acme/Customer.java", "package com.acme; public class Customer { Order last; }");
+        assertFalse(service.generateFromSource(b, List.of(), options(cache)).fromCache);
+        write(a, "db/migration/V2__more.sql", "");
+        assertFalse(service.generateFromSource(a, List.of(), options(cache)).fromCache);
+        JavaToXmiOptions smart = options(cache);
+        smart.associationPolicy = AssociationPolicy.SMART;
+        assertFalse(service.generateFromSource(a, List.of(), smart).fromCache);
+        JavaToXmiOptions threads = options(cache);
+        threads.parseThreads = 1;
+        assertTrue(service.generateFromSource(a, List.of(), threads).fromCache);
+
+        assertTrue(cache.invalidate(cold.cacheKey));
+        assertFalse(cache.invalidate(cold.cacheKey));
+    }
+
+    @Test
+    void keysIrByCanonicalJsonAndUsesDiskTier(@TempDir Path tmp) throws Exception {
+        String json = Files.readString(JAVA_MINI);
+        IrModel ir = IrJson.readFromString(json);
+        // Same model, different formatting.
+        IrModel reformatted = IrJson.readFromString(json.replace("\n", "\n\n  "));
+        Path dir = tmp.resolve("cache");
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        JavaToXmiResult cold = service.generateFromIr(ir, options(new XmiResultCache(0, dir, 1 << 20)), first);
+        assertFalse(cold.fromCache);
+
+        // A fresh instance (another process) finds the document on disk.
+        XmiResultCache other = new XmiResultCache(1 << 20, dir, 1 << 20);
+        JavaToXmiResult warm = service.generateFromIr(reformatted, options(other));
+        assertTrue(warm.fromCache);
+        assertEquals(first.toString(StandardCharsets.UTF_8), warm.xmiString());
+        assertEquals(1, other.diskHits());
+        service.generateFromIr(ir, options(other));
+        assertEquals(1, other.memoryHits());
+        assertTrue(other.diskBytes() > first.size());
+
+        other.invalidateAll();
+        assertEquals(0, other.memoryEntries());
+        assertEquals(0, other.diskBytes());
+        assertFalse(service.generateFromIr(ir, options(other)).fromCache);
+    }
+
+    @Test
+    void entriesWithForeignStatsAreMisses(@TempDir Path tmp) throws Exception {
+        IrModel ir = IrJson.read(JAVA_MINI);
+        Path dir = tmp.resolve("cache");
+        JavaToXmiResult cold = service.generateFromIr(ir, options(new XmiResultCache(0, dir, 1 << 20)));
+
+        // Same header, but only three counters.
+        Path entry;
+        try (Stream<Path> s = Files.walk(dir)) {
+            entry = s.filter(p -> p.toString().endsWith(".xmi-result")).findFirst().orElseThrow();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(entry));
+             DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(in.readInt());
+            out.writeUTF(in.readUTF());
+            out.writeInt(in.readInt());
+            out.writeInt(3);
+            for (int i = 0; i < 3; i++) out.writeInt(0);
+            out.write(cold.xmiBytes());
+        }
+        Files.write(entry, bytes.toByteArray());
+
+        XmiResultCache cache = new XmiResultCache(0, dir, 1 << 20);
+        JavaToXmiResult result = service.generateFromIr(ir, options(cache));
+        assertFalse(result.fromCache);
+        assertEquals(cold.xmiString(), result.xmiString());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWithinBounds(@TempDir Path tmp) throws Exception {
+        String json = Files.readString(JAVA_MINI);
+        IrModel ir = IrJson.readFromString(json);
+        int size = service.generateFromIr(ir, new JavaToXmiOptions()).xmiBytes().length;
+
+        // Room for two documents in memory and on disk.
+        XmiResultCache cache = new XmiResultCache(2L * size + 100, tmp.resolve("cache"), 2L * size + 1000);
+        for (String name : List.of("a", "b", "c")) {
+            JavaToXmiOptions o = options(cache);
+            o.modelName = name;
+            service.generateFromIr(ir, o);
+        }
+        assertEquals(2, cache.memoryEntries());
+        assertTrue(cache.memoryBytes() <= 2L * size + 100);
+        assertTrue(cache.diskBytes() <= 2L * size + 1000);
+        assertEquals(2, cache.evictions());
+
+        JavaToXmiOptions c = options(cache);
+        c.modelName = "c";
+        assertTrue(service.generateFromIr(ir, c).fromCache);
+    }
+
+    private static JavaToXmiOptions options(XmiResultCache cache) {
+        JavaToXmiOptions o = new JavaToXmiOptions();
+        o.resultCache = cache;
+        return o;
+    }
+
+    private static void write(Path root, String rel, String content) throws Exception {
+        Path p = root.resolve(rel);
+        Files.createDirectories(p.getParent());
+        Files.writeString(p, content);
+    }
+}
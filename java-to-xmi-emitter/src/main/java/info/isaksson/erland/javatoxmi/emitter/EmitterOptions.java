@@ -1,7 +1,9 @@
 package info.isaksson.erland.javatoxmi.emitter;
 
 import info.isaksson.erland.javatoxmi.uml.AssociationPolicy;
+import info.isaksson.erland.javatoxmi.uml.IdHashMode;
 import info.isaksson.erland.javatoxmi.uml.NestedTypesMode;
+import info.isaksson.erland.javatoxmi.xmi.XmiWriter;
 
 /** Options for emitting UML/XMI from an IR model. */
 public final class EmitterOptions {
@@ -20,6 +22,15 @@ public final class EmitterOptions {
     public final boolean includeAccessors;
     public final boolean includeConstructors;
 
+    /** Hash function behind element IDs; {@link IdHashMode#COMPATIBLE} keeps the IDs of earlier releases. */
+    public final IdHashMode idHashMode;
+
+    /**
+     * When true, the xmi:ids are checked against the legacy assignment ({@link XmiWriter#requireDeterministicIds})
+     * before anything is written.
+     */
+    public final boolean verifyXmiIds;
+
     public EmitterOptions(
             String modelName,
             boolean includeStereotypes,
@@ -28,6 +39,35 @@ public final class EmitterOptions {
             NestedTypesMode nestedTypesMode,
             boolean includeAccessors,
             boolean includeConstructors
+    ) {
+        this(modelName, includeStereotypes, includeDependencies, associationPolicy, nestedTypesMode, includeAccessors,
+                includeConstructors, IdHashMode.COMPATIBLE);
+    }
+
+    public EmitterOptions(
+            String modelName,
+            boolean includeStereotypes,
+            boolean includeDependencies,
+            AssociationPolicy associationPolicy,
+            NestedTypesMode nestedTypesMode,
+            boolean includeAccessors,
+            boolean includeConstructors,
+            IdHashMode idHashMode
+    ) {
+        this(modelName, includeStereotypes, includeDependencies, associationPolicy, nestedTypesMode, includeAccessors,
+                includeConstructors, idHashMode, false);
+    }
+
+    public EmitterOptions(
+            String modelName,
+            boolean includeStereotypes,
+            boolean includeDependencies,
+            AssociationPolicy associationPolicy,
+            NestedTypesMode nestedTypesMode,
+            boolean includeAccessors,
+            boolean includeConstructors,
+            IdHashMode idHashMode,
+            boolean verifyXmiIds
     ) {
         this.modelName = (modelName == null || modelName.isBlank()) ? "model" : modelName.trim();
         this.includeStereotypes = includeStereotypes;
@@ -36,6 +76,8 @@ public final class EmitterOptions {
         this.nestedTypesMode = nestedTypesMode == null ? NestedTypesMode.UML : nestedTypesMode;
         this.includeAccessors = includeAccessors;
         this.includeConstructors = includeConstructors;
+        this.idHashMode = idHashMode == null ? IdHashMode.COMPATIBLE : idHashMode;
+        this.verifyXmiIds = verifyXmiIds;
     }
 
     public static EmitterOptions defaults(String modelName) {
@@ -43,11 +85,19 @@ public final class EmitterOptions {
     }
 
     public EmitterOptions withStereotypes(boolean include) {
-        return new EmitterOptions(modelName, include, includeDependencies, associationPolicy, nestedTypesMode, includeAccessors, includeConstructors);
+        return new EmitterOptions(modelName, include, includeDependencies, associationPolicy, nestedTypesMode, includeAccessors, includeConstructors, idHashMode, verifyXmiIds);
     }
 
     public EmitterOptions withDependencies(boolean include) {
-        return new EmitterOptions(modelName, includeStereotypes, include, associationPolicy, nestedTypesMode, includeAccessors, includeConstructors);
+        return new EmitterOptions(modelName, includeStereotypes, include, associationPolicy, nestedTypesMode, includeAccessors, includeConstructors, idHashMode, verifyXmiIds);
+    }
+
+    public EmitterOptions withIdHashMode(IdHashMode mode) {
+        return new EmitterOptions(modelName, includeStereotypes, includeDependencies, associationPolicy, nestedTypesMode, includeAccessors, includeConstructors, mode, verifyXmiIds);
+    }
+
+    public EmitterOptions withVerifyXmiIds(boolean verify) {
+        return new EmitterOptions(modelName, includeStereotypes, includeDependencies, associationPolicy, nestedTypesMode, includeAccessors, includeConstructors, idHashMode, verify);
     }
 
     @Override
@@ -60,6 +110,8 @@ public final class EmitterOptions {
                 ", nestedTypesMode=" + nestedTypesMode +
                 ", includeAccessors=" + includeAccessors +
                 ", includeConstructors=" + includeConstructors +
+                ", idHashMode=" + idHashMode +
+                ", verifyXmiIds=" + verifyXmiIds +
                 '}';
     }
 }
@@ -0,0 +1,552 @@
+package info.isaksson.erland.javatoxmi.emitter;
+
+import info.isaksson.erland.javatoxmi.ir.*;
+import info.isaksson.erland.javatoxmi.model.JTypeKind;
+import info.isaksson.erland.javatoxmi.model.JVisibility;
+import info.isaksson.erland.javatoxmi.model.TypeRefKind;
+import info.isaksson.erland.javatoxmi.uml.UmlModelSource;
+import info.isaksson.erland.javatoxmi.uml.UmlSourceField;
+import info.isaksson.erland.javatoxmi.uml.UmlSourceMethod;
+import info.isaksson.erland.javatoxmi.uml.UmlSourceParam;
+import info.isaksson.erland.javatoxmi.uml.UmlSourceRuntimeRelation;
+import info.isaksson.erland.javatoxmi.uml.UmlSourceType;
+import info.isaksson.erland.javatoxmi.uml.UmlSourceTypeRef;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * The cross-language IR model as a {@link UmlModelSource}, so the current UML builder + XMI writer can be reused.
+ * The builder reads the IR classifiers, members and relations through the {@link UmlSourceType} views; nothing is
+ * converted into the Java extractor's model.
+ *
+ * <p>Best-effort mapping:</p>
+ * <ul>
+ *   <li>IR classifiers -> types, attributes -> fields, operations -> methods</li>
+ *   <li>GENERALIZATION/REALIZATION relations -> extends/implements</li>
+ *   <li>ASSOCIATION/AGGREGATION/COMPOSITION relations -> association ends among the fields of the source</li>
+ *   <li>DEPENDENCY/RENDER/DI/TEMPLATE_USES/ROUTE_TO relations -> runtime relations, or dependencies of the source</li>
+ * </ul>
+ *
+ * <p>Member types are rendered once from their {@link IrTypeRef}: the Java-style string the builder uses as the
+ * member's type, and its structured form.</p>
+ */
+final class IrModelSource implements UmlModelSource {
+
+    private final List<UmlSourceType> types;
+    private final List<UmlSourceRuntimeRelation> runtimeRelations;
+
+    private IrModelSource(List<UmlSourceType> types, List<UmlSourceRuntimeRelation> runtimeRelations) {
+        this.types = types;
+        this.runtimeRelations = runtimeRelations;
+    }
+
+    @Override
+    public List<UmlSourceType> types() {
+        return types;
+    }
+
+    @Override
+    public List<UmlSourceRuntimeRelation> runtimeRelations() {
+        return runtimeRelations;
+    }
+
+    static IrModelSource of(IrModel ir, EmitterOptions opts) {
+        if (ir == null) throw new IllegalArgumentException("ir model must not be null");
+
+        // The relations are already in memory, so there is nothing to gain from spilling them.
+        try (Builder b = new Builder(opts, Integer.MAX_VALUE)) {
+            for (IrClassifier c : ir.classifiers) {
+                if (c != null) b.addClassifier(c);
+            }
+            for (IrRelation r : safe(ir.relations)) {
+                if (r != null) b.addRelation(r);
+            }
+            return b.build(safe(ir.packages));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Incremental form of {@link #of}: a streaming reader hands over classifiers and relations one at a time.
+     *
+     * <p>Classifiers and relations must be normalized ({@link IrNormalizer#normalize(IrClassifier)}) but may come
+     * in any order; {@link #build} sorts them like a normalized model, so the result equals {@link #of} the
+     * normalized model.</p>
+     *
+     * <p>Relations are only needed once, in {@link #build}, so they are sorted externally: beyond
+     * {@link #RELATIONS_IN_MEMORY} they are spilled to sorted temporary files and merged back. Classifiers stay
+     * resident, since the UML model is built from all of them. {@link #close()} deletes the temporary files.</p>
+     */
+    static final class Builder implements Closeable {
+        static final int RELATIONS_IN_MEMORY = 100_000;
+
+        private final EmitterOptions opts;
+        private final List<IrType> pending = new ArrayList<>();
+        private final IrExternalSorter<IrRelation> relations;
+
+        Builder(EmitterOptions opts) {
+            this(opts, RELATIONS_IN_MEMORY);
+        }
+
+        Builder(EmitterOptions opts, int relationsInMemory) {
+            this.opts = opts == null ? EmitterOptions.defaults("model") : opts;
+            this.relations = new IrExternalSorter<>(IrRelation.class, IrNormalizer.RELATION_ORDER, relationsInMemory);
+        }
+
+        void addClassifier(IrClassifier c) {
+            pending.add(new IrType(c));
+        }
+
+        void addRelation(IrRelation r) throws IOException {
+            relations.add(r);
+        }
+
+        /** Number of sorted relation runs spilled to disk so far. */
+        int spilledRelationRuns() {
+            return relations.spilledRuns();
+        }
+
+        @Override
+        public void close() throws IOException {
+            relations.close();
+        }
+
+        /** @param packages normalized packages (only used to resolve package names) */
+        IrModelSource build(List<IrPackage> packages) throws IOException {
+            List<UmlSourceRuntimeRelation> runtimeRelations = new ArrayList<>();
+
+            pending.sort(Comparator.comparing((IrType t) -> t.classifier, IrNormalizer.CLASSIFIER_ORDER));
+
+            Map<String, String> qualifiedNamesById = new HashMap<>();
+            for (IrType t : pending) {
+                if (t.classifier.id != null) qualifiedNamesById.put(t.classifier.id, t.qualifiedName);
+            }
+
+            Map<String, IrPackage> packagesById = new HashMap<>();
+            for (IrPackage p : packages) {
+                if (p != null && p.id != null) packagesById.put(p.id, p);
+            }
+
+            Map<String, IrType> types = new LinkedHashMap<>();
+            for (IrType t : pending) {
+                String pkg = resolvePackageName(t.classifier, packagesById);
+                if (pkg == null || pkg.isBlank()) pkg = packageOf(t.qualifiedName);
+                t.packageName = pkg;
+                types.put(t.classifier.id != null ? t.classifier.id : t.qualifiedName, t);
+            }
+            pending.clear();
+
+            // Relations pass: inheritance + explicit edges
+            relations.drain(r -> {
+                if (r.sourceId == null || r.targetId == null) return;
+
+                IrType src = types.get(r.sourceId);
+                String tgtQn = qualifiedNamesById.get(r.targetId);
+                if (src == null || tgtQn == null) return;
+
+                switch (r.kind == null ? IrRelationKind.DEPENDENCY : r.kind) {
+                    case GENERALIZATION:
+                        // Only keep first; if multiple, last wins (best-effort).
+                        src.extendsType = tgtQn;
+                        break;
+                    case REALIZATION:
+                        if (!src.implementsTypes.contains(tgtQn)) src.implementsTypes.add(tgtQn);
+                        break;
+                    case ASSOCIATION:
+                    case AGGREGATION:
+                    case COMPOSITION:
+                        // Seen as a field of the source so the association builder emits an association.
+                        src.fields.add(new IrAssociationEnd(r, tgtQn));
+                        break;
+                    case DEPENDENCY:
+                    case RENDER:
+                    case DI:
+                    case TEMPLATE_USES:
+                    case ROUTE_TO:
+                        // Preserve as a runtime relation when it carries runtime semantics (stereotype or runtime.* tags).
+                        // IMPORTANT: when we emit a runtime semantic dependency, do NOT also add it to
+                        // methodBodyTypeDependencies. Otherwise we end up with two UML Dependencies between the same
+                        // client/supplier, and tests/consumers may pick the non-annotated one.
+                        boolean isRuntime = isRuntimeSemanticRelation(r);
+                        if (isRuntime) {
+                            runtimeRelations.add(new IrRuntimeRelation(r, src.qualifiedName, tgtQn));
+                        } else if (opts.includeDependencies) {
+                            if (!src.dependencies.contains(tgtQn)) src.dependencies.add(tgtQn);
+                        }
+                        break;
+                    default:
+                        // ignore unknown
+                        break;
+                }
+            });
+
+            List<UmlSourceType> out = new ArrayList<>(types.values());
+            out.sort(Comparator.comparing(UmlSourceType::qualifiedName));
+            return new IrModelSource(out, runtimeRelations);
+        }
+    }
+
+    /** A classifier, with what the relations starting at it contribute. */
+    private static final class IrType implements UmlSourceType {
+        final IrClassifier classifier;
+        final String name;
+        final String qualifiedName;
+        final List<UmlSourceField> fields = new ArrayList<>();
+        final List<UmlSourceMethod> methods = new ArrayList<>();
+        final List<String> implementsTypes = new ArrayList<>();
+        final List<String> dependencies = new ArrayList<>();
+        String packageName = "";
+        String extendsType;
+
+        IrType(IrClassifier c) {
+            this.classifier = c;
+            this.qualifiedName = nonBlank(c.qualifiedName, c.name, c.id);
+            this.name = (c.kind == IrClassifierKind.MODULE)
+                    ? nonBlank(c.name, lastPathSegment(qualifiedName))
+                    : simpleNameOf(qualifiedName, c.name);
+            for (IrAttribute a : safe(c.attributes)) {
+                if (a != null) fields.add(new IrField(a));
+            }
+            for (IrOperation o : safe(c.operations)) {
+                if (o != null) methods.add(new IrMethod(o));
+            }
+            // Framework stereotypes/tags are not mapped to Java annotations here (best-effort).
+            // They can be carried later via tagged values and/or a future profile builder.
+        }
+
+        @Override public String packageName() { return packageName; }
+        @Override public String name() { return name; }
+        @Override public String qualifiedName() { return qualifiedName; }
+        @Override public JTypeKind kind() { return mapKind(classifier.kind); }
+        @Override public JVisibility visibility() { return mapVisibility(classifier.visibility); }
+        @Override public String extendsType() { return extendsType; }
+        @Override public List<String> implementsTypes() { return implementsTypes; }
+        @Override public List<UmlSourceField> fields() { return fields; }
+        @Override public List<UmlSourceMethod> methods() { return methods; }
+        @Override public List<String> methodBodyTypeDependencies() { return dependencies; }
+    }
+
+    private static final class IrField implements UmlSourceField {
+        private final IrAttribute attribute;
+        private final IrTypeView type;
+
+        IrField(IrAttribute a) {
+            this.attribute = a;
+            this.type = IrTypeView.of(a.type);
+        }
+
+        @Override public String name() { return nonBlank(attribute.name, ""); }
+        @Override public String type() { return type.raw; }
+        @Override public UmlSourceTypeRef typeRef() { return type; }
+        @Override public JVisibility visibility() { return mapVisibility(attribute.visibility); }
+        @Override public boolean isStatic() { return attribute.isStatic; }
+        @Override public boolean isFinal() { return attribute.isFinal; }
+    }
+
+    /** The source end of an association relation, typed by the target and without a structured type. */
+    private static final class IrAssociationEnd implements UmlSourceField {
+        private final String name;
+        private final String targetQualifiedName;
+
+        IrAssociationEnd(IrRelation r, String targetQualifiedName) {
+            // Name uses relation name when present, else derives from target simple name.
+            this.name = (r.name != null && !r.name.isBlank())
+                    ? r.name.trim()
+                    : decapitalize(simpleNameOf(targetQualifiedName, targetQualifiedName));
+            this.targetQualifiedName = targetQualifiedName;
+        }
+
+        @Override public String name() { return name; }
+        @Override public String type() { return targetQualifiedName; }
+        @Override public UmlSourceTypeRef typeRef() { return null; }
+        @Override public JVisibility visibility() { return JVisibility.PRIVATE; }
+        @Override public boolean isStatic() { return false; }
+        @Override public boolean isFinal() { return false; }
+    }
+
+    private static final class IrMethod implements UmlSourceMethod {
+        private final IrOperation operation;
+        private final IrTypeView returnType;
+        private final List<UmlSourceParam> params = new ArrayList<>();
+
+        IrMethod(IrOperation o) {
+            this.operation = o;
+            this.returnType = o.isConstructor ? null : IrTypeView.of(o.returnType);
+            for (IrParameter p : safe(o.parameters)) {
+                if (p != null) params.add(new IrParam(p));
+            }
+        }
+
+        @Override public String name() { return nonBlank(operation.name, ""); }
+        @Override public String returnType() { return returnType == null ? "" : returnType.raw; }
+        @Override public UmlSourceTypeRef returnTypeRef() { return returnType; }
+        @Override public JVisibility visibility() { return mapVisibility(operation.visibility); }
+        @Override public boolean isStatic() { return operation.isStatic; }
+        @Override public boolean isAbstract() { return operation.isAbstract; }
+        @Override public boolean isConstructor() { return operation.isConstructor; }
+        @Override public List<UmlSourceParam> params() { return params; }
+    }
+
+    /** No structured type here: package imports would then also follow parameter types. */
+    private static final class IrParam implements UmlSourceParam {
+        private final IrParameter parameter;
+        private final String type;
+
+        IrParam(IrParameter p) {
+            this.parameter = p;
+            this.type = IrTypeView.of(p.type).raw;
+        }
+
+        @Override public String name() { return nonBlank(parameter.name, ""); }
+        @Override public String type() { return type; }
+    }
+
+    /**
+     * Structured form of an IR type. {@link #raw} is the Java-style rendering used as the member's type string;
+     * generic arguments are rendered once and their renderings reused for the enclosing type.
+     */
+    private static final class IrTypeView implements UmlSourceTypeRef {
+        private static final IrTypeView OBJECT =
+                new IrTypeView("java.lang.Object", TypeRefKind.SIMPLE, "Object", "java.lang.Object", List.of(), 0);
+
+        final String raw;
+        private final TypeRefKind kind;
+        private final String simpleName;
+        private final String qnameHint;
+        private final List<UmlSourceTypeRef> args;
+        private final int arrayDims;
+
+        private IrTypeView(String raw, TypeRefKind kind, String simpleName, String qnameHint,
+                           List<UmlSourceTypeRef> args, int arrayDims) {
+            this.raw = raw;
+            this.kind = kind;
+            this.simpleName = simpleName;
+            this.qnameHint = qnameHint;
+            this.args = args;
+            this.arrayDims = arrayDims;
+        }
+
+        private static IrTypeView simple(String raw, String simpleName, String qnameHint) {
+            return new IrTypeView(raw, TypeRefKind.SIMPLE, simpleName, qnameHint, List.of(), 0);
+        }
+
+        static IrTypeView of(IrTypeRef tr) {
+            if (tr == null) return OBJECT;
+            IrTypeRefKind k = tr.kind == null ? IrTypeRefKind.UNKNOWN : tr.kind;
+
+            switch (k) {
+                case PRIMITIVE: {
+                    String n = nonBlank(tr.name, "void");
+                    return simple(n, n, "");
+                }
+                case NAMED: {
+                    String qn = nonBlank(tr.name, "java.lang.Object");
+                    return simple(qn, simpleNameOf(qn, qn), qn.contains(".") ? qn : "");
+                }
+                case GENERIC: {
+                    String base = nonBlank(tr.name, "java.lang.Object");
+                    List<UmlSourceTypeRef> args = new ArrayList<>(tr.typeArgs.size());
+                    StringBuilder raw = new StringBuilder(base);
+                    for (IrTypeRef a : tr.typeArgs) {
+                        IrTypeView arg = of(a);
+                        raw.append(args.isEmpty() ? "<" : ", ").append(arg.raw);
+                        args.add(arg);
+                    }
+                    if (!args.isEmpty()) raw.append(">");
+                    return new IrTypeView(raw.toString(), TypeRefKind.PARAM, simpleNameOf(base, base),
+                            base.contains(".") ? base : "", args, 0);
+                }
+                case ARRAY: {
+                    // Count nested arrays; the component type is the single argument.
+                    int dims = 0;
+                    IrTypeRef cur = tr;
+                    while (cur != null && (cur.kind == IrTypeRefKind.ARRAY)) {
+                        dims++;
+                        cur = cur.elementType;
+                    }
+                    IrTypeView comp = of(cur);
+                    return new IrTypeView(comp.raw + "[]".repeat(dims), TypeRefKind.ARRAY, "", "", List.of(comp), dims);
+                }
+                case UNION:
+                case INTERSECTION: {
+                    // No direct Java equivalent; keep the first alternative's rendering and treat as SIMPLE
+                    String raw = tr.typeArgs.isEmpty() ? "java.lang.Object" : of(tr.typeArgs.get(0)).raw;
+                    return simple(raw, simpleNameOf(raw, raw), "");
+                }
+                case UNKNOWN:
+                default:
+                    return OBJECT;
+            }
+        }
+
+        @Override public String raw() { return raw; }
+        @Override public TypeRefKind kind() { return kind; }
+        @Override public String simpleName() { return simpleName; }
+        @Override public String qnameHint() { return qnameHint; }
+        @Override public List<UmlSourceTypeRef> args() { return args; }
+        @Override public int arrayDims() { return arrayDims; }
+    }
+
+    /** A dependency-like relation that carries runtime semantics. */
+    private static final class IrRuntimeRelation implements UmlSourceRuntimeRelation {
+        private final IrRelation relation;
+        private final String sourceQualifiedName;
+        private final String targetQualifiedName;
+        private final String stereotype;
+        private final Map<String, String> tags = new HashMap<>();
+
+        IrRuntimeRelation(IrRelation r, String sourceQualifiedName, String targetQualifiedName) {
+            this.relation = r;
+            this.sourceQualifiedName = sourceQualifiedName;
+            this.targetQualifiedName = targetQualifiedName;
+
+            String stName = null;
+            if (r.stereotypes != null) {
+                for (IrStereotype st : r.stereotypes) {
+                    if (st == null) continue;
+                    String n = nonBlank(st.name, st.qualifiedName, null);
+                    if (n != null && !n.isBlank()) { stName = n.trim(); break; }
+                }
+            }
+            this.stereotype = stName;
+
+            if (r.taggedValues != null) {
+                for (IrTaggedValue tv : r.taggedValues) {
+                    if (tv == null) continue;
+                    if (tv.key == null || tv.key.isBlank()) continue;
+                    if (tv.value == null) continue;
+                    tags.put(tv.key, tv.value);
+                }
+            }
+        }
+
+        @Override public String id() { return relation.id; }
+        @Override public String sourceQualifiedName() { return sourceQualifiedName; }
+        @Override public String targetQualifiedName() { return targetQualifiedName; }
+        @Override public String name() { return relation.name; }
+        @Override public String stereotype() { return stereotype; }
+        @Override public Map<String, String> tags() { return tags; }
+    }
+
+    private static boolean isRuntimeSemanticRelation(IrRelation r) {
+        if (r == null) return false;
+        if (r.stereotypes != null) {
+            for (IrStereotype st : r.stereotypes) {
+                if (st == null) continue;
+                String n = nonBlank(st.name, st.qualifiedName, "");
+                if (n != null && !n.isBlank()) return true;
+            }
+        }
+        if (r.taggedValues != null) {
+            for (IrTaggedValue tv : r.taggedValues) {
+                if (tv == null || tv.key == null) continue;
+                if (tv.key.startsWith(IrRuntime.TAG_PREFIX)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static JTypeKind mapKind(IrClassifierKind k) {
+        if (k == null) return JTypeKind.CLASS;
+        switch (k) {
+            case INTERFACE:
+                return JTypeKind.INTERFACE;
+            case ENUM:
+                return JTypeKind.ENUM;
+            case CLASS:
+            case COMPONENT:
+            case SERVICE:
+            case MODULE:
+            case TYPE_ALIAS:
+            default:
+                return JTypeKind.CLASS;
+        }
+    }
+
+    private static JVisibility mapVisibility(IrVisibility v) {
+        if (v == null) return JVisibility.PACKAGE_PRIVATE;
+        switch (v) {
+            case PUBLIC: return JVisibility.PUBLIC;
+            case PROTECTED: return JVisibility.PROTECTED;
+            case PRIVATE: return JVisibility.PRIVATE;
+            case PACKAGE:
+            default: return JVisibility.PACKAGE_PRIVATE;
+        }
+    }
+
+
+    private static String resolvePackageName(IrClassifier c, Map<String, IrPackage> packagesById) {
+        if (c == null || c.packageId == null || c.packageId.isBlank() || packagesById == null) return "";
+        List<String> parts = new ArrayList<>();
+        String cur = c.packageId;
+        int guard = 0;
+        while (cur != null && !cur.isBlank() && guard++ < 1000) {
+            IrPackage p = packagesById.get(cur);
+            if (p == null) break;
+            String name = p.name == null ? "" : p.name.trim();
+            if (!name.isBlank()) {
+                parts.add(name);
+            }
+            cur = p.parentId;
+        }
+        if (parts.isEmpty()) return "";
+        Collections.reverse(parts);
+        // UmlClassifierBuilder creates nested packages by splitting on '.'
+        // so we must avoid '.' inside a segment to prevent accidental extra levels.
+        for (int i = 0; i < parts.size(); i++) {
+            parts.set(i, sanitizePackageSegment(parts.get(i)));
+        }
+        return String.join(".", parts);
+    }
+
+    private static String sanitizePackageSegment(String s) {
+        if (s == null) return "";
+        // conservative: keep most characters but replace separators that would create misleading nesting
+        return s.replace('.', '_').replace(':', '_').replace('/', '_').replace('\\', '_');
+    }
+
+    private static String lastPathSegment(String qn) {
+        if (qn == null) return "";
+        String s = qn;
+        int slash = Math.max(s.lastIndexOf('/'), s.lastIndexOf('\\'));
+        if (slash >= 0 && slash < s.length() - 1) return s.substring(slash + 1);
+        return s;
+    }
+
+    private static String packageOf(String qn) {
+        if (qn == null) return "";
+        int idx = qn.lastIndexOf('.');
+        if (idx <= 0) return "";
+        return qn.substring(0, idx);
+    }
+
+    private static String simpleNameOf(String qn, String fallback) {
+        if (qn == null || qn.isBlank()) return nonBlank(fallback, "");
+        int idx = qn.lastIndexOf('.');
+        if (idx >= 0 && idx < qn.length() - 1) return qn.substring(idx + 1);
+        return qn;
+    }
+
+    private static String nonBlank(String... vals) {
+        if (vals == null) return "";
+        for (String v : vals) {
+            if (v != null && !v.isBlank()) return v.trim();
+        }
+        return "";
+    }
+
+    private static <T> List<T> safe(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+
+    private static String decapitalize(String s) {
+        if (s == null || s.isEmpty()) return s;
+        if (s.length() == 1) return s.toLowerCase(Locale.ROOT);
+        if (Character.isUpperCase(s.charAt(0)) && Character.isUpperCase(s.charAt(1))) return s;
+        return Character.toLowerCase(s.charAt(0)) + s.substring(1);
+    }
+}
@@ -1,9 +1,16 @@
 package info.isaksson.erland.javatoxmi.emitter;
 
+import info.isaksson.erland.javatoxmi.ir.IrClassifier;
 import info.isaksson.erland.javatoxmi.ir.IrModel;
 import info.isaksson.erland.javatoxmi.ir.IrNormalizer;
-import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.ir.IrPackage;
+import info.isaksson.erland.javatoxmi.ir.IrRelation;
+import info.isaksson.erland.javatoxmi.ir.IrStereotypeDefinition;
+import info.isaksson.erland.javatoxmi.ir.IrStreamReader;
+import info.isaksson.erland.javatoxmi.ir.IrSummary;
 import info.isaksson.erland.javatoxmi.uml.UmlBuilder;
+import info.isaksson.erland.javatoxmi.uml.UmlIdStrategy;
+import info.isaksson.erland.javatoxmi.uml.UmlModelSource;
 import info.isaksson.erland.javatoxmi.uml.IrStereotypeProfileBuilder;
 import info.isaksson.erland.javatoxmi.uml.IrStereotypeApplicator;
 import info.isaksson.erland.javatoxmi.xmi.XmiWriter;
@@ -11,7 +18,11 @@ import info.isaksson.erland.javatoxmi.emitter.EmitterWarnings;
 import info.isaksson.erland.javatoxmi.emitter.EmitterWarning;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Public API: emit UML XMI from a cross-language IR model.
@@ -25,15 +36,23 @@ public final class XmiEmitter {
         public final org.eclipse.uml2.uml.Model umlModel;
         public final info.isaksson.erland.javatoxmi.uml.UmlBuildStats stats;
         public final java.util.List<EmitterWarning> warnings;
+        /** Size of the IR that was emitted (stream emission only, else {@code null}). */
+        public final IrSummary irSummary;
 
         Result(org.eclipse.uml2.uml.Model umlModel, info.isaksson.erland.javatoxmi.uml.UmlBuildStats stats) {
             this(umlModel, stats, java.util.List.of());
         }
 
         Result(org.eclipse.uml2.uml.Model umlModel, info.isaksson.erland.javatoxmi.uml.UmlBuildStats stats, java.util.List<EmitterWarning> warnings) {
+            this(umlModel, stats, warnings, null);
+        }
+
+        Result(org.eclipse.uml2.uml.Model umlModel, info.isaksson.erland.javatoxmi.uml.UmlBuildStats stats, java.util.List<EmitterWarning> warnings,
+               IrSummary irSummary) {
             this.umlModel = umlModel;
             this.stats = stats;
             this.warnings = warnings == null ? java.util.List.of() : warnings;
+            this.irSummary = irSummary;
         }
     }
 
@@ -48,8 +67,6 @@ public final class XmiEmitter {
         }
     }
 
-    private final IrToJModelAdapter adapter = new IrToJModelAdapter();
-
     /**
      * Emit XMI to the given output file.
      *
@@ -60,14 +77,15 @@ public final class XmiEmitter {
         if (outXmi == null) throw new IllegalArgumentException("outXmi must not be null");
         if (options == null) options = EmitterOptions.defaults("model");
 
+        UmlIdStrategy ids = UmlIdStrategy.of(options.idHashMode);
         IrModel normalized = IrNormalizer.normalize(ir);
 
         EmitterWarnings warningsCollector = new EmitterWarnings();
 
-        JModel jModel = adapter.adapt(normalized, options);
+        UmlModelSource source = IrModelSource.of(normalized, options);
 
-        UmlBuilder.Result uml = new UmlBuilder().build(
-                jModel,
+        UmlBuilder.Result uml = new UmlBuilder(ids).build(
+                source,
                 options.modelName,
                 options.includeStereotypes,
                 options.associationPolicy,
@@ -77,19 +95,16 @@ public final class XmiEmitter {
                 options.includeConstructors
         );
 
-        
+
         if (options.includeStereotypes && hasIrStereotypes(normalized)) {
             if (normalized.stereotypeDefinitions != null && !normalized.stereotypeDefinitions.isEmpty()) {
-                new IrStereotypeProfileBuilder().apply(uml.umlModel, normalized.stereotypeDefinitions);
+                new IrStereotypeProfileBuilder(ids).apply(uml.umlModel, normalized.stereotypeDefinitions);
             }
             new IrStereotypeApplicator().apply(uml.umlModel, normalized, warningsCollector);
         }
 
-        if (options.includeStereotypes) {
-            XmiWriter.write(uml.umlModel, jModel, outXmi);
-        } else {
-            XmiWriter.write(uml.umlModel, outXmi);
-        }
+        if (options.verifyXmiIds) XmiWriter.requireDeterministicIds(uml.umlModel, ids);
+        XmiWriter.write(uml.umlModel, options.includeStereotypes ? source : null, ids, outXmi);
 
         return new Result(uml.umlModel, uml.stats, warningsCollector.toDeterministicList());
     }
@@ -104,13 +119,14 @@ public final class XmiEmitter {
         if (ir == null) throw new IllegalArgumentException("ir must not be null");
         if (options == null) options = EmitterOptions.defaults("model");
 
+        UmlIdStrategy ids = UmlIdStrategy.of(options.idHashMode);
         IrModel normalized = IrNormalizer.normalize(ir);
 
         EmitterWarnings warningsCollector = new EmitterWarnings();
-        JModel jModel = adapter.adapt(normalized, options);
+        UmlModelSource source = IrModelSource.of(normalized, options);
 
-        UmlBuilder.Result uml = new UmlBuilder().build(
-                jModel,
+        UmlBuilder.Result uml = new UmlBuilder(ids).build(
+                source,
                 options.modelName,
                 options.includeStereotypes,
                 options.associationPolicy,
@@ -121,13 +137,11 @@ public final class XmiEmitter {
         );
 
         if (options.includeStereotypes && normalized.stereotypeDefinitions != null && !normalized.stereotypeDefinitions.isEmpty()) {
-            new IrStereotypeProfileBuilder().apply(uml.umlModel, normalized.stereotypeDefinitions);
+            new IrStereotypeProfileBuilder(ids).apply(uml.umlModel, normalized.stereotypeDefinitions);
         }
 
-        if (options.includeStereotypes) {
-            return XmiWriter.writeToString(uml.umlModel, jModel);
-        }
-        return XmiWriter.writeToString(uml.umlModel, null);
+        if (options.verifyXmiIds) XmiWriter.requireDeterministicIds(uml.umlModel, ids);
+        return XmiWriter.writeToString(uml.umlModel, options.includeStereotypes ? source : null, ids);
     }
 
     /** Emit XMI as a string and also return the UML model + stats. */
@@ -135,13 +149,14 @@ public final class XmiEmitter {
         if (ir == null) throw new IllegalArgumentException("ir must not be null");
         if (options == null) options = EmitterOptions.defaults("model");
 
+        UmlIdStrategy ids = UmlIdStrategy.of(options.idHashMode);
         IrModel normalized = IrNormalizer.normalize(ir);
 
         EmitterWarnings warningsCollector = new EmitterWarnings();
-        JModel jModel = adapter.adapt(normalized, options);
+        UmlModelSource source = IrModelSource.of(normalized, options);
 
-        UmlBuilder.Result uml = new UmlBuilder().build(
-                jModel,
+        UmlBuilder.Result uml = new UmlBuilder(ids).build(
+                source,
                 options.modelName,
                 options.includeStereotypes,
                 options.associationPolicy,
@@ -152,16 +167,122 @@ public final class XmiEmitter {
         );
 
         if (options.includeStereotypes && normalized.stereotypeDefinitions != null && !normalized.stereotypeDefinitions.isEmpty()) {
-            new IrStereotypeProfileBuilder().apply(uml.umlModel, normalized.stereotypeDefinitions);
+            new IrStereotypeProfileBuilder(ids).apply(uml.umlModel, normalized.stereotypeDefinitions);
         }
 
-        String xmi = options.includeStereotypes
-                ? XmiWriter.writeToString(uml.umlModel, jModel)
-                : XmiWriter.writeToString(uml.umlModel, null);
+        if (options.verifyXmiIds) XmiWriter.requireDeterministicIds(uml.umlModel, ids);
+        String xmi = XmiWriter.writeToString(uml.umlModel, options.includeStereotypes ? source : null, ids);
 
         return new StringResult(xmi, new Result(uml.umlModel, uml.stats));
     }
 
+    /**
+     * Emit XMI (UTF-8) to {@code out} and return the UML model + stats; the stream is flushed, not closed.
+     *
+     * <p>Writes the same document as {@link #emitToStringWithResult} without building it in memory first.</p>
+     */
+    public Result emitToStream(IrModel ir, EmitterOptions options, OutputStream out) throws IOException {
+        if (ir == null) throw new IllegalArgumentException("ir must not be null");
+        if (out == null) throw new IllegalArgumentException("out must not be null");
+        if (options == null) options = EmitterOptions.defaults("model");
+
+        UmlIdStrategy ids = UmlIdStrategy.of(options.idHashMode);
+        IrModel normalized = IrNormalizer.normalize(ir);
+        UmlModelSource source = IrModelSource.of(normalized, options);
+        return writeStream(source, normalized.stereotypeDefinitions, options, ids, out, IrSummary.of(normalized));
+    }
+
+    /**
+     * Emit XMI (UTF-8) from IR JSON read from {@code irJson} (not closed) to {@code out} (flushed, not closed).
+     *
+     * <p>Writes the same document as {@link #emitToStream(IrModel, EmitterOptions, OutputStream)} of the parsed
+     * model, but never builds the {@link IrModel} or its normalized copy: classifiers and relations are read one
+     * at a time ({@link IrStreamReader}) and converted right away, so besides the UML model only the converted
+     * types are held. {@link Result#irSummary} reports what was read.</p>
+     */
+    public Result emitToStream(InputStream irJson, EmitterOptions options, OutputStream out) throws IOException {
+        if (irJson == null) throw new IllegalArgumentException("irJson must not be null");
+        return emitStreamed(handler -> IrStreamReader.read(irJson, handler), options, out);
+    }
+
+    /**
+     * Like {@link #emitToStream(InputStream, EmitterOptions, OutputStream)} for an IR file in any format, or a
+     * directory of NDJSON shards ({@link info.isaksson.erland.javatoxmi.ir.IrNdjson}) read by up to
+     * {@code readThreads} threads (0 = one per available processor). The XMI does not depend on the order in
+     * which shard elements arrive.
+     */
+    public Result emitToStream(Path ir, int readThreads, EmitterOptions options, OutputStream out) throws IOException {
+        if (ir == null) throw new IllegalArgumentException("ir must not be null");
+        return emitStreamed(handler -> IrStreamReader.read(ir, readThreads, handler), options, out);
+    }
+
+    private interface IrSource {
+        IrSummary read(IrStreamReader.Handler handler) throws IOException;
+    }
+
+    private Result emitStreamed(IrSource source, EmitterOptions options, OutputStream out) throws IOException {
+        if (out == null) throw new IllegalArgumentException("out must not be null");
+        if (options == null) options = EmitterOptions.defaults("model");
+
+        UmlIdStrategy ids = UmlIdStrategy.of(options.idHashMode);
+        List<IrStereotypeDefinition> definitions = new ArrayList<>();
+        List<IrPackage> packages = new ArrayList<>();
+        UmlModelSource model;
+        IrSummary summary;
+        IrModel head;
+        try (IrModelSource.Builder builder = new IrModelSource.Builder(options)) {
+            summary = source.read(new IrStreamReader.Handler() {
+                @Override
+                public void stereotypeDefinition(IrStereotypeDefinition definition) {
+                    definitions.add(definition);
+                }
+
+                @Override
+                public void irPackage(IrPackage p) {
+                    packages.add(p);
+                }
+
+                @Override
+                public void classifier(IrClassifier classifier) {
+                    builder.addClassifier(IrNormalizer.normalize(classifier));
+                }
+
+                @Override
+                public void relation(IrRelation relation) throws IOException {
+                    builder.addRelation(IrNormalizer.normalize(relation));
+                }
+            });
+
+            // Packages and stereotype definitions are small; normalize them as part of a model without classifiers.
+            head = IrNormalizer.normalize(new IrModel(summary.schemaVersion, definitions, packages, null, null, null));
+            model = builder.build(head.packages);
+        }
+        return writeStream(model, head.stereotypeDefinitions, options, ids, out, summary);
+    }
+
+    private static Result writeStream(UmlModelSource source, List<IrStereotypeDefinition> stereotypeDefinitions, EmitterOptions options,
+                                      UmlIdStrategy ids, OutputStream out, IrSummary summary) throws IOException {
+        UmlBuilder.Result uml = new UmlBuilder(ids).build(
+                source,
+                options.modelName,
+                options.includeStereotypes,
+                options.associationPolicy,
+                options.nestedTypesMode,
+                options.includeDependencies,
+                options.includeAccessors,
+                options.includeConstructors
+        );
+
+        if (options.includeStereotypes && stereotypeDefinitions != null && !stereotypeDefinitions.isEmpty()) {
+            new IrStereotypeProfileBuilder(ids).apply(uml.umlModel, stereotypeDefinitions);
+        }
+
+        if (options.verifyXmiIds) XmiWriter.requireDeterministicIds(uml.umlModel, ids);
+        XmiWriter.write(uml.umlModel, options.includeStereotypes ? source : null, ids, out);
+
+        return new Result(uml.umlModel, uml.stats, List.of(), summary);
+    }
+
     private static boolean hasIrStereotypes(IrModel ir) {
         if (ir == null) return false;
         try {
@@ -7,8 +7,6 @@ import org.eclipse.uml2.uml.Package;
 import org.eclipse.uml2.uml.Property;
 import org.eclipse.uml2.uml.Type;
 import org.eclipse.uml2.uml.UMLFactory;
-import info.isaksson.erland.javatoxmi.model.JField;
-import info.isaksson.erland.javatoxmi.model.JType;
 
 import java.util.ArrayList;
 
@@ -19,8 +17,8 @@ final class AssociationFactory {
 
     void createNewAssociation(UmlBuildContext ctx,
                              Classifier classifier,
-                             JType ownerType,
-                             JField field,
+                             UmlSourceType ownerType,
+                             UmlSourceField field,
                              AssociationTargetResolver.AssociationTarget at,
                              Property endToTarget,
                              boolean isJpaRel,
@@ -38,6 +36,8 @@ final class AssociationFactory {
 
         Property endToSource = createOppositeEnd(assoc, classifier, field, ownerType);
         configureOppositeEndMultiplicity(endToSource, field);
+        UmlBuilderSupport.annotateIdLater(ctx.ids, endToSource);
+        UmlBuilderSupport.annotateMultiplicityIdsLater(ctx.ids, endToSource);
 
         // Navigability (unidirectional by default; bidirectional is achieved by merging when safe).
         try {
@@ -50,8 +50,8 @@ final class AssociationFactory {
         if (!assoc.getMemberEnds().contains(endToSource)) assoc.getMemberEnds().add(endToSource);
 
         ctx.stats.associationsCreated++;
-        String assocKey = "Association:" + ownerType.qualifiedName + "#" + field.name + "->" + at.targetRef + ":" + multiplicityKey(at);
-        UmlBuilderSupport.annotateId(assoc, assocKey);
+        String assocKey = "Association:" + ownerType.qualifiedName() + "#" + field.name() + "->" + at.targetRef + ":" + multiplicityKey(at);
+        UmlBuilderSupport.annotateId(ctx.ids, assoc, assocKey);
 
         // Record the association pair so dependency creation can suppress duplicates.
         String pairKey = UmlBuildContext.undirectedPairKey(srcQn, tgtQn);
@@ -63,19 +63,19 @@ final class AssociationFactory {
         // Index for potential later merge.
         if (isJpaRel && pairKey != null) {
             String mappedBy = JpaOppositeEndRules.mappedByValue(field);
-            AssocMergeRecord rec = new AssocMergeRecord(assoc, srcQn, field.name, tgtQn, mappedBy, endToTarget);
+            AssocMergeRecord rec = new AssocMergeRecord(assoc, srcQn, field.name(), tgtQn, mappedBy, endToTarget);
             ctx.associationRecordsByPair.computeIfAbsent(pairKey, k -> new ArrayList<>()).add(rec);
         }
     }
 
-    private Property createOppositeEnd(Association assoc, Classifier classifier, JField field, JType ownerType) {
+    private Property createOppositeEnd(Association assoc, Classifier classifier, UmlSourceField field, UmlSourceType ownerType) {
         String oppositeName = JpaOppositeEndRules.deriveOppositeEndName(field, ownerType);
         Property endToSource = assoc.createOwnedEnd(oppositeName, (Type) classifier);
         endToSource.setAggregation(AggregationKind.NONE_LITERAL);
         return endToSource;
     }
 
-    private void configureOppositeEndMultiplicity(Property endToSource, JField field) {
+    private void configureOppositeEndMultiplicity(Property endToSource, UmlSourceField field) {
         JpaOppositeEndRules.configureOppositeEndMultiplicity(endToSource, field);
     }
 
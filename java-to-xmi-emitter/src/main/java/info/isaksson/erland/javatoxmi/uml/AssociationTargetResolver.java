@@ -1,10 +1,7 @@
 package info.isaksson.erland.javatoxmi.uml;
 
-import info.isaksson.erland.javatoxmi.model.JField;
-import info.isaksson.erland.javatoxmi.model.TypeRef;
 import info.isaksson.erland.javatoxmi.model.TypeRefKind;
 
-import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,85 +27,78 @@ final class AssociationTargetResolver {
         }
     }
 
-    AssociationTarget resolve(UmlBuildContext ctx, JField f) {
+    AssociationTarget resolve(UmlBuildContext ctx, UmlSourceField f) {
         if (ctx == null || f == null) return null;
 
-        // 1) Prefer TypeRef-based target selection when available.
-        String target = null;
-        if (f.typeRef != null) {
-            target = pickAssociationTargetFromTypeRef(f.typeRef);
-        }
-
-        // 2) Fallback to legacy string heuristics.
-        if (target == null || target.isBlank()) {
-            if (f.type == null || f.type.isBlank()) return null;
-            String raw = f.type.trim();
-
-            // Arrays
-            if (raw.endsWith("[]")) {
-                String base = raw.substring(0, raw.length() - 2).trim();
-                base = stripGenerics(base);
-                target = base;
-            } else {
-                String base = stripGenerics(raw);
-                String simple = simpleName(base);
-
-                // Optional<T> => to T
-                if (isOptionalLike(simple)) {
-                    String arg0 = firstGenericArg(raw);
-                    if (arg0 == null) return null;
-                    target = stripArraySuffix(stripGenerics(arg0));
-                } else if (isMapLike(simple)) {
-                    // Map<K,V> => to V (or K if only one arg)
-                    String inner = genericInner(raw);
-                    if (inner == null) return null;
-                    List<String> args = splitTopLevelTypeArgs(inner);
-                    if (args.isEmpty()) return null;
-                    String chosen = args.size() >= 2 ? args.get(1) : args.get(0);
-                    target = stripArraySuffix(stripGenerics(chosen));
-                } else if (isCollectionLike(base)) {
-                    // Collection-like containers => to element type
-                    String arg0 = firstGenericArg(raw);
-                    if (arg0 == null) return null;
-                    target = stripArraySuffix(stripGenerics(arg0));
-                } else {
-                    // Default reference
-                    target = stripArraySuffix(stripGenerics(raw));
-                }
-            }
-        }
+        // TypeRef-based target selection when available, else legacy string heuristics.
+        String target = f.typeRef() != null
+                ? pickAssociationTargetFromTypeRef(f.typeRef())
+                : pickAssociationTargetFromString(f.type());
+        if (target == null) return null;
 
-        MultiplicityResolver.Result mr = ctx.multiplicityResolver.resolve(f.typeRef, f.annotations);
+        MultiplicityResolver.Result mr = ctx.multiplicityResolver.resolve(f.typeRef(), f.annotations());
         return new AssociationTarget(target, mr.lower, mr.upper, mr.tags);
     }
 
-    private static String pickAssociationTargetFromTypeRef(TypeRef t) {
+    private static String pickAssociationTargetFromTypeRef(UmlSourceTypeRef t) {
         if (t == null) return null;
 
-        if (t.kind == TypeRefKind.ARRAY || safe(t.raw).endsWith("[]")) {
-            TypeRef elem = firstArg(t);
-            return bestTypeKey(elem);
+        if (t.kind() == TypeRefKind.ARRAY || safe(t.raw()).endsWith("[]")) {
+            UmlSourceTypeRef elem = firstArg(t);
+            // A named type spelled with the array suffix (IR) has no component: drop the suffix from its name.
+            return elem != null ? bestTypeKey(elem) : TypeStrings.baseName(stripArraySuffix(t.raw()));
         }
 
         if (isContainerLike(t)) {
-            TypeRef elem = firstArg(t);
+            UmlSourceTypeRef elem = firstArg(t);
             return bestTypeKey(elem);
         }
 
         if (isMapLike(t)) {
-            if (t.args != null && t.args.size() >= 2) {
-                return bestTypeKey(t.args.get(1));
+            if (t.args() != null && t.args().size() >= 2) {
+                return bestTypeKey(t.args().get(1));
             }
         }
 
         return bestTypeKey(t);
     }
 
-    private static boolean isContainerLike(TypeRef t) {
+    private static String pickAssociationTargetFromString(String type) {
+        if (type == null || type.isBlank()) return null;
+        String raw = type.trim();
+
+        // Arrays
+        if (raw.endsWith("[]")) {
+            return TypeStrings.baseName(raw.substring(0, raw.length() - 2));
+        }
+
+        String base = TypeStrings.baseName(raw);
+        String simple = simpleName(base);
+        List<String> args = TypeStrings.typeArguments(raw);
+
+        // Optional<T> => to T
+        if (isOptionalLike(simple)) {
+            return args.isEmpty() ? null : stripArraySuffix(TypeStrings.baseName(args.get(0)));
+        }
+        // Map<K,V> => to V (or K if only one arg)
+        if (isMapLike(simple)) {
+            if (args.isEmpty()) return null;
+            String chosen = args.size() >= 2 ? args.get(1) : args.get(0);
+            return stripArraySuffix(TypeStrings.baseName(chosen));
+        }
+        // Collection-like containers => to element type
+        if (isCollectionLike(base)) {
+            return args.isEmpty() ? null : stripArraySuffix(TypeStrings.baseName(args.get(0)));
+        }
+        // Default reference
+        return stripArraySuffix(TypeStrings.baseName(raw));
+    }
+
+    private static boolean isContainerLike(UmlSourceTypeRef t) {
         if (t == null) return false;
-        String sn = safe(t.simpleName);
-        String qn = safe(t.qnameHint);
-        String raw = safe(t.raw);
+        String sn = safe(t.simpleName());
+        String qn = safe(t.qnameHint());
+        String raw = safe(t.raw());
 
         if ("Optional".equals(sn)) return true;
         if ("Collection".equals(sn) || "List".equals(sn) || "Set".equals(sn) || "Iterable".equals(sn)) return true;
@@ -120,26 +110,26 @@ final class AssociationTargetResolver {
                 || raw.startsWith("Collection<") || raw.startsWith("Iterable<");
     }
 
-    private static boolean isMapLike(TypeRef t) {
+    private static boolean isMapLike(UmlSourceTypeRef t) {
         if (t == null) return false;
-        String sn = safe(t.simpleName);
-        String qn = safe(t.qnameHint);
-        String raw = safe(t.raw);
+        String sn = safe(t.simpleName());
+        String qn = safe(t.qnameHint());
+        String raw = safe(t.raw());
         if ("Map".equals(sn)) return true;
         if (qn.endsWith("java.util.Map")) return true;
         return raw.startsWith("Map<");
     }
 
-    private static TypeRef firstArg(TypeRef t) {
-        if (t == null || t.args == null || t.args.isEmpty()) return null;
-        return t.args.get(0);
+    private static UmlSourceTypeRef firstArg(UmlSourceTypeRef t) {
+        if (t == null || t.args() == null || t.args().isEmpty()) return null;
+        return t.args().get(0);
     }
 
-    private static String bestTypeKey(TypeRef t) {
+    private static String bestTypeKey(UmlSourceTypeRef t) {
         if (t == null) return null;
-        if (!safe(t.qnameHint).isBlank()) return t.qnameHint;
-        if (!safe(t.raw).isBlank()) return t.raw;
-        if (!safe(t.simpleName).isBlank()) return t.simpleName;
+        if (!safe(t.qnameHint()).isBlank()) return t.qnameHint();
+        if (!safe(t.raw()).isBlank()) return t.raw();
+        if (!safe(t.simpleName()).isBlank()) return t.simpleName();
         return null;
     }
 
@@ -170,72 +160,10 @@ final class AssociationTargetResolver {
         return s;
     }
 
-    private static String genericInner(String javaTypeRef) {
-        if (javaTypeRef == null) return null;
-        String s = javaTypeRef.trim();
-        int lt = s.indexOf('<');
-        int gt = s.lastIndexOf('>');
-        if (lt < 0 || gt < lt) return null;
-        String inner = s.substring(lt + 1, gt).trim();
-        return inner.isEmpty() ? null : inner;
-    }
-
     private static boolean isCollectionLike(String baseType) {
         if (baseType == null) return false;
         String b = baseType;
         if (b.contains(".")) b = b.substring(b.lastIndexOf('.') + 1);
         return "List".equals(b) || "Set".equals(b) || "Collection".equals(b) || "Iterable".equals(b);
     }
-
-    private static String firstGenericArg(String javaTypeRef) {
-        if (javaTypeRef == null) return null;
-        String s = javaTypeRef.trim();
-        int lt = s.indexOf('<');
-        int gt = s.lastIndexOf('>');
-        if (lt < 0 || gt < lt) return null;
-        String inner = s.substring(lt + 1, gt).trim();
-        if (inner.isEmpty()) return null;
-        int depth = 0;
-        StringBuilder buf = new StringBuilder();
-        for (int i = 0; i < inner.length(); i++) {
-            char c = inner.charAt(i);
-            if (c == '<') depth++;
-            else if (c == '>') depth = Math.max(0, depth - 1);
-            if (c == ',' && depth == 0) break;
-            buf.append(c);
-        }
-        String arg = buf.toString().trim();
-        return arg.isEmpty() ? null : arg;
-    }
-
-    private static List<String> splitTopLevelTypeArgs(String inner) {
-        List<String> out = new ArrayList<>();
-        StringBuilder buf = new StringBuilder();
-        int depth = 0;
-        for (int i = 0; i < inner.length(); i++) {
-            char c = inner.charAt(i);
-            if (c == '<') depth++;
-            else if (c == '>') depth = Math.max(0, depth - 1);
-
-            if (c == ',' && depth == 0) {
-                String part = buf.toString().trim();
-                if (!part.isEmpty()) out.add(part);
-                buf.setLength(0);
-            } else {
-                buf.append(c);
-            }
-        }
-        String last = buf.toString().trim();
-        if (!last.isEmpty()) out.add(last);
-        return out;
-    }
-
-    static String stripGenerics(String t) {
-        if (t == null) return "";
-        int idx = t.indexOf('<');
-        if (idx >= 0) {
-            return t.substring(0, idx).trim();
-        }
-        return t.trim();
-    }
 }
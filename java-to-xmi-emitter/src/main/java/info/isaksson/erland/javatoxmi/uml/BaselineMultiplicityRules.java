@@ -1,6 +1,5 @@
 package info.isaksson.erland.javatoxmi.uml;
 
-import info.isaksson.erland.javatoxmi.model.TypeRef;
 import info.isaksson.erland.javatoxmi.model.TypeRefKind;
 
 import java.util.LinkedHashMap;
@@ -22,27 +21,27 @@ final class BaselineMultiplicityRules {
             "Collection", "List", "Set", "Iterable"
     );
 
-    static MutableMultiplicityState resolveStructuralBaseline(TypeRef typeRef) {
+    static MutableMultiplicityState resolveStructuralBaseline(UmlSourceTypeRef typeRef) {
         if (typeRef == null) {
             return new MutableMultiplicityState(0, 1);
         }
 
-        String raw = safe(typeRef.raw);
-        String simple = safe(typeRef.simpleName);
+        String raw = safe(typeRef.raw());
+        String simple = safe(typeRef.simpleName());
 
         Map<String, String> tags = new LinkedHashMap<>();
 
         // Primitive: assume required
-        if (typeRef.kind == TypeRefKind.SIMPLE && isPrimitiveName(simple, raw)) {
+        if (typeRef.kind() == TypeRefKind.SIMPLE && isPrimitiveName(simple, raw)) {
             MutableMultiplicityState st = new MutableMultiplicityState(1, 1);
             st.tags.putAll(tags);
             return st;
         }
 
         // Arrays => 0..*
-        if (typeRef.kind == TypeRefKind.ARRAY || raw.endsWith("[]")) {
+        if (typeRef.kind() == TypeRefKind.ARRAY || raw.endsWith("[]")) {
             tags.put("isArray", "true");
-            TypeRef elem = firstArg(typeRef);
+            UmlSourceTypeRef elem = firstArg(typeRef);
             if (elem != null) {
                 tags.put("elementType", bestTypeLabel(elem));
             }
@@ -54,7 +53,7 @@ final class BaselineMultiplicityRules {
         // Optional<T> => 0..1
         if (isOptional(typeRef)) {
             tags.put("containerKind", "Optional");
-            TypeRef elem = firstArg(typeRef);
+            UmlSourceTypeRef elem = firstArg(typeRef);
             if (elem != null) tags.put("elementType", bestTypeLabel(elem));
             MutableMultiplicityState st = new MutableMultiplicityState(0, 1);
             st.tags.putAll(tags);
@@ -64,7 +63,7 @@ final class BaselineMultiplicityRules {
         // Collections => 0..*
         if (isCollection(typeRef)) {
             tags.put("collectionKind", bestContainerKind(typeRef));
-            TypeRef elem = firstArg(typeRef);
+            UmlSourceTypeRef elem = firstArg(typeRef);
             if (elem != null) tags.put("elementType", bestTypeLabel(elem));
             MutableMultiplicityState st = new MutableMultiplicityState(0, MultiplicityResolver.STAR);
             st.tags.putAll(tags);
@@ -74,9 +73,9 @@ final class BaselineMultiplicityRules {
         // Map<K,V> => treat as 0..* container (association semantics); tag key/value types.
         if (isMap(typeRef)) {
             tags.put("collectionKind", "Map");
-            if (typeRef.args != null && typeRef.args.size() >= 2) {
-                tags.put("mapKeyType", bestTypeLabel(typeRef.args.get(0)));
-                tags.put("mapValueType", bestTypeLabel(typeRef.args.get(1)));
+            if (typeRef.args() != null && typeRef.args().size() >= 2) {
+                tags.put("mapKeyType", bestTypeLabel(typeRef.args().get(0)));
+                tags.put("mapValueType", bestTypeLabel(typeRef.args().get(1)));
             }
             MutableMultiplicityState st = new MutableMultiplicityState(0, MultiplicityResolver.STAR);
             st.tags.putAll(tags);
@@ -95,18 +94,18 @@ final class BaselineMultiplicityRules {
         return PRIMITIVES.contains(s);
     }
 
-    private static boolean isOptional(TypeRef t) {
+    private static boolean isOptional(UmlSourceTypeRef t) {
         if (t == null) return false;
-        String sn = safe(t.simpleName);
-        String qn = safe(t.qnameHint);
+        String sn = safe(t.simpleName());
+        String qn = safe(t.qnameHint());
         if ("Optional".equals(sn)) return true;
-        return qn.endsWith("java.util.Optional") || safe(t.raw).startsWith("Optional<");
+        return qn.endsWith("java.util.Optional") || safe(t.raw()).startsWith("Optional<");
     }
 
-    private static boolean isCollection(TypeRef t) {
+    private static boolean isCollection(UmlSourceTypeRef t) {
         if (t == null) return false;
-        String sn = safe(t.simpleName);
-        String qn = safe(t.qnameHint);
+        String sn = safe(t.simpleName());
+        String qn = safe(t.qnameHint());
         if (COLLECTION_SIMPLE_NAMES.contains(sn)) return true;
         return qn.endsWith("java.util.Collection")
                 || qn.endsWith("java.util.List")
@@ -114,19 +113,19 @@ final class BaselineMultiplicityRules {
                 || qn.endsWith("java.lang.Iterable");
     }
 
-    private static boolean isMap(TypeRef t) {
+    private static boolean isMap(UmlSourceTypeRef t) {
         if (t == null) return false;
-        String sn = safe(t.simpleName);
-        String qn = safe(t.qnameHint);
+        String sn = safe(t.simpleName());
+        String qn = safe(t.qnameHint());
         if ("Map".equals(sn)) return true;
-        return qn.endsWith("java.util.Map") || safe(t.raw).startsWith("Map<");
+        return qn.endsWith("java.util.Map") || safe(t.raw()).startsWith("Map<");
     }
 
-    private static String bestContainerKind(TypeRef t) {
+    private static String bestContainerKind(UmlSourceTypeRef t) {
         if (t == null) return "";
-        String sn = safe(t.simpleName);
+        String sn = safe(t.simpleName());
         if (!sn.isBlank()) return sn;
-        String raw = safe(t.raw);
+        String raw = safe(t.raw());
         int idx = raw.indexOf('<');
         String base = idx >= 0 ? raw.substring(0, idx) : raw;
         base = base.trim();
@@ -134,16 +133,16 @@ final class BaselineMultiplicityRules {
         return dot >= 0 ? base.substring(dot + 1) : base;
     }
 
-    private static TypeRef firstArg(TypeRef t) {
-        if (t == null || t.args == null || t.args.isEmpty()) return null;
-        return t.args.get(0);
+    private static UmlSourceTypeRef firstArg(UmlSourceTypeRef t) {
+        if (t == null || t.args() == null || t.args().isEmpty()) return null;
+        return t.args().get(0);
     }
 
-    private static String bestTypeLabel(TypeRef t) {
+    private static String bestTypeLabel(UmlSourceTypeRef t) {
         if (t == null) return "";
-        if (!safe(t.qnameHint).isBlank()) return t.qnameHint;
-        if (!safe(t.raw).isBlank()) return t.raw;
-        return t.simpleName;
+        if (!safe(t.qnameHint()).isBlank()) return t.qnameHint();
+        if (!safe(t.raw()).isBlank()) return t.raw();
+        return t.simpleName();
     }
 
     private static String safe(String s) {
@@ -3,6 +3,7 @@ package info.isaksson.erland.javatoxmi.uml;
 import org.eclipse.uml2.uml.Model;
 import org.eclipse.uml2.uml.Package;
 import org.eclipse.uml2.uml.Type;
+import org.eclipse.uml2.uml.UMLFactory;
 
 /**
  * Registry for creating/looking up stub types for references that are external to the scanned project.
@@ -21,7 +22,7 @@ final class ExternalTypeRegistry {
      */
     Type ensureExternalStub(UmlBuildContext ctx, String qualifiedName) {
         String base = qualifiedName == null ? "Object" : qualifiedName;
-        base = UmlAssociationBuilder.stripGenerics(base);
+        base = TypeStrings.baseName(base);
         if (base.endsWith("[]")) base = base.substring(0, base.length() - 2);
 
         String pkgName = "_external";
@@ -33,14 +34,16 @@ final class ExternalTypeRegistry {
         }
 
         Package pkg = getOrCreatePackage(ctx, pkgName);
-        Type existing = pkg.getOwnedType(typeName);
+        Type existing = ctx.findOwnedType(pkg, typeName);
         if (existing != null) {
             return existing;
         }
 
-        org.eclipse.uml2.uml.Class c = pkg.createOwnedClass(typeName, false);
+        org.eclipse.uml2.uml.Class c = UMLFactory.eINSTANCE.createClass();
+        c.setName(typeName);
+        ctx.addOwnedType(pkg, c);
         ctx.stats.externalStubsCreated++;
-        UmlBuilderSupport.annotateId(c, "ExternalStub:" + base);
+        UmlBuilderSupport.annotateId(ctx.ids, c, "ExternalStub:" + base);
         return c;
     }
 
@@ -69,7 +72,7 @@ final class ExternalTypeRegistry {
             }
             Package created = current.createNestedPackage(parts[i]);
             ctx.stats.packagesCreated++;
-            UmlBuilderSupport.annotateId(created, "Package:" + q);
+            UmlBuilderSupport.annotateId(ctx.ids, created, "Package:" + q);
             ctx.packageByName.put(q, created);
             current = created;
         }
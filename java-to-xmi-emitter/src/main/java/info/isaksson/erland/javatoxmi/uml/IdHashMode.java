@@ -0,0 +1,31 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+/**
+ * Hash function behind the deterministic element IDs (see {@link UmlIdStrategy}).
+ *
+ * <p>Both modes are deterministic. Only {@link #COMPATIBLE} produces the IDs of earlier releases, so switching
+ * modes changes every hashed xmi:id in the output.</p>
+ */
+public enum IdHashMode {
+    /** SHA-256, truncated. Byte-for-byte the IDs earlier releases produced (default). */
+    COMPATIBLE,
+
+    /** MurmurHash3 x64 128-bit: not cryptographic, but several times cheaper per key. */
+    FAST;
+
+    public static IdHashMode parseCli(String v) {
+        if (v == null) return COMPATIBLE;
+        String s = v.trim().toLowerCase();
+        switch (s) {
+            case "compatible":
+            case "sha256":
+            case "sha-256":
+                return COMPATIBLE;
+            case "fast":
+            case "murmur3":
+                return FAST;
+            default:
+                throw new IllegalArgumentException("Invalid --id-hash mode: " + v + " (expected: compatible | fast)");
+        }
+    }
+}
@@ -44,7 +44,17 @@ public final class IrStereotypeProfileBuilder {
         }
     }
 
-    private final JavaAnnotationMetaclassExtensionHelper metaclassHelper = new JavaAnnotationMetaclassExtensionHelper();
+    private final UmlIdStrategy idStrategy;
+
+    /** A builder hashing element IDs with {@link IdHashMode#COMPATIBLE}. */
+    public IrStereotypeProfileBuilder() {
+        this(UmlIdStrategy.of(IdHashMode.COMPATIBLE));
+    }
+
+    /** A builder hashing element IDs with {@code idStrategy} (the one the model was built with). */
+    public IrStereotypeProfileBuilder(UmlIdStrategy idStrategy) {
+        this.idStrategy = Objects.requireNonNull(idStrategy, "idStrategy");
+    }
 
     /**
      * Materialize UML Profiles/Stereotypes for the given IR definitions under the provided UML Model.
@@ -66,6 +76,8 @@ public final class IrStereotypeProfileBuilder {
 
         Map<String, Profile> profileByName = new HashMap<>();
         Map<String, Stereotype> stereotypeById = new HashMap<>();
+        UmlIdTable ids = UmlIdTable.of(model);
+        JavaAnnotationMetaclassExtensionHelper metaclassHelper = new JavaAnnotationMetaclassExtensionHelper(ids, idStrategy);
 
         for (IrStereotypeDefinition def : defs) {
             if (def == null) continue;
@@ -76,17 +88,17 @@ public final class IrStereotypeProfileBuilder {
                     ? "IRProfile"
                     : def.profileName.trim();
 
-            Profile profile = profileByName.computeIfAbsent(profileName, pn -> ensureProfile(model, pn));
+            Profile profile = profileByName.computeIfAbsent(profileName, pn -> ensureProfile(model, pn, ids));
             // Ensure profile is defined and applied to model (required for robust extension creation).
-            ensureProfileDefinedAndApplied(model, profile);
+            ensureProfileDefinedAndApplied(model, profile, ids);
 
             // Ensure stereotype exists (by name).
             Stereotype st = profile.getOwnedStereotype(def.name);
             if (st == null) {
                 st = profile.createOwnedStereotype(def.name, false);
-                UmlBuilderSupport.annotateId(st, "Stereotype:" + profileName + "#" + def.id);
+                UmlBuilderSupport.annotateId(ids, st, "Stereotype:" + profileName + "#" + def.id);
             } else {
-                UmlBuilderSupport.annotateId(st, "Stereotype:" + profileName + "#" + def.id);
+                UmlBuilderSupport.annotateId(ids, st, "Stereotype:" + profileName + "#" + def.id);
             }
 
             // Store IR metadata on the stereotype (for debugging and stable matching).
@@ -129,34 +141,34 @@ public final class IrStereotypeProfileBuilder {
                 props.sort(Comparator.comparing(p -> p.name));
 
                 for (IrStereotypePropertyDefinition p : props) {
-                    ensureProperty(profile, st, p);
+                    ensureProperty(profile, st, p, ids);
                 }
             }
 
             stereotypeById.put(def.id, st);
         }
 
-        // Ensure deterministic ids on any newly created elements.
-        UmlBuilderSupport.ensureAllElementsHaveId(model);
+        // Deterministic ids for the elements UML2 created along the way (extension end multiplicities etc.).
+        UmlBuilderSupport.annotateQueuedIds(ids, idStrategy);
 
         return new Result(stereotypeById, profileByName);
     }
 
-    private static Profile ensureProfile(Model model, String profileName) {
+    private static Profile ensureProfile(Model model, String profileName, UmlIdTable ids) {
         for (PackageableElement pe : model.getPackagedElements()) {
             if (pe instanceof Profile p && profileName.equals(p.getName())) {
-                UmlBuilderSupport.annotateId(p, "Profile:" + profileName);
+                UmlBuilderSupport.annotateId(ids, p, "Profile:" + profileName);
                 return p;
             }
         }
         Profile p = UMLFactory.eINSTANCE.createProfile();
         p.setName(profileName);
         model.getPackagedElements().add(p);
-        UmlBuilderSupport.annotateId(p, "Profile:" + profileName);
+        UmlBuilderSupport.annotateId(ids, p, "Profile:" + profileName);
         return p;
     }
 
-    private static void ensureProfileDefinedAndApplied(Model model, Profile profile) {
+    private static void ensureProfileDefinedAndApplied(Model model, Profile profile, UmlIdTable ids) {
         if (model == null || profile == null) return;
         // define profile if needed
         try {
@@ -187,31 +199,33 @@ public final class IrStereotypeProfileBuilder {
             }
             if (!applied) {
                 model.applyProfile(profile);
+                UmlBuilderSupport.annotateIdLater(ids, model.getProfileApplication(profile));
             }
         } catch (Throwable ignored) {
         }
     }
 
-    private static void ensureProperty(Profile profile, Stereotype st, IrStereotypePropertyDefinition def) {
+    private static void ensureProperty(Profile profile, Stereotype st, IrStereotypePropertyDefinition def, UmlIdTable ids) {
         if (profile == null || st == null || def == null) return;
         String name = def.name.trim();
 
         for (Property existing : st.getOwnedAttributes()) {
             if (existing != null && name.equals(existing.getName())) {
-                UmlBuilderSupport.annotateId(existing, "StereotypeAttr:" + st.getName() + "#" + name);
+                UmlBuilderSupport.annotateId(ids, existing, "StereotypeAttr:" + st.getName() + "#" + name);
                 return;
             }
         }
 
-        PrimitiveType type = resolvePrimitive(profile, def.type);
+        PrimitiveType type = resolvePrimitive(profile, def.type, ids);
         Property created = st.createOwnedAttribute(name, type);
         if (def.isMulti) {
             created.setUpper(-1);
+            UmlBuilderSupport.annotateMultiplicityIdsLater(ids, created);
         }
-        UmlBuilderSupport.annotateId(created, "StereotypeAttr:" + st.getName() + "#" + name);
+        UmlBuilderSupport.annotateId(ids, created, "StereotypeAttr:" + st.getName() + "#" + name);
     }
 
-    private static PrimitiveType resolvePrimitive(Profile profile, String raw) {
+    private static PrimitiveType resolvePrimitive(Profile profile, String raw, UmlIdTable ids) {
         String t = raw == null ? "string" : raw.trim().toLowerCase();
         String umlName;
         switch (t) {
@@ -220,10 +234,10 @@ public final class IrStereotypeProfileBuilder {
             case "number" -> umlName = "Real";
             default -> umlName = "String";
         }
-        return ensurePrimitiveType(profile, umlName);
+        return ensurePrimitiveType(profile, umlName, ids);
     }
 
-    private static PrimitiveType ensurePrimitiveType(Profile profile, String name) {
+    private static PrimitiveType ensurePrimitiveType(Profile profile, String name, UmlIdTable ids) {
         if (profile == null) return null;
 
         // Prefer an existing global primitive in the enclosing model/package.
@@ -231,19 +245,19 @@ public final class IrStereotypeProfileBuilder {
         if (searchRoot != null) {
             PrimitiveType existing = findPrimitiveTypeByName(searchRoot, name);
             if (existing != null) {
-                UmlBuilderSupport.annotateId(existing, "Primitive:" + name);
+                UmlBuilderSupport.annotateId(ids, existing, "Primitive:" + name);
                 return existing;
             }
         }
 
         // Create in model-level _primitives package.
         org.eclipse.uml2.uml.Package owner = (searchRoot != null) ? searchRoot : profile;
-        org.eclipse.uml2.uml.Package primitivesPkg = findOrCreateChildPackage(owner, "_primitives");
+        org.eclipse.uml2.uml.Package primitivesPkg = findOrCreateChildPackage(owner, "_primitives", ids);
 
         PrimitiveType pt = UMLFactory.eINSTANCE.createPrimitiveType();
         pt.setName(name);
         primitivesPkg.getPackagedElements().add(pt);
-        UmlBuilderSupport.annotateId(pt, "Primitive:" + name);
+        UmlBuilderSupport.annotateId(ids, pt, "Primitive:" + name);
         return pt;
     }
 
@@ -259,7 +273,8 @@ public final class IrStereotypeProfileBuilder {
         return null;
     }
 
-    private static org.eclipse.uml2.uml.Package findOrCreateChildPackage(org.eclipse.uml2.uml.Package owner, String name) {
+    private static org.eclipse.uml2.uml.Package findOrCreateChildPackage(org.eclipse.uml2.uml.Package owner, String name,
+                                                                        UmlIdTable ids) {
         if (owner == null) return null;
         for (PackageableElement pe : owner.getPackagedElements()) {
             if (pe instanceof org.eclipse.uml2.uml.Package p && name.equals(p.getName())) {
@@ -269,7 +284,7 @@ public final class IrStereotypeProfileBuilder {
         org.eclipse.uml2.uml.Package p = UMLFactory.eINSTANCE.createPackage();
         p.setName(name);
         owner.getPackagedElements().add(p);
-        UmlBuilderSupport.annotateId(p, "Package:" + name);
+        UmlBuilderSupport.annotateId(ids, p, "Package:" + name);
         return p;
     }
 
@@ -34,6 +34,15 @@ import org.eclipse.uml2.uml.resource.UMLResource;
  */
 final class JavaAnnotationMetaclassExtensionHelper {
 
+    /** Table the profile elements are registered with (may be null). */
+    private final UmlIdTable ids;
+    private final UmlIdStrategy idStrategy;
+
+    JavaAnnotationMetaclassExtensionHelper(UmlIdTable ids, UmlIdStrategy idStrategy) {
+        this.ids = ids;
+        this.idStrategy = Objects.requireNonNull(idStrategy, "idStrategy");
+    }
+
     Extension ensureStereotypeExtendsMetaclass(Profile profile, Stereotype st, String metaclassName, boolean required) {
         Objects.requireNonNull(profile, "profile");
         Objects.requireNonNull(st, "st");
@@ -44,10 +53,10 @@ final class JavaAnnotationMetaclassExtensionHelper {
         // Avoid duplicates
         Extension existing = findExistingExtension(profile, st, metaclass);
         if (existing != null) {
-            JavaAnnotationProfileBuilder.annotateIdIfMissing(existing, "Extension:" + st.getName() + "->" + metaclass.getName());
+            JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, existing, "Extension:" + st.getName() + "->" + metaclass.getName());
             for (Property p : existing.getOwnedEnds()) {
                 if (p == null) continue;
-                JavaAnnotationProfileBuilder.annotateIdIfMissing(p,
+                JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, p,
                         "ExtensionEnd:" + st.getName() + "->" + metaclass.getName() + "#" + (p.getName() == null ? "" : p.getName()));
             }
             return existing;
@@ -60,11 +69,12 @@ final class JavaAnnotationMetaclassExtensionHelper {
             ext = createExtensionManually(profile, st, metaclass, required);
         }
 
-        JavaAnnotationProfileBuilder.annotateIdIfMissing(ext, "Extension:" + st.getName() + "->" + metaclass.getName());
+        JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, ext, "Extension:" + st.getName() + "->" + metaclass.getName());
         for (Property p : ext.getOwnedEnds()) {
             if (p == null) continue;
-            JavaAnnotationProfileBuilder.annotateIdIfMissing(p,
+            JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, p,
                     "ExtensionEnd:" + st.getName() + "->" + metaclass.getName() + "#" + (p.getName() == null ? "" : p.getName()));
+            UmlBuilderSupport.annotateMultiplicityIdsLater(ids, p);
         }
         return ext;
     }
@@ -96,7 +106,7 @@ final class JavaAnnotationMetaclassExtensionHelper {
         return ext;
     }
 
-    private static org.eclipse.uml2.uml.Class ensureMetaclassReference(Profile profile, String metaclassName) {
+    private org.eclipse.uml2.uml.Class ensureMetaclassReference(Profile profile, String metaclassName) {
         ResourceSet rs = ensureResourceSetFor(profile);
         PackageableElement rawPe = UmlMetamodelCache.getMetaclass(rs, metaclassName);
         if (rawPe == null) {
@@ -129,21 +139,21 @@ final class JavaAnnotationMetaclassExtensionHelper {
             ei = findMetaclassImport(profile, metaclassName);
         }
         if (ei != null) {
-            JavaAnnotationProfileBuilder.annotateIdIfMissing(ei, "MetaclassRefImport:" + metaclassName);
+            JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, ei, "MetaclassRefImport:" + metaclassName);
         }
 
         ensureProfileDefined(profile);
 
         org.eclipse.uml2.uml.Class referenced = tryGetReferencedMetaclass(profile, metaclassName);
         if (referenced != null) {
-            JavaAnnotationProfileBuilder.annotateIdIfMissing(referenced, "Metaclass:" + metaclassName);
+            JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, referenced, "Metaclass:" + metaclassName);
             return referenced;
         }
         if (ei != null && ei.getImportedElement() instanceof org.eclipse.uml2.uml.Class c) {
-            JavaAnnotationProfileBuilder.annotateIdIfMissing(c, "Metaclass:" + metaclassName);
+            JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, c, "Metaclass:" + metaclassName);
             return c;
         }
-        JavaAnnotationProfileBuilder.annotateIdIfMissing(rawMetaclass, "Metaclass:" + metaclassName);
+        JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, rawMetaclass, "Metaclass:" + metaclassName);
         return rawMetaclass;
     }
 
@@ -200,7 +210,7 @@ final class JavaAnnotationMetaclassExtensionHelper {
         return null;
     }
 
-    private static PackageImport ensureMetamodelReference(Profile profile, org.eclipse.uml2.uml.Package umlMetamodel) {
+    private PackageImport ensureMetamodelReference(Profile profile, org.eclipse.uml2.uml.Package umlMetamodel) {
         if (umlMetamodel == null) return null;
         try {
             java.lang.reflect.Method getRefs = profile.getClass().getMethod("getMetamodelReferences");
@@ -221,10 +231,10 @@ final class JavaAnnotationMetaclassExtensionHelper {
             java.lang.reflect.Method create = profile.getClass().getMethod("createMetamodelReference", org.eclipse.uml2.uml.Package.class);
             Object created = create.invoke(profile, umlMetamodel);
             if (created instanceof PackageImport pi) {
-                JavaAnnotationProfileBuilder.annotateIdIfMissing(pi, "MetamodelRef:" + (umlMetamodel.getName() == null ? "UML" : umlMetamodel.getName()));
+                JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, pi, "MetamodelRef:" + (umlMetamodel.getName() == null ? "UML" : umlMetamodel.getName()));
                 return pi;
             } else if (created instanceof org.eclipse.uml2.uml.Element e) {
-                JavaAnnotationProfileBuilder.annotateIdIfMissing(e, "MetamodelRef:" + (umlMetamodel.getName() == null ? "UML" : umlMetamodel.getName()));
+                JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, e, "MetamodelRef:" + (umlMetamodel.getName() == null ? "UML" : umlMetamodel.getName()));
             }
         } catch (Throwable ignored) {
             // Some UML2 variants may not require this.
@@ -57,8 +57,19 @@ public final class JavaAnnotationProfileBuilder {
         ENUMERATION
     }
 
-    private final JavaAnnotationProfileStructureBuilder structure = new JavaAnnotationProfileStructureBuilder();
-    private final JavaAnnotationMetaclassExtensionHelper metaclasses = new JavaAnnotationMetaclassExtensionHelper();
+    private final JavaAnnotationProfileStructureBuilder structure;
+    private final JavaAnnotationMetaclassExtensionHelper metaclasses;
+
+    /** A builder hashing profile element IDs with {@link IdHashMode#COMPATIBLE}, outside of a {@link UmlBuilder} build. */
+    public JavaAnnotationProfileBuilder() {
+        this(null, UmlIdStrategy.of(IdHashMode.COMPATIBLE));
+    }
+
+    /** A builder for the profile of a build: elements are registered with {@code ids} and hashed with {@code idStrategy}. */
+    JavaAnnotationProfileBuilder(UmlIdTable ids, UmlIdStrategy idStrategy) {
+        this.structure = new JavaAnnotationProfileStructureBuilder(ids, idStrategy);
+        this.metaclasses = new JavaAnnotationMetaclassExtensionHelper(ids, idStrategy);
+    }
 
     /** Ensure the JavaAnnotations profile exists under the given UML model. */
     public Profile ensureProfile(Model model) {
@@ -109,15 +120,20 @@ public final class JavaAnnotationProfileBuilder {
     // Shared utilities used by helpers (package-private on purpose)
     // ---------------------------------------------------------------------
 
-    static void annotateIdIfMissing(Element element, String key) {
+    static void annotateIdIfMissing(UmlIdTable ids, UmlIdStrategy idStrategy, Element element, String key) {
         if (element == null) return;
         EAnnotation ann = element.getEAnnotation(UmlBuilder.ID_ANNOTATION_SOURCE);
-        if (ann != null && ann.getDetails().containsKey("id")) return;
-        String id = UmlIdStrategy.id(key);
+        if (ann != null && ann.getDetails().containsKey("id")) {
+            String existing = ann.getDetails().get("id");
+            if (ids != null && existing != null && !existing.trim().isEmpty()) ids.register(element, existing);
+            return;
+        }
+        String id = idStrategy.id(key);
         if (ann == null) {
             ann = element.createEAnnotation(UmlBuilder.ID_ANNOTATION_SOURCE);
         }
         ann.getDetails().put("id", id);
         ann.getDetails().put("key", key);
+        if (ids != null) ids.register(element, id);
     }
 }
@@ -22,13 +22,22 @@ final class JavaAnnotationProfileStructureBuilder {
     // Tracks used stereotype names to avoid collisions.
     private final Map<String, String> stereotypeNameToQualified = new HashMap<>();
 
+    /** Table the profile elements are registered with (may be null). */
+    private final UmlIdTable ids;
+    private final UmlIdStrategy idStrategy;
+
+    JavaAnnotationProfileStructureBuilder(UmlIdTable ids, UmlIdStrategy idStrategy) {
+        this.ids = ids;
+        this.idStrategy = Objects.requireNonNull(idStrategy, "idStrategy");
+    }
+
     /** Ensure the JavaAnnotations profile exists under the given UML model. */
     Profile ensureProfile(Model model) {
         Objects.requireNonNull(model, "model");
         // Find existing
         for (PackageableElement pe : model.getPackagedElements()) {
             if (pe instanceof Profile p && JavaAnnotationProfileBuilder.PROFILE_NAME.equals(p.getName())) {
-                JavaAnnotationProfileBuilder.annotateIdIfMissing(p, "Profile:" + JavaAnnotationProfileBuilder.PROFILE_NAME);
+                JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, p, "Profile:" + JavaAnnotationProfileBuilder.PROFILE_NAME);
                 ensureStringPrimitive(p);
                 indexExistingStereotypes(p);
                 ensureToolTagsStereotype(p);
@@ -38,7 +47,7 @@ final class JavaAnnotationProfileStructureBuilder {
         Profile profile = UMLFactory.eINSTANCE.createProfile();
         profile.setName(JavaAnnotationProfileBuilder.PROFILE_NAME);
         model.getPackagedElements().add(profile);
-        JavaAnnotationProfileBuilder.annotateIdIfMissing(profile, "Profile:" + JavaAnnotationProfileBuilder.PROFILE_NAME);
+        JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, profile, "Profile:" + JavaAnnotationProfileBuilder.PROFILE_NAME);
         ensureStringPrimitive(profile);
         indexExistingStereotypes(profile);
         ensureToolTagsStereotype(profile);
@@ -51,7 +60,7 @@ final class JavaAnnotationProfileStructureBuilder {
         Stereotype st = profile.getOwnedStereotype(JavaAnnotationProfileBuilder.TOOL_TAGS_STEREOTYPE);
         if (st == null) {
             st = profile.createOwnedStereotype(JavaAnnotationProfileBuilder.TOOL_TAGS_STEREOTYPE, false);
-            JavaAnnotationProfileBuilder.annotateIdIfMissing(st,
+            JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, st,
                     "Stereotype:" + JavaAnnotationProfileBuilder.PROFILE_NAME + "#" + JavaAnnotationProfileBuilder.TOOL_TAGS_STEREOTYPE);
         }
 
@@ -74,7 +83,7 @@ final class JavaAnnotationProfileStructureBuilder {
             if (desiredName.equals(st.getName())) {
                 String existingQn = getQualifiedNameMeta(st);
                 if (Objects.equals(existingQn, qn) || (existingQn == null && qn == null)) {
-                    JavaAnnotationProfileBuilder.annotateIdIfMissing(st, stereotypeIdKey(qn, desiredName));
+                    JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, st, stereotypeIdKey(qn, desiredName));
                     return st;
                 }
             }
@@ -93,7 +102,7 @@ final class JavaAnnotationProfileStructureBuilder {
 
         Stereotype st = profile.createOwnedStereotype(finalName, false);
         setQualifiedNameMeta(st, qn);
-        JavaAnnotationProfileBuilder.annotateIdIfMissing(st, stereotypeIdKey(qn, finalName));
+        JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, st, stereotypeIdKey(qn, finalName));
         stereotypeNameToQualified.put(finalName, qn);
         return st;
     }
@@ -107,13 +116,13 @@ final class JavaAnnotationProfileStructureBuilder {
         String name = sanitizeUmlName(attrName);
         for (Property p : st.getOwnedAttributes()) {
             if (name.equals(p.getName())) {
-                JavaAnnotationProfileBuilder.annotateIdIfMissing(p, "StereotypeAttr:" + st.getName() + "#" + name);
+                JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, p, "StereotypeAttr:" + st.getName() + "#" + name);
                 return p;
             }
         }
         PrimitiveType stringType = ensureStringPrimitive(profile);
         Property p = st.createOwnedAttribute(name, stringType);
-        JavaAnnotationProfileBuilder.annotateIdIfMissing(p, "StereotypeAttr:" + st.getName() + "#" + name);
+        JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, p, "StereotypeAttr:" + st.getName() + "#" + name);
         return p;
     }
 
@@ -147,7 +156,7 @@ final class JavaAnnotationProfileStructureBuilder {
         return "Stereotype:" + qn + "#" + stereotypeName;
     }
 
-    private static PrimitiveType ensureStringPrimitive(Profile profile) {
+    private PrimitiveType ensureStringPrimitive(Profile profile) {
         // Prefer an existing global "String" primitive anywhere in the enclosing UML Model.
         org.eclipse.uml2.uml.Package searchRoot = profile.getModel();
         if (searchRoot == null) {
@@ -167,7 +176,7 @@ final class JavaAnnotationProfileStructureBuilder {
         if (searchRoot != null) {
             PrimitiveType existing = findPrimitiveTypeByName(searchRoot, "String");
             if (existing != null) {
-                JavaAnnotationProfileBuilder.annotateIdIfMissing(existing, "Primitive:String");
+                JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, existing, "Primitive:String");
                 return existing;
             }
         }
@@ -179,11 +188,11 @@ final class JavaAnnotationProfileStructureBuilder {
         PrimitiveType pt = UMLFactory.eINSTANCE.createPrimitiveType();
         pt.setName("String");
         primitivesPkg.getPackagedElements().add(pt);
-        JavaAnnotationProfileBuilder.annotateIdIfMissing(pt, "Primitive:String");
+        JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, pt, "Primitive:String");
         return pt;
     }
 
-    private static org.eclipse.uml2.uml.Package findOrCreateChildPackage(org.eclipse.uml2.uml.Package owner, String name) {
+    private org.eclipse.uml2.uml.Package findOrCreateChildPackage(org.eclipse.uml2.uml.Package owner, String name) {
         if (owner == null) return null;
         for (PackageableElement pe : owner.getPackagedElements()) {
             if (pe instanceof org.eclipse.uml2.uml.Package p && name.equals(p.getName())) {
@@ -193,7 +202,7 @@ final class JavaAnnotationProfileStructureBuilder {
         org.eclipse.uml2.uml.Package p = UMLFactory.eINSTANCE.createPackage();
         p.setName(name);
         owner.getPackagedElements().add(p);
-        JavaAnnotationProfileBuilder.annotateIdIfMissing(p, "Package:" + name);
+        JavaAnnotationProfileBuilder.annotateIdIfMissing(ids, idStrategy, p, "Package:" + name);
         return p;
     }
 
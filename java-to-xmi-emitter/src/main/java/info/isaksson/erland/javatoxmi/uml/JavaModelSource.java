@@ -0,0 +1,180 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
+import info.isaksson.erland.javatoxmi.model.JField;
+import info.isaksson.erland.javatoxmi.model.JJavaModule;
+import info.isaksson.erland.javatoxmi.model.JMethod;
+import info.isaksson.erland.javatoxmi.model.JMigrationArtifact;
+import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.model.JParam;
+import info.isaksson.erland.javatoxmi.model.JRuntimeAnnotation;
+import info.isaksson.erland.javatoxmi.model.JRuntimeRelation;
+import info.isaksson.erland.javatoxmi.model.JType;
+import info.isaksson.erland.javatoxmi.model.JTypeKind;
+import info.isaksson.erland.javatoxmi.model.JVisibility;
+import info.isaksson.erland.javatoxmi.model.TypeRef;
+import info.isaksson.erland.javatoxmi.model.TypeRefKind;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link UmlModelSource} over an extracted {@link JModel}. The views are created once, up front, so the builder
+ * sees the same view for a type every time it asks.
+ */
+final class JavaModelSource implements UmlModelSource {
+
+    private final JModel jModel;
+    private final List<UmlSourceType> types;
+    private final List<UmlSourceRuntimeRelation> runtimeRelations;
+
+    JavaModelSource(JModel jModel) {
+        this.jModel = jModel;
+        this.types = new ArrayList<>(jModel.types.size());
+        for (JType t : jModel.types) types.add(new JavaType(t));
+        this.runtimeRelations = new ArrayList<>(jModel.runtimeRelations.size());
+        for (JRuntimeRelation r : jModel.runtimeRelations) runtimeRelations.add(new JavaRuntimeRelation(r));
+    }
+
+    @Override public List<UmlSourceType> types() { return types; }
+    @Override public List<UmlSourceRuntimeRelation> runtimeRelations() { return runtimeRelations; }
+    @Override public List<JRuntimeAnnotation> runtimeAnnotations() { return jModel.runtimeAnnotations; }
+    @Override public List<JMigrationArtifact> migrationArtifacts() { return jModel.migrationArtifacts; }
+    @Override public List<JJavaModule> javaModules() { return jModel.javaModules; }
+
+    static UmlSourceType view(JType t) {
+        return t == null ? null : new JavaType(t);
+    }
+
+    static UmlSourceField view(JField f) {
+        return f == null ? null : new JavaField(f);
+    }
+
+    static UmlSourceTypeRef view(TypeRef ref) {
+        return ref == null ? null : new JavaTypeRef(ref);
+    }
+
+    private static final class JavaType implements UmlSourceType {
+        private final JType t;
+        private final List<UmlSourceField> fields;
+        private final List<UmlSourceMethod> methods;
+
+        JavaType(JType t) {
+            this.t = t;
+            this.fields = new ArrayList<>(t.fields.size());
+            for (JField f : t.fields) fields.add(new JavaField(f));
+            this.methods = new ArrayList<>(t.methods.size());
+            for (JMethod m : t.methods) methods.add(new JavaMethod(m));
+        }
+
+        @Override public String packageName() { return t.packageName; }
+        @Override public String name() { return t.name; }
+        @Override public String qualifiedName() { return t.qualifiedName; }
+        @Override public String outerQualifiedName() { return t.outerQualifiedName; }
+        @Override public boolean isNested() { return t.isNested; }
+        @Override public JTypeKind kind() { return t.kind; }
+        @Override public JVisibility visibility() { return t.visibility; }
+        @Override public boolean isAbstract() { return t.isAbstract; }
+        @Override public String extendsType() { return t.extendsType; }
+        @Override public List<String> implementsTypes() { return t.implementsTypes; }
+        @Override public List<JAnnotationUse> annotations() { return t.annotations; }
+        @Override public String doc() { return t.doc; }
+        @Override public List<UmlSourceField> fields() { return fields; }
+        @Override public List<UmlSourceMethod> methods() { return methods; }
+        @Override public List<String> methodBodyTypeDependencies() { return t.methodBodyTypeDependencies; }
+        @Override public List<String> enumLiterals() { return t.enumLiterals; }
+    }
+
+    private static final class JavaField implements UmlSourceField {
+        private final JField f;
+        private final UmlSourceTypeRef typeRef;
+
+        JavaField(JField f) {
+            this.f = f;
+            this.typeRef = view(f.typeRef);
+        }
+
+        @Override public String name() { return f.name; }
+        @Override public String type() { return f.type; }
+        @Override public UmlSourceTypeRef typeRef() { return typeRef; }
+        @Override public JVisibility visibility() { return f.visibility; }
+        @Override public boolean isStatic() { return f.isStatic; }
+        @Override public boolean isFinal() { return f.isFinal; }
+        @Override public List<JAnnotationUse> annotations() { return f.annotations; }
+    }
+
+    private static final class JavaMethod implements UmlSourceMethod {
+        private final JMethod m;
+        private final UmlSourceTypeRef returnTypeRef;
+        private final List<UmlSourceParam> params;
+
+        JavaMethod(JMethod m) {
+            this.m = m;
+            this.returnTypeRef = view(m.returnTypeRef);
+            this.params = new ArrayList<>(m.params.size());
+            for (JParam p : m.params) params.add(new JavaParam(p));
+        }
+
+        @Override public String name() { return m.name; }
+        @Override public String returnType() { return m.returnType; }
+        @Override public UmlSourceTypeRef returnTypeRef() { return returnTypeRef; }
+        @Override public JVisibility visibility() { return m.visibility; }
+        @Override public boolean isStatic() { return m.isStatic; }
+        @Override public boolean isAbstract() { return m.isAbstract; }
+        @Override public boolean isConstructor() { return m.isConstructor; }
+        @Override public List<UmlSourceParam> params() { return params; }
+        @Override public List<JAnnotationUse> annotations() { return m.annotations; }
+    }
+
+    private static final class JavaParam implements UmlSourceParam {
+        private final JParam p;
+        private final UmlSourceTypeRef typeRef;
+
+        JavaParam(JParam p) {
+            this.p = p;
+            this.typeRef = view(p.typeRef);
+        }
+
+        @Override public String name() { return p.name; }
+        @Override public String type() { return p.type; }
+        @Override public UmlSourceTypeRef typeRef() { return typeRef; }
+        @Override public List<JAnnotationUse> annotations() { return p.annotations; }
+    }
+
+    private static final class JavaTypeRef implements UmlSourceTypeRef {
+        private final TypeRef ref;
+        private final List<UmlSourceTypeRef> args;
+        private final UmlSourceTypeRef wildcardBoundType;
+
+        JavaTypeRef(TypeRef ref) {
+            this.ref = ref;
+            this.args = new ArrayList<>(ref.args.size());
+            for (TypeRef a : ref.args) args.add(new JavaTypeRef(a));
+            this.wildcardBoundType = view(ref.wildcardBoundType);
+        }
+
+        @Override public String raw() { return ref.raw; }
+        @Override public TypeRefKind kind() { return ref.kind; }
+        @Override public String simpleName() { return ref.simpleName; }
+        @Override public String qnameHint() { return ref.qnameHint; }
+        @Override public List<UmlSourceTypeRef> args() { return args; }
+        @Override public int arrayDims() { return ref.arrayDims; }
+        @Override public UmlSourceTypeRef wildcardBoundType() { return wildcardBoundType; }
+    }
+
+    private static final class JavaRuntimeRelation implements UmlSourceRuntimeRelation {
+        private final JRuntimeRelation r;
+
+        JavaRuntimeRelation(JRuntimeRelation r) {
+            this.r = r;
+        }
+
+        @Override public String id() { return r.id; }
+        @Override public String sourceQualifiedName() { return r.sourceQualifiedName; }
+        @Override public String targetQualifiedName() { return r.targetQualifiedName; }
+        @Override public String name() { return r.name; }
+        @Override public String stereotype() { return r.stereotype; }
+        @Override public Map<String, String> tags() { return r.tags; }
+    }
+}
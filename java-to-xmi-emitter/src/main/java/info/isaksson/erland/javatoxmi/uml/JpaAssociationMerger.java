@@ -3,8 +3,6 @@ package info.isaksson.erland.javatoxmi.uml;
 import org.eclipse.uml2.uml.Association;
 import org.eclipse.uml2.uml.Classifier;
 import org.eclipse.uml2.uml.Property;
-import info.isaksson.erland.javatoxmi.model.JField;
-import info.isaksson.erland.javatoxmi.model.JType;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,11 +14,11 @@ import java.util.function.Function;
  */
 final class JpaAssociationMerger {
     private final UmlBuildContext ctx;
-    private final Function<JField, AssociationTargetResolver.AssociationTarget> targetComputer;
+    private final Function<UmlSourceField, AssociationTargetResolver.AssociationTarget> targetComputer;
     private final Function<String, Classifier> classifierResolver;
 
     JpaAssociationMerger(UmlBuildContext ctx,
-                         Function<JField, AssociationTargetResolver.AssociationTarget> targetComputer,
+                         Function<UmlSourceField, AssociationTargetResolver.AssociationTarget> targetComputer,
                          Function<String, Classifier> classifierResolver) {
         this.ctx = ctx;
         this.targetComputer = targetComputer;
@@ -36,8 +34,8 @@ final class JpaAssociationMerger {
                                            String tgtQn,
                                            Classifier srcClassifier,
                                            Classifier tgtClassifier,
-                                           JType srcType,
-                                           JField srcField,
+                                           UmlSourceType srcType,
+                                           UmlSourceField srcField,
                                            AssociationTargetResolver.AssociationTarget at,
                                            Property srcOwnedEnd) {
         String pairKey = UmlBuildContext.undirectedPairKey(srcQn, tgtQn);
@@ -51,7 +49,7 @@ final class JpaAssociationMerger {
             if (r == null || r.association == null) continue;
             if (r.expectedInverseFieldName == null || r.expectedInverseFieldName.isBlank()) continue;
             // r created from r.ownerQn field to r.targetQn and expects inverse field on r.targetQn.
-            if (srcQn.equals(r.targetQn) && tgtQn.equals(r.ownerQn) && r.expectedInverseFieldName.equals(srcField.name)) {
+            if (srcQn.equals(r.targetQn) && tgtQn.equals(r.ownerQn) && r.expectedInverseFieldName.equals(srcField.name())) {
                 // record created from opposite side with mappedBy expecting this field name.
                 if (associationAlreadyHasOwnerEnd(r.association, srcClassifier)) return false;
                 return mergeAssociation(r, srcClassifier, tgtClassifier, srcType, srcField, at, srcOwnedEnd);
@@ -104,8 +102,8 @@ final class JpaAssociationMerger {
     private boolean mergeAssociation(AssocMergeRecord existing,
                                     Classifier srcClassifier,
                                     Classifier tgtClassifier,
-                                    JType srcType,
-                                    JField srcField,
+                                    UmlSourceType srcType,
+                                    UmlSourceField srcField,
                                     AssociationTargetResolver.AssociationTarget at,
                                     Property srcOwnedEnd) {
         if (existing == null || existing.association == null) return false;
@@ -137,12 +135,12 @@ final class JpaAssociationMerger {
         }
 
         // Update associationPairs (already present, but idempotent)
-        String pairKey = UmlBuildContext.undirectedPairKey(srcType.qualifiedName, ctx.qNameOf(tgtClassifier));
+        String pairKey = UmlBuildContext.undirectedPairKey(srcType.qualifiedName(), ctx.qNameOf(tgtClassifier));
         if (pairKey != null) ctx.associationPairs.add(pairKey);
 
         // Index this end as well (so later heuristics can detect ambiguity rather than accidentally merging).
         if (pairKey != null) {
-            AssocMergeRecord rec = new AssocMergeRecord(assoc, srcType.qualifiedName, srcField.name,
+            AssocMergeRecord rec = new AssocMergeRecord(assoc, srcType.qualifiedName(), srcField.name(),
                     ctx.qNameOf(tgtClassifier), null, srcOwnedEnd);
             ctx.associationRecordsByPair.computeIfAbsent(pairKey, k -> new ArrayList<>()).add(rec);
         }
@@ -153,8 +151,8 @@ final class JpaAssociationMerger {
 
     private boolean isUniqueInverseJpa(String srcQn, String tgtQn) {
         if (ctx == null) return false;
-        JType srcType = ctx.typeByQName.get(srcQn);
-        JType tgtType = ctx.typeByQName.get(tgtQn);
+        UmlSourceType srcType = ctx.typeByQName.get(srcQn);
+        UmlSourceType tgtType = ctx.typeByQName.get(tgtQn);
         if (srcType == null || tgtType == null) return false;
 
         int srcCount = countJpaRelationshipFieldsTo(srcType, tgtQn);
@@ -163,10 +161,10 @@ final class JpaAssociationMerger {
         return tgtCount == 1;
     }
 
-    private int countJpaRelationshipFieldsTo(JType owner, String targetQn) {
-        if (owner == null || owner.fields == null) return 0;
+    private int countJpaRelationshipFieldsTo(UmlSourceType owner, String targetQn) {
+        if (owner == null || owner.fields() == null) return 0;
         int c = 0;
-        for (JField f : owner.fields) {
+        for (UmlSourceField f : owner.fields()) {
             if (f == null) continue;
             if (!RelationHeuristics.hasJpaRelationship(f)) continue;
             AssociationTargetResolver.AssociationTarget at = targetComputer.apply(f);
@@ -2,8 +2,6 @@ package info.isaksson.erland.javatoxmi.uml;
 
 import org.eclipse.uml2.uml.Property;
 import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
-import info.isaksson.erland.javatoxmi.model.JField;
-import info.isaksson.erland.javatoxmi.model.JType;
 
 /**
  * JPA-specific opposite-end rules (role name + multiplicity) kept separate from
@@ -12,7 +10,7 @@ import info.isaksson.erland.javatoxmi.model.JType;
 final class JpaOppositeEndRules {
     private JpaOppositeEndRules() {}
 
-    static void configureOppositeEndMultiplicity(Property endToSource, JField field) {
+    static void configureOppositeEndMultiplicity(Property endToSource, UmlSourceField field) {
         if (endToSource == null) return;
 
         // Containment-style mappings are treated as 1..1 back to owner.
@@ -34,7 +32,7 @@ final class JpaOppositeEndRules {
      * For non-bidirectional/unmapped associations we keep the opposite end unnamed to avoid
      * surprising diffs and to preserve prior behavior.</p>
      */
-    static String deriveOppositeEndName(JField srcField, JType srcType) {
+    static String deriveOppositeEndName(UmlSourceField srcField, UmlSourceType srcType) {
         String mb = mappedByValue(srcField);
         if (mb != null && !mb.isBlank()) return mb;
         return null;
@@ -43,9 +41,9 @@ final class JpaOppositeEndRules {
     /**
      * Extract mappedBy value from common JPA relation annotations.
      */
-    static String mappedByValue(JField f) {
-        if (f == null || f.annotations == null) return null;
-        for (JAnnotationUse a : f.annotations) {
+    static String mappedByValue(UmlSourceField f) {
+        if (f == null || f.annotations() == null) return null;
+        for (JAnnotationUse a : f.annotations()) {
             if (a == null) continue;
             String n = a.qualifiedName != null && !a.qualifiedName.isBlank() ? a.qualifiedName : a.simpleName;
             n = AnnotationValueUtil.stripPkg(n);
@@ -74,8 +72,8 @@ final class JpaOppositeEndRules {
     /**
      * Derive the opposite association-end multiplicity from JPA relationship annotations.
      */
-    static Multiplicity oppositeMultiplicityFromJpa(JField f) {
-        if (f == null || f.annotations == null || f.annotations.isEmpty()) {
+    static Multiplicity oppositeMultiplicityFromJpa(UmlSourceField f) {
+        if (f == null || f.annotations() == null || f.annotations().isEmpty()) {
             return new Multiplicity(0, 1);
         }
 
@@ -84,7 +82,7 @@ final class JpaOppositeEndRules {
         boolean manyToMany = false;
         boolean oneToOne = false;
 
-        for (JAnnotationUse a : f.annotations) {
+        for (JAnnotationUse a : f.annotations()) {
             if (a == null) continue;
             String n = a.qualifiedName != null && !a.qualifiedName.isBlank() ? a.qualifiedName : a.simpleName;
             n = AnnotationValueUtil.stripPkg(n);
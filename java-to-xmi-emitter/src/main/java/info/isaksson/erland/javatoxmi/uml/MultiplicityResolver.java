@@ -37,6 +37,11 @@ public final class MultiplicityResolver {
 
     /** Resolve multiplicity from a type + annotations. */
     public Result resolve(TypeRef typeRef, List<JAnnotationUse> annotations) {
+        return resolve(JavaModelSource.view(typeRef), annotations);
+    }
+
+    /** {@link #resolve(TypeRef, List)} for a type as the UML builder reads it. */
+    public Result resolve(UmlSourceTypeRef typeRef, List<JAnnotationUse> annotations) {
         List<JAnnotationUse> anns = annotations == null ? List.of() : annotations;
 
         // 1) Baseline from JPA relation annotations if present
@@ -4,7 +4,6 @@ import org.eclipse.uml2.uml.AggregationKind;
 import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
 import info.isaksson.erland.javatoxmi.model.JField;
 import info.isaksson.erland.javatoxmi.model.JType;
-import info.isaksson.erland.javatoxmi.model.TypeRef;
 import info.isaksson.erland.javatoxmi.model.TypeRefKind;
 
 import java.util.Map;
@@ -59,8 +58,8 @@ public final class RelationHeuristics {
      *
      * @param fieldTypeResolvesToModelClassifier pass true when the field's (target) type is a classifier in the model
      */
-    public static boolean shouldCreateAssociation(JField field,
-                                                  JType owner,
+    public static boolean shouldCreateAssociation(UmlSourceField field,
+                                                  UmlSourceType owner,
                                                   AssociationPolicy policy,
                                                   boolean fieldTypeResolvesToModelClassifier) {
         if (policy == null) policy = AssociationPolicy.RESOLVED;
@@ -98,6 +97,15 @@ public final class RelationHeuristics {
         }
     }
 
+    /** {@link #shouldCreateAssociation(UmlSourceField, UmlSourceType, AssociationPolicy, boolean)} for an extracted Java field. */
+    public static boolean shouldCreateAssociation(JField field,
+                                                  JType owner,
+                                                  AssociationPolicy policy,
+                                                  boolean fieldTypeResolvesToModelClassifier) {
+        return shouldCreateAssociation(JavaModelSource.view(field), JavaModelSource.view(owner), policy,
+                fieldTypeResolvesToModelClassifier);
+    }
+
     /**
      * Determine AggregationKind for a field end.
      *
@@ -105,7 +113,7 @@ public final class RelationHeuristics {
      * - COMPOSITE when orphanRemoval=true on OneToMany/OneToOne
      * - otherwise NONE
      */
-    public static AggregationKind aggregationKindFor(JField field) {
+    public static AggregationKind aggregationKindFor(UmlSourceField field) {
         if (field == null) return AggregationKind.NONE_LITERAL;
 
         // Embedded objects are owned-by-value in JPA.
@@ -126,48 +134,53 @@ public final class RelationHeuristics {
         return AggregationKind.NONE_LITERAL;
     }
 
-    public static boolean hasJpaRelationship(JField field) {
+    /** {@link #aggregationKindFor(UmlSourceField)} for an extracted Java field. */
+    public static AggregationKind aggregationKindFor(JField field) {
+        return aggregationKindFor(JavaModelSource.view(field));
+    }
+
+    public static boolean hasJpaRelationship(UmlSourceField field) {
         return findAnnotation(field, JPA_ONE_TO_ONE) != null
                 || findAnnotation(field, JPA_ONE_TO_MANY) != null
                 || findAnnotation(field, JPA_MANY_TO_ONE) != null
                 || findAnnotation(field, JPA_MANY_TO_MANY) != null;
     }
 
-    public static boolean isEmbedded(JField field) {
+    public static boolean isEmbedded(UmlSourceField field) {
         return findAnnotation(field, JPA_EMBEDDED) != null;
     }
 
-    public static boolean isEmbeddedId(JField field) {
+    public static boolean isEmbeddedId(UmlSourceField field) {
         return findAnnotation(field, JPA_EMBEDDED_ID) != null;
     }
 
-    public static boolean isElementCollection(JField field) {
+    public static boolean isElementCollection(UmlSourceField field) {
         return findAnnotation(field, JPA_ELEMENT_COLLECTION) != null;
     }
 
-    public static boolean isTransient(JField field) {
+    public static boolean isTransient(UmlSourceField field) {
         return findAnnotation(field, JPA_TRANSIENT) != null;
     }
 
-    private static boolean isElementCollectionOfValueLike(JField field) {
+    private static boolean isElementCollectionOfValueLike(UmlSourceField field) {
         if (field == null) return false;
         // Best-effort: if the element type is value-like, don't imply composition.
-        TypeRef tr = field.typeRef;
+        UmlSourceTypeRef tr = field.typeRef();
         if (tr != null) {
-            TypeRef elem = null;
-            if (tr.kind == TypeRefKind.PARAM && tr.args != null && !tr.args.isEmpty()) {
-                elem = tr.args.get(0);
+            UmlSourceTypeRef elem = null;
+            if (tr.kind() == TypeRefKind.PARAM && tr.args() != null && !tr.args().isEmpty()) {
+                elem = tr.args().get(0);
             }
             if (elem != null) {
-                String qn = safe(elem.qnameHint);
-                String sn = safe(elem.simpleName);
+                String qn = safe(elem.qnameHint());
+                String sn = safe(elem.simpleName());
                 if (!qn.isBlank() && VALUE_LIKE_QNAME.contains(qn)) return true;
                 if (!sn.isBlank() && VALUE_LIKE_SIMPLE.contains(sn)) return true;
                 if (isPrimitiveName(sn) || isPrimitiveName(qn)) return true;
             }
         }
         // Fallback: if the declared type string looks like List<String> etc.
-        String raw = field.type == null ? "" : field.type.trim();
+        String raw = field.type() == null ? "" : field.type().trim();
         if (raw.contains("<") && raw.contains(">")) {
             String inner = raw.substring(raw.indexOf('<') + 1, raw.lastIndexOf('>')).trim();
             // for Map<K,V> this is "K,V"; treat as non-value-like to be safe
@@ -193,17 +206,17 @@ public final class RelationHeuristics {
     /**
      * Best-effort classification of value-like types that should remain attributes-only.
      */
-    public static boolean isValueLike(JField field) {
+    public static boolean isValueLike(UmlSourceField field) {
         if (field == null) return false;
-        TypeRef tr = field.typeRef;
+        UmlSourceTypeRef tr = field.typeRef();
         if (tr != null) {
             // arrays/collections are not value-like for this purpose
-            if (tr.kind == TypeRefKind.ARRAY || tr.kind == TypeRefKind.PARAM) return false;
-            if (!tr.qnameHint.isBlank() && VALUE_LIKE_QNAME.contains(tr.qnameHint)) return true;
-            if (!tr.simpleName.isBlank() && VALUE_LIKE_SIMPLE.contains(tr.simpleName)) return true;
+            if (tr.kind() == TypeRefKind.ARRAY || tr.kind() == TypeRefKind.PARAM) return false;
+            if (!tr.qnameHint().isBlank() && VALUE_LIKE_QNAME.contains(tr.qnameHint())) return true;
+            if (!tr.simpleName().isBlank() && VALUE_LIKE_SIMPLE.contains(tr.simpleName())) return true;
         }
         // fallback to string
-        String t = field.type == null ? "" : field.type.trim();
+        String t = field.type() == null ? "" : field.type().trim();
         if (VALUE_LIKE_QNAME.contains(t)) return true;
         return VALUE_LIKE_SIMPLE.contains(t) || isPrimitiveName(t);
     }
@@ -221,9 +234,9 @@ public final class RelationHeuristics {
         return s.equals("true") || s.equals("1") || s.equals("yes");
     }
 
-    private static JAnnotationUse findAnnotation(JField field, Set<String> names) {
-        if (field == null || field.annotations == null) return null;
-        for (JAnnotationUse a : field.annotations) {
+    private static JAnnotationUse findAnnotation(UmlSourceField field, Set<String> names) {
+        if (field == null || field.annotations() == null) return null;
+        for (JAnnotationUse a : field.annotations()) {
             if (a == null) continue;
             if (names.contains(a.qualifiedName)) return a;
             if (names.contains(a.simpleName)) return a;
@@ -2,7 +2,6 @@ package info.isaksson.erland.javatoxmi.uml;
 
 import org.eclipse.uml2.uml.AggregationKind;
 import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
-import info.isaksson.erland.javatoxmi.model.JField;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -16,7 +15,7 @@ import java.util.Map;
 final class RelationTagging {
     private RelationTagging() {}
 
-    static Map<String, String> relationDecisionTags(JField f, AssociationPolicy policy, boolean resolvedTarget) {
+    static Map<String, String> relationDecisionTags(UmlSourceField f, AssociationPolicy policy, boolean resolvedTarget) {
         if (f == null) return Map.of();
         if (policy == null) policy = AssociationPolicy.RESOLVED;
 
@@ -58,15 +57,15 @@ final class RelationTagging {
         }
     }
 
-    static Map<String, String> aggregationDecisionTags(JField f) {
+    static Map<String, String> aggregationDecisionTags(UmlSourceField f) {
         if (f == null) return Map.of();
         AggregationKind ak = RelationHeuristics.aggregationKindFor(f);
         String agg = ak == AggregationKind.COMPOSITE_LITERAL ? "composite" : "none";
         LinkedHashMap<String, String> tags = new LinkedHashMap<>();
         tags.put("aggregation", agg);
 
-        if (f.annotations != null) {
-            for (JAnnotationUse a : f.annotations) {
+        if (f.annotations() != null) {
+            for (JAnnotationUse a : f.annotations()) {
                 if (a == null) continue;
                 if ("OneToMany".equals(a.simpleName) || "OneToOne".equals(a.simpleName)
                         || "javax.persistence.OneToMany".equals(a.qualifiedName) || "jakarta.persistence.OneToMany".equals(a.qualifiedName)
@@ -0,0 +1,49 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Best-effort parsing of Java type strings for members that come without a structured
+ * {@link UmlSourceTypeRef}.
+ */
+final class TypeStrings {
+
+    private TypeStrings() {}
+
+    /** Type string without its generic arguments, e.g. {@code java.util.Map} for {@code java.util.Map<K, V>}; {@code null} gives {@code ""}. */
+    static String baseName(String type) {
+        if (type == null) return "";
+        int lt = type.indexOf('<');
+        return (lt >= 0 ? type.substring(0, lt) : type).trim();
+    }
+
+    /** Top-level generic arguments (no deep parsing), e.g. {@code [K, List<V>]} for {@code Map<K, List<V>>}. */
+    static List<String> typeArguments(String type) {
+        if (type == null) return List.of();
+        String s = type.trim();
+        int lt = s.indexOf('<');
+        int gt = s.lastIndexOf('>');
+        if (lt < 0 || gt < lt) return List.of();
+
+        List<String> out = new ArrayList<>();
+        StringBuilder buf = new StringBuilder();
+        int depth = 0;
+        for (int i = lt + 1; i < gt; i++) {
+            char c = s.charAt(i);
+            if (c == '<') depth++;
+            else if (c == '>') depth = Math.max(0, depth - 1);
+
+            if (c == ',' && depth == 0) {
+                String part = buf.toString().trim();
+                if (!part.isEmpty()) out.add(part);
+                buf.setLength(0);
+            } else {
+                buf.append(c);
+            }
+        }
+        String last = buf.toString().trim();
+        if (!last.isEmpty()) out.add(last);
+        return out;
+    }
+}
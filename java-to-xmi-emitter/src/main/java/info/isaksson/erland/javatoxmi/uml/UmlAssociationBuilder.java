@@ -4,8 +4,6 @@ import org.eclipse.uml2.uml.Classifier;
 import org.eclipse.uml2.uml.Property;
 import org.eclipse.uml2.uml.StructuredClassifier;
 import org.eclipse.uml2.uml.Type;
-import info.isaksson.erland.javatoxmi.model.JField;
-import info.isaksson.erland.javatoxmi.model.JType;
 import java.util.Map;
 
 /**
@@ -18,16 +16,16 @@ final class UmlAssociationBuilder {
     private final AssociationFactory associationFactory = new AssociationFactory();
 
     
-    void addFieldAssociations(UmlBuildContext ctx, Classifier classifier, JType t) {
+    void addFieldAssociations(UmlBuildContext ctx, Classifier classifier, UmlSourceType t) {
         if (ctx == null || classifier == null || t == null) return;
 
-        for (JField f : t.fields) {
+        for (UmlSourceField f : t.fields()) {
             if (f == null) continue;
             addFieldAssociation(ctx, classifier, t, f);
         }
     }
 
-    private void addFieldAssociation(UmlBuildContext ctx, Classifier classifier, JType ownerType, JField field) {
+    private void addFieldAssociation(UmlBuildContext ctx, Classifier classifier, UmlSourceType ownerType, UmlSourceField field) {
         AssociationTargetResolver.AssociationTarget at = targetResolver.resolve(ctx, field);
         if (at == null) return;
 
@@ -47,11 +45,11 @@ final class UmlAssociationBuilder {
         StructuredClassifier sc = (StructuredClassifier) classifier;
         Type targetType = (Type) target;
 
-        Property endToTarget = ensureEndToTarget(sc, ownerType, field, targetType);
+        Property endToTarget = ensureEndToTarget(ctx, sc, ownerType, field, targetType);
         applyFieldEndMetadata(ctx, endToTarget, field, at, targetType);
 
         boolean isJpaRel = RelationHeuristics.hasJpaRelationship(field);
-        String srcQn = ownerType.qualifiedName;
+        String srcQn = ownerType.qualifiedName();
         String tgtQn = ctx.qNameOf(target);
 
         // Try merge BEFORE creating a new association.
@@ -71,30 +69,31 @@ final class UmlAssociationBuilder {
 
     private void annotateOwnedAttributeDecision(UmlBuildContext ctx,
                                                Classifier classifier,
-                                               JField field,
+                                               UmlSourceField field,
                                                boolean resolvedTarget) {
         if (!(classifier instanceof StructuredClassifier)) return;
         StructuredClassifier sc = (StructuredClassifier) classifier;
-        Property owned = findOwnedAttribute(sc, field.name);
+        Property owned = field.name() == null ? null : ctx.findOwnedAttribute(sc, field.name());
         if (owned == null) return;
 
         UmlBuilderSupport.annotateTags(owned, relationDecisionTags(field, ctx.associationPolicy, resolvedTarget));
         UmlBuilderSupport.annotateTags(owned, RelationTagging.aggregationDecisionTags(field));
     }
 
-    private Property ensureEndToTarget(StructuredClassifier sc, JType ownerType, JField field, Type targetType) {
-        Property endToTarget = findOwnedAttribute(sc, field.name);
+    private Property ensureEndToTarget(UmlBuildContext ctx, StructuredClassifier sc, UmlSourceType ownerType, UmlSourceField field, Type targetType) {
+        Property endToTarget = field.name() == null ? null : ctx.findOwnedAttribute(sc, field.name());
         if (endToTarget == null) {
-            endToTarget = sc.createOwnedAttribute(field.name, targetType);
-            UmlBuilderSupport.annotateId(endToTarget, "Field:" + ownerType.qualifiedName + "#" + field.name + ":" + field.type);
-            UmlBuilderSupport.setVisibility(endToTarget, field.visibility);
+            endToTarget = sc.createOwnedAttribute(field.name(), targetType);
+            if (field.name() != null) ctx.registerOwnedAttribute(sc, endToTarget);
+            UmlBuilderSupport.annotateId(ctx.ids, endToTarget, "Field:" + ownerType.qualifiedName() + "#" + field.name() + ":" + field.type());
+            UmlBuilderSupport.setVisibility(endToTarget, field.visibility());
         }
         return endToTarget;
     }
 
     private void applyFieldEndMetadata(UmlBuildContext ctx,
                                       Property endToTarget,
-                                      JField field,
+                                      UmlSourceField field,
                                       AssociationTargetResolver.AssociationTarget at,
                                       Type targetType) {
         if (endToTarget == null || field == null || at == null) return;
@@ -102,31 +101,17 @@ final class UmlAssociationBuilder {
         endToTarget.setType(targetType);
         endToTarget.setLower(at.lower);
         endToTarget.setUpper(at.upper == MultiplicityResolver.STAR ? -1 : at.upper);
+        UmlBuilderSupport.annotateMultiplicityIdsLater(ctx.ids, endToTarget);
         endToTarget.setAggregation(RelationHeuristics.aggregationKindFor(field));
-        UmlBuilderSupport.setVisibility(endToTarget, field.visibility);
+        UmlBuilderSupport.setVisibility(endToTarget, field.visibility());
 
         UmlBuilderSupport.annotateTags(endToTarget, at.tags);
         UmlBuilderSupport.annotateTags(endToTarget, relationDecisionTags(field, ctx.associationPolicy, true));
         UmlBuilderSupport.annotateTags(endToTarget, RelationTagging.aggregationDecisionTags(field));
     }
 
-    private static Map<String, String> relationDecisionTags(JField f, AssociationPolicy policy, boolean resolvedTarget) {
+    private static Map<String, String> relationDecisionTags(UmlSourceField f, AssociationPolicy policy, boolean resolvedTarget) {
         return RelationTagging.relationDecisionTags(f, policy, resolvedTarget);
     }
 
-    private static Property findOwnedAttribute(StructuredClassifier sc, String name) {
-        if (sc == null || name == null) return null;
-        for (Property p : sc.getOwnedAttributes()) {
-            if (name.equals(p.getName())) return p;
-        }
-        return null;
-    }
-
-    /**
-     * Legacy helper used by multiple builders.
-     */
-    static String stripGenerics(String t) {
-        return AssociationTargetResolver.stripGenerics(t);
-    }
-
 }
@@ -1,9 +1,15 @@
 package info.isaksson.erland.javatoxmi.uml;
 
 import org.eclipse.uml2.uml.Classifier;
+import org.eclipse.uml2.uml.Dependency;
+import org.eclipse.uml2.uml.ElementImport;
 import org.eclipse.uml2.uml.Model;
+import org.eclipse.uml2.uml.NamedElement;
 import org.eclipse.uml2.uml.Package;
-import info.isaksson.erland.javatoxmi.model.JType;
+import org.eclipse.uml2.uml.PackageableElement;
+import org.eclipse.uml2.uml.Property;
+import org.eclipse.uml2.uml.StructuredClassifier;
+import org.eclipse.uml2.uml.Type;
 
 import java.util.IdentityHashMap;
 import java.util.HashMap;
@@ -20,6 +26,12 @@ import java.util.Set;
 final class UmlBuildContext {
     final Model model;
     final UmlBuildStats stats;
+
+    /** ID side table of {@link #model}; elements register with it as they are annotated. */
+    final UmlIdTable ids;
+
+    /** Hash function of the deterministic IDs of this build. */
+    final UmlIdStrategy idStrategy;
     final MultiplicityResolver multiplicityResolver;
     final AssociationPolicy associationPolicy;
     final NestedTypesMode nestedTypesMode;
@@ -40,8 +52,8 @@ final class UmlBuildContext {
     /** Operations keyed as "<typeQName>#<methodName>(<paramTypes...>)" (matches extractor JRuntimeAnnotation keys). */
     final Map<String, org.eclipse.uml2.uml.Operation> operationByKey = new HashMap<>();
 
-    /** Java model types by qualified name (used for safe association merging heuristics). */
-    final Map<String, JType> typeByQName = new HashMap<>();
+    /** Source types by qualified name (used for safe association merging heuristics). */
+    final Map<String, UmlSourceType> typeByQName = new HashMap<>();
 
     /** Reverse lookup used for deterministic pair keys and suppression of duplicate dependencies. */
     final Map<Classifier, String> qNameByClassifier = new IdentityHashMap<>();
@@ -55,8 +67,27 @@ final class UmlBuildContext {
     /** Directed package import pairs, stored as "<src>|<tgt>" by qualified package name. */
     final Set<String> packageImportPairs = new HashSet<>();
 
+    // Upsert indexes. Each is seeded from the model the first time an owner is looked up and then kept in
+    // sync by the code that creates the elements, so lookups return what a scan of the owner would.
+
+    /** Client dependencies (including interface realizations) by client, then supplier. */
+    private final Map<NamedElement, Map<NamedElement, Dependency>> dependenciesByClient = new IdentityHashMap<>();
+
+    /** Imported elements by importing package. */
+    private final Map<Package, Set<PackageableElement>> elementImportsByPackage = new IdentityHashMap<>();
+
+    /** Owned types by package, then name (first owned type wins, like {@link Package#getOwnedType(String)}). */
+    private final Map<Package, Map<String, Type>> ownedTypesByPackage = new IdentityHashMap<>();
+
+    /** Owned attributes by classifier, then name (first attribute wins). */
+    private final Map<StructuredClassifier, Map<String, Property>> ownedAttributesByClassifier = new IdentityHashMap<>();
+
+    /** Owner list entries visited while seeding the upsert indexes (each owner is seeded once). */
+    long upsertIndexScans;
+
     UmlBuildContext(Model model,
                     UmlBuildStats stats,
+                    UmlIdStrategy idStrategy,
                     MultiplicityResolver multiplicityResolver,
                     AssociationPolicy associationPolicy,
                     NestedTypesMode nestedTypesMode,
@@ -65,6 +96,8 @@ final class UmlBuildContext {
                     boolean includeConstructors) {
         this.model = model;
         this.stats = stats;
+        this.ids = UmlIdTable.of(model);
+        this.idStrategy = idStrategy;
         this.multiplicityResolver = multiplicityResolver;
         this.associationPolicy = associationPolicy;
         this.nestedTypesMode = nestedTypesMode == null ? NestedTypesMode.UML : nestedTypesMode;
@@ -73,6 +106,94 @@ final class UmlBuildContext {
         this.includeConstructors = includeConstructors;
     }
 
+    /** The first client dependency of {@code client} that has {@code supplier} among its suppliers, or null. */
+    Dependency findDependency(NamedElement client, NamedElement supplier) {
+        return dependenciesOf(client).get(supplier);
+    }
+
+    void registerDependency(NamedElement client, Dependency d) {
+        Map<NamedElement, Dependency> bySupplier = dependenciesOf(client);
+        for (NamedElement sup : d.getSuppliers()) {
+            bySupplier.putIfAbsent(sup, d);
+        }
+    }
+
+    private Map<NamedElement, Dependency> dependenciesOf(NamedElement client) {
+        return dependenciesByClient.computeIfAbsent(client, c -> {
+            Map<NamedElement, Dependency> bySupplier = new IdentityHashMap<>();
+            for (Dependency d : c.getClientDependencies()) {
+                upsertIndexScans++;
+                if (d == null) continue;
+                for (NamedElement sup : d.getSuppliers()) {
+                    bySupplier.putIfAbsent(sup, d);
+                }
+            }
+            return bySupplier;
+        });
+    }
+
+    /** Records that {@code pkg} imports {@code imported}; returns false if it already did. */
+    boolean addElementImport(Package pkg, PackageableElement imported) {
+        return elementImportsByPackage.computeIfAbsent(pkg, p -> {
+            Set<PackageableElement> set = java.util.Collections.newSetFromMap(new IdentityHashMap<>());
+            for (ElementImport ei : p.getElementImports()) {
+                upsertIndexScans++;
+                if (ei != null && ei.getImportedElement() != null) set.add(ei.getImportedElement());
+            }
+            return set;
+        }).add(imported);
+    }
+
+    Type findOwnedType(Package pkg, String name) {
+        return ownedTypesOf(pkg).get(name);
+    }
+
+    void registerOwnedType(Package pkg, Type type) {
+        ownedTypesOf(pkg).putIfAbsent(type.getName(), type);
+    }
+
+    /**
+     * Appends {@code type} to the packaged elements of {@code pkg} and registers it.
+     *
+     * <p>Same result as {@code Package#createOwnedClass} and friends, but those add through the derived
+     * {@code ownedType} list, which walks all packaged elements on every add.</p>
+     */
+    <T extends Type> T addOwnedType(Package pkg, T type) {
+        pkg.getPackagedElements().add(type);
+        registerOwnedType(pkg, type);
+        return type;
+    }
+
+    private Map<String, Type> ownedTypesOf(Package pkg) {
+        return ownedTypesByPackage.computeIfAbsent(pkg, p -> {
+            Map<String, Type> byName = new HashMap<>();
+            for (Type t : p.getOwnedTypes()) {
+                upsertIndexScans++;
+                if (t != null && t.getName() != null) byName.putIfAbsent(t.getName(), t);
+            }
+            return byName;
+        });
+    }
+
+    Property findOwnedAttribute(StructuredClassifier sc, String name) {
+        return ownedAttributesOf(sc).get(name);
+    }
+
+    void registerOwnedAttribute(StructuredClassifier sc, Property p) {
+        ownedAttributesOf(sc).putIfAbsent(p.getName(), p);
+    }
+
+    private Map<String, Property> ownedAttributesOf(StructuredClassifier sc) {
+        return ownedAttributesByClassifier.computeIfAbsent(sc, c -> {
+            Map<String, Property> byName = new HashMap<>();
+            for (Property p : c.getOwnedAttributes()) {
+                upsertIndexScans++;
+                if (p != null && p.getName() != null) byName.putIfAbsent(p.getName(), p);
+            }
+            return byName;
+        });
+    }
+
     String qNameOf(Classifier c) {
         if (c == null) return null;
         return qNameByClassifier.get(c);
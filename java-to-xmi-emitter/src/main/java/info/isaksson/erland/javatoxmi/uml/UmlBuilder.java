@@ -6,9 +6,9 @@ import org.eclipse.uml2.uml.Model;
 import org.eclipse.uml2.uml.UMLFactory;
 import org.eclipse.uml2.uml.UMLPackage;
 import org.eclipse.uml2.uml.resource.UMLResource;
+import info.isaksson.erland.javatoxmi.model.JMigrationArtifact;
 import info.isaksson.erland.javatoxmi.model.JModel;
 import info.isaksson.erland.javatoxmi.model.JRuntimeAnnotation;
-import info.isaksson.erland.javatoxmi.model.JType;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -31,6 +31,20 @@ public final class UmlBuilder {
     public static final String RUNTIME_STEREOTYPE_ANNOTATION_KEY = "stereotype";
 
     private final MultiplicityResolver multiplicityResolver = new MultiplicityResolver();
+    private final UmlIdStrategy idStrategy;
+
+    /** A builder hashing element IDs with {@link IdHashMode#COMPATIBLE}. */
+    public UmlBuilder() {
+        this(UmlIdStrategy.of(IdHashMode.COMPATIBLE));
+    }
+
+    /**
+     * A builder hashing element IDs with {@code idStrategy}; pass the same strategy to the XMI writer so both
+     * agree on the hashed IDs.
+     */
+    public UmlBuilder(UmlIdStrategy idStrategy) {
+        this.idStrategy = Objects.requireNonNull(idStrategy, "idStrategy");
+    }
 
     public static final class Result {
         public final Model umlModel;
@@ -101,6 +115,23 @@ public final class UmlBuilder {
                         boolean includeAccessors,
                         boolean includeConstructors) {
         Objects.requireNonNull(jModel, "jModel");
+        return build(UmlModelSource.of(jModel), modelName, includeStereotypes, associationPolicy, nestedTypesMode,
+                includeDependencies, includeAccessors, includeConstructors);
+    }
+
+    /**
+     * Build UML model from any {@link UmlModelSource}; same options as
+     * {@link #build(JModel, String, boolean, AssociationPolicy, NestedTypesMode, boolean, boolean, boolean)}.
+     */
+    public Result build(UmlModelSource source,
+                        String modelName,
+                        boolean includeStereotypes,
+                        AssociationPolicy associationPolicy,
+                        NestedTypesMode nestedTypesMode,
+                        boolean includeDependencies,
+                        boolean includeAccessors,
+                        boolean includeConstructors) {
+        Objects.requireNonNull(source, "source");
         if (modelName == null || modelName.isBlank()) modelName = "JavaModel";
         AssociationPolicy ap = associationPolicy == null ? AssociationPolicy.RESOLVED : associationPolicy;
         NestedTypesMode ntm = nestedTypesMode == null ? NestedTypesMode.UML : nestedTypesMode;
@@ -113,9 +144,10 @@ public final class UmlBuilder {
 
         Model model = UMLFactory.eINSTANCE.createModel();
         model.setName(modelName);
-        UmlBuilderSupport.annotateId(model, "Model:" + modelName);
+        // Side table filled as elements are created (see UmlBuilderSupport.annotateId).
+        UmlBuilderSupport.annotateId(UmlIdTable.of(model), model, "Model:" + modelName);
 
-        UmlBuildContext ctx = new UmlBuildContext(model, stats, multiplicityResolver, ap, ntm,
+        UmlBuildContext ctx = new UmlBuildContext(model, stats, idStrategy, multiplicityResolver, ap, ntm,
                 includeDependencies, includeAccessors, includeConstructors);
 
         UmlClassifierBuilder classifierBuilder = new UmlClassifierBuilder();
@@ -132,8 +164,8 @@ public final class UmlBuilder {
 
         // 1) Packages (deterministic)
         Set<String> pkgNames = new HashSet<>();
-        for (JType t : jModel.types) {
-            if (t.packageName != null && !t.packageName.isBlank()) pkgNames.add(t.packageName);
+        for (UmlSourceType t : source.types()) {
+            if (t.packageName() != null && !t.packageName().isBlank()) pkgNames.add(t.packageName());
         }
         List<String> pkgList = new ArrayList<>(pkgNames);
         Collections.sort(pkgList);
@@ -144,68 +176,68 @@ public final class UmlBuilder {
         // 2) Classifiers
         // Create top-level types first, then nested types in increasing nesting depth.
         // This guarantees enclosing classifiers exist before we attach nested classifiers.
-        List<JType> types = new ArrayList<>(jModel.types);
-        types.sort(Comparator.comparing(t -> t.qualifiedName));
+        List<UmlSourceType> types = new ArrayList<>(source.types());
+        types.sort(Comparator.comparing(t -> t.qualifiedName()));
 
         // Index Java types for later safe association merge heuristics.
-        for (JType t : types) {
-            if (t == null || t.qualifiedName == null || t.qualifiedName.isBlank()) continue;
-            ctx.typeByQName.put(t.qualifiedName, t);
+        for (UmlSourceType t : types) {
+            if (t == null || t.qualifiedName() == null || t.qualifiedName().isBlank()) continue;
+            ctx.typeByQName.put(t.qualifiedName(), t);
         }
 
         if (ntm == NestedTypesMode.FLATTEN) {
             // Backwards-compat: treat everything as package-owned.
-            for (JType t : types) {
+            for (UmlSourceType t : types) {
                 classifierBuilder.createClassifier(ctx, t);
             }
         } else {
-            List<JType> topLevel = new ArrayList<>();
-            List<JType> nested = new ArrayList<>();
-            for (JType t : types) {
-                if (t.isNested) nested.add(t);
+            List<UmlSourceType> topLevel = new ArrayList<>();
+            List<UmlSourceType> nested = new ArrayList<>();
+            for (UmlSourceType t : types) {
+                if (t.isNested()) nested.add(t);
                 else topLevel.add(t);
             }
 
-            for (JType t : topLevel) {
+            for (UmlSourceType t : topLevel) {
                 classifierBuilder.createClassifier(ctx, t);
             }
 
             nested.sort(Comparator
-                    .comparingInt((JType t) -> nestingDepth(t.qualifiedName))
-                    .thenComparing(t -> t.qualifiedName));
+                    .comparingInt((UmlSourceType t) -> nestingDepth(t.qualifiedName()))
+                    .thenComparing(t -> t.qualifiedName()));
 
-            for (JType t : nested) {
+            for (UmlSourceType t : nested) {
                 classifierBuilder.createClassifier(ctx, t);
             }
 
             // Step 5 — consumer-facing sanity: optionally mirror nested classifiers into the owning
             // Java package via ElementImport (does not duplicate classifiers).
             if (ntm == NestedTypesMode.UML_IMPORT) {
-                for (JType t : nested) {
-                    Classifier nestedClassifier = ctx.classifierByQName.get(t.qualifiedName);
+                for (UmlSourceType t : nested) {
+                    Classifier nestedClassifier = ctx.classifierByQName.get(t.qualifiedName());
                     if (nestedClassifier == null) continue;
-                    if (t.packageName == null || t.packageName.isBlank()) continue;
-                    org.eclipse.uml2.uml.Package pkg = classifierBuilder.getOrCreatePackage(ctx, t.packageName);
-                    UmlBuilderSupport.ensureElementImport(pkg, nestedClassifier);
+                    if (t.packageName() == null || t.packageName().isBlank()) continue;
+                    org.eclipse.uml2.uml.Package pkg = classifierBuilder.getOrCreatePackage(ctx, t.packageName());
+                    UmlBuilderSupport.ensureElementImport(ctx, pkg, nestedClassifier);
                 }
             }
         }
 
         // 3) Features (fields/methods)
-        for (JType t : types) {
-            Classifier c = ctx.classifierByQName.get(t.qualifiedName);
+        for (UmlSourceType t : types) {
+            Classifier c = ctx.classifierByQName.get(t.qualifiedName());
             if (c == null) continue;
             featureBuilder.addFeatures(ctx, c, t);
         }
 
         // 4) Relationships
-        for (JType t : types) {
-            Classifier c = ctx.classifierByQName.get(t.qualifiedName);
+        for (UmlSourceType t : types) {
+            Classifier c = ctx.classifierByQName.get(t.qualifiedName());
             if (c == null) continue;
             inheritanceBuilder.addInheritanceAndRealization(ctx, c, t);
         }
-        for (JType t : types) {
-            Classifier c = ctx.classifierByQName.get(t.qualifiedName);
+        for (UmlSourceType t : types) {
+            Classifier c = ctx.classifierByQName.get(t.qualifiedName());
             if (c == null) continue;
             associationBuilder.addFieldAssociations(ctx, c, t);
             if (ctx.includeDependencies) {
@@ -215,28 +247,31 @@ public final class UmlBuilder {
         }
 
         // 4c) Runtime semantic relations (stereotyped dependencies)
-        if (includeStereotypes && jModel.runtimeRelations != null && !jModel.runtimeRelations.isEmpty()) {
+        List<UmlSourceRuntimeRelation> runtimeRelations = source.runtimeRelations();
+        if (includeStereotypes && runtimeRelations != null && !runtimeRelations.isEmpty()) {
             // Ensure runtime stereotypes exist in the profile before applying.
             runtimeProfileApplicator.applyRuntimeProfile(ctx);
-            runtimeRelationEmitter.emit(ctx, jModel.runtimeRelations);
+            runtimeRelationEmitter.emit(ctx, runtimeRelations);
         }
 
         // 4d) Runtime semantics applied directly to existing elements (REST resources/operations, etc.)
-        if (includeStereotypes && jModel.runtimeAnnotations != null && !jModel.runtimeAnnotations.isEmpty()) {
+        List<JRuntimeAnnotation> runtimeAnnotations = source.runtimeAnnotations();
+        if (includeStereotypes && runtimeAnnotations != null && !runtimeAnnotations.isEmpty()) {
             runtimeProfileApplicator.applyRuntimeProfile(ctx);
-            applyRuntimeAnnotations(ctx, jModel.runtimeAnnotations);
+            applyRuntimeAnnotations(ctx, runtimeAnnotations);
         }
 
         // 4e) Flyway migration artifacts
-        if (includeStereotypes && jModel.migrationArtifacts != null && !jModel.migrationArtifacts.isEmpty()) {
+        List<JMigrationArtifact> migrationArtifacts = source.migrationArtifacts();
+        if (includeStereotypes && migrationArtifacts != null && !migrationArtifacts.isEmpty()) {
             runtimeProfileApplicator.applyRuntimeProfile(ctx);
-            migrationArtifactEmitter.emit(ctx, jModel.migrationArtifacts);
-            javaModuleEmitter.emit(ctx, jModel.javaModules);
+            migrationArtifactEmitter.emit(ctx, migrationArtifacts);
+            javaModuleEmitter.emit(ctx, source.javaModules());
         }
 
         // 4b) Package imports (high-level dependency structure)
-        for (JType t : types) {
-            Classifier c = ctx.classifierByQName.get(t.qualifiedName);
+        for (UmlSourceType t : types) {
+            Classifier c = ctx.classifierByQName.get(t.qualifiedName());
             if (c == null) continue;
             packageImportBuilder.addPackageImports(ctx, t, c);
         }
@@ -248,9 +283,10 @@ public final class UmlBuilder {
             profileApplicator.applyJavaAnnotationProfile(ctx, types);
         }
 
-        // Step 4 — determinism hardening: ensure every element has a stable java-to-xmi:id
-        // annotation so the XMI writer never needs to fall back to traversal-index-based IDs.
-        UmlBuilderSupport.ensureAllElementsHaveId(model);
+        // Step 4 — determinism hardening: the elements UML2 created along the way (multiplicity literals,
+        // association owned ends, ...) get a stable java-to-xmi:id annotation too, so the XMI writer never
+        // needs to fall back to traversal-index-based IDs.
+        UmlBuilderSupport.annotateQueuedIds(ctx.ids, idStrategy);
 
         return new Result(model, stats);
     }
@@ -3,24 +3,19 @@ package info.isaksson.erland.javatoxmi.uml;
 import org.eclipse.emf.ecore.EAnnotation;
 import org.eclipse.uml2.uml.Element;
 import org.eclipse.uml2.uml.ElementImport;
+import org.eclipse.uml2.uml.MultiplicityElement;
 import org.eclipse.uml2.uml.NamedElement;
 import org.eclipse.uml2.uml.Package;
 import org.eclipse.uml2.uml.PackageableElement;
 import org.eclipse.uml2.uml.UMLFactory;
 import org.eclipse.uml2.uml.VisibilityKind;
-import info.isaksson.erland.javatoxmi.model.JMethod;
-import info.isaksson.erland.javatoxmi.model.JParam;
 import info.isaksson.erland.javatoxmi.model.JVisibility;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
-import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
@@ -45,26 +40,31 @@ final class UmlBuilderSupport {
         }
     }
 
-    static String signatureKey(JMethod m) {
+    static String signatureKey(UmlSourceMethod m) {
         StringBuilder sb = new StringBuilder();
-        sb.append(m.name).append("(");
+        sb.append(m.name()).append("(");
         boolean first = true;
-        for (JParam p : m.params) {
+        for (UmlSourceParam p : m.params()) {
             if (!first) sb.append(",");
             first = false;
-            sb.append(p.type);
+            sb.append(p.type());
         }
         sb.append(")");
         return sb.toString();
     }
 
-    static void annotateId(Element element, String key) {
+    /**
+     * Sets the {@code java-to-xmi:id} annotation of {@code element} and registers the key in {@code ids}
+     * (the build's table, passed in so that no containment walk is needed to find it; may be null).
+     */
+    static void annotateId(UmlIdTable ids, Element element, String key) {
         if (element == null) return;
         EAnnotation ann = element.getEAnnotation(UmlBuilder.ID_ANNOTATION_SOURCE);
         if (ann == null) {
             ann = element.createEAnnotation(UmlBuilder.ID_ANNOTATION_SOURCE);
         }
         ann.getDetails().put("id", key);
+        if (ids != null) ids.register(element, key);
     }
 
 
@@ -79,32 +79,44 @@ final class UmlBuilderSupport {
     }
 
     /**
-     * Ensure every UML2 {@link Element} in the model has a deterministic java-to-xmi:id annotation.
-     *
-     * <p>This prevents the XMI writer from falling back to traversal-index-based IDs, which can
-     * change when containment changes (e.g. when introducing nested types ownership).</p>
+     * Queues an element created without a key of its own (typically by UML2 itself) for
+     * {@link #annotateQueuedIds}. Its key depends on its final name and containment, hence the delay.
      */
-    static void ensureAllElementsHaveId(Element root) {
-        if (root == null) return;
+    static void annotateIdLater(UmlIdTable ids, Element element) {
+        if (ids != null) ids.queue(element);
+    }
 
-        // Root first
-        ensureId(root);
+    /** {@link #annotateIdLater} for the lower and upper value literals UML2 creates in setLower/setUpper. */
+    static void annotateMultiplicityIdsLater(UmlIdTable ids, MultiplicityElement element) {
+        if (ids == null || element == null) return;
+        ids.queue(element.getLowerValue());
+        ids.queue(element.getUpperValue());
+    }
 
-        TreeIterator<EObject> it = root.eAllContents();
-        while (it.hasNext()) {
-            EObject obj = it.next();
-            if (obj instanceof Element) {
-                ensureId((Element) obj);
-            }
+    /**
+     * Give each queued element of {@code ids} a deterministic java-to-xmi:id annotation and register it.
+     *
+     * <p>This prevents the XMI writer from falling back to traversal-index-based IDs, which can
+     * change when containment changes (e.g. when introducing nested types ownership). Elements that are
+     * already registered are skipped; annotated ones are registered with their annotation.</p>
+     */
+    static void annotateQueuedIds(UmlIdTable ids, UmlIdStrategy idStrategy) {
+        if (ids == null) return;
+        for (Element element : ids.drainQueue()) {
+            ensureId(element, ids, idStrategy);
         }
     }
 
-    private static void ensureId(Element element) {
+    private static void ensureId(Element element, UmlIdTable ids, UmlIdStrategy idStrategy) {
         if (element == null) return;
+        if (ids != null && ids.rawId(element) != null) return;
         EAnnotation ann = element.getEAnnotation(UmlBuilder.ID_ANNOTATION_SOURCE);
         if (ann != null) {
             String existing = ann.getDetails().get("id");
-            if (existing != null && !existing.trim().isEmpty()) return;
+            if (existing != null && !existing.trim().isEmpty()) {
+                if (ids != null) ids.register(element, existing);
+                return;
+            }
         }
 
         // Prefer a name-based stable key when possible.
@@ -115,13 +127,13 @@ final class UmlBuilderSupport {
             if (qn != null && !qn.isBlank()) {
                 key = "Auto:" + ne.eClass().getName() + ":" + qn;
             } else {
-                key = "Auto:" + ne.eClass().getName() + ":" + stableContainerHash(ne);
+                key = "Auto:" + ne.eClass().getName() + ":" + stableContainerHash(ne, idStrategy);
             }
         } else {
-            key = "Auto:" + element.eClass().getName() + ":" + stableContainerHash(element);
+            key = "Auto:" + element.eClass().getName() + ":" + stableContainerHash(element, idStrategy);
         }
 
-        annotateId(element, key);
+        annotateId(ids, element, key);
     }
 
     private static String safeUmlQualifiedName(NamedElement ne) {
@@ -156,17 +168,11 @@ final class UmlBuilderSupport {
      * the classifier in the package; it only adds an import so some consumers can discover
      * nested types more easily.</p>
      */
-    static void ensureElementImport(Package pkg, PackageableElement imported) {
+    static void ensureElementImport(UmlBuildContext ctx, Package pkg, PackageableElement imported) {
         if (pkg == null || imported == null) return;
 
         // Avoid duplicates
-        try {
-            for (ElementImport ei : pkg.getElementImports()) {
-                if (ei != null && ei.getImportedElement() == imported) return;
-            }
-        } catch (Exception ignore) {
-            // We'll fall through and attempt to create; duplicates are still unlikely.
-        }
+        if (!ctx.addElementImport(pkg, imported)) return;
 
         ElementImport ei = UMLFactory.eINSTANCE.createElementImport();
         ei.setImportedElement(imported);
@@ -192,7 +198,7 @@ final class UmlBuilderSupport {
         pkg.getElementImports().add(ei);
     }
 
-    private static String stableContainerHash(EObject obj) {
+    private static String stableContainerHash(EObject obj, UmlIdStrategy idStrategy) {
         // A deterministic fallback based on containment chain + eClass + (optional) name.
         // This is still sensitive to containment changes, but it is deterministic and avoids
         // dependence on traversal index ordering.
@@ -206,24 +212,7 @@ final class UmlBuilderSupport {
             }
             cur = cur.eContainer();
         }
-        return shortSha256Hex(sb.toString());
-    }
-
-    private static String shortSha256Hex(String s) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] dig = md.digest((s == null ? "" : s).getBytes(StandardCharsets.UTF_8));
-            StringBuilder out = new StringBuilder();
-            for (byte b : dig) {
-                int v = b & 0xff;
-                String hx = Integer.toHexString(v);
-                if (hx.length() == 1) out.append('0');
-                out.append(hx);
-            }
-            return out.substring(0, 24);
-        } catch (NoSuchAlgorithmException e) {
-            return Integer.toHexString((s == null ? "" : s).hashCode());
-        }
+        return idStrategy.shortId(sb.toString());
     }
 
     static void annotateTags(Element element, Map<String, String> tags) {
@@ -242,7 +231,11 @@ final class UmlBuilderSupport {
         }
     }
 
-    static void annotateJavaTypeIfGeneric(Element element, String javaTypeRef) {
+    /**
+     * Record the Java generic type string and its top-level type arguments. The arguments come from the
+     * structured {@code typeRef} of the same type when it is available (may be null), else from the string.
+     */
+    static void annotateJavaTypeIfGeneric(Element element, String javaTypeRef, UmlSourceTypeRef typeRef) {
         if (element == null || javaTypeRef == null) return;
         String s = javaTypeRef.trim();
         int lt = s.indexOf('<');
@@ -252,38 +245,17 @@ final class UmlBuilderSupport {
         // Preserve full Java generic type string.
         addAnnotationValue(element, "java-to-xmi:javaType", s);
 
-        // Best-effort extraction of top-level args (no deep parsing).
-        String inner = s.substring(lt + 1, gt).trim();
-        if (inner.isEmpty()) return;
-
-        List<String> args = splitTopLevelTypeArgs(inner);
+        List<String> args = new ArrayList<>();
+        if (typeRef != null && !typeRef.typeArguments().isEmpty()) {
+            for (UmlSourceTypeRef a : typeRef.typeArguments()) args.add(a.raw());
+        } else {
+            args = TypeStrings.typeArguments(s);
+        }
         if (!args.isEmpty()) {
             addAnnotationValue(element, "java-to-xmi:typeArgs", String.join(", ", args));
         }
     }
 
-    private static List<String> splitTopLevelTypeArgs(String inner) {
-        List<String> out = new ArrayList<>();
-        StringBuilder buf = new StringBuilder();
-        int depth = 0;
-        for (int i = 0; i < inner.length(); i++) {
-            char c = inner.charAt(i);
-            if (c == '<') depth++;
-            else if (c == '>') depth = Math.max(0, depth - 1);
-
-            if (c == ',' && depth == 0) {
-                String part = buf.toString().trim();
-                if (!part.isEmpty()) out.add(part);
-                buf.setLength(0);
-            } else {
-                buf.append(c);
-            }
-        }
-        String last = buf.toString().trim();
-        if (!last.isEmpty()) out.add(last);
-        return out;
-    }
-
     private static void addAnnotationValue(Element element, String source, String value) {
         if (element == null || source == null || value == null) return;
         EAnnotation ann = element.getEAnnotation(source);
@@ -17,7 +17,6 @@ import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
 
-import info.isaksson.erland.javatoxmi.model.JType;
 import info.isaksson.erland.javatoxmi.model.JTypeKind;
 
 /**
@@ -52,7 +51,7 @@ final class UmlClassifierBuilder {
             }
             Package created = current.createNestedPackage(parts[i]);
             ctx.stats.packagesCreated++;
-            UmlBuilderSupport.annotateId(created, "Package:" + q);
+            UmlBuilderSupport.annotateId(ctx.ids, created, "Package:" + q);
             ctx.packageByName.put(q, created);
             current = created;
         }
@@ -62,11 +61,11 @@ final class UmlClassifierBuilder {
         return current;
     }
 
-    void createClassifier(UmlBuildContext ctx, JType t) {
+    void createClassifier(UmlBuildContext ctx, UmlSourceType t) {
         // Owner can be either a Package (top-level) or an enclosing Classifier (nested member type).
         Classifier enclosing = null;
         if (ctx.nestedTypesMode != NestedTypesMode.FLATTEN) {
-            enclosing = (t.outerQualifiedName == null) ? null : ctx.classifierByQName.get(t.outerQualifiedName);
+            enclosing = (t.outerQualifiedName() == null) ? null : ctx.classifierByQName.get(t.outerQualifiedName());
         }
 
         // IMPORTANT:
@@ -79,43 +78,29 @@ final class UmlClassifierBuilder {
             if (!attached) {
                 // Defensive fallback: if the enclosing metaclass can't own nested classifiers in this
                 // UML2 version, keep the model buildable by placing it at package level.
-                Package owner = getOrCreatePackage(ctx, t.packageName);
-                if (t.kind == JTypeKind.INTERFACE) {
-                    classifier = owner.createOwnedInterface(t.name);
-                } else if (t.kind == JTypeKind.ENUM) {
-                    classifier = owner.createOwnedEnumeration(t.name);
-                } else {
-                    classifier = owner.createOwnedClass(t.name, t.isAbstract);
-                }
+                classifier = ctx.addOwnedType(getOrCreatePackage(ctx, t.packageName()), createClassifierInstance(t));
             }
         } else {
-            Package owner = getOrCreatePackage(ctx, t.packageName);
-            if (t.kind == JTypeKind.INTERFACE) {
-                classifier = owner.createOwnedInterface(t.name);
-            } else if (t.kind == JTypeKind.ENUM) {
-                classifier = owner.createOwnedEnumeration(t.name);
-            } else {
-                classifier = owner.createOwnedClass(t.name, t.isAbstract);
-            }
+            classifier = ctx.addOwnedType(getOrCreatePackage(ctx, t.packageName()), createClassifierInstance(t));
         }
 
         ctx.stats.classifiersCreated++;
-        UmlBuilderSupport.annotateId(classifier, "Classifier:" + t.qualifiedName);
-        ctx.classifierByQName.put(t.qualifiedName, classifier);
-        ctx.qNameByClassifier.put(classifier, t.qualifiedName);
+        UmlBuilderSupport.annotateId(ctx.ids, classifier, "Classifier:" + t.qualifiedName());
+        ctx.classifierByQName.put(t.qualifiedName(), classifier);
+        ctx.qNameByClassifier.put(classifier, t.qualifiedName());
 
         // Type-level JavaDoc -> UML owned comment (owned by the element)
-        if (t.doc != null && !t.doc.isBlank() && classifier instanceof NamedElement) {
+        if (t.doc() != null && !t.doc().isBlank() && classifier instanceof NamedElement) {
             Comment c = UMLFactory.eINSTANCE.createComment();
-            c.setBody(t.doc);
+            c.setBody(t.doc());
             ((NamedElement) classifier).getOwnedComments().add(c);
-            UmlBuilderSupport.annotateId(c, "Comment:" + t.qualifiedName);
+            UmlBuilderSupport.annotateId(ctx.ids, c, "Comment:" + t.qualifiedName());
             ctx.stats.commentsCreated++;
         }
 
         // Visibility
         if (classifier instanceof NamedElement) {
-            UmlBuilderSupport.setVisibility((NamedElement) classifier, t.visibility);
+            UmlBuilderSupport.setVisibility((NamedElement) classifier, t.visibility());
         }
     }
 
@@ -123,21 +108,21 @@ final class UmlClassifierBuilder {
      * Create a classifier instance (without assuming containment).
      * Containment is established separately (package-owned vs nested-owned).
      */
-    private static Classifier createClassifierInstance(JType t) {
-        if (t.kind == JTypeKind.INTERFACE) {
+    private static Classifier createClassifierInstance(UmlSourceType t) {
+        if (t.kind() == JTypeKind.INTERFACE) {
             Interface i = UMLFactory.eINSTANCE.createInterface();
-            i.setName(t.name);
+            i.setName(t.name());
             return i;
         }
-        if (t.kind == JTypeKind.ENUM) {
+        if (t.kind() == JTypeKind.ENUM) {
             Enumeration e = UMLFactory.eINSTANCE.createEnumeration();
-            e.setName(t.name);
+            e.setName(t.name());
             return e;
         }
 
         Class c = UMLFactory.eINSTANCE.createClass();
-        c.setName(t.name);
-        c.setIsAbstract(t.isAbstract);
+        c.setName(t.name());
+        c.setIsAbstract(t.isAbstract());
         return c;
     }
 
@@ -192,7 +177,7 @@ final class UmlClassifierBuilder {
         if (typeRef == null || typeRef.isBlank()) {
             return ensurePrimitive(ctx, "Object");
         }
-        String base = UmlAssociationBuilder.stripGenerics(typeRef);
+        String base = TypeStrings.baseName(typeRef);
         if (base.endsWith("[]")) {
             base = base.substring(0, base.length() - 2);
         }
@@ -248,12 +233,14 @@ final class UmlClassifierBuilder {
 
     private PrimitiveType ensurePrimitive(UmlBuildContext ctx, String name) {
         Package primitivesPkg = getOrCreatePackage(ctx, "_primitives");
-        Type existing = primitivesPkg.getOwnedType(name);
+        Type existing = ctx.findOwnedType(primitivesPkg, name);
         if (existing instanceof PrimitiveType) {
             return (PrimitiveType) existing;
         }
-        PrimitiveType pt = primitivesPkg.createOwnedPrimitiveType(name);
-        UmlBuilderSupport.annotateId(pt, "Primitive:" + name);
+        PrimitiveType pt = UMLFactory.eINSTANCE.createPrimitiveType();
+        pt.setName(name);
+        ctx.addOwnedType(primitivesPkg, pt);
+        UmlBuilderSupport.annotateId(ctx.ids, pt, "Primitive:" + name);
         return pt;
     }
 }
@@ -3,9 +3,6 @@ package info.isaksson.erland.javatoxmi.uml;
 import org.eclipse.uml2.uml.Classifier;
 import org.eclipse.uml2.uml.Dependency;
 import org.eclipse.uml2.uml.NamedElement;
-import info.isaksson.erland.javatoxmi.model.JMethod;
-import info.isaksson.erland.javatoxmi.model.JParam;
-import info.isaksson.erland.javatoxmi.model.JType;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -19,35 +16,35 @@ import java.util.Set;
  */
 final class UmlDependencyBuilder {
 
-    void addMethodSignatureDependencies(UmlBuildContext ctx, Classifier classifier, JType t) {
+    void addMethodSignatureDependencies(UmlBuildContext ctx, Classifier classifier, UmlSourceType t) {
         if (ctx == null || classifier == null || t == null) return;
 
         Set<String> deps = new HashSet<>();
-        for (JMethod m : t.methods) {
-            if (m.returnType != null && !m.returnType.isBlank() && !"void".equals(m.returnType)) {
-                deps.add(normalizeTypeName(m.returnType));
+        for (UmlSourceMethod m : t.methods()) {
+            if (m.returnType() != null && !m.returnType().isBlank() && !"void".equals(m.returnType())) {
+                deps.add(normalizeTypeName(m.returnType()));
             }
-            for (JParam p : m.params) {
-                if (p.type == null || p.type.isBlank()) continue;
-                deps.add(normalizeTypeName(p.type));
+            for (UmlSourceParam p : m.params()) {
+                if (p.type() == null || p.type().isBlank()) continue;
+                deps.add(normalizeTypeName(p.type()));
             }
         }
 
         List<String> sorted = new ArrayList<>(deps);
         Collections.sort(sorted);
         for (String depType : sorted) {
-            upsertDependency(ctx, classifier, t.qualifiedName, depType, "signature");
+            upsertDependency(ctx, classifier, t.qualifiedName(), depType, "signature");
         }
     }
 
-    void addMethodBodyDependencies(UmlBuildContext ctx, Classifier classifier, JType t) {
+    void addMethodBodyDependencies(UmlBuildContext ctx, Classifier classifier, UmlSourceType t) {
         if (ctx == null || classifier == null || t == null) return;
-        if (t.methodBodyTypeDependencies == null || t.methodBodyTypeDependencies.isEmpty()) return;
+        if (t.methodBodyTypeDependencies() == null || t.methodBodyTypeDependencies().isEmpty()) return;
 
         // De-duplicate by normalized target type so we never create multiple Dependency edges
         // between the same two classifiers (even if discovered multiple times).
         Set<String> deps = new HashSet<>();
-        for (String depTypeRaw : t.methodBodyTypeDependencies) {
+        for (String depTypeRaw : t.methodBodyTypeDependencies()) {
             if (depTypeRaw == null || depTypeRaw.isBlank()) continue;
             deps.add(normalizeTypeName(depTypeRaw));
         }
@@ -55,7 +52,7 @@ final class UmlDependencyBuilder {
         List<String> sorted = new ArrayList<>(deps);
         Collections.sort(sorted);
         for (String depType : sorted) {
-            upsertDependency(ctx, classifier, t.qualifiedName, depType, "invocation");
+            upsertDependency(ctx, classifier, t.qualifiedName(), depType, "invocation");
         }
     }
 
@@ -77,12 +74,13 @@ final class UmlDependencyBuilder {
         if (target == from) return;
         if (ctx.hasAssociationBetween(from, target)) return;
 
-        Dependency existing = findExistingDependency(from, target);
+        Dependency existing = ctx.findDependency(from, target);
         if (existing == null) {
             Dependency d = from.createDependency((NamedElement) target);
+            ctx.registerDependency(from, d);
             ctx.stats.dependenciesCreated++;
             // One deterministic edge per (from,to) pair.
-            UmlBuilderSupport.annotateId(d, "Dependency:" + fromQName + "->" + toQName);
+            UmlBuilderSupport.annotateId(ctx.ids, d, "Dependency:" + fromQName + "->" + toQName);
             // Preserve what kind(s) of evidence produced this dependency.
             UmlBuilderSupport.annotateTags(d, Map.of("dep." + kind, "true"));
         } else {
@@ -91,17 +89,6 @@ final class UmlDependencyBuilder {
         }
     }
 
-    private static Dependency findExistingDependency(Classifier from, Classifier target) {
-        if (from == null || target == null) return null;
-        for (Dependency d : from.getClientDependencies()) {
-            if (d == null) continue;
-            for (NamedElement sup : d.getSuppliers()) {
-                if (sup == target) return d;
-            }
-        }
-        return null;
-    }
-
     /**
      * Normalize a type name string into something that can be looked up in {@code ctx.classifierByQName}.
      *
@@ -110,7 +97,7 @@ final class UmlDependencyBuilder {
      */
     private static String normalizeTypeName(String raw) {
         if (raw == null) return null;
-        String t = UmlAssociationBuilder.stripGenerics(raw).trim();
+        String t = TypeStrings.baseName(raw).trim();
         // Remove repeated array suffixes: Foo[][] -> Foo
         while (t.endsWith("[]")) {
             t = t.substring(0, t.length() - 2).trim();
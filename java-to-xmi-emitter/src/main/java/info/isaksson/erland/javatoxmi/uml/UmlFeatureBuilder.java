@@ -11,10 +11,6 @@ import org.eclipse.uml2.uml.ParameterDirectionKind;
 import org.eclipse.uml2.uml.Property;
 import org.eclipse.uml2.uml.StructuredClassifier;
 import org.eclipse.uml2.uml.Type;
-import info.isaksson.erland.javatoxmi.model.JField;
-import info.isaksson.erland.javatoxmi.model.JMethod;
-import info.isaksson.erland.javatoxmi.model.JParam;
-import info.isaksson.erland.javatoxmi.model.JType;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -32,68 +28,69 @@ final class UmlFeatureBuilder {
         this.classifierBuilder = classifierBuilder;
     }
 
-    void addFeatures(UmlBuildContext ctx, Classifier classifier, JType t) {
+    void addFeatures(UmlBuildContext ctx, Classifier classifier, UmlSourceType t) {
         // Enum literals
         if (classifier instanceof Enumeration) {
             Enumeration e = (Enumeration) classifier;
-            for (String lit : t.enumLiterals) {
+            for (String lit : t.enumLiterals()) {
                 if (lit == null || lit.isBlank()) continue;
                 EnumerationLiteral el = e.createOwnedLiteral(lit);
                 ctx.stats.enumLiteralsCreated++;
-                UmlBuilderSupport.annotateId(el, "EnumLiteral:" + t.qualifiedName + "#" + lit);
+                UmlBuilderSupport.annotateId(ctx.ids, el, "EnumLiteral:" + t.qualifiedName() + "#" + lit);
             }
         }
 
         // Fields -> Properties
-        List<JField> fields = new ArrayList<>(t.fields);
+        List<UmlSourceField> fields = new ArrayList<>(t.fields());
         fields.sort((a, b) -> {
-            String an = a == null ? "" : (a.name == null ? "" : a.name);
-            String bn = b == null ? "" : (b.name == null ? "" : b.name);
+            String an = a == null ? "" : (a.name() == null ? "" : a.name());
+            String bn = b == null ? "" : (b.name() == null ? "" : b.name());
             int c = an.compareTo(bn);
             if (c != 0) return c;
-            String at = a == null ? "" : (a.type == null ? "" : a.type);
-            String bt = b == null ? "" : (b.type == null ? "" : b.type);
+            String at = a == null ? "" : (a.type() == null ? "" : a.type());
+            String bt = b == null ? "" : (b.type() == null ? "" : b.type());
             return at.compareTo(bt);
         });
 
-        for (JField f : fields) {
+        for (UmlSourceField f : fields) {
             if (!(classifier instanceof StructuredClassifier)) continue;
 
-            Type umlType = classifierBuilder.resolveUmlType(ctx, f.type);
+            Type umlType = classifierBuilder.resolveUmlType(ctx, f.type());
             Property p;
             if (classifier instanceof Class) {
-                p = ((Class) classifier).createOwnedAttribute(f.name, umlType);
+                p = ((Class) classifier).createOwnedAttribute(f.name(), umlType);
             } else if (classifier instanceof Interface) {
-                p = ((Interface) classifier).createOwnedAttribute(f.name, umlType);
+                p = ((Interface) classifier).createOwnedAttribute(f.name(), umlType);
             } else {
                 continue;
             }
             ctx.stats.attributesCreated++;
-            UmlBuilderSupport.annotateId(p, "Field:" + t.qualifiedName + "#" + f.name + ":" + f.type);
-            UmlBuilderSupport.annotateJavaTypeIfGeneric(p, f.type);
-            UmlBuilderSupport.setVisibility(p, f.visibility);
-            if (f.isStatic) p.setIsStatic(true);
-            if (f.isFinal) p.setIsReadOnly(true);
+            UmlBuilderSupport.annotateId(ctx.ids, p, "Field:" + t.qualifiedName() + "#" + f.name() + ":" + f.type());
+            UmlBuilderSupport.annotateJavaTypeIfGeneric(p, f.type(), f.typeRef());
+            UmlBuilderSupport.setVisibility(p, f.visibility());
+            if (f.isStatic()) p.setIsStatic(true);
+            if (f.isFinal()) p.setIsReadOnly(true);
 
             // Multiplicity + element/container tagging (arrays/collections/Optional + validation/JPA hints)
-            MultiplicityResolver.Result mr = ctx.multiplicityResolver.resolve(f.typeRef, f.annotations);
+            MultiplicityResolver.Result mr = ctx.multiplicityResolver.resolve(f.typeRef(), f.annotations());
             p.setLower(mr.lower);
             p.setUpper(mr.upper == MultiplicityResolver.STAR ? -1 : mr.upper);
+            UmlBuilderSupport.annotateMultiplicityIdsLater(ctx.ids, p);
             UmlBuilderSupport.annotateTags(p, mr.tags);
         }
 
         // Methods -> Operations
         Set<String> fieldNames = new HashSet<>();
-        for (JField f : t.fields) {
-            if (f != null && f.name != null && !f.name.isBlank()) {
-                fieldNames.add(f.name);
+        for (UmlSourceField f : t.fields()) {
+            if (f != null && f.name() != null && !f.name().isBlank()) {
+                fieldNames.add(f.name());
             }
         }
 
-        List<JMethod> methods = new ArrayList<>(t.methods);
+        List<UmlSourceMethod> methods = new ArrayList<>(t.methods());
         methods.sort((a, b) -> UmlBuilderSupport.signatureKey(a).compareTo(UmlBuilderSupport.signatureKey(b)));
-        for (JMethod m : methods) {
-            if (!ctx.includeConstructors && m.isConstructor) {
+        for (UmlSourceMethod m : methods) {
+            if (!ctx.includeConstructors && m.isConstructor()) {
                 continue;
             }
             if (!ctx.includeAccessors && isAccessorForExistingField(m, fieldNames)) {
@@ -102,62 +99,62 @@ final class UmlFeatureBuilder {
 
             Operation op;
             if (classifier instanceof Class) {
-                op = ((Class) classifier).createOwnedOperation(m.name, null, null);
+                op = ((Class) classifier).createOwnedOperation(m.name(), null, null);
             } else if (classifier instanceof Interface) {
-                op = ((Interface) classifier).createOwnedOperation(m.name, null, null);
+                op = ((Interface) classifier).createOwnedOperation(m.name(), null, null);
             } else {
                 continue;
             }
             ctx.stats.operationsCreated++;
-            UmlBuilderSupport.annotateId(op, "Method:" + t.qualifiedName + "#" + UmlBuilderSupport.signatureKey(m));
+            UmlBuilderSupport.annotateId(ctx.ids, op, "Method:" + t.qualifiedName() + "#" + UmlBuilderSupport.signatureKey(m));
             // Expose operation for runtime annotation resolution (REST operations etc.)
-            ctx.operationByKey.put(t.qualifiedName + "#" + UmlBuilderSupport.signatureKey(m), op);
-            UmlBuilderSupport.setVisibility(op, m.visibility);
-            op.setIsStatic(m.isStatic);
-            if (m.isAbstract) op.setIsAbstract(true);
+            ctx.operationByKey.put(t.qualifiedName() + "#" + UmlBuilderSupport.signatureKey(m), op);
+            UmlBuilderSupport.setVisibility(op, m.visibility());
+            op.setIsStatic(m.isStatic());
+            if (m.isAbstract()) op.setIsAbstract(true);
 
             // Parameters
-            for (JParam p : m.params) {
-                Type pt = classifierBuilder.resolveUmlType(ctx, p.type);
-                Parameter umlParam = op.createOwnedParameter(p.name, pt);
+            for (UmlSourceParam p : m.params()) {
+                Type pt = classifierBuilder.resolveUmlType(ctx, p.type());
+                Parameter umlParam = op.createOwnedParameter(p.name(), pt);
                 ctx.stats.parametersCreated++;
-                UmlBuilderSupport.annotateId(umlParam, "Param:" + t.qualifiedName + "#" + UmlBuilderSupport.signatureKey(m) + "/" + p.name + ":" + p.type);
-                UmlBuilderSupport.annotateJavaTypeIfGeneric(umlParam, p.type);
+                UmlBuilderSupport.annotateId(ctx.ids, umlParam, "Param:" + t.qualifiedName() + "#" + UmlBuilderSupport.signatureKey(m) + "/" + p.name() + ":" + p.type());
+                UmlBuilderSupport.annotateJavaTypeIfGeneric(umlParam, p.type(), p.typeRef());
             }
 
             // Return
-            if (!m.isConstructor) {
-                Type ret = classifierBuilder.resolveUmlType(ctx, m.returnType);
+            if (!m.isConstructor()) {
+                Type ret = classifierBuilder.resolveUmlType(ctx, m.returnType());
                 Parameter retParam = op.createOwnedParameter("return", ret);
                 retParam.setDirection(ParameterDirectionKind.RETURN_LITERAL);
                 ctx.stats.parametersCreated++;
-                UmlBuilderSupport.annotateId(retParam, "Return:" + t.qualifiedName + "#" + UmlBuilderSupport.signatureKey(m) + ":" + m.returnType);
-                UmlBuilderSupport.annotateJavaTypeIfGeneric(retParam, m.returnType);
+                UmlBuilderSupport.annotateId(ctx.ids, retParam, "Return:" + t.qualifiedName() + "#" + UmlBuilderSupport.signatureKey(m) + ":" + m.returnType());
+                UmlBuilderSupport.annotateJavaTypeIfGeneric(retParam, m.returnType(), m.returnTypeRef());
             }
         }
     }
 
-    private static boolean isAccessorForExistingField(JMethod m, Set<String> fieldNames) {
-        if (m == null || m.name == null) return false;
+    private static boolean isAccessorForExistingField(UmlSourceMethod m, Set<String> fieldNames) {
+        if (m == null || m.name() == null) return false;
         if (fieldNames == null || fieldNames.isEmpty()) return false;
-        if (m.isConstructor) return false;
+        if (m.isConstructor()) return false;
 
-        String n = m.name;
+        String n = m.name();
         // Getter: getX() : T
-        if (n.startsWith("get") && n.length() > 3 && (m.params == null || m.params.isEmpty())) {
+        if (n.startsWith("get") && n.length() > 3 && (m.params() == null || m.params().isEmpty())) {
             String field = decapitalize(n.substring(3));
             return fieldNames.contains(field);
         }
         // Boolean getter: isX() : boolean/Boolean
-        if (n.startsWith("is") && n.length() > 2 && (m.params == null || m.params.isEmpty())) {
-            String rt = m.returnType == null ? "" : m.returnType.trim();
+        if (n.startsWith("is") && n.length() > 2 && (m.params() == null || m.params().isEmpty())) {
+            String rt = m.returnType() == null ? "" : m.returnType().trim();
             if (rt.equals("boolean") || rt.equals("java.lang.Boolean") || rt.equals("Boolean")) {
                 String field = decapitalize(n.substring(2));
                 return fieldNames.contains(field);
             }
         }
         // Setter: setX(T)
-        if (n.startsWith("set") && n.length() > 3 && m.params != null && m.params.size() == 1) {
+        if (n.startsWith("set") && n.length() > 3 && m.params() != null && m.params().size() == 1) {
             String field = decapitalize(n.substring(3));
             return fieldNames.contains(field);
         }
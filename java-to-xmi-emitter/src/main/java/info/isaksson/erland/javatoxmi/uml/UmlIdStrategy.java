@@ -3,34 +3,172 @@ package info.isaksson.erland.javatoxmi.uml;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Deterministic ID strategy for UML elements.
  *
- * We don't force these IDs into XMI yet (that's Step 5), but we compute and attach
- * them as an EAnnotation so the writer can later set real xmi:ids consistently.
+ * <p>All hashed IDs of the emitter (element keys, sanitized-id suffixes, containment-path fallbacks) are
+ * computed by an instance of this class, created for one conversion with {@link #of(IdHashMode)} and handed to
+ * the builder (through its build context), the profile builders and the XMI writer. An instance keeps a digest
+ * and a bounded cache of recent keys, since the builder, the stereotype injectors and the writer ask for the same
+ * keys repeatedly; both go away with the conversion. Instances are not thread-safe.</p>
  */
 public final class UmlIdStrategy {
-    private UmlIdStrategy() {}
+
+    /** Number of recent keys remembered per instance. */
+    private static final int CACHE_SIZE = 8192;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final IdHashMode mode;
+    private MessageDigest sha256;
+    private final char[] out = new char[32];
+    private final Map<String, String> cache = new LinkedHashMap<>(256, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private UmlIdStrategy(IdHashMode mode) {
+        this.mode = mode;
+    }
+
+    /** A new strategy hashing with {@code mode} ({@link IdHashMode#COMPATIBLE} when null). */
+    public static UmlIdStrategy of(IdHashMode mode) {
+        return new UmlIdStrategy(mode == null ? IdHashMode.COMPATIBLE : mode);
+    }
 
     /**
      * Create a stable, compact ID from an input key.
      *
-     * We use SHA-256 and truncate to 16 bytes (32 hex chars) which is plenty to avoid collisions
+     * We hash and truncate to 16 bytes (32 hex chars) which is plenty to avoid collisions
      * for typical model sizes while keeping ids readable.
      */
-    public static String id(String key) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(key.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < 16; i++) {
-                sb.append(String.format("%02x", digest[i]));
+    public String id(String key) {
+        return hex32(key);
+    }
+
+    /** A shorter (24 hex chars) hash, used for id suffixes and fallback ids. */
+    public String shortId(String key) {
+        return hex32(key).substring(0, 24);
+    }
+
+    public IdHashMode mode() {
+        return mode;
+    }
+
+    private String hex32(String key) {
+        String cached = cache.get(key);
+        if (cached != null) return cached;
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        String hex = mode == IdHashMode.FAST ? murmur3(bytes) : sha256(bytes);
+        cache.put(key, hex);
+        return hex;
+    }
+
+    private String sha256(byte[] bytes) {
+        if (sha256 == null) {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // SHA-256 is guaranteed in the JRE.
+                throw new IllegalStateException(e);
             }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            // SHA-256 is guaranteed in the JRE.
-            throw new IllegalStateException(e);
         }
+        byte[] digest = sha256.digest(bytes);
+        for (int i = 0; i < 16; i++) {
+            out[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+            out[2 * i + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(out);
+    }
+
+    /** MurmurHash3 x64 128-bit, seed 0; h1 then h2, big-endian. */
+    private String murmur3(byte[] data) {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        int len = data.length;
+        int blocks = len / 16;
+        long h1 = 0;
+        long h2 = 0;
+
+        for (int i = 0; i < blocks; i++) {
+            long k1 = getLong(data, i * 16);
+            long k2 = getLong(data, i * 16 + 8);
+            k1 *= c1; k1 = Long.rotateLeft(k1, 31); k1 *= c2; h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27); h1 += h2; h1 = h1 * 5 + 0x52dce729;
+            k2 *= c2; k2 = Long.rotateLeft(k2, 33); k2 *= c1; h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31); h2 += h1; h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = blocks * 16;
+        long k1 = 0;
+        long k2 = 0;
+        switch (len & 15) {
+            case 15: k2 ^= (long) (data[tail + 14] & 0xff) << 48;
+            case 14: k2 ^= (long) (data[tail + 13] & 0xff) << 40;
+            case 13: k2 ^= (long) (data[tail + 12] & 0xff) << 32;
+            case 12: k2 ^= (long) (data[tail + 11] & 0xff) << 24;
+            case 11: k2 ^= (long) (data[tail + 10] & 0xff) << 16;
+            case 10: k2 ^= (long) (data[tail + 9] & 0xff) << 8;
+            case 9:
+                k2 ^= data[tail + 8] & 0xff;
+                k2 *= c2; k2 = Long.rotateLeft(k2, 33); k2 *= c1; h2 ^= k2;
+            case 8: k1 ^= (long) (data[tail + 7] & 0xff) << 56;
+            case 7: k1 ^= (long) (data[tail + 6] & 0xff) << 48;
+            case 6: k1 ^= (long) (data[tail + 5] & 0xff) << 40;
+            case 5: k1 ^= (long) (data[tail + 4] & 0xff) << 32;
+            case 4: k1 ^= (long) (data[tail + 3] & 0xff) << 24;
+            case 3: k1 ^= (long) (data[tail + 2] & 0xff) << 16;
+            case 2: k1 ^= (long) (data[tail + 1] & 0xff) << 8;
+            case 1:
+                k1 ^= data[tail] & 0xff;
+                k1 *= c1; k1 = Long.rotateLeft(k1, 31); k1 *= c2; h1 ^= k1;
+            default:
+                break;
+        }
+
+        h1 ^= len;
+        h2 ^= len;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+
+        putHex(h1, 0);
+        putHex(h2, 16);
+        return new String(out);
+    }
+
+    private void putHex(long v, int at) {
+        for (int i = 15; i >= 0; i--) {
+            out[at + i] = HEX[(int) (v & 0xf)];
+            v >>>= 4;
+        }
+    }
+
+    private static long getLong(byte[] b, int i) {
+        return (b[i] & 0xffL)
+                | (b[i + 1] & 0xffL) << 8
+                | (b[i + 2] & 0xffL) << 16
+                | (b[i + 3] & 0xffL) << 24
+                | (b[i + 4] & 0xffL) << 32
+                | (b[i + 5] & 0xffL) << 40
+                | (b[i + 6] & 0xffL) << 48
+                | (b[i + 7] & 0xffL) << 56;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb93fe53b87d5L;
+        k ^= k >>> 33;
+        return k;
     }
 }
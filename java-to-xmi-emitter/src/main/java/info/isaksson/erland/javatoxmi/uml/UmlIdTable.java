@@ -0,0 +1,79 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.uml2.uml.Element;
+import org.eclipse.uml2.uml.Model;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Side table of deterministic element IDs, attached to a {@link Model} as an EMF adapter (it is not serialized).
+ *
+ * <p>{@link UmlBuilderSupport#annotateId} registers each key here as the element is annotated (the builders pass
+ * the table along in their build context), so the XMI writer can take IDs from the table instead of reading the
+ * {@code java-to-xmi:id} annotations back. The annotations stay the source of truth (and part of the output).
+ * Elements UML2 creates on the fly (multiplicity literals, owned association ends, profile applications, package
+ * imports) have no key of their own; their creators queue them here and {@link UmlBuilderSupport#annotateQueuedIds}
+ * keys them when the build is complete, so no walk over the whole model is needed.</p>
+ */
+public final class UmlIdTable extends AdapterImpl {
+
+    private final Map<EObject, String> ids = new IdentityHashMap<>();
+
+    /** Elements waiting for {@link UmlBuilderSupport#annotateQueuedIds}, in creation order. */
+    private final List<Element> queued = new ArrayList<>();
+
+    private UmlIdTable() {}
+
+    /** The table attached to {@code model}, attaching a new one if needed. */
+    public static UmlIdTable of(Model model) {
+        UmlIdTable existing = find(model);
+        if (existing != null) return existing;
+        UmlIdTable table = new UmlIdTable();
+        model.eAdapters().add(table);
+        return table;
+    }
+
+    /** The table attached to {@code root}, or {@code null}. */
+    public static UmlIdTable find(EObject root) {
+        if (root == null) return null;
+        for (Adapter a : root.eAdapters()) {
+            if (a instanceof UmlIdTable) return (UmlIdTable) a;
+        }
+        return null;
+    }
+
+    /** The raw (unsanitized) ID registered for {@code obj}, or {@code null}. */
+    public String rawId(EObject obj) {
+        return ids.get(obj);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    void register(Element element, String key) {
+        ids.put(element, key);
+    }
+
+    void queue(Element element) {
+        if (element != null) queued.add(element);
+    }
+
+    /** The queued elements, emptying the queue. */
+    List<Element> drainQueue() {
+        List<Element> out = new ArrayList<>(queued);
+        queued.clear();
+        return out;
+    }
+
+    @Override
+    public boolean isAdapterForType(Object type) {
+        return type == UmlIdTable.class;
+    }
+}
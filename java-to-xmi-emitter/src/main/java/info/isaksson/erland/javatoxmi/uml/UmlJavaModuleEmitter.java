@@ -25,6 +25,7 @@ public final class UmlJavaModuleEmitter {
         Package container = root.getNestedPackage("JavaModules");
         if (container == null) {
             container = root.createNestedPackage("JavaModules");
+            UmlBuilderSupport.annotateIdLater(ctx.ids, container);
         }
 
         // Create module packages
@@ -32,7 +33,10 @@ public final class UmlJavaModuleEmitter {
         for (JJavaModule jm : modules) {
             if (jm == null || jm.name == null || jm.name.isBlank()) continue;
             Package p = container.getNestedPackage(jm.name);
-            if (p == null) p = container.createNestedPackage(jm.name);
+            if (p == null) {
+                p = container.createNestedPackage(jm.name);
+                UmlBuilderSupport.annotateIdLater(ctx.ids, p);
+            }
 
             UmlBuilderSupport.annotateRuntimeStereotype(p, IrRuntime.ST_JAVA_MODULE);
 
@@ -57,7 +61,10 @@ public final class UmlJavaModuleEmitter {
                 if (to == null) {
                     // Create placeholder for external modules to keep the dependency meaningful but scoped
                     to = container.getNestedPackage(req.moduleName);
-                    if (to == null) to = container.createNestedPackage(req.moduleName);
+                    if (to == null) {
+                        to = container.createNestedPackage(req.moduleName);
+                        UmlBuilderSupport.annotateIdLater(ctx.ids, to);
+                    }
                     UmlBuilderSupport.annotateRuntimeStereotype(to, IrRuntime.ST_JAVA_MODULE);
                     Map<String, String> tags = new LinkedHashMap<>();
                     tags.put(IrRuntime.Tags.MODULE, req.moduleName);
@@ -68,6 +75,7 @@ public final class UmlJavaModuleEmitter {
 
                 Dependency dep = from.createDependency(to);
                 dep.setName("requires");
+                UmlBuilderSupport.annotateIdLater(ctx.ids, dep);
 
                 // Encode modifiers as tags on the dependency for determinism/inspectability
                 Map<String, String> depTags = new LinkedHashMap<>();
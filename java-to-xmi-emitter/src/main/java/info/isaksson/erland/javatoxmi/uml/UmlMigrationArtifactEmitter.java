@@ -35,7 +35,10 @@ public final class UmlMigrationArtifactEmitter {
                 .thenComparing(a -> a == null ? "" : (a.path == null ? "" : a.path)));
 
         Package pkg = ctx.model.getNestedPackage("DatabaseMigrations");
-        if (pkg == null) pkg = ctx.model.createNestedPackage("DatabaseMigrations");
+        if (pkg == null) {
+            pkg = ctx.model.createNestedPackage("DatabaseMigrations");
+            UmlBuilderSupport.annotateIdLater(ctx.ids, pkg);
+        }
 
         Map<String, Integer> nameCounts = new LinkedHashMap<>();
 
@@ -51,7 +54,7 @@ public final class UmlMigrationArtifactEmitter {
 
             // stable id
             String id = a.id == null ? ("migration:" + name) : a.id;
-            UmlBuilderSupport.annotateId(umlArt, id);
+            UmlBuilderSupport.annotateId(ctx.ids, umlArt, id);
 
             // Mark runtime stereotype (post-processed into stereotype application during XMI write)
             UmlBuilderSupport.annotateRuntimeStereotype(umlArt, IrRuntime.ST_FLYWAY_MIGRATION);
@@ -73,7 +76,7 @@ public final class UmlMigrationArtifactEmitter {
 
             // Optional: link from model to the artifact (helps navigation).
             Dependency dep = ctx.model.createDependency(umlArt);
-            UmlBuilderSupport.annotateId(dep, "migration-dep:" + id);
+            UmlBuilderSupport.annotateId(ctx.ids, dep, "migration-dep:" + id);
         }
     }
 
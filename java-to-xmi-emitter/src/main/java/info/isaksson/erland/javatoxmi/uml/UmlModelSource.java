@@ -0,0 +1,43 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import info.isaksson.erland.javatoxmi.model.JJavaModule;
+import info.isaksson.erland.javatoxmi.model.JMigrationArtifact;
+import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.model.JRuntimeAnnotation;
+
+import java.util.List;
+
+/**
+ * What {@link UmlBuilder} and the XMI stereotype injection read: the types to build and the runtime semantics
+ * attached to them.
+ *
+ * <p>The Java extractor's {@link JModel} is one source ({@link #of(JModel)}). The IR emitter is another: it
+ * implements the {@link UmlSourceType} views directly over IR classifiers and relations.</p>
+ */
+public interface UmlModelSource {
+
+    /** Types to build, in any order. */
+    List<UmlSourceType> types();
+
+    default List<UmlSourceRuntimeRelation> runtimeRelations() {
+        return List.of();
+    }
+
+    default List<JRuntimeAnnotation> runtimeAnnotations() {
+        return List.of();
+    }
+
+    default List<JMigrationArtifact> migrationArtifacts() {
+        return List.of();
+    }
+
+    default List<JJavaModule> javaModules() {
+        return List.of();
+    }
+
+    /** View of an extracted Java model; {@code null} stays {@code null}. */
+    static UmlModelSource of(JModel jModel) {
+        if (jModel == null) return null;
+        return new JavaModelSource(jModel);
+    }
+}
@@ -2,11 +2,6 @@ package info.isaksson.erland.javatoxmi.uml;
 
 import org.eclipse.uml2.uml.Classifier;
 import org.eclipse.uml2.uml.Package;
-import info.isaksson.erland.javatoxmi.model.JField;
-import info.isaksson.erland.javatoxmi.model.JMethod;
-import info.isaksson.erland.javatoxmi.model.JParam;
-import info.isaksson.erland.javatoxmi.model.JType;
-import info.isaksson.erland.javatoxmi.model.TypeRef;
 import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
 
 import java.util.ArrayList;
@@ -24,10 +19,10 @@ import java.util.Map;
  */
 final class UmlPackageImportBuilder {
 
-    void addPackageImports(UmlBuildContext ctx, JType ownerType, Classifier ownerClassifier) {
+    void addPackageImports(UmlBuildContext ctx, UmlSourceType ownerType, Classifier ownerClassifier) {
         if (ctx == null || ownerType == null || ownerClassifier == null) return;
 
-        final String ownerJavaPkg = ownerType.packageName == null ? "" : ownerType.packageName;
+        final String ownerJavaPkg = ownerType.packageName() == null ? "" : ownerType.packageName();
 
         Package ownerPkg = ownerClassifier.getPackage();
         if (ownerPkg == null) ownerPkg = ownerClassifier.getModel();
@@ -41,28 +36,28 @@ final class UmlPackageImportBuilder {
         Map<String, Package> referencedPackagesByJavaName = new HashMap<>();
 
         // extends/implements
-        addRefByQName(ctx, referencedPackagesByJavaName, ownerType.extendsType);
-        if (ownerType.implementsTypes != null) {
-            for (String qn : ownerType.implementsTypes) addRefByQName(ctx, referencedPackagesByJavaName, qn);
+        addRefByQName(ctx, referencedPackagesByJavaName, ownerType.extendsType());
+        if (ownerType.implementsTypes() != null) {
+            for (String qn : ownerType.implementsTypes()) addRefByQName(ctx, referencedPackagesByJavaName, qn);
         }
 
         // fields
-        if (ownerType.fields != null) {
-            for (JField f : ownerType.fields) {
+        if (ownerType.fields() != null) {
+            for (UmlSourceField f : ownerType.fields()) {
                 if (f == null) continue;
-                addRefByTypeRef(ctx, referencedPackagesByJavaName, f.typeRef);
+                addRefByTypeRef(ctx, referencedPackagesByJavaName, f.typeRef());
             }
         }
 
         // methods (signature)
-        if (ownerType.methods != null) {
-            for (JMethod m : ownerType.methods) {
+        if (ownerType.methods() != null) {
+            for (UmlSourceMethod m : ownerType.methods()) {
                 if (m == null) continue;
-                addRefByTypeRef(ctx, referencedPackagesByJavaName, m.returnTypeRef);
-                if (m.params != null) {
-                    for (JParam p : m.params) {
+                addRefByTypeRef(ctx, referencedPackagesByJavaName, m.returnTypeRef());
+                if (m.params() != null) {
+                    for (UmlSourceParam p : m.params()) {
                         if (p == null) continue;
-                        addRefByTypeRef(ctx, referencedPackagesByJavaName, p.typeRef);
+                        addRefByTypeRef(ctx, referencedPackagesByJavaName, p.typeRef());
                     }
                 }
             }
@@ -70,29 +65,29 @@ final class UmlPackageImportBuilder {
 
         
         // annotations (types / members / params)
-        addRefByAnnotationUses(ctx, referencedPackagesByJavaName, ownerType.annotations);
-        if (ownerType.fields != null) {
-            for (JField f : ownerType.fields) {
+        addRefByAnnotationUses(ctx, referencedPackagesByJavaName, ownerType.annotations());
+        if (ownerType.fields() != null) {
+            for (UmlSourceField f : ownerType.fields()) {
                 if (f == null) continue;
-                addRefByAnnotationUses(ctx, referencedPackagesByJavaName, f.annotations);
+                addRefByAnnotationUses(ctx, referencedPackagesByJavaName, f.annotations());
             }
         }
-        if (ownerType.methods != null) {
-            for (JMethod m : ownerType.methods) {
+        if (ownerType.methods() != null) {
+            for (UmlSourceMethod m : ownerType.methods()) {
                 if (m == null) continue;
-                addRefByAnnotationUses(ctx, referencedPackagesByJavaName, m.annotations);
-                if (m.params != null) {
-                    for (JParam p : m.params) {
+                addRefByAnnotationUses(ctx, referencedPackagesByJavaName, m.annotations());
+                if (m.params() != null) {
+                    for (UmlSourceParam p : m.params()) {
                         if (p == null) continue;
-                        addRefByAnnotationUses(ctx, referencedPackagesByJavaName, p.annotations);
+                        addRefByAnnotationUses(ctx, referencedPackagesByJavaName, p.annotations());
                     }
                 }
             }
         }
 
 // conservative method-body dependency hints (already resolved to qualified names when possible)
-        if (ctx.includeDependencies && ownerType.methodBodyTypeDependencies != null) {
-            for (String qn : ownerType.methodBodyTypeDependencies) addRefByQName(ctx, referencedPackagesByJavaName, qn);
+        if (ctx.includeDependencies && ownerType.methodBodyTypeDependencies() != null) {
+            for (String qn : ownerType.methodBodyTypeDependencies()) addRefByQName(ctx, referencedPackagesByJavaName, qn);
         }
 
         // Emit imports
@@ -113,7 +108,7 @@ final class UmlPackageImportBuilder {
             String key = (qName(ownerPkg) + "|" + qName(targetPkg));
             if (ctx.packageImportPairs.contains(key)) continue;
             ctx.packageImportPairs.add(key);
-            ownerPkg.createPackageImport(targetPkg);
+            UmlBuilderSupport.annotateIdLater(ctx.ids, ownerPkg.createPackageImport(targetPkg));
             ctx.stats.packageImportsCreated++;
         }
     }
@@ -131,9 +126,9 @@ final class UmlPackageImportBuilder {
         // where deriving the package from the string would create huge "virtual" packages that end up empty.
         String pkgName = null;
         try {
-            info.isaksson.erland.javatoxmi.model.JType t = ctx.typeByQName.get(qn);
-            if (t != null && t.packageName != null && !t.packageName.isBlank()) {
-                pkgName = t.packageName;
+            UmlSourceType t = ctx.typeByQName.get(qn);
+            if (t != null && t.packageName() != null && !t.packageName().isBlank()) {
+                pkgName = t.packageName();
             }
         } catch (Exception ignored) {
             // best-effort; fall back below
@@ -160,23 +155,23 @@ final class UmlPackageImportBuilder {
         }
     }
 
-    private static void addRefByTypeRef(UmlBuildContext ctx, Map<String, Package> pkgsByJavaName, TypeRef tr) {
+    private static void addRefByTypeRef(UmlBuildContext ctx, Map<String, Package> pkgsByJavaName, UmlSourceTypeRef tr) {
         if (ctx == null || pkgsByJavaName == null || tr == null) return;
 
         // direct hint
-        if (tr.qnameHint != null && !tr.qnameHint.isBlank()) {
-            addRefByQName(ctx, pkgsByJavaName, tr.qnameHint);
-        } else if (tr.raw != null && tr.raw.contains(".") && ctx.classifierByQName.containsKey(tr.raw)) {
+        if (tr.qnameHint() != null && !tr.qnameHint().isBlank()) {
+            addRefByQName(ctx, pkgsByJavaName, tr.qnameHint());
+        } else if (tr.raw() != null && tr.raw().contains(".") && ctx.classifierByQName.containsKey(tr.raw())) {
             // last-resort: some raw strings are already qualified
-            addRefByQName(ctx, pkgsByJavaName, tr.raw);
+            addRefByQName(ctx, pkgsByJavaName, tr.raw());
         }
 
         // recurse into args / array component / wildcard bound
-        if (tr.args != null) {
-            for (TypeRef a : tr.args) addRefByTypeRef(ctx, pkgsByJavaName, a);
+        if (tr.args() != null) {
+            for (UmlSourceTypeRef a : tr.args()) addRefByTypeRef(ctx, pkgsByJavaName, a);
         }
-        if (tr.wildcardBoundType != null) {
-            addRefByTypeRef(ctx, pkgsByJavaName, tr.wildcardBoundType);
+        if (tr.wildcardBoundType() != null) {
+            addRefByTypeRef(ctx, pkgsByJavaName, tr.wildcardBoundType());
         }
     }
 
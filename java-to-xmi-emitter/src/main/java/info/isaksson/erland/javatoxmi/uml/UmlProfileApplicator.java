@@ -1,7 +1,6 @@
 package info.isaksson.erland.javatoxmi.uml;
 
 import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
-import info.isaksson.erland.javatoxmi.model.JType;
 import info.isaksson.erland.javatoxmi.model.JTypeKind;
 
 import java.util.ArrayList;
@@ -12,24 +11,24 @@ import java.util.List;
  */
 final class UmlProfileApplicator {
 
-    void applyJavaAnnotationProfile(UmlBuildContext ctx, List<JType> types) {
-        JavaAnnotationProfileBuilder profileBuilder = new JavaAnnotationProfileBuilder();
+    void applyJavaAnnotationProfile(UmlBuildContext ctx, List<UmlSourceType> types) {
+        JavaAnnotationProfileBuilder profileBuilder = new JavaAnnotationProfileBuilder(ctx.ids, ctx.idStrategy);
         org.eclipse.uml2.uml.Profile profile = profileBuilder.ensureProfile(ctx.model);
 
         // Determinism: apply in a stable order (types, annotations, and tag keys sorted).
-        for (JType t : types) {
-            if (t.annotations == null || t.annotations.isEmpty()) continue;
+        for (UmlSourceType t : types) {
+            if (t.annotations() == null || t.annotations().isEmpty()) continue;
 
             JavaAnnotationProfileBuilder.MetaclassTarget target;
-            if (t.kind == JTypeKind.INTERFACE) {
+            if (t.kind() == JTypeKind.INTERFACE) {
                 target = JavaAnnotationProfileBuilder.MetaclassTarget.INTERFACE;
-            } else if (t.kind == JTypeKind.ENUM) {
+            } else if (t.kind() == JTypeKind.ENUM) {
                 target = JavaAnnotationProfileBuilder.MetaclassTarget.ENUMERATION;
             } else {
                 target = JavaAnnotationProfileBuilder.MetaclassTarget.CLASS;
             }
 
-            List<JAnnotationUse> anns = new ArrayList<>(t.annotations);
+            List<JAnnotationUse> anns = new ArrayList<>(t.annotations());
             anns.sort((a, b) -> {
                 String aq = a == null ? "" : (a.qualifiedName != null ? a.qualifiedName : (a.simpleName != null ? a.simpleName : ""));
                 String bq = b == null ? "" : (b.qualifiedName != null ? b.qualifiedName : (b.simpleName != null ? b.simpleName : ""));
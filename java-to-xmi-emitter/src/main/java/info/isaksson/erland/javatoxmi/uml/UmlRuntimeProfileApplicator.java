@@ -18,14 +18,14 @@ final class UmlRuntimeProfileApplicator {
     void applyRuntimeProfile(UmlBuildContext ctx) {
         if (ctx == null || ctx.model == null) return;
 
-        JavaAnnotationProfileBuilder pb = new JavaAnnotationProfileBuilder();
+        JavaAnnotationProfileBuilder pb = new JavaAnnotationProfileBuilder(ctx.ids, ctx.idStrategy);
         Profile profile = pb.ensureProfile(ctx.model);
 
         // IMPORTANT: UML2 only allows stereotypes to be applied when the owning Profile
         // is applied to the nearest package (here: the root Model). Without this, calls
         // like element.applyStereotype(...) will fail and runtime stereotypes won't show up.
 
-        JavaAnnotationMetaclassExtensionHelper ext = new JavaAnnotationMetaclassExtensionHelper();
+        JavaAnnotationMetaclassExtensionHelper ext = new JavaAnnotationMetaclassExtensionHelper(ctx.ids, ctx.idStrategy);
 
         // Class-level stereotypes
         ensure(profile, pb, ext, IrRuntime.ST_REST_RESOURCE, "Class");
@@ -50,14 +50,16 @@ final class UmlRuntimeProfileApplicator {
 
         // Apply the profile *after* ensuring stereotypes/extensions are defined,
         // otherwise UML2 may not treat them as applicable on elements.
-        tryApplyProfile(ctx.model, profile);
+        tryApplyProfile(ctx, profile);
     }
 
-    private static void tryApplyProfile(org.eclipse.uml2.uml.Model model, Profile profile) {
+    private static void tryApplyProfile(UmlBuildContext ctx, Profile profile) {
+        org.eclipse.uml2.uml.Model model = ctx.model;
         if (model == null || profile == null) return;
         try {
             if (model.getAppliedProfiles() != null && model.getAppliedProfiles().contains(profile)) return;
             model.applyProfile(profile);
+            UmlBuilderSupport.annotateIdLater(ctx.ids, model.getProfileApplication(profile));
         } catch (Throwable ignored) {
             // Best-effort. If this fails, runtime stereotypes simply won't be applied.
         }
@@ -1,6 +1,5 @@
 package info.isaksson.erland.javatoxmi.uml;
 
-import info.isaksson.erland.javatoxmi.model.JRuntimeRelation;
 import org.eclipse.uml2.uml.Dependency;
 import org.eclipse.uml2.uml.NamedElement;
 import org.eclipse.uml2.uml.Profile;
@@ -15,18 +14,18 @@ import java.util.List;
  */
 final class UmlRuntimeRelationEmitter {
 
-    void emit(UmlBuildContext ctx, List<JRuntimeRelation> relations) {
+    void emit(UmlBuildContext ctx, List<UmlSourceRuntimeRelation> relations) {
         if (ctx == null || ctx.model == null) return;
         if (relations == null || relations.isEmpty()) return;
 
         // Deterministic emission order.
-        List<JRuntimeRelation> sorted = new ArrayList<>(relations);
+        List<UmlSourceRuntimeRelation> sorted = new ArrayList<>(relations);
         sorted.sort(Comparator
-                .comparing((JRuntimeRelation r) -> nullSafe(r.sourceQualifiedName))
-                .thenComparing(r -> nullSafe(r.targetQualifiedName))
-                .thenComparing(r -> nullSafe(r.stereotype))
-                .thenComparing(r -> nullSafe(r.name))
-                .thenComparing(r -> nullSafe(r.id)));
+                .comparing((UmlSourceRuntimeRelation r) -> nullSafe(r.sourceQualifiedName()))
+                .thenComparing(r -> nullSafe(r.targetQualifiedName()))
+                .thenComparing(r -> nullSafe(r.stereotype()))
+                .thenComparing(r -> nullSafe(r.name()))
+                .thenComparing(r -> nullSafe(r.id())));
 
         Profile profile = ctx.model.getAppliedProfile(JavaAnnotationProfileBuilder.PROFILE_NAME);
         if (profile == null) {
@@ -35,35 +34,35 @@ final class UmlRuntimeRelationEmitter {
             if (pe instanceof Profile) profile = (Profile) pe;
         }
 
-        for (JRuntimeRelation r : sorted) {
+        for (UmlSourceRuntimeRelation r : sorted) {
             if (r == null) continue;
-            if (r.sourceQualifiedName == null || r.sourceQualifiedName.isBlank()) continue;
-            if (r.targetQualifiedName == null || r.targetQualifiedName.isBlank()) continue;
+            if (r.sourceQualifiedName() == null || r.sourceQualifiedName().isBlank()) continue;
+            if (r.targetQualifiedName() == null || r.targetQualifiedName().isBlank()) continue;
 
-            NamedElement src = resolveNamed(ctx, r.sourceQualifiedName);
-            NamedElement tgt = resolveNamed(ctx, r.targetQualifiedName);
+            NamedElement src = resolveNamed(ctx, r.sourceQualifiedName());
+            NamedElement tgt = resolveNamed(ctx, r.targetQualifiedName());
             if (src == null || tgt == null) continue;
 
             Dependency dep = src.createDependency(tgt);
-            if (r.name != null && !r.name.isBlank()) {
-                dep.setName(r.name.trim());
-            } else if (r.stereotype != null && !r.stereotype.isBlank()) {
+            if (r.name() != null && !r.name().isBlank()) {
+                dep.setName(r.name().trim());
+            } else if (r.stereotype() != null && !r.stereotype().isBlank()) {
                 // Give dependencies a stable name when none is provided.
-                dep.setName(r.stereotype.trim());
+                dep.setName(r.stereotype().trim());
             }
 
             // Deterministic id for this emitted edge.
-            String st = (r.stereotype == null ? "" : r.stereotype.trim());
-            UmlBuilderSupport.annotateId(dep, "RuntimeDependency:" + r.sourceQualifiedName + "->" + r.targetQualifiedName + ":" + st);
+            String st = (r.stereotype() == null ? "" : r.stereotype().trim());
+            UmlBuilderSupport.annotateId(ctx.ids, dep, "RuntimeDependency:" + r.sourceQualifiedName() + "->" + r.targetQualifiedName() + ":" + st);
 
             // Persist desired runtime stereotype name for XMI post-processing (even if UML2 apply fails).
-            if (r.stereotype != null && !r.stereotype.isBlank()) {
-                UmlBuilderSupport.annotateRuntimeStereotype(dep, r.stereotype.trim());
+            if (r.stereotype() != null && !r.stereotype().isBlank()) {
+                UmlBuilderSupport.annotateRuntimeStereotype(dep, r.stereotype().trim());
             }
 
             // Apply stereotype (if present + available).
-            if (profile != null && r.stereotype != null && !r.stereotype.isBlank()) {
-                final String stName = r.stereotype.trim();
+            if (profile != null && r.stereotype() != null && !r.stereotype().isBlank()) {
+                final String stName = r.stereotype().trim();
                 Stereotype stEl = null;
 
                 // Prefer an applicable stereotype lookup (requires Profile to be applied).
@@ -103,8 +102,8 @@ final class UmlRuntimeRelationEmitter {
             }
 
             // Persist tags via tool-tags annotation; injected as J2XTags during XMI writing.
-            if (r.tags != null && !r.tags.isEmpty()) {
-                UmlBuilderSupport.annotateTags(dep, r.tags);
+            if (r.tags() != null && !r.tags().isEmpty()) {
+                UmlBuilderSupport.annotateTags(dep, r.tags());
             }
         }
     }
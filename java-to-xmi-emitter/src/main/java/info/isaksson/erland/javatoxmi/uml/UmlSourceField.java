@@ -0,0 +1,28 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
+import info.isaksson.erland.javatoxmi.model.JVisibility;
+
+import java.util.List;
+
+/** A field of a {@link UmlSourceType}: an attribute, or one end of an association. */
+public interface UmlSourceField {
+
+    String name();
+
+    /** Type string; may be unresolved. */
+    String type();
+
+    /** Structured form of {@link #type()}, or {@code null} if the source has none. */
+    UmlSourceTypeRef typeRef();
+
+    JVisibility visibility();
+
+    boolean isStatic();
+
+    boolean isFinal();
+
+    default List<JAnnotationUse> annotations() {
+        return List.of();
+    }
+}
@@ -0,0 +1,32 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
+import info.isaksson.erland.javatoxmi.model.JVisibility;
+
+import java.util.List;
+
+/** An operation of a {@link UmlSourceType}. */
+public interface UmlSourceMethod {
+
+    String name();
+
+    /** Return type string; empty for constructors. */
+    String returnType();
+
+    /** Structured form of {@link #returnType()}, or {@code null}. */
+    UmlSourceTypeRef returnTypeRef();
+
+    JVisibility visibility();
+
+    boolean isStatic();
+
+    boolean isAbstract();
+
+    boolean isConstructor();
+
+    List<UmlSourceParam> params();
+
+    default List<JAnnotationUse> annotations() {
+        return List.of();
+    }
+}
@@ -0,0 +1,23 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
+
+import java.util.List;
+
+/** A parameter of a {@link UmlSourceMethod}. */
+public interface UmlSourceParam {
+
+    String name();
+
+    /** Type string; may be unresolved. */
+    String type();
+
+    /** Structured form of {@link #type()}, or {@code null}. */
+    default UmlSourceTypeRef typeRef() {
+        return null;
+    }
+
+    default List<JAnnotationUse> annotations() {
+        return List.of();
+    }
+}
@@ -0,0 +1,22 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import java.util.Map;
+
+/** A runtime semantic relation, emitted as a stereotyped dependency with tagged values. */
+public interface UmlSourceRuntimeRelation {
+
+    /** Optional stable id. */
+    String id();
+
+    String sourceQualifiedName();
+
+    String targetQualifiedName();
+
+    /** Optional display name. */
+    String name();
+
+    /** Optional stereotype name to apply. */
+    String stereotype();
+
+    Map<String, String> tags();
+}
@@ -0,0 +1,66 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
+import info.isaksson.erland.javatoxmi.model.JTypeKind;
+import info.isaksson.erland.javatoxmi.model.JVisibility;
+
+import java.util.List;
+
+/**
+ * A type as {@link UmlBuilder} reads it from a {@link UmlModelSource}: an extracted Java type, or an IR classifier
+ * together with the relations that start at it. What a source does not know defaults to absent.
+ */
+public interface UmlSourceType {
+
+    String packageName();
+
+    String name();
+
+    String qualifiedName();
+
+    JTypeKind kind();
+
+    JVisibility visibility();
+
+    List<UmlSourceField> fields();
+
+    List<UmlSourceMethod> methods();
+
+    /** Qualified name of the enclosing type of a nested type, else {@code null}. */
+    default String outerQualifiedName() {
+        return null;
+    }
+
+    default boolean isNested() {
+        return false;
+    }
+
+    default boolean isAbstract() {
+        return false;
+    }
+
+    default String extendsType() {
+        return null;
+    }
+
+    default List<String> implementsTypes() {
+        return List.of();
+    }
+
+    default List<JAnnotationUse> annotations() {
+        return List.of();
+    }
+
+    default String doc() {
+        return null;
+    }
+
+    default List<String> enumLiterals() {
+        return List.of();
+    }
+
+    /** Types used in method bodies (or otherwise depended on), emitted as dependencies when enabled. */
+    default List<String> methodBodyTypeDependencies() {
+        return List.of();
+    }
+}
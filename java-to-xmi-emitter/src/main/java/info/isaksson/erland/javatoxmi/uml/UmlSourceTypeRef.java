@@ -0,0 +1,45 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import info.isaksson.erland.javatoxmi.model.TypeRefKind;
+
+import java.util.List;
+
+/**
+ * Structured form of a member type, as read by the association, multiplicity and import rules. The vocabulary is
+ * that of the Java extractor's {@code TypeRef}: an array keeps its component type as its single argument.
+ */
+public interface UmlSourceTypeRef {
+
+    /** Rendering of the whole type, e.g. {@code List<Foo[]>}. */
+    String raw();
+
+    TypeRefKind kind();
+
+    /** Simple name portion, e.g. {@code List}; may be empty. */
+    String simpleName();
+
+    /** Qualified name hint, e.g. {@code java.util.List}; may be empty. */
+    String qnameHint();
+
+    /** Generic arguments of a {@link TypeRefKind#PARAM} type, or the component type of an array. */
+    List<UmlSourceTypeRef> args();
+
+    default int arrayDims() {
+        return 0;
+    }
+
+    /** Bound of a bounded wildcard, else {@code null}. */
+    default UmlSourceTypeRef wildcardBoundType() {
+        return null;
+    }
+
+    /**
+     * Top-level generic arguments: those of a {@link TypeRefKind#PARAM} type, or of an array's component type.
+     * Empty for anything else.
+     */
+    default List<UmlSourceTypeRef> typeArguments() {
+        if (kind() == TypeRefKind.PARAM) return args();
+        if (kind() == TypeRefKind.ARRAY && !args().isEmpty()) return args().get(0).typeArguments();
+        return List.of();
+    }
+}
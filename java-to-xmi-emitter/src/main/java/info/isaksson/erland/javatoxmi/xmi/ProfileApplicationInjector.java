@@ -3,7 +3,6 @@ package info.isaksson.erland.javatoxmi.xmi;
 import org.eclipse.emf.ecore.EAnnotation;
 import org.eclipse.uml2.uml.Model;
 import org.eclipse.uml2.uml.Profile;
-import info.isaksson.erland.javatoxmi.uml.JavaAnnotationProfileBuilder;
 import info.isaksson.erland.javatoxmi.uml.UmlIdStrategy;
 
 import java.util.ArrayList;
@@ -11,8 +10,8 @@ import java.util.Comparator;
 import java.util.List;
 
 /**
- * Ensures the serialized XMI has required namespace declarations and <profileApplication>
- * entries for in-model UML Profiles.
+ * Finds the in-model UML Profiles and builds the <profileApplication> entries the serialized XMI
+ * needs for them.
  *
  * <p>Historically this injector assumed a single hard-coded profile (JavaAnnotations).
  * It now supports multiple profiles, including profiles materialized from IR stereotype
@@ -35,75 +34,18 @@ final class ProfileApplicationInjector {
         return out;
     }
 
-    static Profile findJavaAnnotationsProfile(Model model) {
-        if (model == null) return null;
-        for (org.eclipse.uml2.uml.PackageableElement pe : model.getPackagedElements()) {
-            if (pe instanceof Profile p && JavaAnnotationProfileBuilder.PROFILE_NAME.equals(p.getName())) {
-                return p;
-            }
-        }
-        return null;
-    }
-
-    static String ensureProfileNamespaceDeclared(String xml) {
-        // Backwards-compatible helper: declare JavaAnnotations namespace.
-        return ensureProfileNamespaceDeclared(xml, JavaAnnotationProfileBuilder.PROFILE_NAME, JavaAnnotationProfileBuilder.PROFILE_URI);
-    }
-
-    static String ensureProfileNamespaceDeclared(String xml, String prefix, String uri) {
-        if (xml == null) return null;
-        if (prefix == null || prefix.isBlank()) return xml;
-        if (uri == null || uri.isBlank()) return xml;
-
-        String decl = "xmlns:" + prefix + "=\"" + uri + "\"";
-        if (xml.contains(decl)) return xml;
-
-        int rootStart = xml.indexOf("<xmi:XMI");
-        if (rootStart >= 0) {
-            int gt = xml.indexOf('>', rootStart);
-            if (gt > rootStart) {
-                String before = xml.substring(0, gt);
-                String after = xml.substring(gt);
-                return before + " " + decl + after;
-            }
-        }
-
-        rootStart = xml.indexOf("<uml:Model");
-        if (rootStart >= 0) {
-            int gt = xml.indexOf('>', rootStart);
-            if (gt > rootStart) {
-                String before = xml.substring(0, gt);
-                String after = xml.substring(gt);
-                return before + " " + decl + after;
-            }
-        }
-        return xml;
-    }
-
-    static String ensureProfileApplicationPresent(String xml, Profile profile) {
-        if (xml == null) return null;
-        if (profile == null) return xml;
-
+    /** The xmi:id of the (named) profile, as referenced by its profileApplication. */
+    static String profileId(Profile profile, UmlIdStrategy ids) {
         String profileName = profile.getName() == null ? "" : profile.getName();
-        if (profileName.isBlank()) return xml;
-
-        // If a profileApplication for THIS profile already exists, leave as-is.
-        String profileId = "_" + getAnnotatedIdOrDefault(profile, UmlIdStrategy.id("Profile:" + profileName));
-        if (xml.contains("href=\"#"+ XmiDomUtil.escapeAttr(profileId) + "\"")) {
-            return xml;
-        }
-
-        int modelStart = xml.indexOf("<uml:Model");
-        if (modelStart < 0) return xml;
-        int modelGt = xml.indexOf('>', modelStart);
-        if (modelGt < 0) return xml;
+        return "_" + getAnnotatedIdOrDefault(profile, ids.id("Profile:" + profileName));
+    }
 
-        String appId = "_" + UmlIdStrategy.id("ProfileApplication:" + profileId);
-        String pa = "\n  <profileApplication xmi:id=\"" + XmiDomUtil.escapeAttr(appId) + "\">\n" +
+    /** The profileApplication fragment inserted right after the {@code <uml:Model ...>} start tag. */
+    static String profileApplicationXml(String profileId, UmlIdStrategy ids) {
+        String appId = "_" + ids.id("ProfileApplication:" + profileId);
+        return "\n  <profileApplication xmi:id=\"" + XmiDomUtil.escapeAttr(appId) + "\">\n" +
                 "    <appliedProfile href=\"#" + XmiDomUtil.escapeAttr(profileId) + "\"/>\n" +
                 "  </profileApplication>\n";
-
-        return xml.substring(0, modelGt + 1) + pa + xml.substring(modelGt + 1);
     }
 
     private static String getAnnotatedIdOrDefault(org.eclipse.uml2.uml.Element el, String fallback) {
@@ -6,11 +6,13 @@ import org.eclipse.uml2.uml.Model;
 import org.eclipse.uml2.uml.Profile;
 import org.eclipse.uml2.uml.Stereotype;
 import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
-import info.isaksson.erland.javatoxmi.model.JModel;
-import info.isaksson.erland.javatoxmi.model.JType;
 import info.isaksson.erland.javatoxmi.uml.JavaAnnotationProfileBuilder;
 import info.isaksson.erland.javatoxmi.uml.UmlIdStrategy;
+import info.isaksson.erland.javatoxmi.uml.UmlModelSource;
+import info.isaksson.erland.javatoxmi.uml.UmlSourceType;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -38,28 +40,34 @@ final class StereotypeApplicationInjector {
 
     private StereotypeApplicationInjector() {}
 
-    static String buildApplicationsXml(Model umlModel, JModel jModel, List<Profile> profiles) {
-        if (umlModel == null || jModel == null || profiles == null || profiles.isEmpty()) return "";
+    /**
+     * Collect the stereotype applications of {@code umlModel} in document order.
+     *
+     * @return a writer of their XML elements, or {@code null} when there are none
+     */
+    static StereotypeXmiInjector.Applications collectApplications(Model umlModel, UmlModelSource source, List<Profile> profiles,
+                                                                   UmlIdStrategy ids) {
+        if (umlModel == null || source == null || profiles == null || profiles.isEmpty()) return null;
 
         Map<String, StereotypeInfo> stereotypeByQualifiedName = indexStereotypesByQualifiedName(profiles);
         List<InjectedApplication> apps = new ArrayList<>();
 
         // 1) Java annotation stereotype applications (types)
-        List<JType> types = new ArrayList<>(jModel.types);
+        List<UmlSourceType> types = new ArrayList<>(source.types());
         types.sort((a, b) -> {
-            String aq = a == null ? "" : (a.qualifiedName != null ? a.qualifiedName : "");
-            String bq = b == null ? "" : (b.qualifiedName != null ? b.qualifiedName : "");
+            String aq = a == null ? "" : (a.qualifiedName() != null ? a.qualifiedName() : "");
+            String bq = b == null ? "" : (b.qualifiedName() != null ? b.qualifiedName() : "");
             return aq.compareTo(bq);
         });
 
-        for (JType t : types) {
+        for (UmlSourceType t : types) {
             if (t == null) continue;
-            if (t.annotations == null || t.annotations.isEmpty()) continue;
+            if (t.annotations() == null || t.annotations().isEmpty()) continue;
 
             // Base element id must match the xmi:id of the classifier created in UML builder.
-            String baseId = "_" + UmlIdStrategy.id("Classifier:" + t.qualifiedName);
+            String baseId = "_" + ids.id("Classifier:" + t.qualifiedName());
 
-            List<JAnnotationUse> anns = new ArrayList<>(t.annotations);
+            List<JAnnotationUse> anns = new ArrayList<>(t.annotations());
             anns.sort((a, b) -> {
                 String aq = a == null ? "" : (a.qualifiedName != null ? a.qualifiedName : (a.simpleName != null ? a.simpleName : ""));
                 String bq = b == null ? "" : (b.qualifiedName != null ? b.qualifiedName : (b.simpleName != null ? b.simpleName : ""));
@@ -77,7 +85,7 @@ final class StereotypeApplicationInjector {
                 }
                 if (stInfo == null) continue;
 
-                String appId = "_" + UmlIdStrategy.id("StereotypeApplication:" + stInfo.profileName + ":" + stInfo.name + "@" + baseId);
+                String appId = "_" + ids.id("StereotypeApplication:" + stInfo.profileName + ":" + stInfo.name + "@" + baseId);
 
                 InjectedApplication ia = new InjectedApplication();
                 ia.profilePrefix = stInfo.profileName;
@@ -99,13 +107,13 @@ final class StereotypeApplicationInjector {
         // 2) Tool tag stereotype applications (any UML Element with java-to-xmi:tags annotation)
         StereotypeInfo toolTags = stereotypeByQualifiedName.get("#" + JavaAnnotationProfileBuilder.TOOL_TAGS_STEREOTYPE);
         if (toolTags != null) {
-            apps.addAll(collectToolTagApplications(umlModel, toolTags));
+            apps.addAll(collectToolTagApplications(umlModel, toolTags, ids));
         }
 
         // 3) Runtime stereotype applications (any UML Element with java-to-xmi:runtime stereotype marker)
-        apps.addAll(collectRuntimeStereotypeApplications(umlModel, stereotypeByQualifiedName));
+        apps.addAll(collectRuntimeStereotypeApplications(umlModel, stereotypeByQualifiedName, ids));
 
-        if (apps.isEmpty()) return "";
+        if (apps.isEmpty()) return null;
 
         apps.sort((a, b) -> {
             int c = nullSafe(a.baseId).compareTo(nullSafe(b.baseId));
@@ -119,10 +127,10 @@ final class StereotypeApplicationInjector {
             return nullSafe(a.xmiId).compareTo(nullSafe(b.xmiId));
         });
 
-        return buildStereotypeApplications(apps);
+        return out -> writeStereotypeApplications(apps, out);
     }
 
-    private static List<InjectedApplication> collectToolTagApplications(Model umlModel, StereotypeInfo toolTags) {
+    private static List<InjectedApplication> collectToolTagApplications(Model umlModel, StereotypeInfo toolTags, UmlIdStrategy ids) {
         List<InjectedApplication> out = new ArrayList<>();
         if (umlModel == null || toolTags == null) return out;
 
@@ -150,7 +158,7 @@ final class StereotypeApplicationInjector {
             ia.stereotypeId = toolTags.id;
             ia.stereotypeName = toolTags.name;
 
-            ia.xmiId = "_" + UmlIdStrategy.id("StereotypeApplication:" + toolTags.profileName + ":" + toolTags.name + "@" + baseRaw);
+            ia.xmiId = "_" + ids.id("StereotypeApplication:" + toolTags.profileName + ":" + toolTags.name + "@" + baseRaw);
 
             // Copy only keys that exist as stereotype attributes to avoid unknown-attribute issues in some tools.
             for (String k : JavaAnnotationProfileBuilder.TOOL_TAG_KEYS) {
@@ -174,7 +182,8 @@ final class StereotypeApplicationInjector {
         return out;
     }
 
-    private static List<InjectedApplication> collectRuntimeStereotypeApplications(Model umlModel, Map<String, StereotypeInfo> stereotypeByQualifiedName) {
+    private static List<InjectedApplication> collectRuntimeStereotypeApplications(Model umlModel, Map<String, StereotypeInfo> stereotypeByQualifiedName,
+                                                                                  UmlIdStrategy ids) {
         List<InjectedApplication> out = new ArrayList<>();
         if (umlModel == null || stereotypeByQualifiedName == null || stereotypeByQualifiedName.isEmpty()) return out;
 
@@ -216,7 +225,7 @@ final class StereotypeApplicationInjector {
                 ia.stereotypeId = st.id;
                 ia.stereotypeName = st.name;
 
-                ia.xmiId = "_" + UmlIdStrategy.id("StereotypeApplication:" + st.profileName + ":" + st.name + "@" + baseRaw);
+                ia.xmiId = "_" + ids.id("StereotypeApplication:" + st.profileName + ":" + st.name + "@" + baseRaw);
 
                 out.add(ia);
             }
@@ -235,10 +244,10 @@ final class StereotypeApplicationInjector {
         return out;
     }
 
-    private static String basePropertyForType(JType t) {
+    private static String basePropertyForType(UmlSourceType t) {
         // Map to UML metaclass extension property names (keep original behavior).
-        if (t == null || t.kind == null) return "base_Class";
-        switch (t.kind) {
+        if (t == null || t.kind() == null) return "base_Class";
+        switch (t.kind()) {
             case INTERFACE:
                 return "base_Interface";
             case ENUM:
@@ -288,17 +297,18 @@ final class StereotypeApplicationInjector {
         return out;
     }
 
-    private static String buildStereotypeApplications(List<InjectedApplication> apps) {
-        StringBuilder sb = new StringBuilder();
+    private static void writeStereotypeApplications(List<InjectedApplication> apps, Writer out) throws IOException {
         for (InjectedApplication a : apps) {
             String prefix = (a.profilePrefix == null || a.profilePrefix.isBlank())
                     ? JavaAnnotationProfileBuilder.PROFILE_NAME
                     : a.profilePrefix;
 
-            sb.append("  <").append(XmiDomUtil.escapeAttr(prefix)).append(":").append(XmiDomUtil.escapeAttr(a.stereotypeName)).append(" xmi:id=\"")
-                    .append(XmiDomUtil.escapeAttr(a.xmiId)).append("\"");
-
-            sb.append(" ").append(XmiDomUtil.escapeAttr(a.baseProperty)).append("=\"").append(XmiDomUtil.escapeAttr(a.baseId)).append("\"");
+            out.write("  <");
+            out.write(XmiDomUtil.escapeAttr(prefix));
+            out.write(":");
+            out.write(XmiDomUtil.escapeAttr(a.stereotypeName));
+            attribute(out, "xmi:id", a.xmiId);
+            attribute(out, XmiDomUtil.escapeAttr(a.baseProperty), a.baseId);
 
             // Tag attributes (only for stereotypes that define them; tool tags / java annotations)
             if (a.tags != null && !a.tags.isEmpty()) {
@@ -307,13 +317,20 @@ final class StereotypeApplicationInjector {
                     if (k == null || k.isBlank()) continue;
                     String v = e.getValue();
                     if (v == null) continue;
-                    sb.append(" ").append(XmiDomUtil.escapeAttr(k)).append("=\"").append(XmiDomUtil.escapeAttr(v)).append("\"");
+                    attribute(out, XmiDomUtil.escapeAttr(k), v);
                 }
             }
 
-            sb.append("/>\n");
+            out.write("/>\n");
         }
-        return sb.toString();
+    }
+
+    private static void attribute(Writer out, String name, String value) throws IOException {
+        out.write(" ");
+        out.write(name);
+        out.write("=\"");
+        out.write(XmiDomUtil.escapeAttr(value));
+        out.write("\"");
     }
 
     private static String getAnnotatedIdOrDefault(org.eclipse.uml2.uml.Element el, String fallback) {
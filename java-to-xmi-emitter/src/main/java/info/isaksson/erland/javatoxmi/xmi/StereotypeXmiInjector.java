@@ -2,10 +2,16 @@ package info.isaksson.erland.javatoxmi.xmi;
 
 import org.eclipse.uml2.uml.Model;
 import org.eclipse.uml2.uml.Profile;
-import info.isaksson.erland.javatoxmi.model.JModel;
 import info.isaksson.erland.javatoxmi.uml.JavaAnnotationProfileBuilder;
+import info.isaksson.erland.javatoxmi.uml.UmlIdStrategy;
+import info.isaksson.erland.javatoxmi.uml.UmlModelSource;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Step 5 (recommended approach) — Apply stereotypes by injecting deterministic, UML2-style
@@ -14,21 +20,53 @@ import java.util.List;
  * <p>Originally this injector was hard-coded to a single profile (JavaAnnotations). It now supports
  * injecting applications for multiple profiles, including profiles materialized from IR
  * stereotypeDefinitions (v2 IR format).</p>
+ *
+ * <p>The injected fragments are computed from the model up front ({@link #plan}) and written by
+ * {@link XmiWrapperWriter} while the document streams out, rather than spliced into a finished string. The
+ * stereotype applications, the bulk of it, are only collected; their XML goes straight to the output.</p>
  */
 final class StereotypeXmiInjector {
 
+    /** Writes stereotype application elements, one per line. */
+    interface Applications {
+        Applications NONE = out -> {};
+
+        void writeTo(Writer out) throws IOException;
+    }
+
+    /** What gets injected into the document of one model. */
+    static final class Injection {
+        static final Injection NONE = new Injection(List.of(), "", Applications.NONE);
+
+        /** {@code xmlns:Prefix="uri"} declarations added to the {@code <xmi:XMI>} start tag, in order. */
+        final List<String> namespaceDeclarations;
+        /** profileApplication elements inserted right after the {@code <uml:Model ...>} start tag. */
+        final String profileApplications;
+        /** Stereotype applications written before {@code </xmi:XMI>}. */
+        final Applications applications;
+
+        Injection(List<String> namespaceDeclarations, String profileApplications, Applications applications) {
+            this.namespaceDeclarations = namespaceDeclarations;
+            this.profileApplications = profileApplications;
+            this.applications = applications;
+        }
+    }
+
     private StereotypeXmiInjector() {}
 
-    static String inject(Model umlModel, JModel jModel, String xmiWrappedXml) {
-        if (umlModel == null || jModel == null) return xmiWrappedXml;
+    static Injection plan(Model umlModel, UmlModelSource source, UmlIdStrategy ids) {
+        if (umlModel == null || source == null) return Injection.NONE;
 
         List<Profile> profiles = ProfileApplicationInjector.findAllProfiles(umlModel);
-        if (profiles.isEmpty()) return xmiWrappedXml;
+        if (profiles.isEmpty()) return Injection.NONE;
 
-        String appsXml = StereotypeApplicationInjector.buildApplicationsXml(umlModel, jModel, profiles);
-        if (appsXml == null || appsXml.isBlank()) return xmiWrappedXml;
+        Applications applications = StereotypeApplicationInjector.collectApplications(umlModel, source, profiles, ids);
+        if (applications == null) return Injection.NONE;
 
         // Ensure each profile prefix namespace is declared and each profile has a profileApplication.
+        List<String> declarations = new ArrayList<>();
+        StringBuilder profileApplications = new StringBuilder();
+        Set<String> profileIds = new HashSet<>();
         for (Profile p : profiles) {
             if (p == null) continue;
             String prefix = p.getName();
@@ -37,11 +75,17 @@ final class StereotypeXmiInjector {
             String uri = profileUri(p);
             if (uri == null || uri.isBlank()) continue;
 
-            xmiWrappedXml = ProfileApplicationInjector.ensureProfileNamespaceDeclared(xmiWrappedXml, prefix, uri);
-            xmiWrappedXml = ProfileApplicationInjector.ensureProfileApplicationPresent(xmiWrappedXml, p);
+            String decl = "xmlns:" + prefix + "=\"" + uri + "\"";
+            if (!XmiWrapperWriter.WRAPPER_START.contains(decl) && !declarations.contains(decl)) {
+                declarations.add(decl);
+            }
+            String profileId = ProfileApplicationInjector.profileId(p, ids);
+            if (profileIds.add(profileId)) {
+                // Each one goes right after the model start tag, ahead of the ones before it.
+                profileApplications.insert(0, ProfileApplicationInjector.profileApplicationXml(profileId, ids));
+            }
         }
-
-        return XmiDomUtil.injectBeforeClosingXmi(xmiWrappedXml, appsXml);
+        return new Injection(List.copyOf(declarations), profileApplications.toString(), applications);
     }
 
     private static String profileUri(Profile p) {
@@ -1,22 +1,14 @@
 package info.isaksson.erland.javatoxmi.xmi;
 
 /**
- * Small utilities for post-processing serialized XMI as text.
+ * Small utilities for the XMI fragments this tool writes as text.
  *
- * <p>We keep this deliberately dumb (string-based) to avoid pulling in a DOM parser.
- * The injection points are simple and deterministic in the XMI produced by this tool.</p>
+ * <p>We keep this deliberately dumb (string-based) to avoid pulling in a DOM parser.</p>
  */
 final class XmiDomUtil {
 
     private XmiDomUtil() {}
 
-    static String injectBeforeClosingXmi(String xml, String extension) {
-        if (xml == null || extension == null || extension.isEmpty()) return xml;
-        int closeIdx = xml.lastIndexOf("</xmi:XMI>");
-        if (closeIdx < 0) return xml;
-        return xml.substring(0, closeIdx) + extension + xml.substring(closeIdx);
-    }
-
     static String escapeAttr(String s) {
         if (s == null) return "";
         StringBuilder out = new StringBuilder(s.length() + 16);
@@ -0,0 +1,146 @@
+package info.isaksson.erland.javatoxmi.xmi;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Turns the serialized {@code <uml:Model>} document into the wrapped {@code <xmi:XMI>} document while it streams
+ * through, with constant extra memory.
+ *
+ * <p>Whatever is written here (EMF's XMI save) loses its XML declaration and leading
+ * whitespace; every non-empty line is indented by two spaces and empty lines are dropped. Like
+ * {@code String.split("\\R")}, lines also break at NEL and the Unicode line/paragraph separators, which EMF writes
+ * unescaped. The {@link StereotypeXmiInjector.Injection} goes in on the way: namespace declarations in the wrapper
+ * start tag, profileApplications right after the model start tag, stereotype applications before the end.</p>
+ *
+ * <p>{@link #finish()} completes the document; neither it nor {@link #close()} closes the underlying writer.</p>
+ */
+final class XmiWrapperWriter extends Writer {
+
+    static final String WRAPPER_START = "<xmi:XMI xmi:version=\"2.1\" xmlns:xmi=\"http://schema.omg.org/spec/XMI/2.1\" "
+            + "xmlns:uml=\"http://www.eclipse.org/uml2/3.0.0/UML\" ";
+
+    private static final int START = 0;
+    private static final int START_LT = 1;
+    private static final int DECLARATION = 2;
+    private static final int LEADING = 3;
+    private static final int BODY = 4;
+
+    private final Writer out;
+    private final StereotypeXmiInjector.Injection injection;
+    private int state = START;
+    private char last;
+    private boolean lineOpen;
+    private boolean rootStartTagSeen;
+    private boolean finished;
+
+    XmiWrapperWriter(Writer out, StereotypeXmiInjector.Injection injection) throws IOException {
+        this.out = out;
+        this.injection = injection;
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write(WRAPPER_START);
+        for (String decl : injection.namespaceDeclarations) {
+            out.write(" ");
+            out.write(decl);
+        }
+        out.write(">\n");
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        int end = off + len;
+        int i = off;
+        while (i < end && state != BODY) {
+            char c = cbuf[i++];
+            switch (state) {
+                case START:
+                    if (c == '<') {
+                        state = START_LT;
+                    } else {
+                        state = LEADING;
+                        i--;
+                    }
+                    break;
+                case START_LT:
+                    if (c == '?') {
+                        state = DECLARATION;
+                    } else {
+                        state = BODY;
+                        body(new char[] {'<'}, 0, 1);
+                        i--;
+                    }
+                    break;
+                case DECLARATION:
+                    if (c == '>' && last == '?') state = LEADING;
+                    last = c;
+                    break;
+                default: // LEADING
+                    if (!Character.isWhitespace(c)) {
+                        state = BODY;
+                        i--;
+                    }
+                    break;
+            }
+        }
+        if (i < end) body(cbuf, i, end);
+    }
+
+    private void body(char[] cbuf, int from, int end) throws IOException {
+        int start = from;
+        for (int i = from; i < end; i++) {
+            char c = cbuf[i];
+            if (isLineBreak(c)) {
+                segment(cbuf, start, i);
+                endLine();
+                start = i + 1;
+            } else if (c == '>' && !rootStartTagSeen) {
+                segment(cbuf, start, i + 1);
+                start = i + 1;
+                rootStartTagSeen = true;
+                out.write(injection.profileApplications);
+            }
+        }
+        segment(cbuf, start, end);
+    }
+
+    private void segment(char[] cbuf, int from, int to) throws IOException {
+        if (from == to) return;
+        if (!lineOpen) {
+            out.write("  ");
+            lineOpen = true;
+        }
+        out.write(cbuf, from, to - from);
+    }
+
+    private void endLine() throws IOException {
+        if (lineOpen) {
+            out.write('\n');
+            lineOpen = false;
+        }
+    }
+
+    private static boolean isLineBreak(char c) {
+        return (c >= '\n' && c <= '\r') || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /** Ends the last line and writes the stereotype applications and the closing tag. */
+    void finish() throws IOException {
+        if (finished) return;
+        finished = true;
+        if (state == START_LT) body(new char[] {'<'}, 0, 1);
+        endLine();
+        injection.applications.writeTo(out);
+        out.write("</xmi:XMI>\n");
+        out.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+}
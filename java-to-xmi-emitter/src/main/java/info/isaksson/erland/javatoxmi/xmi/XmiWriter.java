@@ -1,53 +1,87 @@
 package info.isaksson.erland.javatoxmi.xmi;
 
-import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EAnnotation;
 import org.eclipse.emf.ecore.EObject;
-import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMIResource;
 import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIHelperImpl;
 import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMISaveImpl;
 import org.eclipse.uml2.uml.Model;
 import org.eclipse.uml2.uml.NamedElement;
 import org.eclipse.uml2.uml.UMLPackage;
 import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.uml.IdHashMode;
+import info.isaksson.erland.javatoxmi.uml.UmlIdStrategy;
+import info.isaksson.erland.javatoxmi.uml.UmlIdTable;
+import info.isaksson.erland.javatoxmi.uml.UmlModelSource;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
 
 /**
  * Step 5 — XMI export (UML2/EMF serialization) + determinism hardening.
  *
- * Writes a UML2 {@link Model} to an .xmi file using EMF resource serialization.
+ * Writes a UML2 {@link Model} to an .xmi file using EMF resource serialization. The output streams through
+ * {@link XmiWrapperWriter}; no full-document string is built for file or stream targets.
  *
  * Determinism:
- * - We assign deterministic xmi:ids before saving, based on the EAnnotation created in Step 4.
+ * - We assign deterministic xmi:ids before saving, based on the ids registered in the model's
+ *   {@link UmlIdTable} at element creation, or else the EAnnotation created in Step 4.
  * - For elements that lack an annotation, we fall back to a stable hash of their containment path.
+ *
+ * Hashed ids (fallbacks, sanitized-id suffixes, injected stereotype applications) use the {@link UmlIdStrategy}
+ * passed in, which should be the one the model was built with; overloads without one use
+ * {@link IdHashMode#COMPATIBLE}.
  */
 public final class XmiWriter {
 
     private static final String ID_ANNOTATION_SOURCE = "java-to-xmi:id";
     private static final String ID_ANNOTATION_KEY = "id";
 
+    /** Dummy resource URI the model is saved under (we don't write to it); hrefs are deresolved against it. */
+    private static final URI RESOURCE_URI = URI.createURI("memory:/model.xmi");
+
+    /** Characters EMF's save buffer holds in memory before spilling to a temporary file (stream/file targets). */
+    static final int EMF_FLUSH_THRESHOLD = 1 << 20;
+
     private XmiWriter() {}
 
     public static void write(Model umlModel, Path outFile) throws IOException {
-        write(umlModel, null, outFile);
+        write(umlModel, (JModel) null, outFile);
     }
 
     /**
      * Write XMI and (optionally) inject stereotype applications based on the extracted {@link JModel}.
      */
     public static void write(Model umlModel, JModel jModel, Path outFile) throws IOException {
+        write(umlModel, UmlModelSource.of(jModel), outFile);
+    }
+
+    /** {@link #write(Model, JModel, Path)} with stereotype applications from any {@link UmlModelSource}. */
+    public static void write(Model umlModel, UmlModelSource source, Path outFile) throws IOException {
+        write(umlModel, source, compatibleIds(), outFile);
+    }
+
+    /** {@link #write(Model, UmlModelSource, Path)} hashing ids with {@code ids}. */
+    public static void write(Model umlModel, UmlModelSource source, UmlIdStrategy ids, Path outFile) throws IOException {
         if (umlModel == null) {
             throw new IllegalArgumentException("umlModel must not be null");
         }
@@ -60,8 +94,37 @@ public final class XmiWriter {
             Files.createDirectories(parent);
         }
 
-        String wrapped = writeToString(umlModel, jModel);
-        Files.writeString(outFile, wrapped, StandardCharsets.UTF_8);
+        try (Writer w = Files.newBufferedWriter(outFile, StandardCharsets.UTF_8)) {
+            write(umlModel, source, ids, w, true);
+        }
+    }
+
+    /**
+     * Write XMI (UTF-8) to {@code out}. The stream is flushed, not closed.
+     *
+     * <p>The document streams out as it is produced: EMF's save buffer spills to a temporary file beyond
+     * {@link #EMF_FLUSH_THRESHOLD} characters.</p>
+     */
+    public static void write(Model umlModel, JModel jModel, OutputStream out) throws IOException {
+        write(umlModel, UmlModelSource.of(jModel), out);
+    }
+
+    /** {@link #write(Model, JModel, OutputStream)} with stereotype applications from any {@link UmlModelSource}. */
+    public static void write(Model umlModel, UmlModelSource source, OutputStream out) throws IOException {
+        write(umlModel, source, compatibleIds(), out);
+    }
+
+    /** {@link #write(Model, UmlModelSource, OutputStream)} hashing ids with {@code ids}. */
+    public static void write(Model umlModel, UmlModelSource source, UmlIdStrategy ids, OutputStream out) throws IOException {
+        if (umlModel == null) {
+            throw new IllegalArgumentException("umlModel must not be null");
+        }
+        if (out == null) {
+            throw new IllegalArgumentException("out must not be null");
+        }
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        write(umlModel, source, ids, w, true);
+        w.flush();
     }
 
     /**
@@ -71,10 +134,31 @@ public final class XmiWriter {
      * writing to disk.</p>
      */
     public static String writeToString(Model umlModel, JModel jModel) throws IOException {
+        return writeToString(umlModel, UmlModelSource.of(jModel));
+    }
+
+    /** {@link #writeToString(Model, JModel)} with stereotype applications from any {@link UmlModelSource}. */
+    public static String writeToString(Model umlModel, UmlModelSource source) throws IOException {
+        return writeToString(umlModel, source, compatibleIds());
+    }
+
+    /** {@link #writeToString(Model, UmlModelSource)} hashing ids with {@code ids}. */
+    public static String writeToString(Model umlModel, UmlModelSource source, UmlIdStrategy ids) throws IOException {
         if (umlModel == null) {
             throw new IllegalArgumentException("umlModel must not be null");
         }
+        StringWriter w = new StringWriter();
+        write(umlModel, source, ids, w, false);
+        return w.toString();
+    }
 
+    /**
+     * Always produce a wrapped {@code <xmi:XMI>} document for maximum tool compatibility; {@link XmiWrapperWriter}
+     * adds the wrapper and the stereotype injection while the serialized model streams through it.
+     */
+    private static void write(Model umlModel, UmlModelSource source, UmlIdStrategy ids, Writer out, boolean bounded)
+            throws IOException {
+        Objects.requireNonNull(ids, "ids");
         // Ensure UML package is initialized
         UMLPackage.eINSTANCE.eClass();
 
@@ -82,88 +166,124 @@ public final class XmiWriter {
         // Register UML in the package registry
         resourceSet.getPackageRegistry().put(UMLPackage.eNS_URI, UMLPackage.eINSTANCE);
 
-        // Use a dummy URI (we won't write to disk).
-        URI uri = URI.createURI("memory:/model.xmi");
-        Resource resource = new XMIResourceImpl(uri);
+        XMIResource resource = new XMIResourceImpl(RESOURCE_URI);
         resource.getContents().add(umlModel);
 
         // Deterministic IDs: set explicit xmi:ids on the resource before save.
-        if (resource instanceof XMLResource) {
-            assignDeterministicIds((XMLResource) resource, umlModel);
-        }
+        computeIds(umlModel, ids, resource::setID);
 
         Map<String, Object> options = new HashMap<String, Object>();
         options.put(XMLResource.OPTION_ENCODING, "UTF-8");
         options.put(XMLResource.OPTION_FORMATTED, Boolean.TRUE);
         options.put(XMLResource.OPTION_SAVE_TYPE_INFORMATION, Boolean.FALSE);
         options.put(XMLResource.OPTION_SCHEMA_LOCATION, Boolean.FALSE);
+        if (bounded) {
+            // EMF builds the whole document in memory before writing it; let it spill to a temporary file instead.
+            options.put(XMLResource.OPTION_FLUSH_THRESHOLD, EMF_FLUSH_THRESHOLD);
+            options.put(XMLResource.OPTION_USE_FILE_BUFFER, Boolean.TRUE);
+        }
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        resource.save(baos, options);
-        String xml = baos.toString(StandardCharsets.UTF_8);
-
-        // Always produce a wrapped <xmi:XMI> document for maximum tool compatibility.
-        String wrapped = ensureXmiWrapper(xml);
+        XmiWrapperWriter wrapped = new XmiWrapperWriter(out, StereotypeXmiInjector.plan(umlModel, source, ids));
+        new XMISaveImpl(new XMIHelperImpl(resource)).save(resource, wrapped, options);
+        wrapped.finish();
+    }
 
-        if (jModel != null) {
-            wrapped = StereotypeXmiInjector.inject(umlModel, jModel, wrapped);
-        }
-        return wrapped;
+    /**
+     * Compare the xmi:ids this writer assigns with the legacy assignment (annotations read back from every element,
+     * fallback paths rebuilt with {@code indexOf} per ancestor). For a model with a {@link UmlIdTable}, UML elements
+     * the builders did not register at creation are reported as well.
+     *
+     * @return one line per differing element, empty when both agree
+     */
+    public static List<String> verifyDeterministicIds(Model umlModel) {
+        return verifyDeterministicIds(umlModel, compatibleIds());
     }
 
-    private static String ensureXmiWrapper(String xml) {
-        String trimmed = xml.trim();
-        if (trimmed.startsWith("<xmi:XMI") || trimmed.contains("<xmi:XMI")) {
-            // Already wrapped. Do not force-add any extra namespaces here; the stereotype injector
-            // will add the j2x namespace only when it actually injects stereotype applications.
-            return xml;
+    /** {@link #verifyDeterministicIds(Model)} hashing ids with {@code ids}. */
+    public static List<String> verifyDeterministicIds(Model umlModel, UmlIdStrategy ids) {
+        if (umlModel == null) {
+            throw new IllegalArgumentException("umlModel must not be null");
         }
-
-        // Strip XML declaration if present
-        String inner = xml;
-        if (inner.startsWith("<?xml")) {
-            int idx = inner.indexOf("?>");
-            if (idx >= 0) {
-                inner = inner.substring(idx + 2);
+        Map<EObject, String> current = new LinkedHashMap<>();
+        computeIds(umlModel, ids, current::put);
+
+        List<String> diffs = new ArrayList<>();
+        UmlIdTable table = UmlIdTable.find(umlModel);
+        List<EObject> all = new ArrayList<>();
+        all.add(umlModel);
+        umlModel.eAllContents().forEachRemaining(all::add);
+        for (EObject obj : all) {
+            String raw = idFromAnnotationOrFallback(obj, ids);
+            String legacy = raw == null || raw.trim().isEmpty() ? null : sanitizeXmiId(raw, ids);
+            String now = current.remove(obj);
+            if (!Objects.equals(legacy, now)) {
+                diffs.add(stablePath(obj) + ": legacy=" + legacy + " current=" + now);
+            } else if (table != null && obj instanceof org.eclipse.uml2.uml.Element && table.rawId(obj) == null) {
+                diffs.add(stablePath(obj) + ": not registered, current=" + now);
             }
         }
-        inner = inner.stripLeading();
-        StringBuilder wrapped = new StringBuilder();
-        wrapped.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-        wrapped.append("<xmi:XMI xmi:version=\"2.1\" xmlns:xmi=\"http://schema.omg.org/spec/XMI/2.1\" ");
-        wrapped.append("xmlns:uml=\"http://www.eclipse.org/uml2/3.0.0/UML\" ");
-        wrapped.append(">\n");
-        // indent inner document for readability
-        for (String line : inner.split("\\R", -1)) {
-            if (line.isEmpty()) continue;
-            wrapped.append("  ").append(line).append("\n");
+        for (Map.Entry<EObject, String> e : current.entrySet()) {
+            diffs.add(stablePath(e.getKey()) + ": legacy=null current=" + e.getValue());
         }
-        wrapped.append("</xmi:XMI>\n");
-        return wrapped.toString();
+        return diffs;
     }
 
+    /**
+     * {@link #verifyDeterministicIds(Model)} for callers that must not write a document with differing ids.
+     *
+     * @throws IllegalStateException naming up to five differing elements
+     */
+    public static void requireDeterministicIds(Model umlModel) {
+        requireDeterministicIds(umlModel, compatibleIds());
+    }
 
-    private static void assignDeterministicIds(XMLResource resource, Model umlModel) {
-        // Root first
-        setId(resource, umlModel, idFromAnnotationOrFallback(umlModel));
-
-        // Then all contents in stable traversal order (EMF eAllContents is stable given stable containment).
-        TreeIterator<EObject> it = umlModel.eAllContents();
-        while (it.hasNext()) {
-            EObject obj = it.next();
-            String id = idFromAnnotationOrFallback(obj);
-            setId(resource, obj, id);
+    /** {@link #requireDeterministicIds(Model)} hashing ids with {@code ids}. */
+    public static void requireDeterministicIds(Model umlModel, UmlIdStrategy ids) {
+        List<String> diffs = verifyDeterministicIds(umlModel, ids);
+        if (!diffs.isEmpty()) {
+            throw new IllegalStateException("xmi:id verification failed for " + diffs.size() + " element(s), e.g. "
+                    + String.join("; ", diffs.subList(0, Math.min(5, diffs.size()))));
         }
     }
 
-    private static void setId(XMLResource resource, EObject obj, String rawId) {
-        if (rawId == null || rawId.trim().isEmpty()) {
-            return;
+    private static UmlIdStrategy compatibleIds() {
+        return UmlIdStrategy.of(IdHashMode.COMPATIBLE);
+    }
+
+    /**
+     * Assign ids root first, then all contents in stable (pre-order containment) traversal order.
+     *
+     * <p>Ids come from the model's {@link UmlIdTable} when the element was registered at creation, else from
+     * its id annotation, else from a hash of the containment path. Paths are kept as a stack of segments during
+     * the walk, so sibling indexes are counted rather than searched for.</p>
+     */
+    private static void computeIds(Model umlModel, UmlIdStrategy ids, BiConsumer<EObject, String> sink) {
+        UmlIdTable table = UmlIdTable.find(umlModel);
+        List<String> segments = new ArrayList<>();
+        visit(umlModel, -1, table, ids, segments, sink);
+    }
+
+    private static void visit(EObject obj, int idx, UmlIdTable table, UmlIdStrategy ids, List<String> segments,
+                              BiConsumer<EObject, String> sink) {
+        segments.add(segment(obj, idx));
+
+        String raw = table == null ? null : table.rawId(obj);
+        if (raw != null) {
+            raw = raw.trim();
         }
-        // Ensure valid XML ID token. XMI ids must be valid XML IDs (Name tokens) and must not
-        // contain characters like '<' or '>' (e.g. generics in type names). Keep determinism.
-        String id = sanitizeXmiId(rawId);
-        resource.setID(obj, id);
+        if (raw == null || raw.isEmpty()) {
+            raw = getAnnotatedId(obj);
+        }
+        if (raw == null || raw.isEmpty()) {
+            raw = ids.shortId(String.join("/", segments));
+        }
+        sink.accept(obj, sanitizeXmiId(raw, ids));
+
+        int i = 0;
+        for (EObject child : obj.eContents()) {
+            visit(child, i++, table, ids, segments, sink);
+        }
+        segments.remove(segments.size() - 1);
     }
 
     /**
@@ -174,17 +294,18 @@ public final class XmiWriter {
      * else with '_'. When sanitization changes the id, we append a short stable hash suffix to
      * minimize collisions.</p>
      */
-    private static String sanitizeXmiId(String raw) {
+    private static String sanitizeXmiId(String raw, UmlIdStrategy ids) {
         String base = raw == null ? "" : raw.trim();
         if (base.isEmpty()) {
-            return "_" + shortSha256Hex("empty");
+            return "_" + ids.shortId("empty");
         }
 
-        // Replace any illegal chars (including '<', '>', spaces, quotes, etc.).
-        String sanitized = base.replaceAll("[^A-Za-z0-9_.:-]", "_");
+        // Replace any illegal chars (including '<', '>', spaces, quotes, etc.), one '_' per code point.
+        String sanitized = replaceIllegalIdChars(base);
 
         // XML Name must start with a letter or underscore (we choose underscore).
-        if (!sanitized.matches("^[A-Za-z_].*")) {
+        char first = sanitized.charAt(0);
+        if (!(isAsciiLetter(first) || first == '_')) {
             sanitized = "_" + sanitized;
         }
 
@@ -198,7 +319,7 @@ public final class XmiWriter {
 
         // If we changed the string (or truncated), append a short stable suffix to reduce collisions.
         if (!sanitized.equals(base) || truncated) {
-            String h = shortSha256Hex(base);
+            String h = ids.shortId(base);
             String suffix = h.length() > 10 ? h.substring(0, 10) : h;
             // Avoid exceeding max length too much.
             int room = Math.max(0, maxLen - sanitized.length());
@@ -217,7 +338,35 @@ public final class XmiWriter {
         return sanitized;
     }
 
-    private static String idFromAnnotationOrFallback(EObject obj) {
+    private static String replaceIllegalIdChars(String s) {
+        int n = s.length();
+        int i = 0;
+        while (i < n && isIdChar(s.charAt(i))) i++;
+        if (i == n) return s;
+
+        StringBuilder sb = new StringBuilder(n).append(s, 0, i);
+        while (i < n) {
+            char c = s.charAt(i);
+            if (isIdChar(c)) {
+                sb.append(c);
+                i++;
+            } else {
+                sb.append('_');
+                i += Character.charCount(s.codePointAt(i));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isIdChar(char c) {
+        return isAsciiLetter(c) || (c >= '0' && c <= '9') || c == '_' || c == '.' || c == ':' || c == '-';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static String idFromAnnotationOrFallback(EObject obj, UmlIdStrategy ids) {
         String ann = getAnnotatedId(obj);
         if (ann != null && !ann.trim().isEmpty()) {
             return ann;
@@ -227,7 +376,7 @@ public final class XmiWriter {
         // when containment changes (e.g. nested types). Using only the containment path keeps
         // the fallback deterministic for a given containment structure.
         String basis = stablePath(obj);
-        return shortSha256Hex(basis);
+        return ids.shortId(basis);
     }
 
     private static String getAnnotatedId(EObject obj) {
@@ -258,12 +407,6 @@ public final class XmiWriter {
     }
 
     private static String segment(EObject obj) {
-        String cls = obj.eClass().getName();
-        String name = null;
-        if (obj instanceof NamedElement) {
-            name = ((NamedElement) obj).getName();
-        }
-
         int idx = -1;
         EObject parent = obj.eContainer();
         if (parent != null) {
@@ -273,29 +416,19 @@ public final class XmiWriter {
                 idx = -1;
             }
         }
+        return segment(obj, idx);
+    }
+
+    private static String segment(EObject obj, int idx) {
+        String cls = obj.eClass().getName();
+        String name = null;
+        if (obj instanceof NamedElement) {
+            name = ((NamedElement) obj).getName();
+        }
 
         if (name != null && name.trim().length() > 0) {
             return cls + ":" + name.trim() + "#" + idx;
         }
         return cls + "#" + idx;
     }
-
-    private static String shortSha256Hex(String s) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] dig = md.digest(s.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < dig.length; i++) {
-                int b = dig[i] & 0xff;
-                String hx = Integer.toHexString(b);
-                if (hx.length() == 1) sb.append('0');
-                sb.append(hx);
-            }
-            // 24 hex chars to reduce collision risk while keeping IDs short.
-            return sb.substring(0, 24);
-        } catch (NoSuchAlgorithmException e) {
-            // Should never happen
-            return Integer.toHexString(s.hashCode());
-        }
-    }
 }
@@ -0,0 +1,139 @@
+package info.isaksson.erland.javatoxmi.emitter;
+
+import info.isaksson.erland.javatoxmi.ir.IrAttribute;
+import info.isaksson.erland.javatoxmi.ir.IrClassifier;
+import info.isaksson.erland.javatoxmi.ir.IrClassifierKind;
+import info.isaksson.erland.javatoxmi.ir.IrJson;
+import info.isaksson.erland.javatoxmi.ir.IrModel;
+import info.isaksson.erland.javatoxmi.ir.IrNormalizer;
+import info.isaksson.erland.javatoxmi.ir.IrOperation;
+import info.isaksson.erland.javatoxmi.ir.IrParameter;
+import info.isaksson.erland.javatoxmi.ir.IrRelation;
+import info.isaksson.erland.javatoxmi.ir.IrRelationKind;
+import info.isaksson.erland.javatoxmi.ir.IrTypeRef;
+import info.isaksson.erland.javatoxmi.ir.IrVisibility;
+import info.isaksson.erland.javatoxmi.model.TypeRefKind;
+import info.isaksson.erland.javatoxmi.uml.UmlSourceField;
+import info.isaksson.erland.javatoxmi.uml.UmlSourceMethod;
+import info.isaksson.erland.javatoxmi.uml.UmlSourceRuntimeRelation;
+import info.isaksson.erland.javatoxmi.uml.UmlSourceType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IrModelSourceTest {
+
+    @Test
+    void rendersIrTypesOnceIntoStringAndStructuredForm() {
+        IrTypeRef b = IrTypeRef.named("a.B");
+        IrTypeRef map = IrTypeRef.generic("java.util.Map",
+                List.of(IrTypeRef.named("java.lang.String"), IrTypeRef.generic("java.util.List", List.of(b))));
+        List<IrAttribute> attributes = List.of(
+                attribute("byName", map),
+                attribute("grid", IrTypeRef.arrayOf(IrTypeRef.arrayOf(b))),
+                attribute("either", IrTypeRef.union(List.of(b, IrTypeRef.named("string")))));
+        IrOperation find = new IrOperation("op:find", "find", IrVisibility.PUBLIC, false, false, false, map,
+                List.of(new IrParameter("keys", IrTypeRef.generic("java.util.Set", List.of(b)), null)),
+                null, null, null, null);
+        IrModel ir = new IrModel("2.0", null, List.of(
+                classifier("c:A", "a.A", attributes, List.of(find)),
+                classifier("c:B", "a.B", null, null)), List.of(
+                new IrRelation("r:1", IrRelationKind.ASSOCIATION, "c:A", "c:B", "owner", null, null, null, null)), null);
+
+        IrModelSource source = IrModelSource.of(ir, EmitterOptions.defaults("m"));
+        assertEquals(List.of("a.A", "a.B"), source.types().stream().map(t -> t.qualifiedName()).collect(Collectors.toList()));
+        UmlSourceType a = source.types().get(0);
+        assertEquals("a", a.packageName());
+
+        Map<String, UmlSourceField> fields = a.fields().stream().collect(Collectors.toMap(f -> f.name(), Function.identity()));
+        assertEquals("java.util.Map<java.lang.String, java.util.List<a.B>>", fields.get("byName").type());
+        assertEquals(TypeRefKind.PARAM, fields.get("byName").typeRef().kind());
+        assertEquals("java.util.List<a.B>", fields.get("byName").typeRef().args().get(1).raw());
+        assertEquals("a.B[][]", fields.get("grid").type());
+        assertEquals(2, fields.get("grid").typeRef().arrayDims());
+        assertEquals("a.B", fields.get("either").type());
+        for (UmlSourceField f : List.of(fields.get("byName"), fields.get("grid"), fields.get("either"))) {
+            assertEquals(f.type(), f.typeRef().raw(), f.name());
+        }
+        // Association relations become association ends among the fields, without a structured type.
+        assertEquals("a.B", fields.get("owner").type());
+        assertNull(fields.get("owner").typeRef());
+
+        UmlSourceMethod m = a.methods().get(0);
+        assertEquals(fields.get("byName").type(), m.returnType());
+        assertEquals(m.returnType(), m.returnTypeRef().raw());
+        assertEquals("java.util.Set<a.B>", m.params().get(0).type());
+        assertNull(m.params().get(0).typeRef());
+    }
+
+    @Test
+    void spilledRelationsGiveTheSameSourceAsRelationsSortedInMemory() throws Exception {
+        Map<String, IrModel> models = new LinkedHashMap<>();
+        for (String name : List.of("java-mini.json", "angular-mini.json", "react-mini.json")) {
+            models.put(name, IrJson.read(Path.of("src/test/resources/ir/golden/" + name)));
+        }
+        // Many relations between a few classifiers, with repeated keys whose order decides the synthetic fields.
+        List<IrClassifier> classifiers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) classifiers.add(classifier("c:" + i, "p.C" + i, null, null));
+        List<IrRelation> relations = new ArrayList<>();
+        IrRelationKind[] kinds = {IrRelationKind.GENERALIZATION, IrRelationKind.REALIZATION,
+                IrRelationKind.ASSOCIATION, IrRelationKind.DEPENDENCY};
+        for (int i = 0; i < 200; i++) {
+            relations.add(new IrRelation("r:" + (i % 7), kinds[i % 4], "c:" + (i % 5), "c:" + (i * 3 % 5),
+                    i % 3 == 0 ? null : "n" + (i % 2), null, null, null, null));
+        }
+        models.put("synthetic", new IrModel("2.0", null, null, classifiers, relations, null));
+
+        for (Map.Entry<String, IrModel> e : models.entrySet()) {
+            String name = e.getKey();
+            IrModel ir = IrNormalizer.normalize(e.getValue());
+            EmitterOptions options = EmitterOptions.defaults(name);
+            String expected = describe(IrModelSource.of(ir, options));
+
+            // Relations arrive in reverse, two per run on disk.
+            List<IrRelation> reversed = new ArrayList<>(ir.relations);
+            Collections.reverse(reversed);
+            try (IrModelSource.Builder b = new IrModelSource.Builder(options, 2)) {
+                for (IrClassifier c : ir.classifiers) b.addClassifier(c);
+                for (IrRelation r : reversed) b.addRelation(r);
+                assertEquals(reversed.size() / 2, b.spilledRelationRuns(), name);
+                assertEquals(expected, describe(b.build(ir.packages)), name);
+            }
+        }
+    }
+
+    /** What the relations pass contributes to the source types. */
+    private static String describe(IrModelSource source) {
+        StringBuilder sb = new StringBuilder();
+        for (UmlSourceType t : source.types()) {
+            sb.append(t.qualifiedName()).append(" extends ").append(t.extendsType())
+                    .append(" implements ").append(t.implementsTypes())
+                    .append(" deps ").append(t.methodBodyTypeDependencies()).append('\n');
+            for (UmlSourceField f : t.fields()) sb.append("  ").append(f.name()).append(':').append(f.type()).append('\n');
+        }
+        for (UmlSourceRuntimeRelation r : source.runtimeRelations()) {
+            sb.append(r.id()).append(' ').append(r.sourceQualifiedName()).append(" -> ").append(r.targetQualifiedName())
+                    .append(' ').append(r.stereotype()).append(' ').append(new TreeMap<>(r.tags())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static IrAttribute attribute(String name, IrTypeRef type) {
+        return new IrAttribute("attr:" + name, name, IrVisibility.PRIVATE, false, false, type, null, null, null, null);
+    }
+
+    private static IrClassifier classifier(String id, String qn, List<IrAttribute> attributes, List<IrOperation> operations) {
+        return new IrClassifier(id, qn.substring(qn.lastIndexOf('.') + 1), qn, null, IrClassifierKind.CLASS,
+                IrVisibility.PUBLIC, attributes, operations, null, null, null, null);
+    }
+}
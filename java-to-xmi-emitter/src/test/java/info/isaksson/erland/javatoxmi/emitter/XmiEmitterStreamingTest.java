@@ -0,0 +1,107 @@
+package info.isaksson.erland.javatoxmi.emitter;
+
+import info.isaksson.erland.javatoxmi.ir.IrClassifier;
+import info.isaksson.erland.javatoxmi.ir.IrJson;
+import info.isaksson.erland.javatoxmi.ir.IrModel;
+import info.isaksson.erland.javatoxmi.ir.IrNdjson;
+import info.isaksson.erland.javatoxmi.ir.IrPackage;
+import info.isaksson.erland.javatoxmi.ir.IrRelation;
+import info.isaksson.erland.javatoxmi.ir.IrStereotypeDefinition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Emitting straight from an IR stream or shard directory must produce the same XMI as emitting from the parsed model. */
+public class XmiEmitterStreamingTest {
+
+    @Test
+    void streamedIrMatchesModelEmission_forGoldenIrFixtures() throws Exception {
+        for (String name : List.of("java-mini.json", "angular-mini.json", "react-mini.json")) {
+            IrModel ir = IrJson.read(Path.of("src/test/resources/ir/golden/" + name));
+            for (boolean stereotypes : List.of(false, true)) {
+                EmitterOptions options = EmitterOptions.defaults(name).withStereotypes(stereotypes);
+                assertStreamMatches(ir, IrJson.toJsonString(ir), options, name + " (stereotypes=" + stereotypes + ")");
+
+                // Document order must not matter: the emitter normalizes what it streams.
+                List<IrClassifier> classifiers = new ArrayList<>(ir.classifiers);
+                List<IrRelation> relations = new ArrayList<>(ir.relations);
+                Collections.reverse(classifiers);
+                Collections.reverse(relations);
+                IrModel reversed = new IrModel(ir.schemaVersion, ir.stereotypeDefinitions, ir.packages,
+                        classifiers, relations, ir.taggedValues);
+                assertStreamMatches(ir, IrJson.toJsonString(reversed), options, name + " reversed (stereotypes=" + stereotypes + ")");
+            }
+        }
+    }
+
+    @Test
+    void shardedNdjsonMatchesModelEmission(@TempDir Path tmp) throws Exception {
+        for (String name : List.of("java-mini.json", "angular-mini.json", "react-mini.json")) {
+            IrModel ir = IrJson.read(Path.of("src/test/resources/ir/golden/" + name));
+            Path dir = Files.createDirectories(tmp.resolve(name));
+            List<OutputStream> outs = new ArrayList<>();
+            List<IrNdjson.Writer> shards = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                outs.add(Files.newOutputStream(dir.resolve("shard-" + i + IrNdjson.FILE_EXTENSION)));
+                shards.add(new IrNdjson.Writer(outs.get(i), ir.schemaVersion));
+            }
+            // Definitions and packages in the last shards, classifiers and relations spread over all of them.
+            for (IrStereotypeDefinition d : ir.stereotypeDefinitions) shards.get(2).stereotypeDefinition(d);
+            for (IrPackage p : ir.packages) shards.get(1).irPackage(p);
+            for (int i = 0; i < ir.classifiers.size(); i++) shards.get(i % 3).classifier(ir.classifiers.get(i));
+            for (int i = 0; i < ir.relations.size(); i++) shards.get((i + 1) % 3).relation(ir.relations.get(i));
+            for (OutputStream out : outs) out.close();
+
+            EmitterOptions options = EmitterOptions.defaults(name).withStereotypes(true);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            new XmiEmitter().emitToStream(ir, options, expected);
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            XmiEmitter.Result streamed = new XmiEmitter().emitToStream(dir, 3, options, actual);
+
+            assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8), name);
+            assertEquals(ir.classifiers.size(), streamed.irSummary.classifierCount, name);
+        }
+    }
+
+    @Test
+    void verifiedEmissionWritesTheSameDocument() throws Exception {
+        for (String name : List.of("java-mini.json", "angular-mini.json", "react-mini.json")) {
+            IrModel ir = IrJson.read(Path.of("src/test/resources/ir/golden/" + name));
+            EmitterOptions options = EmitterOptions.defaults(name).withStereotypes(true);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            new XmiEmitter().emitToStream(ir, options, expected);
+            ByteArrayOutputStream verified = new ByteArrayOutputStream();
+            new XmiEmitter().emitToStream(new ByteArrayInputStream(IrJson.toJsonString(ir).getBytes(StandardCharsets.UTF_8)),
+                    options.withVerifyXmiIds(true), verified);
+
+            assertEquals(expected.toString(StandardCharsets.UTF_8), verified.toString(StandardCharsets.UTF_8), name);
+        }
+    }
+
+    private static void assertStreamMatches(IrModel ir, String json, EmitterOptions options, String label) throws Exception {
+        XmiEmitter emitter = new XmiEmitter();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        XmiEmitter.Result fromModel = emitter.emitToStream(ir, options, expected);
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        XmiEmitter.Result streamed = emitter.emitToStream(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), options, actual);
+
+        assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8), label);
+        assertEquals(fromModel.warnings.size(), streamed.warnings.size(), label);
+        assertEquals(fromModel.stats.classifiersCreated, streamed.stats.classifiersCreated, label);
+        assertEquals(ir.classifiers.size(), streamed.irSummary.classifierCount, label);
+        assertEquals(ir.relations.size(), streamed.irSummary.relationCount, label);
+    }
+}
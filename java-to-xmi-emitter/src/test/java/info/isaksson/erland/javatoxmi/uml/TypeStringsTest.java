@@ -0,0 +1,22 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TypeStringsTest {
+
+    @Test
+    void splitsTopLevelOnly() {
+        assertEquals("java.util.Map", TypeStrings.baseName(" java.util.Map<K, List<V>> "));
+        assertEquals("Foo[]", TypeStrings.baseName("Foo[]"));
+        assertEquals("", TypeStrings.baseName(null));
+
+        assertEquals(List.of("K", "List<V>"), TypeStrings.typeArguments("java.util.Map<K, List<V>>"));
+        assertEquals(List.of("Foo"), TypeStrings.typeArguments("List<Foo>[]"));
+        assertEquals(List.of(), TypeStrings.typeArguments("Foo"));
+        assertEquals(List.of(), TypeStrings.typeArguments("List<>"));
+    }
+}
@@ -0,0 +1,67 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import info.isaksson.erland.javatoxmi.model.JMethod;
+import info.isaksson.erland.javatoxmi.model.JParam;
+import info.isaksson.erland.javatoxmi.model.JType;
+import info.isaksson.erland.javatoxmi.model.JTypeKind;
+import info.isaksson.erland.javatoxmi.model.JVisibility;
+import org.eclipse.uml2.uml.Class;
+import org.eclipse.uml2.uml.Model;
+import org.eclipse.uml2.uml.Package;
+import org.eclipse.uml2.uml.UMLFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dependency upserts on a hub class must not scan the hub's existing dependencies: the hub's dependency list
+ * is read once to seed the index, however many dependencies are added afterwards.
+ */
+public class UmlBuilderDependencyScaleTest {
+
+    @Test
+    void hubDependencyUpsertsScanExistingDependenciesOnce() {
+        int n = 2_000;
+        int preExisting = 10;
+
+        Model model = UMLFactory.eINSTANCE.createModel();
+        model.setName("scale");
+        UmlIdTable.of(model);
+        UmlBuildStats stats = new UmlBuildStats();
+        UmlBuildContext ctx = new UmlBuildContext(model, stats, UmlIdStrategy.of(IdHashMode.COMPATIBLE), new MultiplicityResolver(), AssociationPolicy.RESOLVED,
+                NestedTypesMode.UML, true, false, false);
+        Package p = model.createNestedPackage("p");
+
+        Class hub = p.createOwnedClass("Hub", false);
+        ctx.classifierByQName.put("p.Hub", hub);
+        List<JMethod> methods = new ArrayList<>();
+        List<String> bodyDeps = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String qn = "p.T" + i;
+            Class t = p.createOwnedClass("T" + i, false);
+            ctx.classifierByQName.put(qn, t);
+            // Dependencies created by other code before the first upsert must still be found.
+            if (i < preExisting) hub.createDependency(t);
+            methods.add(new JMethod("use" + i, "void", JVisibility.PUBLIC, false, false, false, List.of(new JParam("t", qn))));
+            bodyDeps.add(qn);
+        }
+        UmlSourceType hubType = type("Hub", methods, bodyDeps);
+
+        UmlDependencyBuilder builder = new UmlDependencyBuilder();
+        builder.addMethodSignatureDependencies(ctx, hub, hubType);
+        builder.addMethodBodyDependencies(ctx, hub, hubType);
+
+        assertEquals(n - preExisting, stats.dependenciesCreated);
+        assertEquals(n, hub.getClientDependencies().size());
+        // A scan per upsert would visit the hub's dependencies 2n times, about n^2 entries.
+        assertEquals(preExisting, ctx.upsertIndexScans);
+    }
+
+    private static UmlSourceType type(String name, List<JMethod> methods, List<String> bodyDeps) {
+        return JavaModelSource.view(new JType("p", name, "p." + name, null, JTypeKind.CLASS, JVisibility.PUBLIC,
+                false, false, false, null, List.of(), List.of(), "", List.of(), methods, List.of(), bodyDeps));
+    }
+}
@@ -0,0 +1,105 @@
+package info.isaksson.erland.javatoxmi.uml;
+
+import info.isaksson.erland.javatoxmi.extract.JavaExtractor;
+import info.isaksson.erland.javatoxmi.io.SourceScanner;
+import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.testutil.TestPaths;
+import info.isaksson.erland.javatoxmi.xmi.XmiWriter;
+import org.eclipse.uml2.uml.Model;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UmlIdStrategyTest {
+
+    @Test
+    void compatibleModeMatchesTruncatedSha256() throws Exception {
+        UmlIdStrategy ids = UmlIdStrategy.of(IdHashMode.COMPATIBLE);
+        for (String key : List.of("", "Classifier:com.acme.Person", "Field:a.B#x:java.util.List<java.lang.String>", "Σ😀")) {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) hex.append(String.format("%02x", b));
+
+            assertEquals(hex.substring(0, 32), ids.id(key));
+            assertEquals(hex.substring(0, 32), ids.id(key), "cached");
+            assertEquals(hex.substring(0, 24), ids.shortId(key));
+        }
+        assertEquals(IdHashMode.COMPATIBLE, UmlIdStrategy.of(null).mode());
+    }
+
+    @Test
+    void fastModeIsDeterministic() {
+        String compatible = UmlIdStrategy.of(IdHashMode.COMPATIBLE).id("Classifier:com.acme.Person");
+        UmlIdStrategy ids = UmlIdStrategy.of(IdHashMode.FAST);
+        assertEquals(IdHashMode.FAST, ids.mode());
+        String fast = ids.id("Classifier:com.acme.Person");
+        assertEquals("00000000000000000000000000000000", ids.id(""));
+        assertEquals(fast, ids.id("Classifier:com.acme.Person"));
+        assertEquals(fast, UmlIdStrategy.of(IdHashMode.FAST).id("Classifier:com.acme.Person"));
+        assertEquals(fast.substring(0, 24), ids.shortId("Classifier:com.acme.Person"));
+        assertEquals(32, fast.length());
+        assertNotEquals(compatible, fast);
+
+        Set<String> all = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) all.add(ids.id("Field:p.T" + i + "#f:int"));
+        assertEquals(20_000, all.size());
+    }
+
+    @Test
+    void fastModeKeepsXmiIdsUniqueAndStable() throws Exception {
+        Path root = TestPaths.resolveInRepo("samples/mini").toAbsolutePath().normalize();
+        JModel m = new JavaExtractor().extract(root, SourceScanner.scan(root, Collections.emptyList(), true));
+        UmlModelSource source = UmlModelSource.of(m);
+
+        UmlIdStrategy fast = UmlIdStrategy.of(IdHashMode.FAST);
+        String first = XmiWriter.writeToString(new UmlBuilder(fast).build(m, "mini").umlModel, source, fast);
+        UmlIdStrategy fastAgain = UmlIdStrategy.of(IdHashMode.FAST);
+        String second = XmiWriter.writeToString(new UmlBuilder(fastAgain).build(m, "mini").umlModel, source, fastAgain);
+        String compatible = XmiWriter.writeToString(new UmlBuilder().build(m, "mini").umlModel, m);
+
+        assertEquals(first, second);
+        assertNotEquals(compatible, first);
+        // Same ID structure: as many distinct ids (and repeated ones) as in the compatible mode.
+        assertEquals(xmiIds(compatible).size(), xmiIds(first).size());
+        assertEquals(new HashSet<>(xmiIds(compatible)).size(), new HashSet<>(xmiIds(first)).size());
+    }
+
+    @Test
+    void modelBuiltOnOneThreadIsWrittenWithItsModeOnAnother() throws Exception {
+        Path root = TestPaths.resolveInRepo("samples/mini").toAbsolutePath().normalize();
+        JModel m = new JavaExtractor().extract(root, SourceScanner.scan(root, Collections.emptyList(), true));
+        UmlModelSource source = UmlModelSource.of(m);
+
+        UmlIdStrategy fast = UmlIdStrategy.of(IdHashMode.FAST);
+        String expected = XmiWriter.writeToString(new UmlBuilder(fast).build(m, "mini").umlModel, source, fast);
+
+        UmlIdStrategy ids = UmlIdStrategy.of(IdHashMode.FAST);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Model model = pool.submit(() -> new UmlBuilder(ids).build(m, "mini").umlModel).get();
+            assertEquals(expected, XmiWriter.writeToString(model, source, ids));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static List<String> xmiIds(String xmi) {
+        List<String> ids = new ArrayList<>();
+        Matcher matcher = Pattern.compile("xmi:id=\"([^\"]+)\"").matcher(xmi);
+        while (matcher.find()) ids.add(matcher.group(1));
+        return ids;
+    }
+}
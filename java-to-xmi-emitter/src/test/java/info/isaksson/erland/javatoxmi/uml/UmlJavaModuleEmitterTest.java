@@ -3,6 +3,7 @@ package info.isaksson.erland.javatoxmi.uml;
 import info.isaksson.erland.javatoxmi.model.JJavaModule;
 import info.isaksson.erland.javatoxmi.model.JJavaModuleRequire;
 import org.eclipse.uml2.uml.Dependency;
+import org.eclipse.uml2.uml.Element;
 import org.eclipse.uml2.uml.Model;
 import org.eclipse.uml2.uml.Package;
 import org.eclipse.uml2.uml.UMLFactory;
@@ -23,6 +24,7 @@ public class UmlJavaModuleEmitterTest {
         UmlBuildContext ctx = new UmlBuildContext(
                 model,
                 stats,
+                UmlIdStrategy.of(IdHashMode.COMPATIBLE),
                 new MultiplicityResolver(),
                 AssociationPolicy.RESOLVED,
                 NestedTypesMode.UML,
@@ -61,5 +63,11 @@ public class UmlJavaModuleEmitterTest {
             }
         }
         assertTrue(found, "Expected requires dependency from a.mod to b.mod");
+
+        // Every created element is keyed once the queued ones are annotated.
+        UmlBuilderSupport.annotateQueuedIds(ctx.ids, ctx.idStrategy);
+        model.eAllContents().forEachRemaining(o -> {
+            if (o instanceof Element e) assertNotNull(ctx.ids.rawId(e), e.toString());
+        });
     }
 }
@@ -21,6 +21,7 @@ public class UmlMigrationArtifactEmitterTest {
         UmlBuildContext ctx = new UmlBuildContext(
                 model,
                 stats,
+                UmlIdStrategy.of(IdHashMode.COMPATIBLE),
                 new MultiplicityResolver(),
                 AssociationPolicy.RESOLVED,
                 NestedTypesMode.UML,
@@ -0,0 +1,55 @@
+package info.isaksson.erland.javatoxmi.xmi;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XmiWrapperWriterTest {
+
+    private static final String MODEL = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<uml:Model xmi:id=\"m\" name=\"m\">\n"
+            + "  <ownedComment body=\"a\u2028b\"/>\n"
+            + "\n"
+            + "</uml:Model>\n";
+
+    private static final StereotypeXmiInjector.Injection INJECTION = new StereotypeXmiInjector.Injection(
+            List.of("xmlns:P=\"urn:p\""), "<profileApplication/>", out -> out.write("  <P:S/>\n"));
+
+    @Test
+    void wrapsAndInjectsRegardlessOfChunking() throws Exception {
+        String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + XmiWrapperWriter.WRAPPER_START + " xmlns:P=\"urn:p\">\n"
+                + "  <uml:Model xmi:id=\"m\" name=\"m\"><profileApplication/>\n"
+                + "    <ownedComment body=\"a\n"
+                + "  b\"/>\n"
+                + "  </uml:Model>\n"
+                + "  <P:S/>\n"
+                + "</xmi:XMI>\n";
+
+        for (int chunk = 1; chunk <= MODEL.length(); chunk++) {
+            StringWriter out = new StringWriter();
+            XmiWrapperWriter w = new XmiWrapperWriter(out, INJECTION);
+            for (int i = 0; i < MODEL.length(); i += chunk) {
+                w.write(MODEL, i, Math.min(chunk, MODEL.length() - i));
+            }
+            w.close();
+            w.finish();
+            assertEquals(expected, out.toString(), "chunk size " + chunk);
+        }
+    }
+
+    @Test
+    void bodyWithoutDeclarationIsKept() throws Exception {
+        StringWriter out = new StringWriter();
+        XmiWrapperWriter w = new XmiWrapperWriter(out, StereotypeXmiInjector.Injection.NONE);
+        w.write("  \n<uml:Model/>");
+        w.finish();
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + XmiWrapperWriter.WRAPPER_START + ">\n"
+                + "  <uml:Model/>\n"
+                + "</xmi:XMI>\n", out.toString());
+    }
+}
@@ -0,0 +1,62 @@
+package info.isaksson.erland.javatoxmi.xmi;
+
+import info.isaksson.erland.javatoxmi.extract.JavaExtractor;
+import info.isaksson.erland.javatoxmi.io.SourceScanner;
+import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.testutil.TestPaths;
+import info.isaksson.erland.javatoxmi.uml.AssociationPolicy;
+import info.isaksson.erland.javatoxmi.uml.NestedTypesMode;
+import info.isaksson.erland.javatoxmi.uml.UmlBuilder;
+import info.isaksson.erland.javatoxmi.uml.UmlIdTable;
+import org.eclipse.uml2.uml.Model;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XmiWriterIdTableTest {
+
+    @Test
+    void idsFromCreationTableMatchLegacyAssignment() throws Exception {
+        for (String sample : List.of("samples/mini", "samples")) {
+            Path root = TestPaths.resolveInRepo(sample).toAbsolutePath().normalize();
+            JModel m = new JavaExtractor().extract(root, SourceScanner.scan(root, Collections.emptyList(), true));
+            Model model = new UmlBuilder().build(m, "ids", true, AssociationPolicy.SMART, NestedTypesMode.UML_IMPORT,
+                    true, true, true).umlModel;
+
+            UmlIdTable table = UmlIdTable.find(model);
+            assertNotNull(table);
+            assertTrue(table.size() > 10, "registered ids: " + table.size());
+            assertEquals(List.of(), XmiWriter.verifyDeterministicIds(model), sample);
+        }
+    }
+
+    @Test
+    void verificationReportsAnnotationEditedBehindTheTable() throws Exception {
+        Path root = TestPaths.resolveInRepo("samples/mini").toAbsolutePath().normalize();
+        JModel m = new JavaExtractor().extract(root, SourceScanner.scan(root, Collections.emptyList(), true));
+        Model model = new UmlBuilder().build(m, "ids").umlModel;
+
+        model.getEAnnotation(UmlBuilder.ID_ANNOTATION_SOURCE).getDetails().put("id", "Model:edited");
+
+        List<String> diffs = XmiWriter.verifyDeterministicIds(model);
+        assertEquals(1, diffs.size(), diffs.toString());
+        assertTrue(diffs.get(0).contains("legacy=_Model:edited"), diffs.get(0));
+    }
+
+    @Test
+    void verificationReportsElementsCreatedBehindTheTable() throws Exception {
+        Path root = TestPaths.resolveInRepo("samples/mini").toAbsolutePath().normalize();
+        JModel m = new JavaExtractor().extract(root, SourceScanner.scan(root, Collections.emptyList(), true));
+        Model model = new UmlBuilder().build(m, "ids").umlModel;
+
+        model.createNestedPackage("late");
+
+        List<String> diffs = XmiWriter.verifyDeterministicIds(model);
+        assertEquals(1, diffs.size(), diffs.toString());
+        assertTrue(diffs.get(0).contains("not registered"), diffs.get(0));
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import info.isaksson.erland.javatoxmi.extract.JavaExtractor;
 import info.isaksson.erland.javatoxmi.model.JModel;
 import info.isaksson.erland.javatoxmi.uml.UmlBuilder;
+import info.isaksson.erland.javatoxmi.uml.IdHashMode;
 import info.isaksson.erland.javatoxmi.uml.UmlIdStrategy;
 
 import java.nio.charset.StandardCharsets;
@@ -46,7 +47,7 @@ public class XmiWriterStereotypeInjectionTest {
         assertTrue(xmi.contains("<profileApplication"), "Expected a UML profileApplication");
         assertTrue(xmi.contains("<appliedProfile href=\"#"), "Expected appliedProfile reference");
 
-        String baseId = "_" + UmlIdStrategy.id("Classifier:com.acme.Person");
+        String baseId = "_" + UmlIdStrategy.of(IdHashMode.COMPATIBLE).id("Classifier:com.acme.Person");
 
         // Stereotype application should be present in UML2-style form.
         assertTrue(
@@ -0,0 +1,673 @@
+package info.isaksson.erland.javatoxmi.ir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compact binary encoding of the IR, read and written next to IR JSON by {@link IrJson}.
+ *
+ * <p>Qualified names, type names and ids repeat heavily in large models, so every string is stored once in a
+ * table at the start of the document and referenced by index. Layout (integers are unsigned LEB128 varints):</p>
+ * <pre>
+ * "J2XB" version
+ * stringCount { byteLength utf8Bytes }
+ * schemaVersion:str
+ * stereotypeDefinitions packages classifiers relations taggedValues   (sections)
+ * </pre>
+ * <p>A section is {@code count byteLength record*}. A {@code str} is {@code 0} for null or {@code n} for table
+ * entry {@code n - 1}. Records list their fields in JSON property order; the full record layout is in
+ * {@code docs/ir/ir-binary-v1.md}. A document decodes to the same {@link IrModel} as its JSON form.</p>
+ */
+public final class IrBinary {
+
+    /** File extension that makes {@link IrJson#write(IrModel, Path)} write this format. */
+    public static final String FILE_EXTENSION = ".irb";
+
+    static final byte[] MAGIC = {'J', '2', 'X', 'B'};
+    static final int FORMAT_VERSION = 1;
+
+    // Tags of stereotype ref values (IrStereotypeRef.values).
+    private static final int V_NULL = 0;
+    private static final int V_FALSE = 1;
+    private static final int V_TRUE = 2;
+    private static final int V_INT = 3;
+    private static final int V_DOUBLE = 4;
+    private static final int V_STRING = 5;
+    private static final int V_LIST = 6;
+    private static final int V_MAP = 7;
+    private static final int V_BIG_INTEGER = 8;
+    private static final int V_BIG_DECIMAL = 9;
+
+    /** The document is not valid binary IR (bad header, truncated, or an out-of-range reference). */
+    public static final class MalformedIrException extends IOException {
+        public MalformedIrException(String message) {
+            super(message);
+        }
+    }
+
+    private IrBinary() {}
+
+    /** Whether {@code path} names a binary IR file by its extension. */
+    public static boolean isBinaryPath(Path path) {
+        Path name = path == null ? null : path.getFileName();
+        return name != null && name.toString().toLowerCase(Locale.ROOT).endsWith(FILE_EXTENSION);
+    }
+
+    /** Whether {@code in} starts with the binary IR header. {@code in} must support mark/reset and is reset. */
+    static boolean startsWithMagic(InputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        try {
+            return Arrays.equals(MAGIC, in.readNBytes(MAGIC.length));
+        } finally {
+            in.reset();
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------
+    // Writing
+    // ---------------------------------------------------------------------------------------------------------
+
+    /** Write {@code model}, normalized like {@link IrJson#write}. The stream is flushed, not closed. */
+    public static void write(IrModel model, OutputStream out) throws IOException {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        if (out == null) throw new IllegalArgumentException("out is null");
+        IrModel normalized = IrNormalizer.normalize(model);
+
+        Encoder e = new Encoder();
+        Buf schemaVersion = new Buf();
+        e.str(schemaVersion, normalized.schemaVersion);
+        List<Buf> sections = List.of(
+                e.section(normalized.stereotypeDefinitions, e::stereotypeDefinition),
+                e.section(normalized.packages, e::irPackage),
+                e.section(normalized.classifiers, e::classifier),
+                e.section(normalized.relations, e::relation),
+                e.section(normalized.taggedValues, e::taggedValue));
+
+        Buf head = new Buf();
+        head.write(MAGIC, 0, MAGIC.length);
+        head.varint(FORMAT_VERSION);
+        head.varint(e.strings.size());
+        head.writeTo(out);
+        for (String s : e.strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            Buf len = new Buf();
+            len.varint(bytes.length);
+            len.writeTo(out);
+            out.write(bytes);
+        }
+        schemaVersion.writeTo(out);
+        for (Buf section : sections) {
+            section.writeTo(out);
+        }
+        out.flush();
+    }
+
+    private interface RecordWriter<T> {
+        void write(Buf b, T element);
+    }
+
+    /** Interns strings in order of first use while records are encoded. */
+    private static final class Encoder {
+        final Map<String, Integer> ids = new HashMap<>();
+        final List<String> strings = new ArrayList<>();
+
+        <T> Buf section(List<T> elements, RecordWriter<T> writer) {
+            Buf records = new Buf();
+            for (T element : elements) {
+                writer.write(records, element);
+            }
+            Buf section = new Buf();
+            section.varint(elements.size());
+            section.varint(records.size);
+            section.write(records.bytes, 0, records.size);
+            return section;
+        }
+
+        void str(Buf b, String s) {
+            if (s == null) {
+                b.varint(0);
+                return;
+            }
+            Integer id = ids.get(s);
+            if (id == null) {
+                id = strings.size();
+                ids.put(s, id);
+                strings.add(s);
+            }
+            b.varint(id + 1L);
+        }
+
+        void enumName(Buf b, Enum<?> value) {
+            str(b, value == null ? null : value.name());
+        }
+
+        <T> void list(Buf b, List<T> elements, RecordWriter<T> writer) {
+            b.varint(elements.size());
+            for (T element : elements) {
+                writer.write(b, element);
+            }
+        }
+
+        void nullableInt(Buf b, Integer value) {
+            b.varint(value == null ? 0 : zigzag(value) + 1);
+        }
+
+        void stereotypeDefinition(Buf b, IrStereotypeDefinition d) {
+            str(b, d.id);
+            str(b, d.name);
+            str(b, d.qualifiedName);
+            str(b, d.profileName);
+            list(b, d.appliesTo, this::str);
+            list(b, d.properties, (bb, p) -> {
+                str(bb, p.name);
+                str(bb, p.type);
+                bb.write(p.isMulti ? 1 : 0);
+            });
+        }
+
+        void irPackage(Buf b, IrPackage p) {
+            str(b, p.id);
+            str(b, p.name);
+            str(b, p.qualifiedName);
+            str(b, p.parentId);
+            list(b, p.taggedValues, this::taggedValue);
+        }
+
+        void classifier(Buf b, IrClassifier c) {
+            str(b, c.id);
+            str(b, c.name);
+            str(b, c.qualifiedName);
+            str(b, c.packageId);
+            enumName(b, c.kind);
+            enumName(b, c.visibility);
+            list(b, c.attributes, this::attribute);
+            list(b, c.operations, this::operation);
+            list(b, c.stereotypes, this::stereotype);
+            list(b, c.stereotypeRefs, this::stereotypeRef);
+            list(b, c.taggedValues, this::taggedValue);
+            source(b, c.source);
+        }
+
+        void attribute(Buf b, IrAttribute a) {
+            str(b, a.id);
+            str(b, a.name);
+            enumName(b, a.visibility);
+            b.write((a.isStatic ? 1 : 0) | (a.isFinal ? 2 : 0));
+            typeRef(b, a.type);
+            list(b, a.stereotypes, this::stereotype);
+            list(b, a.stereotypeRefs, this::stereotypeRef);
+            list(b, a.taggedValues, this::taggedValue);
+            source(b, a.source);
+        }
+
+        void operation(Buf b, IrOperation o) {
+            str(b, o.id);
+            str(b, o.name);
+            enumName(b, o.visibility);
+            b.write((o.isStatic ? 1 : 0) | (o.isAbstract ? 2 : 0) | (o.isConstructor ? 4 : 0));
+            typeRef(b, o.returnType);
+            list(b, o.parameters, (bb, p) -> {
+                str(bb, p.name);
+                typeRef(bb, p.type);
+                list(bb, p.taggedValues, this::taggedValue);
+            });
+            list(b, o.stereotypes, this::stereotype);
+            list(b, o.stereotypeRefs, this::stereotypeRef);
+            list(b, o.taggedValues, this::taggedValue);
+            source(b, o.source);
+        }
+
+        void relation(Buf b, IrRelation r) {
+            str(b, r.id);
+            enumName(b, r.kind);
+            str(b, r.sourceId);
+            str(b, r.targetId);
+            str(b, r.name);
+            list(b, r.stereotypes, this::stereotype);
+            list(b, r.stereotypeRefs, this::stereotypeRef);
+            list(b, r.taggedValues, this::taggedValue);
+            source(b, r.source);
+        }
+
+        void typeRef(Buf b, IrTypeRef t) {
+            if (t == null) {
+                b.write(0);
+                return;
+            }
+            b.write(1);
+            enumName(b, t.kind);
+            str(b, t.name);
+            list(b, t.typeArgs, this::typeRef);
+            typeRef(b, t.elementType);
+            list(b, t.taggedValues, this::taggedValue);
+        }
+
+        void source(Buf b, IrSourceRef s) {
+            if (s == null) {
+                b.write(0);
+                return;
+            }
+            b.write(1);
+            str(b, s.file);
+            nullableInt(b, s.line);
+            nullableInt(b, s.col);
+        }
+
+        void stereotype(Buf b, IrStereotype s) {
+            str(b, s.name);
+            str(b, s.qualifiedName);
+        }
+
+        void stereotypeRef(Buf b, IrStereotypeRef r) {
+            str(b, r.stereotypeId);
+            map(b, r.values);
+        }
+
+        void taggedValue(Buf b, IrTaggedValue tv) {
+            str(b, tv.key);
+            str(b, tv.value);
+        }
+
+        void map(Buf b, Map<?, ?> values) {
+            // Key order, like the JSON writer (ORDER_MAP_ENTRIES_BY_KEYS).
+            Map<String, Object> sorted = new TreeMap<>();
+            values.forEach((k, v) -> sorted.put(String.valueOf(k), v));
+            b.varint(sorted.size());
+            sorted.forEach((k, v) -> {
+                str(b, k);
+                value(b, v);
+            });
+        }
+
+        void value(Buf b, Object v) {
+            if (v == null) {
+                b.write(V_NULL);
+            } else if (v instanceof Boolean) {
+                b.write((Boolean) v ? V_TRUE : V_FALSE);
+            } else if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) {
+                b.write(V_INT);
+                b.varint(zigzag(((Number) v).longValue()));
+            } else if (v instanceof Double || v instanceof Float) {
+                b.write(V_DOUBLE);
+                b.fixed64(Double.doubleToLongBits(((Number) v).doubleValue()));
+            } else if (v instanceof BigInteger) {
+                b.write(V_BIG_INTEGER);
+                str(b, v.toString());
+            } else if (v instanceof BigDecimal) {
+                b.write(V_BIG_DECIMAL);
+                str(b, ((BigDecimal) v).toPlainString());
+            } else if (v instanceof CharSequence) {
+                b.write(V_STRING);
+                str(b, v.toString());
+            } else if (v instanceof List) {
+                b.write(V_LIST);
+                List<?> items = (List<?>) v;
+                b.varint(items.size());
+                for (Object item : items) {
+                    value(b, item);
+                }
+            } else if (v instanceof Map) {
+                b.write(V_MAP);
+                map(b, (Map<?, ?>) v);
+            } else {
+                throw new IllegalArgumentException("Unsupported stereotype value type: " + v.getClass().getName());
+            }
+        }
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    /** Growable byte buffer. */
+    private static final class Buf {
+        byte[] bytes = new byte[64];
+        int size;
+
+        void write(int b) {
+            if (size == bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            bytes[size++] = (byte) b;
+        }
+
+        void write(byte[] b, int off, int len) {
+            if (size + len > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + len));
+            System.arraycopy(b, off, bytes, size, len);
+            size += len;
+        }
+
+        void varint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                write((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            write((int) v);
+        }
+
+        void fixed64(long v) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (v >>> shift));
+            }
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(bytes, 0, size);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------
+    // Reading
+    // ---------------------------------------------------------------------------------------------------------
+
+    /** Read a whole document from {@code in} (not closed). */
+    public static IrModel read(InputStream in) throws IOException {
+        IrStreamReader.Collector collector = new IrStreamReader.Collector();
+        return collector.model(read(in, collector).schemaVersion);
+    }
+
+    /**
+     * Read a document from {@code in} (not closed), handing each element to {@code handler} as it is decoded,
+     * like {@link IrStreamReader#read} does for JSON.
+     */
+    public static IrSummary read(InputStream in, IrStreamReader.Handler handler) throws IOException {
+        if (in == null) throw new IllegalArgumentException("in is null");
+        if (handler == null) throw new IllegalArgumentException("handler is null");
+        Decoder d = new Decoder(new Input(in));
+        d.header();
+
+        String schemaVersion = d.str();
+        d.section("stereotypeDefinitions", () -> handler.stereotypeDefinition(d.stereotypeDefinition()));
+        int packages = d.section("packages", () -> handler.irPackage(d.irPackage()));
+        int classifiers = d.section("classifiers", () -> handler.classifier(d.classifier()));
+        int relations = d.section("relations", () -> handler.relation(d.relation()));
+        d.section("taggedValues", () -> handler.taggedValue(d.taggedValue()));
+        return new IrSummary(schemaVersion == null ? "1.0" : schemaVersion, packages, classifiers, relations);
+    }
+
+    private interface RecordReader<T> {
+        T read() throws IOException;
+    }
+
+    private interface RecordSink {
+        void next() throws IOException;
+    }
+
+    private static final class Decoder {
+        private final Input in;
+        private String[] strings = new String[0];
+
+        Decoder(Input in) {
+            this.in = in;
+        }
+
+        void header() throws IOException {
+            byte[] magic = in.bytes(MAGIC.length);
+            if (!Arrays.equals(MAGIC, magic)) throw new MalformedIrException("Not a binary IR document");
+            int version = in.varint();
+            if (version != FORMAT_VERSION) {
+                throw new MalformedIrException("Unsupported binary IR version " + version + " (expected " + FORMAT_VERSION + ")");
+            }
+            int count = in.varint();
+            List<String> table = new ArrayList<>(Math.min(count, 1 << 16));
+            for (int i = 0; i < count; i++) {
+                table.add(new String(in.bytes(in.varint()), StandardCharsets.UTF_8));
+            }
+            strings = table.toArray(new String[0]);
+        }
+
+        int section(String name, RecordSink sink) throws IOException {
+            int count = in.varint();
+            long length = in.varint();
+            long start = in.offset();
+            for (int i = 0; i < count; i++) {
+                sink.next();
+            }
+            if (in.offset() - start != length) {
+                throw new MalformedIrException("Section " + name + " is " + (in.offset() - start)
+                        + " bytes, header says " + length);
+            }
+            return count;
+        }
+
+        String str() throws IOException {
+            int ref = in.varint();
+            if (ref == 0) return null;
+            if (ref > strings.length) throw new MalformedIrException("String reference " + ref + " out of range");
+            return strings[ref - 1];
+        }
+
+        <E extends Enum<E>> E enumValue(Class<E> type) throws IOException {
+            String name = str();
+            if (name == null) return null;
+            try {
+                return Enum.valueOf(type, name);
+            } catch (IllegalArgumentException e) {
+                throw new MalformedIrException("Unknown " + type.getSimpleName() + " " + name);
+            }
+        }
+
+        <T> List<T> list(RecordReader<T> reader) throws IOException {
+            int count = in.varint();
+            if (count == 0) return null;
+            List<T> out = new ArrayList<>(Math.min(count, 1 << 10));
+            for (int i = 0; i < count; i++) {
+                out.add(reader.read());
+            }
+            return out;
+        }
+
+        boolean present() throws IOException {
+            int flag = in.read();
+            if (flag > 1) throw new MalformedIrException("Invalid presence flag " + flag);
+            return flag == 1;
+        }
+
+        Integer nullableInt() throws IOException {
+            long v = in.varlong();
+            if (v == 0) return null;
+            long value = unzigzag(v - 1);
+            if (value != (int) value) throw new MalformedIrException("Integer out of range: " + value);
+            return (int) value;
+        }
+
+        IrStereotypeDefinition stereotypeDefinition() throws IOException {
+            return new IrStereotypeDefinition(str(), str(), str(), str(), list(this::str),
+                    list(() -> new IrStereotypePropertyDefinition(str(), str(), in.read() == 1)));
+        }
+
+        IrPackage irPackage() throws IOException {
+            return new IrPackage(str(), str(), str(), str(), list(this::taggedValue));
+        }
+
+        IrClassifier classifier() throws IOException {
+            return new IrClassifier(str(), str(), str(), str(),
+                    enumValue(IrClassifierKind.class), enumValue(IrVisibility.class),
+                    list(this::attribute), list(this::operation),
+                    list(this::stereotype), list(this::stereotypeRef), list(this::taggedValue), source());
+        }
+
+        IrAttribute attribute() throws IOException {
+            String id = str();
+            String name = str();
+            IrVisibility visibility = enumValue(IrVisibility.class);
+            int flags = in.read();
+            return new IrAttribute(id, name, visibility, (flags & 1) != 0, (flags & 2) != 0, typeRef(),
+                    list(this::stereotype), list(this::stereotypeRef), list(this::taggedValue), source());
+        }
+
+        IrOperation operation() throws IOException {
+            String id = str();
+            String name = str();
+            IrVisibility visibility = enumValue(IrVisibility.class);
+            int flags = in.read();
+            return new IrOperation(id, name, visibility, (flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0,
+                    typeRef(), list(() -> new IrParameter(str(), typeRef(), list(this::taggedValue))),
+                    list(this::stereotype), list(this::stereotypeRef), list(this::taggedValue), source());
+        }
+
+        IrRelation relation() throws IOException {
+            return new IrRelation(str(), enumValue(IrRelationKind.class), str(), str(), str(),
+                    list(this::stereotype), list(this::stereotypeRef), list(this::taggedValue), source());
+        }
+
+        IrTypeRef typeRef() throws IOException {
+            if (!present()) return null;
+            return new IrTypeRef(enumValue(IrTypeRefKind.class), str(), list(this::typeRef), typeRef(),
+                    list(this::taggedValue));
+        }
+
+        IrSourceRef source() throws IOException {
+            if (!present()) return null;
+            return new IrSourceRef(str(), nullableInt(), nullableInt());
+        }
+
+        IrStereotype stereotype() throws IOException {
+            return new IrStereotype(str(), str());
+        }
+
+        IrStereotypeRef stereotypeRef() throws IOException {
+            return new IrStereotypeRef(str(), map());
+        }
+
+        IrTaggedValue taggedValue() throws IOException {
+            return new IrTaggedValue(str(), str());
+        }
+
+        Map<String, Object> map() throws IOException {
+            int count = in.varint();
+            Map<String, Object> out = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String key = str();
+                out.put(key, value());
+            }
+            return out;
+        }
+
+        /** Decodes to the Java types Jackson binds untyped JSON values to. */
+        Object value() throws IOException {
+            int tag = in.read();
+            switch (tag) {
+                case V_NULL:
+                    return null;
+                case V_FALSE:
+                    return Boolean.FALSE;
+                case V_TRUE:
+                    return Boolean.TRUE;
+                case V_INT: {
+                    long v = unzigzag(in.varlong());
+                    return v == (int) v ? (Object) (int) v : (Object) v;
+                }
+                case V_DOUBLE:
+                    return Double.longBitsToDouble(in.fixed64());
+                case V_STRING:
+                    return str();
+                case V_LIST: {
+                    int count = in.varint();
+                    List<Object> items = new ArrayList<>(Math.min(count, 1 << 10));
+                    for (int i = 0; i < count; i++) {
+                        items.add(value());
+                    }
+                    return items;
+                }
+                case V_MAP:
+                    return map();
+                case V_BIG_INTEGER:
+                    return new BigInteger(number());
+                case V_BIG_DECIMAL:
+                    return new BigDecimal(number());
+                default:
+                    throw new MalformedIrException("Unknown value tag " + tag);
+            }
+        }
+
+        private String number() throws IOException {
+            String s = str();
+            if (s == null) throw new MalformedIrException("Missing number");
+            return s;
+        }
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /** Buffered reader of the primitive encodings; tracks its offset for section length checks. */
+    private static final class Input {
+        private final InputStream in;
+        private final byte[] buf = new byte[1 << 16];
+        private int pos;
+        private int limit;
+        private long base;
+
+        Input(InputStream in) {
+            this.in = in;
+        }
+
+        long offset() {
+            return base + pos;
+        }
+
+        int read() throws IOException {
+            if (pos == limit) fill();
+            return buf[pos++] & 0xFF;
+        }
+
+        private void fill() throws IOException {
+            base += limit;
+            pos = 0;
+            limit = 0;
+            int n = in.read(buf, 0, buf.length);
+            if (n <= 0) throw new MalformedIrException("Unexpected end of binary IR");
+            limit = n;
+        }
+
+        byte[] bytes(int n) throws IOException {
+            byte[] out = new byte[n];
+            int off = 0;
+            while (off < n) {
+                if (pos == limit) fill();
+                int chunk = Math.min(n - off, limit - pos);
+                System.arraycopy(buf, pos, out, off, chunk);
+                pos += chunk;
+                off += chunk;
+            }
+            return out;
+        }
+
+        long varlong() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new MalformedIrException("Varint too long");
+        }
+
+        int varint() throws IOException {
+            long v = varlong();
+            if (v < 0 || v > Integer.MAX_VALUE) throw new MalformedIrException("Length out of range: " + v);
+            return (int) v;
+        }
+
+        long fixed64() throws IOException {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | read();
+            }
+            return v;
+        }
+    }
+}
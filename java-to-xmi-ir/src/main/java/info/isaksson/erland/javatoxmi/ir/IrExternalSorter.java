@@ -0,0 +1,137 @@
+package info.isaksson.erland.javatoxmi.ir;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts IR elements that need not all fit in memory, for streaming readers that must order what they are handed
+ * ({@link IrNormalizer#RELATION_ORDER} etc.).
+ *
+ * <p>Up to {@code maxInMemory} elements are buffered; a full buffer is sorted and written to a temporary file as a
+ * run of JSON values, and {@link #drain} merges the runs. The sort is stable: elements that compare equal come out
+ * in the order they were added, like {@link List#sort}. Elements are written with the IR mapper, so they must
+ * round-trip through {@link IrJson} unchanged. {@link #close()} deletes the runs.</p>
+ */
+public final class IrExternalSorter<T> implements Closeable {
+
+    /** Receives the sorted elements. */
+    public interface Sink<T> {
+        void accept(T element) throws IOException;
+    }
+
+    private final Comparator<? super T> order;
+    private final int maxInMemory;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final List<T> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+
+    public IrExternalSorter(Class<T> type, Comparator<? super T> order, int maxInMemory) {
+        if (type == null || order == null) throw new IllegalArgumentException("type and order are required");
+        if (maxInMemory < 1) throw new IllegalArgumentException("maxInMemory must be positive");
+        this.order = order;
+        this.maxInMemory = maxInMemory;
+        this.writer = IrJson.mapper().writerFor(type);
+        this.reader = IrJson.mapper().readerFor(type);
+    }
+
+    public void add(T element) throws IOException {
+        buffer.add(element);
+        if (buffer.size() >= maxInMemory) spill();
+    }
+
+    /** Number of runs written to disk so far. */
+    public int spilledRuns() {
+        return runs.size();
+    }
+
+    /** Hands every element added so far to {@code sink} in order, then forgets them. */
+    public void drain(Sink<? super T> sink) throws IOException {
+        if (runs.isEmpty()) {
+            buffer.sort(order);
+            for (T e : buffer) sink.accept(e);
+            buffer.clear();
+            return;
+        }
+        if (!buffer.isEmpty()) spill();
+
+        List<Run<T>> open = new ArrayList<>();
+        try {
+            // Ties go to the earlier run, which holds the earlier additions.
+            PriorityQueue<Run<T>> heads = new PriorityQueue<>(Comparator
+                    .<Run<T>, T>comparing(r -> r.head, order)
+                    .thenComparingInt(r -> r.index));
+            for (int i = 0; i < runs.size(); i++) {
+                Run<T> run = new Run<>(i, reader.createParser(new BufferedInputStream(Files.newInputStream(runs.get(i)))));
+                open.add(run);
+                if (run.advance(reader)) heads.add(run);
+            }
+            while (!heads.isEmpty()) {
+                Run<T> run = heads.poll();
+                sink.accept(run.head);
+                if (run.advance(reader)) heads.add(run);
+            }
+        } finally {
+            for (Run<T> run : open) run.parser.close();
+            close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.clear();
+        IOException failure = null;
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        runs.clear();
+        if (failure != null) throw failure;
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(order);
+        Path run = Files.createTempFile("ir-sort-", ".json");
+        runs.add(run);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(run));
+             JsonGenerator g = writer.createGenerator(out)) {
+            for (T e : buffer) writer.writeValue(g, e);
+        }
+        buffer.clear();
+    }
+
+    private static final class Run<T> {
+        final int index;
+        final JsonParser parser;
+        T head;
+
+        Run(int index, JsonParser parser) {
+            this.index = index;
+            this.parser = parser;
+        }
+
+        boolean advance(ObjectReader reader) throws IOException {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return false;
+            head = reader.readValue(parser);
+            return true;
+        }
+    }
+}
@@ -8,7 +8,11 @@ import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -16,6 +20,10 @@ import java.nio.file.Path;
  * JSON serialization utilities for the cross-language IR.
  *
  * <p>Writing is deterministic: we normalize list ordering and enable stable map/key ordering.</p>
+ *
+ * <p>Files and streams may also hold the {@link IrBinary} encoding or {@link IrNdjson} records, and a directory
+ * may hold NDJSON shards: reading picks the format from the header, writing to a path picks it from the extension
+ * ({@value IrBinary#FILE_EXTENSION}, {@value IrNdjson#FILE_EXTENSION}).</p>
  */
 public final class IrJson {
 
@@ -24,13 +32,39 @@ public final class IrJson {
 
     private IrJson() {}
 
+    /** The mapper behind {@link #read}, shared with {@link IrStreamReader}. */
+    static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
     public static IrModel read(Path path) throws IOException {
         if (path == null) throw new IllegalArgumentException("path is null");
+        if (Files.isDirectory(path)) {
+            return IrNdjson.read(path, 0);
+        }
         try (var in = Files.newInputStream(path)) {
-            return MAPPER.readValue(in, IrModel.class);
+            return read(in);
         }
     }
 
+    /** Parse an IR model from a JSON, binary or NDJSON IR stream. The stream is not closed. */
+    public static IrModel read(InputStream in) throws IOException {
+        if (in == null) throw new IllegalArgumentException("in is null");
+        InputStream src = markable(in);
+        if (IrBinary.startsWithMagic(src)) {
+            return IrBinary.read(src);
+        }
+        if (IrNdjson.startsWithHeader(src)) {
+            return IrNdjson.read(src);
+        }
+        return MAPPER.readValue(src, IrModel.class);
+    }
+
+    /** {@code in}, or a buffered wrapper of it, so the format header can be sniffed. */
+    static InputStream markable(InputStream in) {
+        return in.markSupported() ? in : new BufferedInputStream(in);
+    }
+
     /** Parse an IR model from a JSON string. */
     public static IrModel readFromString(String json) throws IOException {
         if (json == null) throw new IllegalArgumentException("json is null");
@@ -39,15 +73,38 @@ public final class IrJson {
 
     public static void write(IrModel model, Path path) throws IOException {
         if (path == null) throw new IllegalArgumentException("path is null");
-        IrModel normalized = IrNormalizer.normalize(model);
         Files.createDirectories(path.toAbsolutePath().normalize().getParent());
+        if (IrBinary.isBinaryPath(path)) {
+            try (var out = new BufferedOutputStream(Files.newOutputStream(path))) {
+                IrBinary.write(model, out);
+            }
+            return;
+        }
+        if (IrNdjson.isNdjsonPath(path)) {
+            try (var out = new BufferedOutputStream(Files.newOutputStream(path))) {
+                IrNdjson.write(model, out);
+            }
+            return;
+        }
+        IrModel normalized = IrNormalizer.normalize(model);
         try (var out = Files.newOutputStream(path)) {
-            MAPPER.writer(PRETTY).writeValue(out, normalized);
-            // Ensure trailing newline for diff-friendliness.
-            out.write('\n');
+            writeNormalized(normalized, out);
         }
     }
 
+    /** Write the same JSON as {@link #write(IrModel, Path)} to a stream. The stream is flushed, not closed. */
+    public static void write(IrModel model, OutputStream out) throws IOException {
+        if (out == null) throw new IllegalArgumentException("out is null");
+        writeNormalized(IrNormalizer.normalize(model), out);
+        out.flush();
+    }
+
+    private static void writeNormalized(IrModel normalized, OutputStream out) throws IOException {
+        MAPPER.writer(PRETTY).writeValue(out, normalized);
+        // Ensure trailing newline for diff-friendliness.
+        out.write('\n');
+    }
+
     public static String toJsonString(IrModel model) throws IOException {
         IrModel normalized = IrNormalizer.normalize(model);
         return MAPPER.writer(PRETTY).writeValueAsString(normalized) + "\n";
@@ -29,6 +29,12 @@ public final class IrModel {
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
     public final List<IrTaggedValue> taggedValues;
 
+    /**
+     * Set by {@link IrNormalizer} on the models it returns. Not serialized and not part of equality. Unsynchronized
+     * like {@link String#hashCode()}'s cache: a thread that misses the write just normalizes again to the same result.
+     */
+    boolean normalized;
+
     @JsonCreator
     public IrModel(
             @JsonProperty("schemaVersion") String schemaVersion,
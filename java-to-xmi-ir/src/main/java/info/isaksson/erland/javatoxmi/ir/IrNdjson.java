@@ -0,0 +1,362 @@
+package info.isaksson.erland.javatoxmi.ir;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Newline-delimited IR: the model as a stream of records, one JSON object per line, so producers can write
+ * elements as they find them instead of building a whole {@link IrModel} first.
+ *
+ * <pre>
+ * {"header":{"schemaVersion":"2.0"}}
+ * {"stereotypeDefinition":{...}}
+ * {"package":{...}}
+ * {"classifier":{...}}
+ * {"relation":{...}}
+ * {"taggedValue":{...}}
+ * </pre>
+ *
+ * <p>Each record is an object with a single field naming the record type; its value has the IR JSON shape of
+ * that element. The header comes first, the other records in any order. A model may be split across several
+ * shard files ({@code *.ndjson} or {@code *.jsonl}) in one directory, each starting with a header carrying the
+ * same {@code schemaVersion}; shards are read in parallel.</p>
+ */
+public final class IrNdjson {
+
+    /** File extension that makes {@link IrJson#write(IrModel, Path)} write this format. */
+    public static final String FILE_EXTENSION = ".ndjson";
+
+    private static final List<String> EXTENSIONS = List.of(FILE_EXTENSION, ".jsonl");
+    private static final List<String> RECORD_TYPES =
+            List.of("header", "stereotypeDefinition", "package", "classifier", "relation", "taggedValue");
+    private static final Pattern HEADER_START = Pattern.compile("^\\uFEFF?\\s*\\{\\s*\"header\"");
+    private static final int SNIFF_BYTES = 256;
+
+    /** Shard parsers report the file in error locations. */
+    private static final JsonFactory SHARD_FACTORY = IrJson.mapper().getFactory().rebuild()
+            .enable(StreamReadFeature.INCLUDE_SOURCE_IN_LOCATION)
+            .build();
+
+    private IrNdjson() {}
+
+    /** The value of a {@code header} record. */
+    static final class Header {
+        final String schemaVersion;
+
+        @JsonCreator
+        Header(@JsonProperty("schemaVersion") String schemaVersion) {
+            this.schemaVersion = schemaVersion == null ? "1.0" : schemaVersion;
+        }
+    }
+
+    /** Whether {@code path} names an NDJSON IR file by its extension. */
+    public static boolean isNdjsonPath(Path path) {
+        Path name = path == null ? null : path.getFileName();
+        if (name == null) return false;
+        String lower = name.toString().toLowerCase(Locale.ROOT);
+        return EXTENSIONS.stream().anyMatch(lower::endsWith);
+    }
+
+    /** Whether {@code in} starts with a header record. {@code in} must support mark/reset and is reset. */
+    static boolean startsWithHeader(InputStream in) throws IOException {
+        in.mark(SNIFF_BYTES);
+        try {
+            String head = new String(in.readNBytes(SNIFF_BYTES), StandardCharsets.UTF_8);
+            return HEADER_START.matcher(head).find();
+        } finally {
+            in.reset();
+        }
+    }
+
+    /** The shard files of a directory, in file name order. */
+    public static List<Path> shards(Path directory) throws IOException {
+        List<Path> shards;
+        try (Stream<Path> files = Files.list(directory)) {
+            shards = files.filter(p -> Files.isRegularFile(p) && isNdjsonPath(p))
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .toList();
+        }
+        if (shards.isEmpty()) {
+            throw new IOException("No IR shards (*.ndjson, *.jsonl) in " + directory);
+        }
+        return shards;
+    }
+
+    // ---------------------------------------------------------------------------------------------------------
+    // Reading
+    // ---------------------------------------------------------------------------------------------------------
+
+    /** Read one NDJSON document from {@code in} (not closed). */
+    public static IrModel read(InputStream in) throws IOException {
+        IrStreamReader.Collector collector = new IrStreamReader.Collector();
+        return collector.model(read(in, collector).schemaVersion);
+    }
+
+    /** Read one NDJSON document from {@code in} (not closed), handing each element to {@code handler} in order. */
+    public static IrSummary read(InputStream in, IrStreamReader.Handler handler) throws IOException {
+        if (in == null) throw new IllegalArgumentException("in is null");
+        if (handler == null) throw new IllegalArgumentException("handler is null");
+        try (JsonParser p = IrJson.mapper().getFactory().createParser(in)) {
+            p.setCodec(IrJson.mapper());
+            p.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return records(p, handler);
+        }
+    }
+
+    /**
+     * Read all shards of {@code directory} into one model. Elements keep shard (file name) order, so the model
+     * does not depend on {@code threads}.
+     *
+     * @param threads shards read at once (0 = one per available processor)
+     */
+    public static IrModel read(Path directory, int threads) throws IOException {
+        List<Path> shards = shards(directory);
+        List<ShardModel> parts = eachShard(shards, threads, shard -> {
+            IrStreamReader.Collector c = new IrStreamReader.Collector();
+            return new ShardModel(readShard(shard, c), c);
+        });
+        IrSummary summary = merge(shards, parts.stream().map(ShardModel::summary).toList());
+        IrStreamReader.Collector all = new IrStreamReader.Collector();
+        for (ShardModel part : parts) {
+            all.definitions.addAll(part.collector.definitions);
+            all.packages.addAll(part.collector.packages);
+            all.classifiers.addAll(part.collector.classifiers);
+            all.relations.addAll(part.collector.relations);
+            all.taggedValues.addAll(part.collector.taggedValues);
+        }
+        return all.model(summary.schemaVersion);
+    }
+
+    private record ShardModel(IrSummary summary, IrStreamReader.Collector collector) {}
+
+    /**
+     * Read all shards of {@code directory}, handing elements to {@code handler}. Calls to the handler are
+     * serialized, but elements of different shards arrive interleaved in no particular order.
+     *
+     * @param threads shards read at once (0 = one per available processor)
+     */
+    public static IrSummary read(Path directory, int threads, IrStreamReader.Handler handler) throws IOException {
+        if (handler == null) throw new IllegalArgumentException("handler is null");
+        List<Path> shards = shards(directory);
+        IrStreamReader.Handler serialized = new SerializedHandler(handler);
+        return merge(shards, eachShard(shards, threads, shard -> readShard(shard, serialized)));
+    }
+
+    private static IrSummary readShard(Path shard, IrStreamReader.Handler handler) throws IOException {
+        try (JsonParser p = SHARD_FACTORY.createParser(shard.toFile())) {
+            p.setCodec(IrJson.mapper());
+            return records(p, handler);
+        }
+    }
+
+    private static IrSummary records(JsonParser p, IrStreamReader.Handler handler) throws IOException {
+        String schemaVersion = null;
+        int packages = 0;
+        int classifiers = 0;
+        int relations = 0;
+        JsonToken t;
+        while ((t = p.nextToken()) != null) {
+            if (t != JsonToken.START_OBJECT || p.nextToken() != JsonToken.FIELD_NAME) {
+                throw MismatchedInputException.from(p, IrModel.class, "IR NDJSON records must be objects with one field");
+            }
+            String type = p.currentName();
+            p.nextToken();
+            if (schemaVersion == null && !type.equals("header")) {
+                throw MismatchedInputException.from(p, IrModel.class, "IR NDJSON must start with a header record");
+            }
+            switch (type) {
+                case "header":
+                    if (schemaVersion != null) {
+                        throw MismatchedInputException.from(p, IrModel.class, "IR NDJSON has more than one header record");
+                    }
+                    schemaVersion = p.readValueAs(Header.class).schemaVersion;
+                    break;
+                case "stereotypeDefinition":
+                    handler.stereotypeDefinition(p.readValueAs(IrStereotypeDefinition.class));
+                    break;
+                case "package":
+                    handler.irPackage(p.readValueAs(IrPackage.class));
+                    packages++;
+                    break;
+                case "classifier":
+                    handler.classifier(p.readValueAs(IrClassifier.class));
+                    classifiers++;
+                    break;
+                case "relation":
+                    handler.relation(p.readValueAs(IrRelation.class));
+                    relations++;
+                    break;
+                case "taggedValue":
+                    handler.taggedValue(p.readValueAs(IrTaggedValue.class));
+                    break;
+                default:
+                    throw UnrecognizedPropertyException.from(p, IrModel.class, type, List.copyOf(RECORD_TYPES));
+            }
+            if (p.nextToken() != JsonToken.END_OBJECT) {
+                throw MismatchedInputException.from(p, IrModel.class, "IR NDJSON records must be objects with one field");
+            }
+        }
+        if (schemaVersion == null) {
+            throw MismatchedInputException.from(p, IrModel.class, "IR NDJSON must start with a header record");
+        }
+        return new IrSummary(schemaVersion, packages, classifiers, relations);
+    }
+
+    private interface ShardTask<T> {
+        T read(Path shard) throws IOException;
+    }
+
+    /** Runs {@code task} for every shard on a bounded pool; results in shard order. */
+    private static <T> List<T> eachShard(List<Path> shards, int threads, ShardTask<T> task) throws IOException {
+        int n = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        n = Math.max(1, Math.min(n, shards.size()));
+        if (n == 1) {
+            List<T> out = new ArrayList<>();
+            for (Path shard : shards) out.add(task.read(shard));
+            return out;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r, "java-to-xmi-ir-shards");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Path shard : shards) futures.add(pool.submit(() -> task.read(shard)));
+            List<T> out = new ArrayList<>();
+            for (Future<T> f : futures) out.add(f.get());
+            return out;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading IR shards", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static IrSummary merge(List<Path> shards, List<IrSummary> summaries) throws IOException {
+        String schemaVersion = summaries.get(0).schemaVersion;
+        int packages = 0;
+        int classifiers = 0;
+        int relations = 0;
+        for (int i = 0; i < summaries.size(); i++) {
+            IrSummary s = summaries.get(i);
+            if (!schemaVersion.equals(s.schemaVersion)) {
+                throw new IOException("IR shard " + shards.get(i).getFileName() + " has schemaVersion " + s.schemaVersion
+                        + ", " + shards.get(0).getFileName() + " has " + schemaVersion);
+            }
+            packages += s.packageCount;
+            classifiers += s.classifierCount;
+            relations += s.relationCount;
+        }
+        return new IrSummary(schemaVersion, packages, classifiers, relations);
+    }
+
+    /** Lets shard threads share one handler. */
+    private static final class SerializedHandler implements IrStreamReader.Handler {
+        private final IrStreamReader.Handler delegate;
+
+        SerializedHandler(IrStreamReader.Handler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override public synchronized void stereotypeDefinition(IrStereotypeDefinition definition) { delegate.stereotypeDefinition(definition); }
+        @Override public synchronized void irPackage(IrPackage p) { delegate.irPackage(p); }
+        @Override public synchronized void classifier(IrClassifier classifier) throws IOException { delegate.classifier(classifier); }
+        @Override public synchronized void relation(IrRelation relation) throws IOException { delegate.relation(relation); }
+        @Override public synchronized void taggedValue(IrTaggedValue taggedValue) { delegate.taggedValue(taggedValue); }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------
+    // Writing
+    // ---------------------------------------------------------------------------------------------------------
+
+    /** Write {@code model}, normalized like {@link IrJson#write}, as one NDJSON document. The stream is flushed, not closed. */
+    public static void write(IrModel model, OutputStream out) throws IOException {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        IrModel normalized = IrNormalizer.normalize(model);
+        Writer w = new Writer(out, normalized.schemaVersion);
+        for (IrStereotypeDefinition d : normalized.stereotypeDefinitions) w.stereotypeDefinition(d);
+        for (IrPackage p : normalized.packages) w.irPackage(p);
+        for (IrClassifier c : normalized.classifiers) w.classifier(c);
+        for (IrRelation r : normalized.relations) w.relation(r);
+        for (IrTaggedValue tv : normalized.taggedValues) w.taggedValue(tv);
+        w.close();
+    }
+
+    /**
+     * Writes records one at a time, for producers that emit elements as they find them. The header is written
+     * on construction; {@link #close()} flushes but does not close the stream.
+     */
+    public static final class Writer implements Closeable {
+        private final OutputStream out;
+
+        public Writer(OutputStream out, String schemaVersion) throws IOException {
+            if (out == null) throw new IllegalArgumentException("out is null");
+            this.out = out;
+            record("header", Map.of("schemaVersion", schemaVersion == null ? "1.0" : schemaVersion));
+        }
+
+        public void stereotypeDefinition(IrStereotypeDefinition definition) throws IOException {
+            record("stereotypeDefinition", definition);
+        }
+
+        public void irPackage(IrPackage p) throws IOException {
+            record("package", p);
+        }
+
+        public void classifier(IrClassifier classifier) throws IOException {
+            record("classifier", classifier);
+        }
+
+        public void relation(IrRelation relation) throws IOException {
+            record("relation", relation);
+        }
+
+        public void taggedValue(IrTaggedValue taggedValue) throws IOException {
+            record("taggedValue", taggedValue);
+        }
+
+        private void record(String type, Object value) throws IOException {
+            if (value == null) throw new IllegalArgumentException(type + " is null");
+            out.write(IrJson.mapper().writeValueAsBytes(Map.of(type, value)));
+            out.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package info.isaksson.erland.javatoxmi.ir;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 /**
  * Produces a stable, deterministic ordering of all IR lists so JSON output is reproducible.
@@ -12,6 +13,10 @@ import java.util.List;
  * relations by (kind, sourceId, targetId, name, id).</p>
  *
  * <p>IMPORTANT: Parameter order is preserved as provided (do not sort).</p>
+ *
+ * <p>IR objects are immutable, so normalization only copies what it has to: a list that is already sorted and whose
+ * elements are already normalized is returned as is, and so is an element none of whose lists changed. A model
+ * returned by {@link #normalize(IrModel)} is marked, and normalizing it again returns it immediately.</p>
  */
 public final class IrNormalizer {
 
@@ -19,6 +24,7 @@ public final class IrNormalizer {
 
     public static IrModel normalize(IrModel in) {
         if (in == null) return null;
+        if (in.normalized) return in;
 
         List<IrStereotypeDefinition> defs = normalizeStereotypeDefinitions(in.stereotypeDefinitions);
         List<IrPackage> pkgs = normalizePackages(in.packages);
@@ -26,86 +32,145 @@ public final class IrNormalizer {
         List<IrRelation> rels = normalizeRelations(in.relations);
         List<IrTaggedValue> tags = normalizeTaggedValues(in.taggedValues);
 
-        return new IrModel(in.schemaVersion, defs, pkgs, clzs, rels, tags);
+        IrModel out = defs == in.stereotypeDefinitions && pkgs == in.packages && clzs == in.classifiers
+                && rels == in.relations && tags == in.taggedValues
+                ? in
+                : new IrModel(in.schemaVersion, defs, pkgs, clzs, rels, tags);
+        out.normalized = true;
+        return out;
     }
 
+    private static final Comparator<IrPackage> PACKAGE_ORDER = Comparator
+            .comparing((IrPackage p) -> safe(p.qualifiedName))
+            .thenComparing(p -> safe(p.id))
+            .thenComparing(p -> safe(p.name));
+
     private static List<IrPackage> normalizePackages(List<IrPackage> in) {
-        if (in == null) return List.of();
-        List<IrPackage> out = new ArrayList<>(in.size());
-        for (IrPackage p : in) {
-            if (p == null) continue;
-            out.add(new IrPackage(
+        return normalizeList(in, p -> {
+            List<IrTaggedValue> tags = normalizeTaggedValues(p.taggedValues);
+            if (tags == p.taggedValues) return p;
+            return new IrPackage(
                     p.id,
                     p.name,
                     p.qualifiedName,
                     p.parentId,
-                    normalizeTaggedValues(p.taggedValues)
-            ));
+                    tags
+            );
+        }, PACKAGE_ORDER);
+    }
+
+    /** Order of classifiers in a normalized model. */
+    public static final Comparator<IrClassifier> CLASSIFIER_ORDER = Comparator
+            .comparing((IrClassifier c) -> safe(c.qualifiedName))
+            .thenComparing(c -> safe(c.id))
+            .thenComparing(c -> safe(c.name));
+
+    /** Order of relations in a normalized model. */
+    public static final Comparator<IrRelation> RELATION_ORDER = Comparator
+            .comparing((IrRelation r) -> r.kind == null ? "" : r.kind.name())
+            .thenComparing(r -> safe(r.sourceId))
+            .thenComparing(r -> safe(r.targetId))
+            .thenComparing(r -> safe(r.name))
+            .thenComparing(r -> safe(r.id));
+
+    /**
+     * Normalize one classifier's members, as {@link #normalize(IrModel)} does; for callers that see classifiers
+     * one at a time and sort them with {@link #CLASSIFIER_ORDER} themselves. Returns {@code c} itself if its
+     * members are already normalized.
+     */
+    public static IrClassifier normalize(IrClassifier c) {
+        List<IrAttribute> attributes = normalizeAttributes(c.attributes);
+        List<IrOperation> operations = normalizeOperations(c.operations);
+        List<IrStereotype> stereotypes = normalizeStereotypes(c.stereotypes);
+        List<IrStereotypeRef> refs = normalizeStereotypeRefs(c.stereotypeRefs);
+        List<IrTaggedValue> tags = normalizeTaggedValues(c.taggedValues);
+        if (attributes == c.attributes && operations == c.operations && stereotypes == c.stereotypes
+                && refs == c.stereotypeRefs && tags == c.taggedValues) {
+            return c;
         }
-        out.sort(Comparator
-                .comparing((IrPackage p) -> safe(p.qualifiedName))
-                .thenComparing(p -> safe(p.id))
-                .thenComparing(p -> safe(p.name)));
-        return List.copyOf(out);
+        return new IrClassifier(
+                c.id,
+                c.name,
+                c.qualifiedName,
+                c.packageId,
+                c.kind,
+                c.visibility,
+                attributes,
+                operations,
+                stereotypes,
+                refs,
+                tags,
+                c.source
+        );
+    }
+
+    /**
+     * Normalize one relation, as {@link #normalize(IrModel)} does; see {@link #RELATION_ORDER}. Returns {@code r}
+     * itself if it is already normalized.
+     */
+    public static IrRelation normalize(IrRelation r) {
+        List<IrStereotype> stereotypes = normalizeStereotypes(r.stereotypes);
+        List<IrStereotypeRef> refs = normalizeStereotypeRefs(r.stereotypeRefs);
+        List<IrTaggedValue> tags = normalizeTaggedValues(r.taggedValues);
+        if (stereotypes == r.stereotypes && refs == r.stereotypeRefs && tags == r.taggedValues) return r;
+        return new IrRelation(
+                r.id,
+                r.kind,
+                r.sourceId,
+                r.targetId,
+                r.name,
+                stereotypes,
+                refs,
+                tags,
+                r.source
+        );
     }
 
     private static List<IrClassifier> normalizeClassifiers(List<IrClassifier> in) {
-        if (in == null) return List.of();
-        List<IrClassifier> out = new ArrayList<>(in.size());
-        for (IrClassifier c : in) {
-            if (c == null) continue;
-            out.add(new IrClassifier(
-                    c.id,
-                    c.name,
-                    c.qualifiedName,
-                    c.packageId,
-                    c.kind,
-                    c.visibility,
-                    normalizeAttributes(c.attributes),
-                    normalizeOperations(c.operations),
-                    normalizeStereotypes(c.stereotypes),
-                    normalizeStereotypeRefs(c.stereotypeRefs),
-                    normalizeTaggedValues(c.taggedValues),
-                    c.source
-            ));
-        }
-        out.sort(Comparator
-                .comparing((IrClassifier c) -> safe(c.qualifiedName))
-                .thenComparing(c -> safe(c.id))
-                .thenComparing(c -> safe(c.name)));
-        return List.copyOf(out);
+        return normalizeList(in, IrNormalizer::normalize, CLASSIFIER_ORDER);
     }
 
+    private static final Comparator<IrAttribute> ATTRIBUTE_ORDER = Comparator
+            .comparing((IrAttribute a) -> safe(a.name))
+            .thenComparing(a -> safe(a.id));
+
     private static List<IrAttribute> normalizeAttributes(List<IrAttribute> in) {
-        if (in == null) return List.of();
-        List<IrAttribute> out = new ArrayList<>(in.size());
-        for (IrAttribute a : in) {
-            if (a == null) continue;
-            out.add(new IrAttribute(
+        return normalizeList(in, a -> {
+            List<IrStereotype> stereotypes = normalizeStereotypes(a.stereotypes);
+            List<IrStereotypeRef> refs = normalizeStereotypeRefs(a.stereotypeRefs);
+            List<IrTaggedValue> tags = normalizeTaggedValues(a.taggedValues);
+            if (stereotypes == a.stereotypes && refs == a.stereotypeRefs && tags == a.taggedValues) return a;
+            return new IrAttribute(
                     a.id,
                     a.name,
                     a.visibility,
                     a.isStatic,
                     a.isFinal,
                     a.type,
-                    normalizeStereotypes(a.stereotypes),
-                    normalizeStereotypeRefs(a.stereotypeRefs),
-                    normalizeTaggedValues(a.taggedValues),
+                    stereotypes,
+                    refs,
+                    tags,
                     a.source
-            ));
-        }
-        out.sort(Comparator
-                .comparing((IrAttribute a) -> safe(a.name))
-                .thenComparing(a -> safe(a.id)));
-        return List.copyOf(out);
+            );
+        }, ATTRIBUTE_ORDER);
     }
 
+    private static final Comparator<IrOperation> OPERATION_ORDER = Comparator
+            .comparing((IrOperation o) -> safe(o.name))
+            .thenComparing(IrNormalizer::signatureKey)
+            .thenComparing(o -> safe(o.id));
+
     private static List<IrOperation> normalizeOperations(List<IrOperation> in) {
-        if (in == null) return List.of();
-        List<IrOperation> out = new ArrayList<>(in.size());
-        for (IrOperation o : in) {
-            if (o == null) continue;
-            out.add(new IrOperation(
+        return normalizeList(in, o -> {
+            List<IrParameter> parameters = normalizeParameters(o.parameters);
+            List<IrStereotype> stereotypes = normalizeStereotypes(o.stereotypes);
+            List<IrStereotypeRef> refs = normalizeStereotypeRefs(o.stereotypeRefs);
+            List<IrTaggedValue> tags = normalizeTaggedValues(o.taggedValues);
+            if (parameters == o.parameters && stereotypes == o.stereotypes && refs == o.stereotypeRefs
+                    && tags == o.taggedValues) {
+                return o;
+            }
+            return new IrOperation(
                     o.id,
                     o.name,
                     o.visibility,
@@ -113,18 +178,13 @@ public final class IrNormalizer {
                     o.isAbstract,
                     o.isConstructor,
                     o.returnType,
-                    normalizeParameters(o.parameters),
-                    normalizeStereotypes(o.stereotypes),
-                    normalizeStereotypeRefs(o.stereotypeRefs),
-                    normalizeTaggedValues(o.taggedValues),
+                    parameters,
+                    stereotypes,
+                    refs,
+                    tags,
                     o.source
-            ));
-        }
-        out.sort(Comparator
-                .comparing((IrOperation o) -> safe(o.name))
-                .thenComparing(IrNormalizer::signatureKey)
-                .thenComparing(o -> safe(o.id)));
-        return List.copyOf(out);
+            );
+        }, OPERATION_ORDER);
     }
 
     private static String signatureKey(IrOperation o) {
@@ -138,118 +198,105 @@ public final class IrNormalizer {
     }
 
     private static List<IrParameter> normalizeParameters(List<IrParameter> in) {
-        if (in == null) return List.of();
-        List<IrParameter> out = new ArrayList<>(in.size());
-        for (IrParameter p : in) {
-            if (p == null) continue;
-            out.add(new IrParameter(
+        // Keep parameter order by index (as provided) - do not sort.
+        return normalizeList(in, p -> {
+            List<IrTaggedValue> tags = normalizeTaggedValues(p.taggedValues);
+            if (tags == p.taggedValues) return p;
+            return new IrParameter(
                     p.name,
                     p.type,
-                    normalizeTaggedValues(p.taggedValues)
-            ));
-        }
-        // Keep parameter order by index (as provided) - do not sort.
-        return List.copyOf(out);
+                    tags
+            );
+        }, null);
     }
 
     private static List<IrRelation> normalizeRelations(List<IrRelation> in) {
-        if (in == null) return List.of();
-        List<IrRelation> out = new ArrayList<>(in.size());
-        for (IrRelation r : in) {
-            if (r == null) continue;
-            out.add(new IrRelation(
-                    r.id,
-                    r.kind,
-                    r.sourceId,
-                    r.targetId,
-                    r.name,
-                    normalizeStereotypes(r.stereotypes),
-                    normalizeStereotypeRefs(r.stereotypeRefs),
-                    normalizeTaggedValues(r.taggedValues),
-                    r.source
-            ));
-        }
-        out.sort(Comparator
-                .comparing((IrRelation r) -> r.kind == null ? "" : r.kind.name())
-                .thenComparing(r -> safe(r.sourceId))
-                .thenComparing(r -> safe(r.targetId))
-                .thenComparing(r -> safe(r.name))
-                .thenComparing(r -> safe(r.id)));
-        return List.copyOf(out);
+        return normalizeList(in, IrNormalizer::normalize, RELATION_ORDER);
     }
 
-    
+    private static final Comparator<IrStereotypePropertyDefinition> PROPERTY_ORDER = Comparator
+            .comparing((IrStereotypePropertyDefinition p) -> safe(p.name))
+            .thenComparing(p -> safe(p.type))
+            .thenComparing(p -> p.isMulti);
+
+    private static final Comparator<IrStereotypeDefinition> DEFINITION_ORDER = Comparator
+            .comparing((IrStereotypeDefinition d) -> safe(d.profileName))
+            .thenComparing(d -> safe(d.id))
+            .thenComparing(d -> safe(d.name));
+
     private static List<IrStereotypeDefinition> normalizeStereotypeDefinitions(List<IrStereotypeDefinition> in) {
-        if (in == null) return List.of();
-        List<IrStereotypeDefinition> out = new ArrayList<>(in.size());
-        for (IrStereotypeDefinition d : in) {
-            if (d == null) continue;
-            List<String> appliesTo = d.appliesTo == null ? List.of() : new ArrayList<>(d.appliesTo);
-            appliesTo.sort(String::compareTo);
-
-            List<IrStereotypePropertyDefinition> props = d.properties == null ? List.of() : new ArrayList<>(d.properties);
-            props.sort(Comparator
-                    .comparing((IrStereotypePropertyDefinition p) -> safe(p.name))
-                    .thenComparing(p -> safe(p.type))
-                    .thenComparing(p -> p.isMulti));
-
-            out.add(new IrStereotypeDefinition(
+        return normalizeList(in, d -> {
+            List<String> appliesTo = normalizeList(d.appliesTo, UnaryOperator.identity(), String::compareTo);
+            List<IrStereotypePropertyDefinition> props = normalizeList(d.properties, UnaryOperator.identity(), PROPERTY_ORDER);
+            if (appliesTo == d.appliesTo && props == d.properties) return d;
+            return new IrStereotypeDefinition(
                     d.id,
                     d.name,
                     d.qualifiedName,
                     d.profileName,
-                    List.copyOf(appliesTo),
-                    List.copyOf(props)
-            ));
-        }
-        out.sort(Comparator
-                .comparing((IrStereotypeDefinition d) -> safe(d.profileName))
-                .thenComparing(d -> safe(d.id))
-                .thenComparing(d -> safe(d.name)));
-        return List.copyOf(out);
+                    appliesTo,
+                    props
+            );
+        }, DEFINITION_ORDER);
     }
 
+    private static final Comparator<IrStereotypeRef> STEREOTYPE_REF_ORDER =
+            Comparator.comparing((IrStereotypeRef r) -> safe(r.stereotypeId));
+
     private static List<IrStereotypeRef> normalizeStereotypeRefs(List<IrStereotypeRef> in) {
-        if (in == null) return List.of();
-        List<IrStereotypeRef> out = new ArrayList<>(in.size());
-        for (IrStereotypeRef r : in) {
-            if (r == null) continue;
-            out.add(new IrStereotypeRef(r.stereotypeId, r.values));
-        }
-        out.sort(Comparator.comparing((IrStereotypeRef r) -> safe(r.stereotypeId)));
-        return List.copyOf(out);
+        return normalizeList(in, UnaryOperator.identity(), STEREOTYPE_REF_ORDER);
     }
 
-private static List<IrStereotype> normalizeStereotypes(List<IrStereotype> in) {
-        if (in == null) return List.of();
-        List<IrStereotype> out = new ArrayList<>(in.size());
-        for (IrStereotype s : in) {
-            if (s == null) continue;
-            out.add(new IrStereotype(s.name, s.qualifiedName));
-        }
-        out.sort(Comparator
-                .comparing((IrStereotype s) -> safe(s.qualifiedName))
-                .thenComparing(s -> safe(s.name)));
-        return List.copyOf(out);
+    private static final Comparator<IrStereotype> STEREOTYPE_ORDER = Comparator
+            .comparing((IrStereotype s) -> safe(s.qualifiedName))
+            .thenComparing(s -> safe(s.name));
+
+    private static List<IrStereotype> normalizeStereotypes(List<IrStereotype> in) {
+        return normalizeList(in, UnaryOperator.identity(), STEREOTYPE_ORDER);
     }
 
+    private static final Comparator<IrTaggedValue> TAGGED_VALUE_ORDER = Comparator
+            .comparingInt((IrTaggedValue t) -> {
+                String k = safe(t.key);
+                if ("framework".equals(k)) return 0;
+                if (k.startsWith("runtime.")) return 1;
+                return 2;
+            })
+            .thenComparing(t -> safe(t.key))
+            .thenComparing(t -> safe(t.value));
+
     private static List<IrTaggedValue> normalizeTaggedValues(List<IrTaggedValue> in) {
+        return normalizeList(in, UnaryOperator.identity(), TAGGED_VALUE_ORDER);
+    }
+
+    /**
+     * Normalize each element with {@code element} (which returns its argument when there is nothing to change), drop
+     * nulls and sort by {@code order} ({@code null} keeps the given order). The input list itself is returned when no
+     * element changed and it is already in order; otherwise it is copied once.
+     */
+    private static <T> List<T> normalizeList(List<T> in, UnaryOperator<T> element, Comparator<? super T> order) {
         if (in == null) return List.of();
-        List<IrTaggedValue> out = new ArrayList<>(in.size());
-        for (IrTaggedValue t : in) {
-            if (t == null) continue;
-            out.add(new IrTaggedValue(t.key, t.value));
+        List<T> out = null;
+        for (int i = 0; i < in.size(); i++) {
+            T e = in.get(i);
+            T n = e == null ? null : element.apply(e);
+            if (out == null && (n != e || e == null)) out = new ArrayList<>(in.subList(0, i));
+            if (out != null && n != null) out.add(n);
+        }
+        List<T> list = out == null ? in : out;
+        if (order != null && !isSorted(list, order)) {
+            if (out == null) list = new ArrayList<>(in);
+            list.sort(order);
+        }
+        // List.copyOf returns an unmodifiable input (as all IR lists are) without copying.
+        return List.copyOf(list);
+    }
+
+    private static <T> boolean isSorted(List<T> list, Comparator<? super T> order) {
+        for (int i = 1; i < list.size(); i++) {
+            if (order.compare(list.get(i - 1), list.get(i)) > 0) return false;
         }
-        out.sort(Comparator
-                .comparingInt((IrTaggedValue t) -> {
-                    String k = safe(t.key);
-                    if ("framework".equals(k)) return 0;
-                    if (k.startsWith("runtime.")) return 1;
-                    return 2;
-                })
-                .thenComparing(t -> safe(t.key))
-                .thenComparing(t -> safe(t.value)));
-        return List.copyOf(out);
+        return true;
     }
 
     private static String typeKey(IrTypeRef t) {
@@ -0,0 +1,157 @@
+package info.isaksson.erland.javatoxmi.ir;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads IR JSON element by element instead of materializing an {@link IrModel}.
+ *
+ * <p>Each classifier, relation, package, stereotype definition and model-level tagged value is bound on its own
+ * and handed to a {@link Handler} in document order, so only one classifier's tree is alive at a time. The
+ * document is validated like {@link IrJson#read}: unknown fields are rejected and {@code null} lists are empty;
+ * {@code null} list elements are skipped. A stream holding the {@link IrBinary} encoding or {@link IrNdjson}
+ * records is read with their reader instead.</p>
+ */
+public final class IrStreamReader {
+
+    /** Receives the elements of an IR document. Elements are not normalized. */
+    public interface Handler {
+        default void stereotypeDefinition(IrStereotypeDefinition definition) {}
+
+        default void irPackage(IrPackage p) {}
+
+        void classifier(IrClassifier classifier) throws IOException;
+
+        void relation(IrRelation relation) throws IOException;
+
+        default void taggedValue(IrTaggedValue taggedValue) {}
+    }
+
+    /** Collects the elements it is handed, to build an {@link IrModel} from a streamed document. */
+    static final class Collector implements Handler {
+        final List<IrStereotypeDefinition> definitions = new ArrayList<>();
+        final List<IrPackage> packages = new ArrayList<>();
+        final List<IrClassifier> classifiers = new ArrayList<>();
+        final List<IrRelation> relations = new ArrayList<>();
+        final List<IrTaggedValue> taggedValues = new ArrayList<>();
+
+        @Override public void stereotypeDefinition(IrStereotypeDefinition definition) { definitions.add(definition); }
+        @Override public void irPackage(IrPackage p) { packages.add(p); }
+        @Override public void classifier(IrClassifier classifier) { classifiers.add(classifier); }
+        @Override public void relation(IrRelation relation) { relations.add(relation); }
+        @Override public void taggedValue(IrTaggedValue taggedValue) { taggedValues.add(taggedValue); }
+
+        IrModel model(String schemaVersion) {
+            return new IrModel(schemaVersion, definitions, packages, classifiers, relations, taggedValues);
+        }
+    }
+
+    private IrStreamReader() {}
+
+    /**
+     * Read one IR document from {@code in} (not closed).
+     *
+     * @return counts of what was read
+     */
+    public static IrSummary read(InputStream in, Handler handler) throws IOException {
+        if (in == null) throw new IllegalArgumentException("in is null");
+        if (handler == null) throw new IllegalArgumentException("handler is null");
+
+        InputStream src = IrJson.markable(in);
+        if (IrBinary.startsWithMagic(src)) {
+            return IrBinary.read(src, handler);
+        }
+        if (IrNdjson.startsWithHeader(src)) {
+            return IrNdjson.read(src, handler);
+        }
+
+        String schemaVersion = null;
+        int[] counts = new int[3]; // packages, classifiers, relations
+        try (JsonParser p = IrJson.mapper().getFactory().createParser(src)) {
+            p.setCodec(IrJson.mapper());
+            p.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw MismatchedInputException.from(p, IrModel.class, "IR JSON must be an object");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                switch (field) {
+                    case "schemaVersion":
+                        schemaVersion = value == JsonToken.VALUE_NULL ? null : p.getValueAsString();
+                        break;
+                    case "stereotypeDefinitions":
+                        elements(p, IrStereotypeDefinition.class, handler::stereotypeDefinition);
+                        break;
+                    case "packages":
+                        elements(p, IrPackage.class, pkg -> {
+                            handler.irPackage(pkg);
+                            counts[0]++;
+                        });
+                        break;
+                    case "classifiers":
+                        elements(p, IrClassifier.class, c -> {
+                            handler.classifier(c);
+                            counts[1]++;
+                        });
+                        break;
+                    case "relations":
+                        elements(p, IrRelation.class, r -> {
+                            handler.relation(r);
+                            counts[2]++;
+                        });
+                        break;
+                    case "taggedValues":
+                        elements(p, IrTaggedValue.class, handler::taggedValue);
+                        break;
+                    default:
+                        throw UnrecognizedPropertyException.from(p, IrModel.class, field,
+                                List.of("schemaVersion", "stereotypeDefinitions", "packages", "classifiers", "relations", "taggedValues"));
+                }
+            }
+        }
+        return new IrSummary(schemaVersion == null ? "1.0" : schemaVersion, counts[0], counts[1], counts[2]);
+    }
+
+    /**
+     * Read an IR file in any format, or a directory of {@link IrNdjson} shards.
+     *
+     * @param threads shards read at once (0 = one per available processor); for a directory, calls to
+     *                {@code handler} are serialized but elements of different shards arrive interleaved
+     */
+    public static IrSummary read(Path path, int threads, Handler handler) throws IOException {
+        if (path == null) throw new IllegalArgumentException("path is null");
+        if (Files.isDirectory(path)) {
+            return IrNdjson.read(path, threads, handler);
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            return read(in, handler);
+        }
+    }
+
+    private interface ElementSink<T> {
+        void accept(T element) throws IOException;
+    }
+
+    /** Binds the elements of the array at the current token one at a time. */
+    private static <T> void elements(JsonParser p, Class<T> type, ElementSink<T> sink) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) return;
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            throw MismatchedInputException.from(p, type, "Expected an array of " + type.getSimpleName());
+        }
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (t != JsonToken.VALUE_NULL) sink.accept(p.readValueAs(type));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package info.isaksson.erland.javatoxmi.ir;
+
+/**
+ * Size of an IR document, for reports and logs when the {@link IrModel} itself is not kept.
+ */
+public final class IrSummary {
+    public final String schemaVersion;
+    public final int packageCount;
+    public final int classifierCount;
+    public final int relationCount;
+
+    public IrSummary(String schemaVersion, int packageCount, int classifierCount, int relationCount) {
+        this.schemaVersion = schemaVersion;
+        this.packageCount = packageCount;
+        this.classifierCount = classifierCount;
+        this.relationCount = relationCount;
+    }
+
+    public static IrSummary of(IrModel model) {
+        return new IrSummary(model.schemaVersion, model.packages.size(), model.classifiers.size(), model.relations.size());
+    }
+}
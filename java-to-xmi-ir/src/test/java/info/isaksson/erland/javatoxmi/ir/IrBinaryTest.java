@@ -0,0 +1,122 @@
+package info.isaksson.erland.javatoxmi.ir;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IrBinaryTest {
+
+    @Test
+    void roundTripsGoldenFixturesToTheSameModelAsJson(@TempDir Path tmp) throws Exception {
+        for (String name : List.of("java-mini", "angular-mini", "react-mini")) {
+            IrModel fromJson;
+            try (InputStream in = getClass().getClassLoader().getResourceAsStream("ir/golden/" + name + ".json")) {
+                fromJson = IrJson.read(in);
+            }
+
+            Path irb = tmp.resolve(name + IrBinary.FILE_EXTENSION);
+            IrJson.write(fromJson, irb);
+            IrModel fromBinary = IrJson.read(irb);
+
+            assertEquals(IrNormalizer.normalize(fromJson), fromBinary, name);
+            assertEquals(IrJson.toJsonString(fromJson), IrJson.toJsonString(fromBinary), name);
+            assertTrue(Files.size(irb) < IrJson.toJsonString(fromJson).length() / 2, name + " should be compact");
+
+            // Writing is deterministic and does not depend on the input order.
+            ByteArrayOutputStream again = new ByteArrayOutputStream();
+            IrBinary.write(fromBinary, again);
+            assertArrayEquals(Files.readAllBytes(irb), again.toByteArray(), name);
+        }
+    }
+
+    @Test
+    void streamsBinaryThroughIrStreamReader() throws Exception {
+        IrModel model = sample();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IrBinary.write(model, bytes);
+
+        List<IrClassifier> classifiers = new java.util.ArrayList<>();
+        IrSummary summary = IrStreamReader.read(new ByteArrayInputStream(bytes.toByteArray()), new IrStreamReader.Handler() {
+            @Override public void classifier(IrClassifier classifier) { classifiers.add(classifier); }
+            @Override public void relation(IrRelation relation) {}
+        });
+        assertEquals("2.0", summary.schemaVersion);
+        assertEquals(1, summary.classifierCount);
+        assertEquals(1, summary.relationCount);
+        assertEquals(model.classifiers, classifiers);
+    }
+
+    @Test
+    void keepsStereotypeValuesAndNullsAsJsonWould() throws Exception {
+        IrModel model = sample();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IrBinary.write(model, bytes);
+        IrModel decoded = IrBinary.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        IrModel viaJson = IrJson.readFromString(IrJson.toJsonString(model));
+        assertEquals(viaJson, decoded);
+        Map<String, Object> values = decoded.classifiers.get(0).stereotypeRefs.get(0).values;
+        assertEquals(Integer.valueOf(-3), values.get("int"));
+        assertEquals(Long.valueOf(1L << 40), values.get("long"));
+        assertEquals(new BigInteger("123456789012345678901234567890"), values.get("big"));
+        assertEquals(Arrays.asList("a", null, 1.5, true), values.get("list"));
+        assertNull(decoded.classifiers.get(0).source.col);
+        assertNull(decoded.relations.get(0).name);
+    }
+
+    @Test
+    void rejectsMalformedDocuments() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IrBinary.write(sample(), bytes);
+        byte[] valid = bytes.toByteArray();
+
+        byte[] truncated = Arrays.copyOf(valid, valid.length - 3);
+        assertThrows(IrBinary.MalformedIrException.class, () -> IrBinary.read(new ByteArrayInputStream(truncated)));
+        byte[] future = valid.clone();
+        future[4] = 9;
+        assertThrows(IrBinary.MalformedIrException.class, () -> IrJson.read(new ByteArrayInputStream(future)));
+        assertThrows(IrBinary.MalformedIrException.class, () -> IrBinary.read(new ByteArrayInputStream("{}".getBytes())));
+    }
+
+    private static IrModel sample() {
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("k", "v");
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("int", -3);
+        values.put("long", 1L << 40);
+        values.put("big", new BigInteger("123456789012345678901234567890"));
+        values.put("list", Arrays.asList("a", null, 1.5, true));
+        values.put("map", nested);
+        IrClassifier order = new IrClassifier("c:Order", "Order", "com.acme.Order", "p:com.acme",
+                IrClassifierKind.RECORD, IrVisibility.PUBLIC,
+                List.of(new IrAttribute("a:id", "id", IrVisibility.PRIVATE, false, true,
+                        IrTypeRef.generic("List", List.of(IrTypeRef.arrayOf(IrTypeRef.primitive("byte")))),
+                        List.of(), List.of(new IrTaggedValue("jpa.id", "true")), new IrSourceRef("Order.java", 3, 5))),
+                List.of(new IrOperation("o:total", "total", IrVisibility.PUBLIC, true, false, false,
+                        IrTypeRef.union(List.of(IrTypeRef.named("java.math.BigDecimal"), IrTypeRef.unknown())),
+                        List.of(new IrParameter("currency", IrTypeRef.named("String"), null)),
+                        List.of(IrStereotype.simple("Query")), null, null)),
+                List.of(new IrStereotype("Entity", "JPA::Entity")),
+                List.of(new IrStereotypeRef("st:Entity", values)),
+                List.of(new IrTaggedValue("table", "orders")),
+                new IrSourceRef("Order.java", 1, null));
+        IrRelation rel = new IrRelation("r:1", IrRelationKind.DEPENDENCY, "c:Order", "c:Customer", null,
+                null, null, null);
+        IrStereotypeDefinition def = new IrStereotypeDefinition("st:Entity", "Entity", null, "JPA", List.of("Class"),
+                List.of(new IrStereotypePropertyDefinition("table", "string", true)));
+        return new IrModel("2.0", List.of(def), List.of(new IrPackage("p:com.acme", "acme", "com.acme", null, null)),
+                List.of(order), List.of(rel), List.of(new IrTaggedValue("producer", "test")));
+    }
+}
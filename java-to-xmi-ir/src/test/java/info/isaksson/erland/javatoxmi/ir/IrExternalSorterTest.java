@@ -0,0 +1,39 @@
+package info.isaksson.erland.javatoxmi.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IrExternalSorterTest {
+
+    @Test
+    void spilledRunsMergeLikeAStableInMemorySort() throws Exception {
+        Random random = new Random(7);
+        List<IrRelation> relations = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            // Few distinct keys, so equal relations land in different runs; the tags tell them apart.
+            IrRelationKind kind = IrRelationKind.values()[random.nextInt(3)];
+            relations.add(new IrRelation(null, kind, "s" + random.nextInt(5), "t" + random.nextInt(5), null,
+                    null, List.of(new IrTaggedValue("seq", String.valueOf(i))), null));
+        }
+        List<IrRelation> expected = new ArrayList<>(relations);
+        expected.sort(IrNormalizer.RELATION_ORDER);
+
+        for (int maxInMemory : List.of(1, 7, 100, 5000)) {
+            List<IrRelation> sorted = new ArrayList<>();
+            try (IrExternalSorter<IrRelation> sorter =
+                         new IrExternalSorter<>(IrRelation.class, IrNormalizer.RELATION_ORDER, maxInMemory)) {
+                for (IrRelation r : relations) sorter.add(r);
+                assertEquals(maxInMemory >= relations.size() ? 0 : relations.size() / maxInMemory,
+                        sorter.spilledRuns(), "runs for " + maxInMemory);
+                sorter.drain(sorted::add);
+                assertEquals(0, sorter.spilledRuns(), "runs are deleted once drained");
+            }
+            assertEquals(expected, sorted, "maxInMemory=" + maxInMemory);
+        }
+    }
+}
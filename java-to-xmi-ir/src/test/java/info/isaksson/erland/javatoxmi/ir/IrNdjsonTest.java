@@ -0,0 +1,123 @@
+package info.isaksson.erland.javatoxmi.ir;
+
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IrNdjsonTest {
+
+    @Test
+    void roundTripsGoldenFixturesAsSingleFile(@TempDir Path tmp) throws Exception {
+        for (String name : List.of("java-mini", "angular-mini", "react-mini")) {
+            IrModel model = golden(name);
+            Path file = tmp.resolve(name + IrNdjson.FILE_EXTENSION);
+            IrJson.write(model, file);
+
+            assertTrue(Files.readString(file).startsWith("{\"header\":{\"schemaVersion\":"), name);
+            assertEquals(IrNormalizer.normalize(model), IrJson.read(file), name);
+            assertEquals(IrJson.toJsonString(model), IrJson.toJsonString(IrJson.read(file)), name);
+        }
+    }
+
+    @Test
+    void readsShardDirectoryInParallel(@TempDir Path tmp) throws Exception {
+        IrModel model = IrNormalizer.normalize(golden("react-mini"));
+        Path dir = writeShards(tmp.resolve("shards"), model, 3);
+        Files.writeString(dir.resolve("README.txt"), "not a shard");
+
+        // Shard order, whatever the thread count.
+        IrModel sequential = IrNdjson.read(dir, 1);
+        assertEquals(model, IrNormalizer.normalize(sequential));
+        assertEquals(sequential, IrJson.read(dir));
+
+        for (int threads : List.of(1, 4)) {
+            assertEquals(sequential, IrNdjson.read(dir, threads));
+
+            List<IrClassifier> classifiers = new ArrayList<>();
+            IrSummary summary = IrStreamReader.read(dir, threads, new IrStreamReader.Handler() {
+                @Override public void classifier(IrClassifier classifier) { classifiers.add(classifier); }
+                @Override public void relation(IrRelation relation) {}
+            });
+            assertEquals(model.schemaVersion, summary.schemaVersion);
+            assertEquals(model.classifiers.size(), summary.classifierCount);
+            assertEquals(model.relations.size(), summary.relationCount);
+            assertEquals(model.packages.size(), summary.packageCount);
+            assertEquals(model, IrNormalizer.normalize(new IrModel(model.schemaVersion, model.stereotypeDefinitions,
+                    model.packages, classifiers, model.relations, model.taggedValues)));
+        }
+    }
+
+    @Test
+    void detectsNdjsonStreamsAndValidatesRecords(@TempDir Path tmp) throws Exception {
+        String ndjson = "\n{\"header\":{\"schemaVersion\":\"2.0\"}}\n"
+                + "{\"classifier\":{\"id\":\"c:A\",\"name\":\"A\",\"qualifiedName\":\"a.A\"}}\n"
+                + "{\"relation\":{\"id\":\"r:1\",\"sourceId\":\"c:A\",\"targetId\":\"c:A\"}}\n";
+        IrModel model = IrJson.read(stream(ndjson));
+        assertEquals("2.0", model.schemaVersion);
+        assertEquals("a.A", model.classifiers.get(0).qualifiedName);
+        assertEquals(IrRelationKind.DEPENDENCY, model.relations.get(0).kind);
+
+        assertThrows(MismatchedInputException.class,
+                () -> IrNdjson.read(stream("{\"classifier\":{\"id\":\"c:A\"}}\n")));
+        assertThrows(MismatchedInputException.class,
+                () -> IrNdjson.read(stream("{\"header\":{}}\n{\"header\":{}}\n")));
+        assertThrows(MismatchedInputException.class,
+                () -> IrNdjson.read(stream("{\"header\":{}}\n{\"package\":{},\"classifier\":{}}\n")));
+        assertThrows(UnrecognizedPropertyException.class,
+                () -> IrNdjson.read(stream("{\"header\":{}}\n{\"klass\":{}}\n")));
+
+        Path dir = Files.createDirectories(tmp.resolve("mixed"));
+        Files.writeString(dir.resolve("a.ndjson"), "{\"header\":{\"schemaVersion\":\"2.0\"}}\n");
+        Files.writeString(dir.resolve("b.jsonl"), "{\"header\":{\"schemaVersion\":\"1.0\"}}\n");
+        IOException mismatch = assertThrows(IOException.class, () -> IrNdjson.read(dir, 2));
+        assertTrue(mismatch.getMessage().contains("b.jsonl"), mismatch.getMessage());
+        assertThrows(IOException.class, () -> IrNdjson.read(Files.createDirectories(tmp.resolve("empty")), 1));
+    }
+
+    /** Deal the model's elements round-robin over {@code n} shard files. */
+    private static Path writeShards(Path dir, IrModel model, int n) throws IOException {
+        Files.createDirectories(dir);
+        List<OutputStream> outs = new ArrayList<>();
+        List<IrNdjson.Writer> writers = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            OutputStream out = Files.newOutputStream(dir.resolve("part-" + i + ".ndjson"));
+            outs.add(out);
+            writers.add(new IrNdjson.Writer(out, model.schemaVersion));
+        }
+        int i = 0;
+        for (IrStereotypeDefinition d : model.stereotypeDefinitions) writers.get(i++ % n).stereotypeDefinition(d);
+        for (IrPackage p : model.packages) writers.get(i++ % n).irPackage(p);
+        for (IrClassifier c : model.classifiers) writers.get(i++ % n).classifier(c);
+        for (IrRelation r : model.relations) writers.get(i++ % n).relation(r);
+        for (IrTaggedValue tv : model.taggedValues) writers.get(i++ % n).taggedValue(tv);
+        for (int k = 0; k < n; k++) {
+            writers.get(k).close();
+            outs.get(k).close();
+        }
+        return dir;
+    }
+
+    private static IrModel golden(String name) throws IOException {
+        try (InputStream in = IrNdjsonTest.class.getClassLoader().getResourceAsStream("ir/golden/" + name + ".json")) {
+            assertNotNull(in, name);
+            return IrJson.read(in);
+        }
+    }
+
+    private static InputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
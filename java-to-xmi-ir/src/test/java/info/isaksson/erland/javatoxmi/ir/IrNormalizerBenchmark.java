@@ -0,0 +1,49 @@
+package info.isaksson.erland.javatoxmi.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Supplier;
+
+/**
+ * Cost of {@link IrNormalizer#normalize(IrModel)} on a shuffled IR (every list copied and sorted), on an equal IR that
+ * is already in order (linear checks, no copies) and on a model the normalizer returned before (marked, O(1)).
+ *
+ * <p>Not part of the regular test run (surefire only picks up {@code *Test} classes). Run with:</p>
+ * <pre>
+ * mvn -pl java-to-xmi-ir test -Dtest=IrNormalizerBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ * </pre>
+ */
+public class IrNormalizerBenchmark {
+
+    private static final int CLASSIFIERS = 5_000;
+    private static final int MEMBERS = 8;
+    private static final int ROUNDS = 15;
+
+    @Test
+    void compareShuffledSortedAndMarked() {
+        IrModel normalized = IrNormalizer.normalize(IrNormalizerTest.syntheticModel(CLASSIFIERS, MEMBERS));
+        IrModel shuffled = IrNormalizerTest.shuffled(normalized, 42);
+
+        double copy = millisPerCall(() -> IrNormalizer.normalize(shuffled));
+        double check = millisPerCall(() -> IrNormalizer.normalize(unmarkedCopy(normalized)));
+        double marked = millisPerCall(() -> IrNormalizer.normalize(normalized));
+        System.out.printf("IrNormalizer on %d classifiers: shuffled %.2f ms, sorted %.2f ms (%.1fx), marked %.4f ms%n",
+                CLASSIFIERS, copy, check, copy / check, marked);
+    }
+
+    private static IrModel unmarkedCopy(IrModel m) {
+        return new IrModel(m.schemaVersion, m.stereotypeDefinitions, m.packages, m.classifiers, m.relations, m.taggedValues);
+    }
+
+    private static double millisPerCall(Supplier<IrModel> call) {
+        // Warm up, then keep the best round to reduce noise.
+        for (int i = 0; i < ROUNDS; i++) call.get();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            call.get();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best / 1_000_000.0;
+    }
+}
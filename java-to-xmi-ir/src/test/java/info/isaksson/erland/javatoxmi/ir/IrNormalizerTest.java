@@ -0,0 +1,130 @@
+package info.isaksson.erland.javatoxmi.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IrNormalizerTest {
+
+    @Test
+    void shuffledInputNormalizesToTheSameModel() throws Exception {
+        IrModel synthetic = IrNormalizer.normalize(syntheticModel(20, 3));
+        assertNotEquals(synthetic, shuffled(synthetic, 7));
+        assertEquals(synthetic, IrNormalizer.normalize(shuffled(synthetic, 7)));
+
+        for (String name : List.of("java-mini", "angular-mini", "react-mini")) {
+            IrModel normalized = IrNormalizer.normalize(golden(name));
+            IrModel shuffled = shuffled(normalized, 7);
+            assertEquals(normalized, IrNormalizer.normalize(shuffled), name);
+            assertEquals(IrJson.toJsonString(normalized), IrJson.toJsonString(shuffled), name);
+        }
+    }
+
+    @Test
+    void normalizedInputIsReturnedWithoutCopies() throws Exception {
+        IrModel normalized = IrNormalizer.normalize(golden("java-mini"));
+        assertSame(normalized, IrNormalizer.normalize(normalized));
+
+        // An equal model that was never marked is checked and returned as is.
+        IrModel copy = new IrModel(normalized.schemaVersion, normalized.stereotypeDefinitions, normalized.packages,
+                normalized.classifiers, normalized.relations, normalized.taggedValues);
+        assertSame(copy, IrNormalizer.normalize(copy));
+        for (IrClassifier c : normalized.classifiers) assertSame(c, IrNormalizer.normalize(c));
+        for (IrRelation r : normalized.relations) assertSame(r, IrNormalizer.normalize(r));
+    }
+
+    @Test
+    void onlyChangedElementsAreCopied() throws Exception {
+        IrModel normalized = IrNormalizer.normalize(syntheticModel(20, 3));
+        int target = -1;
+        for (int i = 0; i < normalized.classifiers.size() && target < 0; i++) {
+            if (normalized.classifiers.get(i).attributes.size() > 1) target = i;
+        }
+        assertTrue(target >= 0, "fixture needs a classifier with several attributes");
+
+        List<IrClassifier> classifiers = new ArrayList<>(normalized.classifiers);
+        IrClassifier c = classifiers.get(target);
+        classifiers.set(target, new IrClassifier(c.id, c.name, c.qualifiedName, c.packageId, c.kind, c.visibility,
+                reverse(c.attributes), c.operations, c.stereotypes, c.stereotypeRefs, c.taggedValues, c.source));
+        IrModel touched = new IrModel(normalized.schemaVersion, normalized.stereotypeDefinitions, normalized.packages,
+                classifiers, normalized.relations, normalized.taggedValues);
+
+        IrModel out = IrNormalizer.normalize(touched);
+        assertEquals(normalized, out);
+        assertSame(normalized.packages, out.packages);
+        assertSame(normalized.relations, out.relations);
+        for (int i = 0; i < classifiers.size(); i++) {
+            if (i == target) {
+                assertNotSame(classifiers.get(i), out.classifiers.get(i));
+                assertSame(normalized.classifiers.get(i).operations, out.classifiers.get(i).operations);
+            } else {
+                assertSame(classifiers.get(i), out.classifiers.get(i));
+            }
+        }
+    }
+
+    /** Shuffle every sortable list in the model, down to classifier members. */
+    static IrModel shuffled(IrModel m, long seed) {
+        Random random = new Random(seed);
+        List<IrClassifier> classifiers = new ArrayList<>();
+        for (IrClassifier c : m.classifiers) {
+            classifiers.add(new IrClassifier(c.id, c.name, c.qualifiedName, c.packageId, c.kind, c.visibility,
+                    shuffle(c.attributes, random), shuffle(c.operations, random), shuffle(c.stereotypes, random),
+                    shuffle(c.stereotypeRefs, random), shuffle(c.taggedValues, random), c.source));
+        }
+        return new IrModel(m.schemaVersion, shuffle(m.stereotypeDefinitions, random), shuffle(m.packages, random),
+                shuffle(classifiers, random), shuffle(m.relations, random), shuffle(m.taggedValues, random));
+    }
+
+    /** A generated model with {@code classifiers} classifiers of {@code members} attributes and operations each. */
+    static IrModel syntheticModel(int classifiers, int members) {
+        List<IrPackage> packages = new ArrayList<>();
+        List<IrClassifier> out = new ArrayList<>();
+        List<IrRelation> relations = new ArrayList<>();
+        for (int p = 0; p < 50; p++) packages.add(new IrPackage("pkg:" + p, "p" + p, "app.p" + p, null, null));
+        for (int i = 0; i < classifiers; i++) {
+            String qn = "app.p" + (i % 50) + ".C" + i;
+            List<IrAttribute> attributes = new ArrayList<>();
+            List<IrOperation> operations = new ArrayList<>();
+            for (int m = 0; m < members; m++) {
+                IrTypeRef type = IrTypeRef.named("app.p" + (m % 50) + ".C" + m);
+                attributes.add(new IrAttribute(qn + "#f" + m, "f" + m, IrVisibility.PRIVATE, false, false, type,
+                        null, null, List.of(new IrTaggedValue("k" + m, "v")), null));
+                operations.add(new IrOperation(qn + "#m" + m, "m" + m, IrVisibility.PUBLIC, false, false, false, type,
+                        List.of(new IrParameter("a", type, null), new IrParameter("b", type, null)), null, null, null, null));
+            }
+            out.add(new IrClassifier("c:" + qn, "C" + i, qn, "pkg:" + (i % 50), IrClassifierKind.CLASS,
+                    IrVisibility.PUBLIC, attributes, operations, null, null,
+                    List.of(new IrTaggedValue("framework", "java")), null));
+            relations.add(new IrRelation("r:" + i, IrRelationKind.DEPENDENCY, "c:" + qn,
+                    "c:app.p0.C" + (i + 1) % classifiers, null, null, null, null, null));
+        }
+        return new IrModel("2.0", packages, out, relations, null);
+    }
+
+    private static <T> List<T> shuffle(List<T> in, Random random) {
+        List<T> out = new ArrayList<>(in);
+        Collections.shuffle(out, random);
+        return out;
+    }
+
+    private static <T> List<T> reverse(List<T> in) {
+        List<T> out = new ArrayList<>(in);
+        Collections.reverse(out);
+        return out;
+    }
+
+    private static IrModel golden(String name) throws IOException {
+        try (InputStream in = IrNormalizerTest.class.getClassLoader().getResourceAsStream("ir/golden/" + name + ".json")) {
+            assertNotNull(in, name);
+            return IrJson.read(in);
+        }
+    }
+}
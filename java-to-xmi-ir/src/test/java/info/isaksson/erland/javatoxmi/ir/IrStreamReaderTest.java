@@ -0,0 +1,74 @@
+package info.isaksson.erland.javatoxmi.ir;
+
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IrStreamReaderTest {
+
+    @Test
+    void streamsSameElementsAsIrJson() throws Exception {
+        for (String resource : List.of("ir/golden/java-mini.json", "ir/golden/angular-mini.json", "ir/golden/react-mini.json")) {
+            IrModel expected;
+            try (InputStream in = resource(resource)) {
+                expected = IrJson.read(in);
+            }
+
+            Collecting handler = new Collecting();
+            IrSummary summary;
+            try (InputStream in = resource(resource)) {
+                summary = IrStreamReader.read(in, handler);
+            }
+            IrModel streamed = new IrModel(summary.schemaVersion, handler.definitions, handler.packages,
+                    handler.classifiers, handler.relations, handler.taggedValues);
+
+            assertEquals(IrJson.toJsonString(expected), IrJson.toJsonString(streamed), resource);
+            assertEquals(expected.classifiers.size(), summary.classifierCount, resource);
+            assertEquals(expected.relations.size(), summary.relationCount, resource);
+            assertEquals(expected.packages.size(), summary.packageCount, resource);
+        }
+    }
+
+    @Test
+    void validatesLikeIrJson() throws Exception {
+        IrSummary empty = read("{\"schemaVersion\":null,\"classifiers\":null,\"relations\":[null]}", new Collecting());
+        assertEquals("1.0", empty.schemaVersion);
+        assertEquals(0, empty.relationCount);
+
+        assertThrows(UnrecognizedPropertyException.class, () -> read("{\"classifierz\":[]}", new Collecting()));
+        assertThrows(MismatchedInputException.class, () -> read("[]", new Collecting()));
+    }
+
+    private static IrSummary read(String json, IrStreamReader.Handler handler) throws IOException {
+        return IrStreamReader.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), handler);
+    }
+
+    private static InputStream resource(String path) {
+        InputStream in = IrStreamReaderTest.class.getClassLoader().getResourceAsStream(path);
+        assertNotNull(in, path);
+        return in;
+    }
+
+    private static final class Collecting implements IrStreamReader.Handler {
+        final List<IrStereotypeDefinition> definitions = new ArrayList<>();
+        final List<IrPackage> packages = new ArrayList<>();
+        final List<IrClassifier> classifiers = new ArrayList<>();
+        final List<IrRelation> relations = new ArrayList<>();
+        final List<IrTaggedValue> taggedValues = new ArrayList<>();
+
+        @Override public void stereotypeDefinition(IrStereotypeDefinition definition) { definitions.add(definition); }
+        @Override public void irPackage(IrPackage p) { packages.add(p); }
+        @Override public void classifier(IrClassifier classifier) { classifiers.add(classifier); }
+        @Override public void relation(IrRelation relation) { relations.add(relation); }
+        @Override public void taggedValue(IrTaggedValue taggedValue) { taggedValues.add(taggedValue); }
+    }
+}
@@ -1,6 +1,5 @@
 package info.isaksson.erland.javatoxmi.extract;
 
-import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
@@ -13,6 +12,7 @@ import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.nodeTypes.NodeWithAnnotations;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.ast.type.Type;
+import info.isaksson.erland.javatoxmi.io.SourceReader;
 import info.isaksson.erland.javatoxmi.model.JModel;
 import info.isaksson.erland.javatoxmi.model.JRuntimeRelation;
 
@@ -28,7 +28,7 @@ import java.util.*;
  * <p>Emits {@link JRuntimeRelation} entries that are later rendered as stereotyped UML dependencies.
  * We intentionally keep this conservative and deterministic; no symbol solving is used.</p>
  */
-final class CdiEventExtractor {
+final class CdiEventExtractor implements SemanticsExtractor {
 
     // Runtime tag keys (shared convention with IrRuntime).
     static final String TAG_PREFIX = "runtime.";
@@ -48,119 +48,141 @@ final class CdiEventExtractor {
     private static final String OBSERVES_ASYNC_1 = "javax.enterprise.event.ObservesAsync";
     private static final String OBSERVES_ASYNC_2 = "jakarta.enterprise.event.ObservesAsync";
 
-    void extract(JModel model, List<ParsedUnit> units, ProjectTypeIndex index) {
-        if (model == null || units == null || units.isEmpty() || index == null) return;
-
-        List<JRuntimeRelation> out = new ArrayList<>();
-
-        for (ParsedUnit pu : units) {
-            if (pu == null || pu.cu == null) continue;
-            CompilationUnit cu = pu.cu;
-            String pkg = cu.getPackageDeclaration().map(pd -> pd.getNameAsString()).orElse("");
-            ImportContext ctx = ImportContext.from(cu, pkg, index.projectTypeQualifiedNames);
-
-            // Walk all top-level and nested classes
-            for (ClassOrInterfaceDeclaration cid : cu.findAll(ClassOrInterfaceDeclaration.class)) {
-                if (cid.isLocalClassDeclaration()) continue;
-
-                String typePath = typePathFromTop(cid);
-                if (typePath == null) continue;
-                String typeQn = TypeExtractionEngine.qualifiedName(pkg, typePath);
-
-                List<String> nestedScopeChain = nestedScopeChain(pkg, typePath);
-
-                // Map injected Event<T> variables visible in this class: fieldName/paramName -> eventTypeQn
-                Map<String, String> eventVars = new HashMap<>();
-                Map<String, String> eventVarQualifiers = new HashMap<>();
-
-                for (FieldDeclaration fd : cid.getFields()) {
-                    for (var v : fd.getVariables()) {
-                        if (v == null) continue;
-                        String name = v.getNameAsString();
-                        if (name == null || name.isBlank()) continue;
-                        ClassOrInterfaceType cit = v.getType().isClassOrInterfaceType() ? v.getType().asClassOrInterfaceType() : null;
-                        String evtType = eventTypeArgumentIfCdiEvent(cit, ctx, index, model, typeQn, nestedScopeChain);
-                        if (evtType != null) {
-                            eventVars.put(name, evtType);
-                            String qs = qualifiersFromAnnotations(fd);
-                            if (!qs.isBlank()) eventVarQualifiers.put(name, qs);
-                        }
-                    }
-                }
+    @Override
+    public String id() {
+        return "cdi";
+    }
+
+    @Override
+    public Set<Class<? extends Node>> nodeTypes() {
+        return Set.of(ClassOrInterfaceDeclaration.class, MethodDeclaration.class, MethodCallExpr.class);
+    }
+
+    /**
+     * Classes are scanned as the walk reaches them: a (non-local) class records its {@code Event<T>} fields when
+     * entered, each of its methods adds {@code Event<T>} parameters and observer relations before the method body
+     * is walked, and a {@code fire}/{@code fireAsync} call is attributed to every enclosing method of a scanned
+     * class (so it sees the fields plus the parameters of that method and the ones declared before it).
+     */
+    @Override
+    public void visitNode(Node node, SemanticsUnit unit) {
+        Map<Node, ClassScope> scopes = unit.state(IdentityHashMap::new);
+        if (node instanceof ClassOrInterfaceDeclaration cid) {
+            enterClass(cid, unit, scopes);
+        } else if (node instanceof MethodDeclaration md) {
+            ClassScope scope = md.getParentNode().map(scopes::get).orElse(null);
+            if (scope != null) enterMethod(md, scope, unit);
+        } else if (node instanceof MethodCallExpr call) {
+            fireCall(call, scopes, unit.output().runtimeRelations);
+        }
+    }
+
+    @Override
+    public void complete(JModel model, SemanticsOutput collected, SourceReader reader) {
+        sortRelations(collected.runtimeRelations);
+        model.runtimeRelations.addAll(collected.runtimeRelations);
+    }
 
-                for (MethodDeclaration md : cid.getMethods()) {
-                    if (md == null) continue;
-
-                    // Add Event<T> variables from parameters as well (common with constructor/method injection)
-                    for (Parameter p : md.getParameters()) {
-                        if (p == null) continue;
-                        String pn = p.getNameAsString();
-                        if (pn == null || pn.isBlank()) continue;
-                        ClassOrInterfaceType cit = p.getType().isClassOrInterfaceType() ? p.getType().asClassOrInterfaceType() : null;
-                        String evtType = eventTypeArgumentIfCdiEvent(cit, ctx, index, model, typeQn, nestedScopeChain);
-                        if (evtType != null) {
-                            eventVars.put(pn, evtType);
-                            String qs = qualifiersFromAnnotations(p);
-                            if (!qs.isBlank()) eventVarQualifiers.put(pn, qs);
-                        }
-                    }
-
-                    // Observer params
-                    for (Parameter p : md.getParameters()) {
-                        if (p == null) continue;
-                        ObsInfo obs = observesInfo(p, ctx);
-                        if (!obs.isObserver) continue;
-
-                        String eventType = TypeResolver.resolveTypeRef(p.getType(), ctx, index.nestedByOuter, nestedScopeChain, model, typeQn, "@Observes param");
-                        if (eventType == null || eventType.isBlank()) continue;
-
-                        Map<String, String> tags = new LinkedHashMap<>();
-                        String qs = qualifiersFromAnnotations(p);
-                        if (!qs.isBlank()) tags.put(TAG_QUALIFIERS, qs);
-                        if (obs.isAsync) tags.put(TAG_ASYNC, "true");
-
-                        out.add(new JRuntimeRelation(
-                                null,
-                                typeQn,
-                                TypeNameUtil.primaryBaseName(eventType) != null ? TypeNameUtil.primaryBaseName(eventType) : eventType,
-                                null,
-                                ST_OBSERVES_EVENT,
-                                tags
-                        ));
-                    }
-
-                    // Event firing (fire/fireAsync on known Event<T> variable)
-                    for (MethodCallExpr call : md.findAll(MethodCallExpr.class)) {
-                        if (call == null) continue;
-                        String n = call.getNameAsString();
-                        if (!"fire".equals(n) && !"fireAsync".equals(n)) continue;
-                        Optional<Expression> scope = call.getScope();
-                        if (scope.isEmpty()) continue;
-                        Expression s = scope.get();
-                        if (!(s instanceof NameExpr)) continue;
-                        String var = ((NameExpr) s).getNameAsString();
-                        String eventType = eventVars.get(var);
-                        if (eventType == null) continue;
-
-                        Map<String, String> tags = new LinkedHashMap<>();
-                        if ("fireAsync".equals(n)) tags.put(TAG_ASYNC, "true");
-                        String qs = eventVarQualifiers.get(var);
-                        if (qs != null && !qs.isBlank()) tags.put(TAG_QUALIFIERS, qs);
-
-                        out.add(new JRuntimeRelation(
-                                null,
-                                typeQn,
-                                TypeNameUtil.primaryBaseName(eventType) != null ? TypeNameUtil.primaryBaseName(eventType) : eventType,
-                                null,
-                                ST_FIRES_EVENT,
-                                tags
-                        ));
-                    }
+    private static void enterClass(ClassOrInterfaceDeclaration cid, SemanticsUnit unit, Map<Node, ClassScope> scopes) {
+        if (cid.isLocalClassDeclaration()) return;
+
+        String typePath = typePathFromTop(cid);
+        if (typePath == null) return;
+        String pkg = unit.packageName();
+        ClassScope scope = new ClassScope(TypeExtractionEngine.qualifiedName(pkg, typePath), nestedScopeChain(pkg, typePath));
+
+        for (FieldDeclaration fd : cid.getFields()) {
+            for (var v : fd.getVariables()) {
+                if (v == null) continue;
+                String name = v.getNameAsString();
+                if (name == null || name.isBlank()) continue;
+                ClassOrInterfaceType cit = v.getType().isClassOrInterfaceType() ? v.getType().asClassOrInterfaceType() : null;
+                String evtType = eventTypeArgumentIfCdiEvent(cit, unit, scope);
+                if (evtType != null) {
+                    scope.eventVars.put(name, evtType);
+                    String qs = qualifiersFromAnnotations(fd);
+                    if (!qs.isBlank()) scope.eventVarQualifiers.put(name, qs);
                 }
             }
         }
+        scopes.put(cid, scope);
+    }
 
-        // Deterministic ordering
+    private static void enterMethod(MethodDeclaration md, ClassScope scope, SemanticsUnit unit) {
+        // Add Event<T> variables from parameters as well (common with constructor/method injection)
+        for (Parameter p : md.getParameters()) {
+            if (p == null) continue;
+            String pn = p.getNameAsString();
+            if (pn == null || pn.isBlank()) continue;
+            ClassOrInterfaceType cit = p.getType().isClassOrInterfaceType() ? p.getType().asClassOrInterfaceType() : null;
+            String evtType = eventTypeArgumentIfCdiEvent(cit, unit, scope);
+            if (evtType != null) {
+                scope.eventVars.put(pn, evtType);
+                String qs = qualifiersFromAnnotations(p);
+                if (!qs.isBlank()) scope.eventVarQualifiers.put(pn, qs);
+            }
+        }
+
+        // Observer params
+        for (Parameter p : md.getParameters()) {
+            if (p == null) continue;
+            ObsInfo obs = observesInfo(p, unit.ctx);
+            if (!obs.isObserver) continue;
+
+            String eventType = unit.resolveType(p.getType(), scope.nestedScopeChain, scope.typeQn, "@Observes param");
+            if (eventType == null || eventType.isBlank()) continue;
+
+            Map<String, String> tags = new LinkedHashMap<>();
+            String qs = qualifiersFromAnnotations(p);
+            if (!qs.isBlank()) tags.put(TAG_QUALIFIERS, qs);
+            if (obs.isAsync) tags.put(TAG_ASYNC, "true");
+
+            unit.output().runtimeRelations.add(new JRuntimeRelation(
+                    null,
+                    scope.typeQn,
+                    TypeNameUtil.primaryBaseName(eventType) != null ? TypeNameUtil.primaryBaseName(eventType) : eventType,
+                    null,
+                    ST_OBSERVES_EVENT,
+                    tags
+            ));
+        }
+    }
+
+    /** Event firing (fire/fireAsync on a known Event<T> variable). */
+    private static void fireCall(MethodCallExpr call, Map<Node, ClassScope> scopes, List<JRuntimeRelation> out) {
+        String n = call.getNameAsString();
+        if (!"fire".equals(n) && !"fireAsync".equals(n)) return;
+        Optional<Expression> scope = call.getScope();
+        if (scope.isEmpty()) return;
+        Expression s = scope.get();
+        if (!(s instanceof NameExpr)) return;
+        String var = ((NameExpr) s).getNameAsString();
+
+        for (Node cur = call.getParentNode().orElse(null); cur != null; cur = cur.getParentNode().orElse(null)) {
+            if (!(cur instanceof MethodDeclaration)) continue;
+            ClassScope cs = cur.getParentNode().map(scopes::get).orElse(null);
+            if (cs == null) continue;
+            String eventType = cs.eventVars.get(var);
+            if (eventType == null) continue;
+
+            Map<String, String> tags = new LinkedHashMap<>();
+            if ("fireAsync".equals(n)) tags.put(TAG_ASYNC, "true");
+            String qs = cs.eventVarQualifiers.get(var);
+            if (qs != null && !qs.isBlank()) tags.put(TAG_QUALIFIERS, qs);
+
+            out.add(new JRuntimeRelation(
+                    null,
+                    cs.typeQn,
+                    TypeNameUtil.primaryBaseName(eventType) != null ? TypeNameUtil.primaryBaseName(eventType) : eventType,
+                    null,
+                    ST_FIRES_EVENT,
+                    tags
+            ));
+        }
+    }
+
+    /** Deterministic ordering of collected relations (stable, so ties keep unit order). */
+    static void sortRelations(List<JRuntimeRelation> out) {
         out.sort((a, b) -> {
             String as = a == null ? "" : (a.sourceQualifiedName == null ? "" : a.sourceQualifiedName);
             String bs = b == null ? "" : (b.sourceQualifiedName == null ? "" : b.sourceQualifiedName);
@@ -174,16 +196,9 @@ final class CdiEventExtractor {
             String bst = b == null ? "" : (b.stereotype == null ? "" : b.stereotype);
             return ast.compareTo(bst);
         });
-
-        model.runtimeRelations.addAll(out);
     }
 
-    private static String eventTypeArgumentIfCdiEvent(ClassOrInterfaceType t,
-                                                     ImportContext ctx,
-                                                     ProjectTypeIndex index,
-                                                     JModel model,
-                                                     String fromQn,
-                                                     List<String> nestedScopeChain) {
+    private static String eventTypeArgumentIfCdiEvent(ClassOrInterfaceType t, SemanticsUnit unit, ClassScope scope) {
         if (t == null) return null;
         String simple = t.getNameAsString();
         if (simple == null || simple.isBlank()) return null;
@@ -192,7 +207,7 @@ final class CdiEventExtractor {
         if (simple.contains(".")) {
             qn = simple;
         } else {
-            String ext = ctx.qualifyExternal(simple);
+            String ext = unit.ctx.qualifyExternal(simple);
             qn = ext != null ? ext : simple;
         }
         if (!CDI_EVENT_1.equals(qn) && !CDI_EVENT_2.equals(qn)) return null;
@@ -202,7 +217,7 @@ final class CdiEventExtractor {
         if (args.size() != 1) return null;
         Type arg = args.get(0);
         if (arg == null) return null;
-        return TypeResolver.resolveTypeRef(arg, ctx, index.nestedByOuter, nestedScopeChain, model, fromQn, "Event<T>");
+        return unit.resolveType(arg, scope.nestedScopeChain, scope.typeQn, "Event<T>");
     }
 
     private static ObsInfo observesInfo(Parameter p, ImportContext ctx) {
@@ -280,4 +295,18 @@ final class CdiEventExtractor {
     }
 
     private record ObsInfo(boolean isObserver, boolean isAsync) {}
+
+    /** Event variables visible in one scanned class; grows as its methods are walked. */
+    private static final class ClassScope {
+        final String typeQn;
+        final List<String> nestedScopeChain;
+        /** fieldName/paramName -> eventTypeQn */
+        final Map<String, String> eventVars = new HashMap<>();
+        final Map<String, String> eventVarQualifiers = new HashMap<>();
+
+        ClassScope(String typeQn, List<String> nestedScopeChain) {
+            this.typeQn = typeQn;
+            this.nestedScopeChain = nestedScopeChain;
+        }
+    }
 }
@@ -0,0 +1,294 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
+import info.isaksson.erland.javatoxmi.model.JField;
+import info.isaksson.erland.javatoxmi.model.JJavaModule;
+import info.isaksson.erland.javatoxmi.model.JJavaModuleRequire;
+import info.isaksson.erland.javatoxmi.model.JMethod;
+import info.isaksson.erland.javatoxmi.model.JMigrationArtifact;
+import info.isaksson.erland.javatoxmi.model.JParam;
+import info.isaksson.erland.javatoxmi.model.JRuntimeAnnotation;
+import info.isaksson.erland.javatoxmi.model.JRuntimeRelation;
+import info.isaksson.erland.javatoxmi.model.JType;
+import info.isaksson.erland.javatoxmi.model.JTypeKind;
+import info.isaksson.erland.javatoxmi.model.JVisibility;
+import info.isaksson.erland.javatoxmi.model.TypeRef;
+import info.isaksson.erland.javatoxmi.model.TypeRefKind;
+import info.isaksson.erland.javatoxmi.model.UnresolvedTypeRef;
+import info.isaksson.erland.javatoxmi.model.WildcardBoundKind;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, content-addressed cache of per-compilation-unit extraction results.
+ *
+ * <p>Two kinds of entries are kept under {@link #directory()}:</p>
+ * <ul>
+ *   <li>type index contributions, keyed by the SHA-256 of the source text;</li>
+ *   <li>unit extraction results, keyed by source hash + fingerprint of the project type index +
+ *       extraction flags + the ids of the registered {@link SemanticsExtractor}s. A change anywhere in the project's set of types invalidates these, so a cached
+ *       result is always what a cold run would have produced.</li>
+ * </ul>
+ *
+ * <p>Both keys include {@link #extractorVersion()}, a digest of the extractor's own classes, so a build that
+ * changes extraction never reads entries written by another build.</p>
+ *
+ * <p>The cache is best-effort: unreadable, corrupt or foreign entries are treated as misses and write
+ * failures are ignored. Entries are read with a deserialization filter that admits only the result classes
+ * and the collections they use, within size, depth and reference limits. Entries are written atomically, so concurrent runs may share a directory.</p>
+ */
+public final class ExtractionCache {
+
+    /** Bumped whenever the entry format changes; changes to what is extracted are covered by {@link #extractorVersion()}. */
+    static final String FORMAT_VERSION = "2";
+
+    /** Class files whose content determines what the extractor produces (this module's packages). */
+    private static final List<String> EXTRACTOR_PACKAGES = List.of(
+            "info/isaksson/erland/javatoxmi/extract/",
+            "info/isaksson/erland/javatoxmi/model/",
+            "info/isaksson/erland/javatoxmi/io/");
+
+    private static final String INDEX_KIND = "index";
+    private static final String UNIT_KIND = "unit";
+
+    // Resource limits for one entry. A unit of a few thousand lines stays far below them.
+    static final long MAX_ENTRY_BYTES = 64L * 1024 * 1024;
+    static final long MAX_DEPTH = 200;
+    static final long MAX_REFERENCES = 4_000_000;
+    static final long MAX_ARRAY_LENGTH = 1_000_000;
+
+    /** Classes an entry may contain: the extraction result types and the collections they are built from. */
+    private static final Set<Class<?>> ALLOWED_CLASSES = Set.of(
+            UnitExtraction.class, TypeIndexContribution.class, TypeIndexContribution.NestedMember.class, TypeStub.class,
+            SemanticsOutput.class,
+            JType.class, JTypeKind.class, JVisibility.class, JField.class, JMethod.class, JParam.class,
+            JAnnotationUse.class, TypeRef.class, TypeRefKind.class, WildcardBoundKind.class, UnresolvedTypeRef.class,
+            JRuntimeRelation.class, JRuntimeAnnotation.class, JMigrationArtifact.class, JMigrationArtifact.Kind.class,
+            JJavaModule.class, JJavaModuleRequire.class,
+            Enum.class, Object.class, ArrayList.class, HashMap.class, LinkedHashMap.class, Map.Entry.class);
+
+    /** JDK-internal collection classes, by name: List.of/copyOf, Map.of and the Collections wrappers. */
+    private static final Set<String> ALLOWED_JDK_CLASS_NAMES = Set.of(
+            "java.util.CollSer",
+            "java.util.ImmutableCollections$List12",
+            "java.util.ImmutableCollections$ListN",
+            "java.util.ImmutableCollections$Map1",
+            "java.util.ImmutableCollections$MapN",
+            "java.util.Collections$EmptyList",
+            "java.util.Collections$EmptyMap",
+            "java.util.Collections$UnmodifiableMap",
+            "java.util.Collections$UnmodifiableList",
+            "java.util.Collections$UnmodifiableRandomAccessList");
+
+    private static final ObjectInputFilter FILTER = info -> {
+        if (info.depth() > MAX_DEPTH || info.references() > MAX_REFERENCES
+                || info.arrayLength() > MAX_ARRAY_LENGTH || info.streamBytes() > MAX_ENTRY_BYTES) {
+            return ObjectInputFilter.Status.REJECTED;
+        }
+        Class<?> c = info.serialClass();
+        if (c == null) return ObjectInputFilter.Status.UNDECIDED;
+        while (c.isArray()) c = c.getComponentType();
+        if (c.isPrimitive() || ALLOWED_CLASSES.contains(c) || ALLOWED_JDK_CLASS_NAMES.contains(c.getName())) {
+            return ObjectInputFilter.Status.ALLOWED;
+        }
+        return ObjectInputFilter.Status.REJECTED;
+    };
+
+    private final Path directory;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ExtractionCache(Path directory) {
+        this.directory = Objects.requireNonNull(directory, "directory");
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    /** Compilation units whose extraction result was served from the cache. */
+    public long hits() {
+        return hits.get();
+    }
+
+    /** Compilation units that had to be parsed and extracted. */
+    public long misses() {
+        return misses.get();
+    }
+
+    TypeIndexContribution loadContribution(String sourceHash) {
+        return load(INDEX_KIND, indexKey(sourceHash), TypeIndexContribution.class);
+    }
+
+    void storeContribution(String sourceHash, TypeIndexContribution c) {
+        store(INDEX_KIND, indexKey(sourceHash), c);
+    }
+
+    UnitExtraction loadUnit(String sourceHash, String indexFingerprint, boolean includeDependencies, String semanticsKey) {
+        UnitExtraction r = load(UNIT_KIND, unitKey(sourceHash, indexFingerprint, includeDependencies, semanticsKey), UnitExtraction.class);
+        (r == null ? misses : hits).incrementAndGet();
+        return r;
+    }
+
+    void storeUnit(String sourceHash, String indexFingerprint, boolean includeDependencies, String semanticsKey, UnitExtraction r) {
+        store(UNIT_KIND, unitKey(sourceHash, indexFingerprint, includeDependencies, semanticsKey), r);
+    }
+
+    /**
+     * SHA-256 over the names and bytes of the extractor's class files, read from the jar or class directory this
+     * class was loaded from. If they cannot be read, a random value: entries are then only reused within this
+     * process.
+     */
+    static String extractorVersion() {
+        return ExtractorVersion.VALUE;
+    }
+
+    private static final class ExtractorVersion {
+        static final String VALUE = compute();
+
+        private static String compute() {
+            try {
+                CodeSource source = ExtractionCache.class.getProtectionDomain().getCodeSource();
+                if (source != null) return classesDigest(Path.of(source.getLocation().toURI()));
+            } catch (IOException | URISyntaxException | RuntimeException e) {
+                // fall through
+            }
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    /** Digest of the {@link #EXTRACTOR_PACKAGES} class files in a jar or class directory, in name order. */
+    static String classesDigest(Path location) throws IOException {
+        TreeMap<String, byte[]> classes = new TreeMap<>();
+        if (Files.isDirectory(location)) {
+            try (Stream<Path> files = Files.walk(location)) {
+                for (Path f : (Iterable<Path>) files::iterator) {
+                    String name = location.relativize(f).toString().replace('\\', '/');
+                    if (isExtractorClass(name)) classes.put(name, Files.readAllBytes(f));
+                }
+            }
+        } else {
+            try (JarFile jar = new JarFile(location.toFile())) {
+                for (JarEntry e : Collections.list(jar.entries())) {
+                    if (!isExtractorClass(e.getName())) continue;
+                    try (InputStream in = jar.getInputStream(e)) {
+                        classes.put(e.getName(), in.readAllBytes());
+                    }
+                }
+            }
+        }
+        if (classes.isEmpty()) throw new IOException("no extractor classes in " + location);
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, byte[]> c : classes.entrySet()) {
+                md.update(c.getKey().getBytes(StandardCharsets.UTF_8));
+                md.update((byte) 0);
+                md.update(c.getValue());
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static boolean isExtractorClass(String name) {
+        if (!name.endsWith(".class")) return false;
+        for (String p : EXTRACTOR_PACKAGES) {
+            if (name.startsWith(p)) return true;
+        }
+        return false;
+    }
+
+    static String sha256(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String indexKey(String sourceHash) {
+        return sha256(FORMAT_VERSION + "|" + extractorVersion() + "|index|" + sourceHash);
+    }
+
+    private static String unitKey(String sourceHash, String indexFingerprint, boolean includeDependencies, String semanticsKey) {
+        return sha256(FORMAT_VERSION + "|" + extractorVersion() + "|unit|" + sourceHash + "|" + indexFingerprint + "|" + includeDependencies + "|" + semanticsKey);
+    }
+
+    private Path entry(String kind, String key) {
+        return directory.resolve(kind).resolve(key.substring(0, 2)).resolve(key + ".bin");
+    }
+
+    private <T> T load(String kind, String key, Class<T> type) {
+        Path p = entry(kind, key);
+        try {
+            if (!Files.isRegularFile(p) || Files.size(p) > MAX_ENTRY_BYTES) return null;
+        } catch (IOException e) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(Files.readAllBytes(p)))) {
+            in.setObjectInputFilter(FILTER);
+            Object o = in.readObject();
+            return type.isInstance(o) ? type.cast(o) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void store(String kind, String key, Serializable value) {
+        Path p = entry(kind, key);
+        Path tmp = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(value);
+            }
+            Files.createDirectories(p.getParent());
+            tmp = Files.createTempFile(p.getParent(), key, ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+        } catch (Exception e) {
+            // best-effort: a failed write only costs a future miss
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
@@ -1,18 +1,20 @@
 package info.isaksson.erland.javatoxmi.extract;
 
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.TypeDeclaration;
+import info.isaksson.erland.javatoxmi.io.SourceReader;
 import info.isaksson.erland.javatoxmi.model.JMigrationArtifact;
 import info.isaksson.erland.javatoxmi.model.JModel;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -25,7 +27,7 @@ import java.util.regex.Pattern;
  *   <li>Java-based migrations (best-effort) where a class extends {@code BaseJavaMigration} or implements {@code JavaMigration}</li>
  * </ul>
  */
-public final class FlywayMigrationExtractor {
+public final class FlywayMigrationExtractor implements SemanticsExtractor {
 
     // Version part allows digits/letters/underscore/dot (Flyway supports e.g. V2_1__... and V2.1__...)
     private static final Pattern VERSIONED = Pattern.compile(
@@ -34,10 +36,28 @@ public final class FlywayMigrationExtractor {
     private static final Pattern REPEATABLE = Pattern.compile("^R__(.+)\\.(sql|conf|csv|tsv|yml|yaml|json)$", Pattern.CASE_INSENSITIVE);
 
     public void extract(JModel model, List<ParsedUnit> units) {
+        extract(model, units, SourceReader.fileSystem());
+    }
+
+    void extract(JModel model, List<ParsedUnit> units, SourceReader reader) {
+        List<JMigrationArtifact> javaMigrations = new ArrayList<>();
+        if (units != null) {
+            for (ParsedUnit u : units) {
+                if (u != null) javaMigrations.addAll(javaMigrations(u.cu));
+            }
+        }
+        extract(model, reader, javaMigrations);
+    }
+
+    /**
+     * Add SQL migrations found through {@code reader} plus Java migrations already collected per unit
+     * (see {@link #javaMigrations(CompilationUnit)}), then sort deterministically.
+     */
+    void extract(JModel model, SourceReader reader, List<JMigrationArtifact> javaMigrations) {
         if (model == null || model.sourceRoot == null) return;
 
-        extractSqlMigrations(model);
-        extractJavaMigrations(model, units);
+        extractSqlMigrations(model, reader);
+        model.migrationArtifacts.addAll(javaMigrations);
 
         // Deterministic ordering
         model.migrationArtifacts.sort(Comparator
@@ -47,20 +67,15 @@ public final class FlywayMigrationExtractor {
                 .thenComparing(a -> a.path));
     }
 
-    private void extractSqlMigrations(JModel model) {
+    private void extractSqlMigrations(JModel model, SourceReader reader) {
         Path root = model.sourceRoot;
         List<JMigrationArtifact> found = new ArrayList<>();
         try {
-            if (!Files.exists(root)) return;
-            try (var stream = Files.walk(root)) {
-                stream
-                        .filter(Files::isRegularFile)
-                        .filter(p -> isUnderDbMigration(p, root))
-                        .forEach(p -> {
-                            String fileName = p.getFileName().toString();
-                            JMigrationArtifact art = parseFlywayFilename(root, p, fileName);
-                            if (art != null) found.add(art);
-                        });
+            for (Path p : reader.listAllFiles(root)) {
+                if (!isUnderDbMigration(p, root)) continue;
+                String fileName = p.getFileName().toString();
+                JMigrationArtifact art = parseFlywayFilename(root, p, fileName);
+                if (art != null) found.add(art);
             }
         } catch (IOException ignored) {
             // Best-effort: ignore IO issues.
@@ -68,28 +83,53 @@ public final class FlywayMigrationExtractor {
         model.migrationArtifacts.addAll(found);
     }
 
-    private void extractJavaMigrations(JModel model, List<ParsedUnit> units) {
-        if (units == null) return;
+    @Override
+    public String id() {
+        return "flyway";
+    }
 
-        for (ParsedUnit u : units) {
-            CompilationUnit cu = u == null ? null : u.cu;
-            if (cu == null) continue;
-            for (TypeDeclaration<?> td : cu.getTypes()) {
-                if (!(td instanceof ClassOrInterfaceDeclaration c)) continue;
-                if (c.isInterface()) continue;
+    @Override
+    public Set<Class<? extends Node>> nodeTypes() {
+        return Set.of(ClassOrInterfaceDeclaration.class);
+    }
 
-                boolean looksLikeFlyway = c.getExtendedTypes().stream().anyMatch(t -> simpleName(t.getNameAsString()).equals("BaseJavaMigration"))
-                        || c.getImplementedTypes().stream().anyMatch(t -> simpleName(t.getNameAsString()).equals("JavaMigration"));
-                if (!looksLikeFlyway) continue;
+    @Override
+    public void visitNode(Node node, SemanticsUnit unit) {
+        if (!(node.getParentNode().orElse(null) instanceof CompilationUnit cu)) return; // top-level types only
+        JMigrationArtifact art = javaMigration(cu, (ClassOrInterfaceDeclaration) node);
+        if (art != null) unit.output().migrationArtifacts.add(art);
+    }
 
-                String qn = tryQualifiedName(cu, c);
-                if (qn == null || qn.isBlank()) continue;
+    @Override
+    public void complete(JModel model, SemanticsOutput collected, SourceReader reader) {
+        extract(model, reader, collected.migrationArtifacts);
+    }
 
-                String id = "flyway:java:" + qn;
-                JMigrationArtifact art = new JMigrationArtifact(id, null, c.getNameAsString(), qn, "java", JMigrationArtifact.Kind.JAVA);
-                model.migrationArtifacts.add(art);
-            }
+    /** Java-based migrations declared in one compilation unit. */
+    static List<JMigrationArtifact> javaMigrations(CompilationUnit cu) {
+        if (cu == null) return List.of();
+
+        List<JMigrationArtifact> out = new ArrayList<>();
+        for (TypeDeclaration<?> td : cu.getTypes()) {
+            if (!(td instanceof ClassOrInterfaceDeclaration c)) continue;
+            JMigrationArtifact art = javaMigration(cu, c);
+            if (art != null) out.add(art);
         }
+        return out;
+    }
+
+    private static JMigrationArtifact javaMigration(CompilationUnit cu, ClassOrInterfaceDeclaration c) {
+        if (c.isInterface()) return null;
+
+        boolean looksLikeFlyway = c.getExtendedTypes().stream().anyMatch(t -> simpleName(t.getNameAsString()).equals("BaseJavaMigration"))
+                || c.getImplementedTypes().stream().anyMatch(t -> simpleName(t.getNameAsString()).equals("JavaMigration"));
+        if (!looksLikeFlyway) return null;
+
+        String qn = tryQualifiedName(cu, c);
+        if (qn == null || qn.isBlank()) return null;
+
+        String id = "flyway:java:" + qn;
+        return new JMigrationArtifact(id, null, c.getNameAsString(), qn, "java", JMigrationArtifact.Kind.JAVA);
     }
 
     private static boolean isUnderDbMigration(Path file, Path root) {
@@ -13,6 +13,8 @@ final class ImportContext {
     final Set<String> projectQualifiedTypes;
     final Map<String, String> explicitImportsBySimple = new HashMap<>();
     final List<String> wildcardImports = new ArrayList<>();
+    /** Memoized {@link TypeResolver} results for this compilation unit. */
+    final TypeResolutionCache resolutionCache = new TypeResolutionCache();
 
     // java.lang contains a small set of commonly used annotations that are implicitly available
     // without imports. We treat these as a best-effort qualification target for annotation names.
@@ -48,8 +50,7 @@ final class ImportContext {
         return ctx;
     }
 
-    /** Resolve a type simple name to a project-qualified name where possible. */
-        /** Resolve a type simple name (or dotted nested name) to a project-qualified name where possible. */
+    /** Resolve a type simple name (or dotted nested name) to a project-qualified name where possible. */
     String resolve(String typeName) {
         if (typeName == null || typeName.isBlank()) return null;
 
@@ -0,0 +1,156 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import info.isaksson.erland.javatoxmi.io.SourceReader;
+import info.isaksson.erland.javatoxmi.model.JModel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Per-unit extraction backed by an {@link ExtractionCache}: only compilation units whose content (or whose
+ * view of the project type index) changed are parsed and extracted.
+ *
+ * <p>Results and parse errors come out in file order, exactly as in an uncached run. In streaming mode ASTs
+ * are dropped right after use, as in {@link StreamingExtraction}.</p>
+ */
+final class IncrementalExtraction {
+
+    private IncrementalExtraction() {}
+
+    static List<UnitExtraction> run(JModel model, SourceReader reader, Path sourceRoot, List<Path> javaFiles,
+                                    boolean includeDependencies, int parseThreads, ExtractionCache cache,
+                                    SemanticsPipeline semantics, boolean streaming, ResidentUnits resident) {
+        // Read and hash every file. Unreadable files are left to the parser, which reports them. When streaming,
+        // sources are read again on demand instead of being kept.
+        Map<Path, String> sources = new HashMap<>();
+        String[] hashes = new String[javaFiles.size()];
+        for (int i = 0; i < javaFiles.size(); i++) {
+            Path f = javaFiles.get(i);
+            try {
+                String code = reader.read(f);
+                if (!streaming) sources.put(f, code);
+                hashes[i] = ExtractionCache.sha256(code);
+            } catch (IOException e) {
+                hashes[i] = null;
+            }
+        }
+        SourceReader preloaded = new PreloadedSourceReader(sources, reader);
+
+        // Index contributions: cached by content; parse the rest (parse errors are recorded here, in file order).
+        TypeIndexContribution[] contributions = new TypeIndexContribution[javaFiles.size()];
+        List<Path> toParse = new ArrayList<>();
+        for (int i = 0; i < javaFiles.size(); i++) {
+            if (hashes[i] != null) contributions[i] = cache.loadContribution(hashes[i]);
+            if (contributions[i] == null) toParse.add(javaFiles.get(i));
+        }
+        Map<Path, ParsedUnit> parsed = new HashMap<>();
+        Map<Path, TypeIndexContribution> computed = new HashMap<>();
+        if (streaming) {
+            List<TypeIndexContribution> cs = JavaCompilationUnitParser.parseEach(JavaExtractor::newParser, preloaded, sourceRoot,
+                    toParse, model, parseThreads, resident.around(u -> ProjectTypeIndexBuilder.contribution(u.cu)));
+            for (int i = 0; i < toParse.size(); i++) {
+                if (cs.get(i) != null) computed.put(toParse.get(i), cs.get(i));
+            }
+        } else {
+            for (ParsedUnit u : JavaCompilationUnitParser.parseAll(JavaExtractor::newParser, preloaded, sourceRoot, toParse, model, parseThreads)) {
+                parsed.put(u.file, u);
+                computed.put(u.file, ProjectTypeIndexBuilder.contribution(u.cu));
+            }
+        }
+        for (int i = 0; i < javaFiles.size(); i++) {
+            TypeIndexContribution c = computed.get(javaFiles.get(i));
+            if (c == null) continue;
+            contributions[i] = c;
+            if (hashes[i] != null) cache.storeContribution(hashes[i], c);
+        }
+
+        List<TypeIndexContribution> present = new ArrayList<>();
+        for (TypeIndexContribution c : contributions) {
+            if (c != null) present.add(c);
+        }
+        ProjectTypeIndex index = ProjectTypeIndexBuilder.buildFromContributions(present);
+        String fingerprint = fingerprint(index);
+
+        // Unit results: cached by content + index fingerprint; parse whatever is still missing.
+        UnitExtraction[] results = new UnitExtraction[javaFiles.size()];
+        List<Path> toReparse = new ArrayList<>();
+        for (int i = 0; i < javaFiles.size(); i++) {
+            if (contributions[i] == null) continue; // failed to parse
+            if (hashes[i] != null) results[i] = cache.loadUnit(hashes[i], fingerprint, includeDependencies, semantics.key());
+            if (results[i] == null && !parsed.containsKey(javaFiles.get(i))) toReparse.add(javaFiles.get(i));
+        }
+        JModel scratch = new JModel(sourceRoot, toReparse);
+        Map<Path, UnitExtraction> extracted = new HashMap<>();
+        if (streaming) {
+            List<UnitExtraction> rs = JavaCompilationUnitParser.parseEach(JavaExtractor::newParser, preloaded, sourceRoot,
+                    toReparse, scratch, parseThreads, resident.around(u -> UnitExtraction.extract(u, index, includeDependencies, semantics)));
+            for (int i = 0; i < toReparse.size(); i++) {
+                if (rs.get(i) != null) extracted.put(toReparse.get(i), rs.get(i));
+            }
+        } else {
+            for (ParsedUnit u : JavaCompilationUnitParser.parseAll(JavaExtractor::newParser, preloaded, sourceRoot, toReparse, scratch, parseThreads)) {
+                parsed.put(u.file, u);
+            }
+            resident.hold(parsed.size());
+            for (int i = 0; i < javaFiles.size(); i++) {
+                ParsedUnit u = parsed.get(javaFiles.get(i));
+                if (results[i] == null && u != null) extracted.put(u.file, UnitExtraction.extract(u, index, includeDependencies, semantics));
+            }
+            resident.release(parsed.size());
+        }
+
+        List<UnitExtraction> out = new ArrayList<>(javaFiles.size());
+        for (int i = 0; i < javaFiles.size(); i++) {
+            if (results[i] == null) {
+                results[i] = extracted.get(javaFiles.get(i));
+                if (results[i] == null) continue;
+                if (hashes[i] != null) cache.storeUnit(hashes[i], fingerprint, includeDependencies, semantics.key(), results[i]);
+            }
+            out.add(results[i]);
+        }
+        return out;
+    }
+
+    /** Hash of everything in the index that per-unit extraction depends on. */
+    static String fingerprint(ProjectTypeIndex index) {
+        StringBuilder sb = new StringBuilder();
+        for (String qn : new TreeSet<>(index.projectTypeQualifiedNames)) {
+            sb.append(qn).append('\n');
+        }
+        sb.append('\0');
+        for (Map.Entry<String, Map<String, String>> outer : new TreeMap<>(index.nestedByOuter).entrySet()) {
+            for (Map.Entry<String, String> nested : new TreeMap<>(outer.getValue()).entrySet()) {
+                sb.append(outer.getKey()).append('|').append(nested.getKey()).append('|').append(nested.getValue()).append('\n');
+            }
+        }
+        return ExtractionCache.sha256(sb.toString());
+    }
+
+    /** Serves already-read sources from memory and falls back to the underlying reader. */
+    private static final class PreloadedSourceReader implements SourceReader {
+        private final Map<Path, String> sources;
+        private final SourceReader delegate;
+
+        PreloadedSourceReader(Map<Path, String> sources, SourceReader delegate) {
+            this.sources = sources;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String read(Path file) throws IOException {
+            String code = sources.get(file);
+            return code != null ? code : delegate.read(file);
+        }
+
+        @Override
+        public List<Path> listAllFiles(Path root) throws IOException {
+            return delegate.listAllFiles(root);
+        }
+    }
+}
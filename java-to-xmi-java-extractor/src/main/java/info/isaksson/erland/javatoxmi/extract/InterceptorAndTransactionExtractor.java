@@ -1,5 +1,6 @@
 package info.isaksson.erland.javatoxmi.extract;
 
+import info.isaksson.erland.javatoxmi.io.SourceReader;
 import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
 import info.isaksson.erland.javatoxmi.model.JMethod;
 import info.isaksson.erland.javatoxmi.model.JModel;
@@ -19,7 +20,7 @@ import java.util.Map;
  * <p>Outputs {@link JRuntimeAnnotation} entries that the UML builder can annotate onto existing
  * classifiers/operations. Stereotype applications are later injected during XMI writing.</p>
  */
-final class InterceptorAndTransactionExtractor {
+final class InterceptorAndTransactionExtractor implements SemanticsExtractor {
 
     // Runtime tag keys (shared convention with IrRuntime)
     static final String TAG_BINDINGS = "runtime.bindings";
@@ -43,36 +44,42 @@ final class InterceptorAndTransactionExtractor {
     private static final String JAVAX_TX = "javax.transaction.Transactional";
     private static final String SPRING_TX = "org.springframework.transaction.annotation.Transactional";
 
-    void extract(JModel model) {
-        if (model == null || model.types == null || model.types.isEmpty()) return;
+    @Override
+    public String id() {
+        return "interceptor";
+    }
 
-        List<JRuntimeAnnotation> out = new ArrayList<>();
-        for (JType t : model.types) {
-            if (t == null) continue;
+    @Override
+    public void visitType(JType t, SemanticsOutput collected) {
+        List<JRuntimeAnnotation> out = collected.runtimeAnnotations;
 
-            // Interceptor class?
-            if (isInterceptorClass(t)) {
-                Map<String, String> tags = new LinkedHashMap<>();
-                String bindings = detectInterceptorBindings(t.annotations);
-                if (!bindings.isBlank()) tags.put(TAG_BINDINGS, bindings);
-                out.add(new JRuntimeAnnotation(t.qualifiedName, ST_INTERCEPTOR, tags));
-            }
+        // Interceptor class?
+        if (isInterceptorClass(t)) {
+            Map<String, String> tags = new LinkedHashMap<>();
+            String bindings = detectInterceptorBindings(t.annotations);
+            if (!bindings.isBlank()) tags.put(TAG_BINDINGS, bindings);
+            out.add(new JRuntimeAnnotation(t.qualifiedName, ST_INTERCEPTOR, tags));
+        }
 
-            // Transactional on class?
-            JAnnotationUse txClass = firstTxAnnotation(t.annotations);
-            if (txClass != null) {
-                out.add(new JRuntimeAnnotation(t.qualifiedName, ST_TRANSACTIONAL, txTags(txClass)));
-            }
+        // Transactional on class?
+        JAnnotationUse txClass = firstTxAnnotation(t.annotations);
+        if (txClass != null) {
+            out.add(new JRuntimeAnnotation(t.qualifiedName, ST_TRANSACTIONAL, txTags(txClass)));
+        }
 
-            // Transactional on methods?
-            for (JMethod m : t.methods) {
-                if (m == null) continue;
-                JAnnotationUse txMethod = firstTxAnnotation(m.annotations);
-                if (txMethod != null) {
-                    out.add(new JRuntimeAnnotation(methodKey(t, m), ST_TRANSACTIONAL, txTags(txMethod)));
-                }
+        // Transactional on methods?
+        for (JMethod m : t.methods) {
+            if (m == null) continue;
+            JAnnotationUse txMethod = firstTxAnnotation(m.annotations);
+            if (txMethod != null) {
+                out.add(new JRuntimeAnnotation(methodKey(t, m), ST_TRANSACTIONAL, txTags(txMethod)));
             }
         }
+    }
+
+    @Override
+    public void complete(JModel model, SemanticsOutput collected, SourceReader reader) {
+        List<JRuntimeAnnotation> out = collected.runtimeAnnotations;
 
         // Deterministic ordering
         out.sort((a, b) -> {
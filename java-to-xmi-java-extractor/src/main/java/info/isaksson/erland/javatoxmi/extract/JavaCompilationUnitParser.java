@@ -3,41 +3,152 @@ package info.isaksson.erland.javatoxmi.extract;
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseProblemException;
 import com.github.javaparser.ast.CompilationUnit;
+import info.isaksson.erland.javatoxmi.io.SourceReader;
 import info.isaksson.erland.javatoxmi.model.JModel;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Parses Java source files into {@link CompilationUnit}s, collecting parse errors into the {@link JModel}.
+ *
+ * <p>Parsing can be spread over a pool of worker threads. {@link JavaParser} is not thread-safe, so each
+ * worker owns its own parser instance. Results (units and parse errors) are always merged back in the
+ * order of {@code javaFiles}, which keeps downstream output identical to a sequential run.</p>
  */
 final class JavaCompilationUnitParser {
 
     private JavaCompilationUnitParser() {}
 
     static List<ParsedUnit> parseAll(JavaParser parser, Path sourceRoot, List<Path> javaFiles, JModel model) {
+        return parseAll(parser, SourceReader.fileSystem(), sourceRoot, javaFiles, model);
+    }
+
+    static List<ParsedUnit> parseAll(JavaParser parser, SourceReader reader, Path sourceRoot, List<Path> javaFiles, JModel model) {
         List<ParsedUnit> units = new ArrayList<>();
         for (Path f : javaFiles) {
-            try {
-                String code = Files.readString(f, StandardCharsets.UTF_8);
-                CompilationUnit cu = parser.parse(code).getResult()
-                        .orElseThrow(() -> new ParseProblemException(List.of()));
-                units.add(new ParsedUnit(f, cu));
-            } catch (ParseProblemException e) {
-                model.parseErrors.add(rel(sourceRoot, f) + ": parse error (" + e.getProblems().size() + " problems)");
-            } catch (IOException e) {
-                model.parseErrors.add(rel(sourceRoot, f) + ": IO error (" + e.getMessage() + ")");
-            } catch (Exception e) {
-                model.parseErrors.add(rel(sourceRoot, f) + ": error (" + e.getClass().getSimpleName() + ": " + e.getMessage() + ")");
-            }
+            merge(parseOne(parser, reader, sourceRoot, f), units, model);
+        }
+        return units;
+    }
+
+    /**
+     * Parse all files using up to {@code threads} workers.
+     *
+     * @param parserFactory creates a fresh parser; called once per worker thread
+     * @param reader source content access; must be safe for concurrent reads
+     * @param threads number of workers; {@code <= 0} means one per available processor
+     */
+    static List<ParsedUnit> parseAll(Supplier<JavaParser> parserFactory, SourceReader reader, Path sourceRoot, List<Path> javaFiles, JModel model, int threads) {
+        if (Math.min(effectiveThreads(threads), javaFiles.size()) <= 1) {
+            return parseAll(parserFactory.get(), reader, sourceRoot, javaFiles, model);
+        }
+        List<ParsedUnit> units = new ArrayList<>(javaFiles.size());
+        for (ParsedUnit u : parseEach(parserFactory, reader, sourceRoot, javaFiles, model, threads, Function.identity())) {
+            if (u != null) units.add(u);
         }
         return units;
     }
 
+    /**
+     * Parse each file and immediately map its unit with {@code fn} on the worker that parsed it, so the AST can
+     * be dropped as soon as {@code fn} returns: at most {@code threads} units are alive at any time (as long as
+     * {@code fn}'s result does not retain the AST).
+     *
+     * @return one entry per file, in {@code javaFiles} order; {@code null} where the file failed to parse
+     */
+    static <T> List<T> parseEach(Supplier<JavaParser> parserFactory, SourceReader reader, Path sourceRoot, List<Path> javaFiles,
+                                 JModel model, int threads, Function<ParsedUnit, T> fn) {
+        List<T> results = new ArrayList<>(javaFiles.size());
+        int workers = Math.min(effectiveThreads(threads), javaFiles.size());
+        if (workers <= 1) {
+            JavaParser parser = parserFactory.get();
+            for (Path f : javaFiles) {
+                results.add(merge(parseOne(parser, reader, sourceRoot, f).map(fn), model));
+            }
+            return results;
+        }
+
+        ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(parserFactory);
+        ExecutorService pool = Executors.newFixedThreadPool(workers, daemonThreads());
+        try {
+            List<Future<Outcome<T>>> futures = new ArrayList<>(javaFiles.size());
+            for (Path f : javaFiles) {
+                futures.add(pool.submit(() -> parseOne(parsers.get(), reader, sourceRoot, f).map(fn)));
+            }
+            for (Future<Outcome<T>> future : futures) {
+                results.add(merge(await(future), model));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    static int effectiveThreads(int threads) {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static Outcome<ParsedUnit> parseOne(JavaParser parser, SourceReader reader, Path sourceRoot, Path f) {
+        try {
+            String code = reader.read(f);
+            CompilationUnit cu = parser.parse(code).getResult()
+                    .orElseThrow(() -> new ParseProblemException(List.of()));
+            return new Outcome<>(new ParsedUnit(f, cu), null);
+        } catch (ParseProblemException e) {
+            return new Outcome<>(null, rel(sourceRoot, f) + ": parse error (" + e.getProblems().size() + " problems)");
+        } catch (IOException e) {
+            return new Outcome<>(null, rel(sourceRoot, f) + ": IO error (" + e.getMessage() + ")");
+        } catch (Exception e) {
+            return new Outcome<>(null, rel(sourceRoot, f) + ": error (" + e.getClass().getSimpleName() + ": " + e.getMessage() + ")");
+        }
+    }
+
+    private static void merge(Outcome<ParsedUnit> o, List<ParsedUnit> units, JModel model) {
+        if (o.value != null) units.add(o.value);
+        if (o.error != null) model.parseErrors.add(o.error);
+    }
+
+    private static <T> T merge(Outcome<T> o, JModel model) {
+        if (o.error != null) model.parseErrors.add(o.error);
+        return o.value;
+    }
+
+    private static <T> Outcome<T> await(Future<Outcome<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing sources", e);
+        } catch (ExecutionException e) {
+            // parseOne() catches all Exceptions, so only Errors (e.g. StackOverflowError) and failures of the
+            // per-unit mapping end up here.
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) throw (Error) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException("Parsing failed", cause);
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "java-to-xmi-parse-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
     private static String rel(Path root, Path file) {
         try {
             return root.relativize(file).toString().replace('\\', '/');
@@ -45,4 +156,19 @@ final class JavaCompilationUnitParser {
             return file.toString().replace('\\', '/');
         }
     }
+
+    /** Result of parsing one file: either a unit (or what it was mapped to) or a parse error message. */
+    private static final class Outcome<T> {
+        final T value;
+        final String error;
+
+        Outcome(T value, String error) {
+            this.value = value;
+            this.error = error;
+        }
+
+        <R> Outcome<R> map(Function<? super T, R> fn) {
+            return new Outcome<>(value == null ? null : fn.apply(value), error);
+        }
+    }
 }
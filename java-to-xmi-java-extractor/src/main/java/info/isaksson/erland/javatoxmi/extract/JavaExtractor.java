@@ -2,11 +2,13 @@ package info.isaksson.erland.javatoxmi.extract;
 
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParserConfiguration;
+import info.isaksson.erland.javatoxmi.io.SourceReader;
 import info.isaksson.erland.javatoxmi.model.JModel;
 
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -18,6 +20,10 @@ import java.util.stream.Collectors;
  *   <li>{@link JavaCompilationUnitParser}: parse Java source files into compilation units</li>
  *   <li>{@link ProjectTypeIndexBuilder}: build a project type index (qualified name -> stub) including nested member types</li>
  *   <li>{@link TypeExtractionEngine}: extract {@code JType}/{@code JField}/{@code JMethod} into {@link JModel}</li>
+ *   <li>{@link UnitExtraction}: all per-compilation-unit results, merged here in file order</li>
+ *   <li>{@link IncrementalExtraction}: serves unchanged units from an {@link ExtractionCache}</li>
+ *   <li>{@link StreamingExtraction}: bounded-memory variant that never keeps all ASTs at once</li>
+ *   <li>{@link SemanticsPipeline}: runtime-semantics {@link SemanticsExtractor}s, driven by one walk per unit</li>
  * </ul>
  */
 public final class JavaExtractor {
@@ -25,12 +31,89 @@ public final class JavaExtractor {
     /** Max JavaDoc characters stored per type. If exceeded, text is truncated and suffixed with "…(truncated)". */
     static final int MAX_TYPE_DOC_CHARS = 16 * 1024;
 
-    private final JavaParser parser;
+    /** Number of parse workers; {@code <= 0} means one per available processor. */
+    private final int parseThreads;
+
+    /** Optional persistent cache of per-unit extraction results (null = disabled). */
+    private final ExtractionCache cache;
+
+    /** Two-pass extraction that drops each AST right after use (see {@link StreamingExtraction}). */
+    private final boolean streaming;
+
+    /** Built-in runtime-semantics extractors plus those registered through {@link java.util.ServiceLoader}. */
+    private final SemanticsPipeline semantics;
+
+    private final AtomicLong typeResolutionHits = new AtomicLong();
+    private final AtomicLong typeResolutionMisses = new AtomicLong();
+    private final AtomicLong reextractedUnits = new AtomicLong();
+    private final ResidentUnits residentUnits = new ResidentUnits();
 
     public JavaExtractor() {
+        this(1);
+    }
+
+    /**
+     * @param parseThreads number of threads used to parse compilation units. {@code 1} parses sequentially,
+     *                     {@code <= 0} uses one thread per available processor. The extracted model is
+     *                     identical regardless of the thread count.
+     */
+    public JavaExtractor(int parseThreads) {
+        this(parseThreads, null);
+    }
+
+    /**
+     * @param cache optional persistent cache; unchanged compilation units are then not re-parsed. The extracted
+     *              model is identical to a run without cache.
+     */
+    public JavaExtractor(int parseThreads, ExtractionCache cache) {
+        this(parseThreads, cache, false);
+    }
+
+    /**
+     * @param streaming bounded-memory mode: a first pass only collects the project type index, a second pass
+     *                  parses, extracts and drops one unit per parse thread at a time. Every file is parsed twice,
+     *                  but at most {@code parseThreads} ASTs are alive at once. The extracted model is identical.
+     */
+    public JavaExtractor(int parseThreads, ExtractionCache cache, boolean streaming) {
+        this.parseThreads = parseThreads;
+        this.cache = cache;
+        this.streaming = streaming;
+        this.semantics = SemanticsPipeline.standard();
+    }
+
+    /**
+     * Type name resolutions served from the per-compilation-unit resolution cache, summed over all
+     * {@code extract} calls on this instance (units served by the {@link ExtractionCache} do not count).
+     */
+    public long typeResolutionHits() {
+        return typeResolutionHits.get();
+    }
+
+    /** Type name resolutions that had to be computed; see {@link #typeResolutionHits()}. */
+    public long typeResolutionMisses() {
+        return typeResolutionMisses.get();
+    }
+
+    /**
+     * Largest number of parsed compilation units (ASTs) held at once by any {@code extract} call on this instance.
+     * Without {@code streaming} this is every parsed unit of the project.
+     */
+    public int peakResidentUnits() {
+        return residentUnits.peak();
+    }
+
+    /**
+     * Compilation units that streaming extraction had to extract a second time because the parser indexed some
+     * unit differently from the header lexer; see {@link StreamingExtraction}.
+     */
+    public long reextractedUnits() {
+        return reextractedUnits.get();
+    }
+
+    static JavaParser newParser() {
         ParserConfiguration cfg = new ParserConfiguration();
         cfg.setCharacterEncoding(StandardCharsets.UTF_8);
-        this.parser = new JavaParser(cfg);
+        return new JavaParser(cfg);
     }
 
     public JModel extract(Path sourceRoot, List<Path> javaFiles) {
@@ -45,35 +128,56 @@ public final class JavaExtractor {
      *                            emitted to XMI if dependency output is enabled.
      */
     public JModel extract(Path sourceRoot, List<Path> javaFiles, boolean includeDependencies) {
-        JModel model = new JModel(sourceRoot, javaFiles);
-
-        // 1) Parse all compilation units (collect parse errors but continue)
-        List<ParsedUnit> units = JavaCompilationUnitParser.parseAll(parser, sourceRoot, javaFiles, model);
-
-        // 2) Build project type index (qualified name -> stub), including nested member types.
-        ProjectTypeIndex index = ProjectTypeIndexBuilder.build(units);
-
-        // 3) Extract types (re-walk per compilation unit to keep import context correct for each file)
-        TypeExtractionEngine.extractAllTypes(model, units, index, includeDependencies);
-
-        // 4) Extract runtime semantics (REST endpoints etc.)
-        new RestEndpointExtractor().extract(model);
-
-        // 5) Extract CDI runtime semantics (events + observers)
-        new CdiEventExtractor().extract(model, units, index);
-
-        // 6) Extract interceptor/transaction boundaries
-        new InterceptorAndTransactionExtractor().extract(model);
+        return extract(sourceRoot, javaFiles, includeDependencies, SourceReader.fileSystem());
+    }
 
-        // 7) Extract messaging + scheduled jobs
-        new MessagingAndSchedulingExtractor().extract(model);
+    /**
+     * Extract Java model, reading file contents through {@code reader} (e.g. straight from a ZIP archive).
+     *
+     * @param reader source content access; {@code javaFiles} and resource discovery are resolved through it
+     */
+    public JModel extract(Path sourceRoot, List<Path> javaFiles, boolean includeDependencies, SourceReader reader) {
+        JModel model = new JModel(sourceRoot, javaFiles);
 
-        // 8) Extract Flyway migration artifacts
-        new FlywayMigrationExtractor().extract(model, units);
+        // 1) Parse, index and extract each compilation unit (type extraction plus the per-unit parts of the
+        //    runtime-semantics steps). With a cache, unchanged units are served without parsing.
+        List<UnitExtraction> results;
+        if (cache != null) {
+            results = IncrementalExtraction.run(model, reader, sourceRoot, javaFiles, includeDependencies, parseThreads, cache,
+                    semantics, streaming, residentUnits);
+        } else if (streaming) {
+            results = StreamingExtraction.run(model, reader, sourceRoot, javaFiles, includeDependencies, parseThreads, semantics,
+                    residentUnits, reextractedUnits);
+        } else {
+            // 1a) Parse all compilation units (collect parse errors but continue)
+            List<ParsedUnit> units = JavaCompilationUnitParser.parseAll(JavaExtractor::newParser, reader, sourceRoot, javaFiles, model, parseThreads);
+            residentUnits.hold(units.size());
+
+            // 1b) Build project type index (qualified name -> stub), including nested member types.
+            ProjectTypeIndex index = ProjectTypeIndexBuilder.build(units);
+
+            // 1c) Extract per compilation unit (re-walk per unit to keep import context correct for each file)
+            results = new ArrayList<>(units.size());
+            for (ParsedUnit u : units) {
+                results.add(UnitExtraction.extract(u, index, includeDependencies, semantics));
+            }
+            residentUnits.release(units.size());
+        }
 
-        // 9) Extract JPMS module boundaries (module-info.java)
-        new JpmsModuleExtractor().extract(model, units);
+        // 2) Merge extracted types in file order
+        for (UnitExtraction r : results) {
+            typeResolutionHits.addAndGet(r.typeResolutionHits);
+            typeResolutionMisses.addAndGet(r.typeResolutionMisses);
+            model.types.addAll(r.types);
+            model.externalTypeRefs.addAll(r.externalTypeRefs);
+            model.unresolvedTypes.addAll(r.unresolvedTypes);
+        }
 
+        // 3) Runtime semantics (REST, CDI, interceptors/transactions, messaging, Flyway, JPMS and any
+        //    ServiceLoader-provided extractors): per-unit outputs were collected in step 1 by a single AST walk.
+        List<Map<String, SemanticsOutput>> unitSemantics = new ArrayList<>(results.size());
+        for (UnitExtraction r : results) unitSemantics.add(r.semantics);
+        semantics.complete(model, unitSemantics, reader);
 
         // Stable ordering for downstream determinism
         model.types.sort(Comparator.comparing(t -> t.qualifiedName));
@@ -1,11 +1,13 @@
 package info.isaksson.erland.javatoxmi.extract;
 
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.modules.ModuleDeclaration;
 import com.github.javaparser.ast.modules.ModuleDirective;
 import com.github.javaparser.ast.modules.ModuleRequiresDirective;
 import com.github.javaparser.ast.modules.ModuleExportsDirective;
 import com.github.javaparser.ast.modules.ModuleOpensDirective;
+import info.isaksson.erland.javatoxmi.io.SourceReader;
 import info.isaksson.erland.javatoxmi.model.JJavaModule;
 import info.isaksson.erland.javatoxmi.model.JJavaModuleRequire;
 import info.isaksson.erland.javatoxmi.model.JModel;
@@ -15,40 +17,78 @@ import java.util.*;
 /**
  * Extracts Java Platform Module System (JPMS) metadata from {@code module-info.java}.
  */
-public final class JpmsModuleExtractor {
+public final class JpmsModuleExtractor implements SemanticsExtractor {
 
     public void extract(JModel model, List<ParsedUnit> units) {
         if (model == null || units == null) return;
 
-        Map<String, JJavaModule> byName = new LinkedHashMap<>();
-
+        List<JJavaModule> declared = new ArrayList<>();
         for (ParsedUnit u : units) {
-            CompilationUnit cu = u.cu;
-            Optional<ModuleDeclaration> modOpt = cu.getModule();
-            if (modOpt.isEmpty()) continue;
-
-            ModuleDeclaration md = modOpt.get();
-            String moduleName = md.getNameAsString();
-            if (moduleName == null || moduleName.isBlank()) continue;
-
-            JJavaModule jm = byName.computeIfAbsent(moduleName, JJavaModule::new);
-
-            for (ModuleDirective d : md.getDirectives()) {
-                if (d instanceof ModuleExportsDirective ex) {
-                    String pkg = ex.getNameAsString();
-                    if (pkg != null && !pkg.isBlank()) jm.exports.add(pkg);
-                } else if (d instanceof ModuleOpensDirective op) {
-                    String pkg = op.getNameAsString();
-                    if (pkg != null && !pkg.isBlank()) jm.opens.add(pkg);
-                } else if (d instanceof ModuleRequiresDirective req) {
-                    String reqName = req.getNameAsString();
-                    if (reqName == null || reqName.isBlank()) continue;
-                    boolean isStatic = req.isStatic();
-                    boolean isTransitive = req.isTransitive();
-                    jm.requires.add(new JJavaModuleRequire(reqName, isStatic, isTransitive));
-                }
+            declared.addAll(modules(u.cu));
+        }
+        merge(model, declared);
+    }
+
+    @Override
+    public String id() {
+        return "jpms";
+    }
+
+    @Override
+    public Set<Class<? extends Node>> nodeTypes() {
+        return Set.of(ModuleDeclaration.class);
+    }
+
+    @Override
+    public void visitNode(Node node, SemanticsUnit unit) {
+        JJavaModule jm = module((ModuleDeclaration) node);
+        if (jm != null) unit.output().javaModules.add(jm);
+    }
+
+    @Override
+    public void complete(JModel model, SemanticsOutput collected, SourceReader reader) {
+        merge(model, collected.javaModules);
+    }
+
+    /** The module declared by one compilation unit (empty unless it is a {@code module-info.java}). */
+    static List<JJavaModule> modules(CompilationUnit cu) {
+        JJavaModule jm = cu.getModule().map(JpmsModuleExtractor::module).orElse(null);
+        return jm == null ? List.of() : List.of(jm);
+    }
+
+    private static JJavaModule module(ModuleDeclaration md) {
+        String moduleName = md.getNameAsString();
+        if (moduleName == null || moduleName.isBlank()) return null;
+
+        JJavaModule jm = new JJavaModule(moduleName);
+
+        for (ModuleDirective d : md.getDirectives()) {
+            if (d instanceof ModuleExportsDirective ex) {
+                String pkg = ex.getNameAsString();
+                if (pkg != null && !pkg.isBlank()) jm.exports.add(pkg);
+            } else if (d instanceof ModuleOpensDirective op) {
+                String pkg = op.getNameAsString();
+                if (pkg != null && !pkg.isBlank()) jm.opens.add(pkg);
+            } else if (d instanceof ModuleRequiresDirective req) {
+                String reqName = req.getNameAsString();
+                if (reqName == null || reqName.isBlank()) continue;
+                boolean isStatic = req.isStatic();
+                boolean isTransitive = req.isTransitive();
+                jm.requires.add(new JJavaModuleRequire(reqName, isStatic, isTransitive));
             }
         }
+        return jm;
+    }
+
+    /** Merge per-unit module declarations by name (in unit order) and add them to the model deterministically. */
+    static void merge(JModel model, List<JJavaModule> declared) {
+        Map<String, JJavaModule> byName = new LinkedHashMap<>();
+        for (JJavaModule d : declared) {
+            JJavaModule jm = byName.computeIfAbsent(d.name, JJavaModule::new);
+            jm.exports.addAll(d.exports);
+            jm.opens.addAll(d.opens);
+            jm.requires.addAll(d.requires);
+        }
 
         // Determinism: sort inner lists and modules
         List<String> names = new ArrayList<>(byName.keySet());
@@ -2,7 +2,6 @@ package info.isaksson.erland.javatoxmi.extract;
 
 import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
 import info.isaksson.erland.javatoxmi.model.JMethod;
-import info.isaksson.erland.javatoxmi.model.JModel;
 import info.isaksson.erland.javatoxmi.model.JParam;
 import info.isaksson.erland.javatoxmi.model.JRuntimeAnnotation;
 import info.isaksson.erland.javatoxmi.model.JType;
@@ -21,7 +20,7 @@ import java.util.Map;
  *
  * <p>This is intentionally heuristics-based and does not require symbol solving.</p>
  */
-final class MessagingAndSchedulingExtractor {
+final class MessagingAndSchedulingExtractor implements SemanticsExtractor {
 
     // Runtime tag keys (shared convention with IrRuntime).
     static final String TAG_PREFIX = "runtime.";
@@ -57,105 +56,101 @@ final class MessagingAndSchedulingExtractor {
     private static final String MP_INCOMING = "org.eclipse.microprofile.reactive.messaging.Incoming";
     private static final String MP_OUTGOING = "org.eclipse.microprofile.reactive.messaging.Outgoing";
 
-    void extract(JModel model) {
-        if (model == null || model.types == null || model.types.isEmpty()) return;
+    @Override
+    public String id() {
+        return "messaging";
+    }
+
+    @Override
+    public void visitType(JType t, SemanticsOutput collected) {
+        List<JRuntimeAnnotation> out = collected.runtimeAnnotations;
+
+        // Class-level consumers (MessageDriven bean)
+        if (hasAnnotation(t.annotations, "MessageDriven", MDB_1, MDB_2)) {
+            Map<String, String> tags = new LinkedHashMap<>();
+            // Best-effort: common members
+            String dest = firstMemberValue(firstAnnotation(t.annotations, "MessageDriven", MDB_1, MDB_2),
+                    "destination", "mappedName", "name", "value");
+            if (!dest.isBlank()) tags.put(TAG_DESTINATION, dest);
+            tags.put(TAG_DESTINATION_TYPE, "queue");
+            out.add(new JRuntimeAnnotation(t.qualifiedName, ST_MESSAGE_CONSUMER, tags));
+        }
 
-        List<JRuntimeAnnotation> out = new ArrayList<>();
+        // Method-level annotations
+        for (JMethod m : t.methods) {
+            if (m == null) continue;
 
-        for (JType t : model.types) {
-            if (t == null) continue;
+            // Consumers
+            JAnnotationUse kafka = firstAnnotation(m.annotations, "KafkaListener", SPRING_KAFKA_LISTENER);
+            if (kafka != null) {
+                Map<String, String> tags = new LinkedHashMap<>();
+                String topics = firstMemberValue(kafka, "topics", "topicPattern", "value");
+                if (!topics.isBlank()) tags.put(TAG_DESTINATION, normalizeCommaList(topics));
+                tags.put(TAG_DESTINATION_TYPE, kafka.values.containsKey("topicPattern") ? "pattern" : "topic");
+                String groupId = firstMemberValue(kafka, "groupId", "group");
+                if (!groupId.isBlank()) tags.put(TAG_GROUP_ID, groupId);
+                String concurrency = firstMemberValue(kafka, "concurrency");
+                if (!concurrency.isBlank()) tags.put(TAG_CONCURRENCY, concurrency);
+                out.add(new JRuntimeAnnotation(methodKey(t, m), ST_MESSAGE_CONSUMER, tags));
+            }
 
-            // Class-level consumers (MessageDriven bean)
-            if (hasAnnotation(t.annotations, "MessageDriven", MDB_1, MDB_2)) {
+            JAnnotationUse jms = firstAnnotation(m.annotations, "JmsListener", SPRING_JMS_LISTENER);
+            if (jms != null) {
                 Map<String, String> tags = new LinkedHashMap<>();
-                // Best-effort: common members
-                String dest = firstMemberValue(firstAnnotation(t.annotations, "MessageDriven", MDB_1, MDB_2),
-                        "destination", "mappedName", "name", "value");
+                String dest = firstMemberValue(jms, "destination", "value");
                 if (!dest.isBlank()) tags.put(TAG_DESTINATION, dest);
                 tags.put(TAG_DESTINATION_TYPE, "queue");
-                out.add(new JRuntimeAnnotation(t.qualifiedName, ST_MESSAGE_CONSUMER, tags));
+                String concurrency = firstMemberValue(jms, "concurrency");
+                if (!concurrency.isBlank()) tags.put(TAG_CONCURRENCY, concurrency);
+                out.add(new JRuntimeAnnotation(methodKey(t, m), ST_MESSAGE_CONSUMER, tags));
             }
 
-            // Method-level annotations
-            for (JMethod m : t.methods) {
-                if (m == null) continue;
-
-                // Consumers
-                JAnnotationUse kafka = firstAnnotation(m.annotations, "KafkaListener", SPRING_KAFKA_LISTENER);
-                if (kafka != null) {
-                    Map<String, String> tags = new LinkedHashMap<>();
-                    String topics = firstMemberValue(kafka, "topics", "topicPattern", "value");
-                    if (!topics.isBlank()) tags.put(TAG_DESTINATION, normalizeCommaList(topics));
-                    tags.put(TAG_DESTINATION_TYPE, kafka.values.containsKey("topicPattern") ? "pattern" : "topic");
-                    String groupId = firstMemberValue(kafka, "groupId", "group");
-                    if (!groupId.isBlank()) tags.put(TAG_GROUP_ID, groupId);
-                    String concurrency = firstMemberValue(kafka, "concurrency");
-                    if (!concurrency.isBlank()) tags.put(TAG_CONCURRENCY, concurrency);
-                    out.add(new JRuntimeAnnotation(methodKey(t, m), ST_MESSAGE_CONSUMER, tags));
-                }
-
-                JAnnotationUse jms = firstAnnotation(m.annotations, "JmsListener", SPRING_JMS_LISTENER);
-                if (jms != null) {
-                    Map<String, String> tags = new LinkedHashMap<>();
-                    String dest = firstMemberValue(jms, "destination", "value");
-                    if (!dest.isBlank()) tags.put(TAG_DESTINATION, dest);
-                    tags.put(TAG_DESTINATION_TYPE, "queue");
-                    String concurrency = firstMemberValue(jms, "concurrency");
-                    if (!concurrency.isBlank()) tags.put(TAG_CONCURRENCY, concurrency);
-                    out.add(new JRuntimeAnnotation(methodKey(t, m), ST_MESSAGE_CONSUMER, tags));
-                }
-
-                JAnnotationUse incoming = firstAnnotation(m.annotations, "Incoming", MP_INCOMING);
-                if (incoming != null) {
-                    Map<String, String> tags = new LinkedHashMap<>();
-                    String channel = firstMemberValue(incoming, "value");
-                    if (!channel.isBlank()) tags.put(TAG_DESTINATION, channel);
-                    tags.put(TAG_DESTINATION_TYPE, "channel");
-                    out.add(new JRuntimeAnnotation(methodKey(t, m), ST_MESSAGE_CONSUMER, tags));
-                }
+            JAnnotationUse incoming = firstAnnotation(m.annotations, "Incoming", MP_INCOMING);
+            if (incoming != null) {
+                Map<String, String> tags = new LinkedHashMap<>();
+                String channel = firstMemberValue(incoming, "value");
+                if (!channel.isBlank()) tags.put(TAG_DESTINATION, channel);
+                tags.put(TAG_DESTINATION_TYPE, "channel");
+                out.add(new JRuntimeAnnotation(methodKey(t, m), ST_MESSAGE_CONSUMER, tags));
+            }
 
-                // Producers (annotation-based)
-                JAnnotationUse outgoing = firstAnnotation(m.annotations, "Outgoing", MP_OUTGOING);
-                if (outgoing != null) {
-                    Map<String, String> tags = new LinkedHashMap<>();
-                    String channel = firstMemberValue(outgoing, "value");
-                    if (!channel.isBlank()) tags.put(TAG_DESTINATION, channel);
-                    tags.put(TAG_DESTINATION_TYPE, "channel");
-                    out.add(new JRuntimeAnnotation(methodKey(t, m), ST_MESSAGE_PRODUCER, tags));
-                }
+            // Producers (annotation-based)
+            JAnnotationUse outgoing = firstAnnotation(m.annotations, "Outgoing", MP_OUTGOING);
+            if (outgoing != null) {
+                Map<String, String> tags = new LinkedHashMap<>();
+                String channel = firstMemberValue(outgoing, "value");
+                if (!channel.isBlank()) tags.put(TAG_DESTINATION, channel);
+                tags.put(TAG_DESTINATION_TYPE, "channel");
+                out.add(new JRuntimeAnnotation(methodKey(t, m), ST_MESSAGE_PRODUCER, tags));
+            }
 
-                // Scheduled jobs
-                JAnnotationUse scheduled = firstAnnotation(m.annotations, "Scheduled", SPRING_SCHEDULED);
-                if (scheduled != null) {
-                    Map<String, String> tags = new LinkedHashMap<>();
-                    String cron = firstMemberValue(scheduled, "cron");
-                    if (!cron.isBlank()) tags.put(TAG_CRON, cron);
-                    String fd = firstMemberValue(scheduled, "fixedDelay", "fixedDelayString");
-                    if (!fd.isBlank()) tags.put(TAG_FIXED_DELAY, fd);
-                    String fr = firstMemberValue(scheduled, "fixedRate", "fixedRateString");
-                    if (!fr.isBlank()) tags.put(TAG_FIXED_RATE, fr);
-                    out.add(new JRuntimeAnnotation(methodKey(t, m), ST_SCHEDULED_JOB, tags));
-                }
+            // Scheduled jobs
+            JAnnotationUse scheduled = firstAnnotation(m.annotations, "Scheduled", SPRING_SCHEDULED);
+            if (scheduled != null) {
+                Map<String, String> tags = new LinkedHashMap<>();
+                String cron = firstMemberValue(scheduled, "cron");
+                if (!cron.isBlank()) tags.put(TAG_CRON, cron);
+                String fd = firstMemberValue(scheduled, "fixedDelay", "fixedDelayString");
+                if (!fd.isBlank()) tags.put(TAG_FIXED_DELAY, fd);
+                String fr = firstMemberValue(scheduled, "fixedRate", "fixedRateString");
+                if (!fr.isBlank()) tags.put(TAG_FIXED_RATE, fr);
+                out.add(new JRuntimeAnnotation(methodKey(t, m), ST_SCHEDULED_JOB, tags));
+            }
 
-                // EJB schedules - treat as scheduled job
-                if (hasAnnotation(m.annotations, "Schedule", EJB_SCHEDULE_1, EJB_SCHEDULE_2)
-                        || hasAnnotation(m.annotations, "Timeout", EJB_TIMEOUT_1, EJB_TIMEOUT_2)) {
-                    Map<String, String> tags = new LinkedHashMap<>();
-                    // For @Schedule, common members are cron-like pieces (hour, minute, second, etc).
-                    // We keep best-effort: if 'info' exists, store it.
-                    JAnnotationUse sch = firstAnnotation(m.annotations, "Schedule", EJB_SCHEDULE_1, EJB_SCHEDULE_2);
-                    if (sch != null) {
-                        String info = firstMemberValue(sch, "info");
-                        if (!info.isBlank()) tags.put(TAG_PREFIX + "info", info);
-                    }
-                    out.add(new JRuntimeAnnotation(methodKey(t, m), ST_SCHEDULED_JOB, tags));
+            // EJB schedules - treat as scheduled job
+            if (hasAnnotation(m.annotations, "Schedule", EJB_SCHEDULE_1, EJB_SCHEDULE_2)
+                    || hasAnnotation(m.annotations, "Timeout", EJB_TIMEOUT_1, EJB_TIMEOUT_2)) {
+                Map<String, String> tags = new LinkedHashMap<>();
+                // For @Schedule, common members are cron-like pieces (hour, minute, second, etc).
+                // We keep best-effort: if 'info' exists, store it.
+                JAnnotationUse sch = firstAnnotation(m.annotations, "Schedule", EJB_SCHEDULE_1, EJB_SCHEDULE_2);
+                if (sch != null) {
+                    String info = firstMemberValue(sch, "info");
+                    if (!info.isBlank()) tags.put(TAG_PREFIX + "info", info);
                 }
+                out.add(new JRuntimeAnnotation(methodKey(t, m), ST_SCHEDULED_JOB, tags));
             }
         }
-
-        if (!out.isEmpty()) {
-            model.runtimeAnnotations.addAll(out);
-        }
     }
 
     private static boolean hasAnnotation(List<JAnnotationUse> anns, String simple, String... qualifiedNames) {
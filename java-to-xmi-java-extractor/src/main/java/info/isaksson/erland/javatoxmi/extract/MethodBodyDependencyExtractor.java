@@ -7,19 +7,28 @@ import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.LambdaExpr;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.SwitchExpr;
 import com.github.javaparser.ast.expr.ThisExpr;
 import com.github.javaparser.ast.stmt.BlockStmt;
 import com.github.javaparser.ast.stmt.CatchClause;
 import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.SwitchStmt;
+import com.github.javaparser.ast.stmt.TryStmt;
 import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.UnknownType;
 import com.github.javaparser.ast.type.VarType;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 import info.isaksson.erland.javatoxmi.model.JModel;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -36,6 +45,9 @@ import java.util.Set;
  *   <li>"this.field" where the field type is known.</li>
  * </ul>
  * </p>
+ *
+ * <p>Each body is traversed once; locals are block-scoped, so an inner declaration shadows an outer one
+ * only inside its block.</p>
  */
 final class MethodBodyDependencyExtractor {
 
@@ -71,126 +83,245 @@ final class MethodBodyDependencyExtractor {
     }
 
     private static Set<String> extractBody(Node callable,
-                                               BlockStmt body,
-                                               List<Parameter> parameters,
-                                               ImportContext ctx,
-                                               Map<String, Map<String, String>> nestedByOuter,
-                                               List<String> nestedScopeChain,
-                                               JModel model,
-                                               String ownerQn,
-                                               Map<String, String> fieldTypeByName) {
+                                           BlockStmt body,
+                                           List<Parameter> parameters,
+                                           ImportContext ctx,
+                                           Map<String, Map<String, String>> nestedByOuter,
+                                           List<String> nestedScopeChain,
+                                           JModel model,
+                                           String ownerQn,
+                                           Map<String, String> fieldTypeByName) {
         if (callable == null) return Set.of();
         if (body == null) return Set.of();
 
-        // Local symbol table: var name -> resolved type string (may include generics; normalized later)
-        Map<String, String> locals = new HashMap<>();
+        BodyVisitor v = new BodyVisitor(ctx, nestedByOuter, nestedScopeChain, model, ownerQn, fieldTypeByName);
+        v.enterScope();
         if (parameters != null) {
             for (Parameter p : parameters) {
-            if (p == null) continue;
-            String n = p.getNameAsString();
-            if (n == null || n.isBlank()) continue;
-            Type pt = p.getType();
-            if (pt instanceof VarType) continue;
-            String r = TypeResolver.resolveTypeRef(pt, ctx, nestedByOuter, nestedScopeChain, model, ownerQn,
-                    "param '" + n + "' (body)");
-            if (r != null && !r.isBlank()) locals.put(n, r);
+                if (p == null) continue;
+                String n = p.getNameAsString();
+                if (n == null || n.isBlank()) continue;
+                v.declare(n, p.getType(), "param");
+            }
+        }
+        body.accept(v, null);
+        v.exitScope();
+
+        // Remove self-deps (can happen for constructors/new of same type or fluent patterns)
+        v.deps.remove(ownerQn);
+        return v.deps;
+    }
+
+    /**
+     * Single pass over a body: maintains the local symbol table with block scoping while collecting
+     * dependencies, so every declaration and expression is resolved exactly once.
+     *
+     * <p>A local whose type is unknown ({@code var}, lambda/nested-method parameters) is still bound, so it
+     * shadows a type of the same name.</p>
+     */
+    private static final class BodyVisitor extends VoidVisitorAdapter<Void> {
+        private final ImportContext ctx;
+        private final Map<String, Map<String, String>> nestedByOuter;
+        private final List<String> nestedScopeChain;
+        private final JModel model;
+        private final String ownerQn;
+        private final Map<String, String> fieldTypeByName;
+
+        /** Innermost scope first; values are resolved type strings, or null when unknown. */
+        private final Deque<Map<String, String>> scopes = new ArrayDeque<>();
+        final Set<String> deps = new HashSet<>();
+
+        BodyVisitor(ImportContext ctx,
+                    Map<String, Map<String, String>> nestedByOuter,
+                    List<String> nestedScopeChain,
+                    JModel model,
+                    String ownerQn,
+                    Map<String, String> fieldTypeByName) {
+            this.ctx = ctx;
+            this.nestedByOuter = nestedByOuter;
+            this.nestedScopeChain = nestedScopeChain;
+            this.model = model;
+            this.ownerQn = ownerQn;
+            this.fieldTypeByName = fieldTypeByName;
+        }
+
+        void enterScope() {
+            scopes.push(new HashMap<>());
+        }
+
+        void exitScope() {
+            scopes.pop();
+        }
+
+        /** Bind {@code name} in the innermost scope, resolving its declared type ({@code kind} labels unresolved refs). */
+        void declare(String name, Type t, String kind) {
+            String r = null;
+            if (t != null && !(t instanceof VarType) && !(t instanceof UnknownType)) {
+                r = TypeResolver.resolveTypeRef(t, ctx, nestedByOuter, nestedScopeChain, model, ownerQn,
+                        kind + " '" + name + "' (body)");
+                if (r != null && r.isBlank()) r = null;
             }
+            scopes.peek().put(name, r);
+        }
+
+        private void declareUnknown(String name) {
+            if (name != null && !name.isBlank()) scopes.peek().put(name, null);
         }
 
-        // Collect local variable declarations before resolving calls. This is best-effort; shadowing is ignored.
-        body.walk(VariableDeclarator.class, vd -> {
-            if (vd == null) return;
-            String n = vd.getNameAsString();
-            if (n == null || n.isBlank()) return;
-            Type t = vd.getType();
-            if (t instanceof VarType) return;
-            String r = TypeResolver.resolveTypeRef(t, ctx, nestedByOuter, nestedScopeChain, model, ownerQn,
-                    "local '" + n + "' (body)");
-            if (r != null && !r.isBlank()) locals.put(n, r);
-        });
-
-        // foreach variables
-        body.walk(ForEachStmt.class, fe -> {
-            if (fe == null) return;
-            if (fe.getVariable() == null) return;
-            if (fe.getVariable().getVariables().isEmpty()) return;
-            for (VariableDeclarator vd : fe.getVariable().getVariables()) {
-                if (vd == null) continue;
-                String n = vd.getNameAsString();
-                Type t = vd.getType();
-                if (t instanceof VarType) continue;
-                String r = TypeResolver.resolveTypeRef(t, ctx, nestedByOuter, nestedScopeChain, model, ownerQn,
-                        "foreach '" + n + "' (body)");
-                if (r != null && !r.isBlank()) locals.put(n, r);
+        private boolean isLocal(String name) {
+            for (Map<String, String> scope : scopes) {
+                if (scope.containsKey(name)) return true;
             }
-        });
-
-        // catch parameters
-        body.walk(CatchClause.class, cc -> {
-            if (cc == null || cc.getParameter() == null) return;
-            String n = cc.getParameter().getNameAsString();
-            Type t = cc.getParameter().getType();
-            if (t instanceof VarType) return;
-            String r = TypeResolver.resolveTypeRef(t, ctx, nestedByOuter, nestedScopeChain, model, ownerQn,
-                    "catch '" + n + "' (body)");
-            if (r != null && !r.isBlank()) locals.put(n, r);
-        });
-
-        Set<String> deps = new HashSet<>();
-
-        // 1) new Foo(...)
-        body.walk(ObjectCreationExpr.class, oce -> {
-            if (oce == null || oce.getType() == null) return;
-            String r = TypeResolver.resolveTypeRef(oce.getType(), ctx, nestedByOuter, nestedScopeChain, model, ownerQn,
-                    "new '" + oce.getType().getNameAsString() + "' (body)");
-            String dep = normalizeDependencyName(r);
+            return false;
+        }
+
+        private String localType(String name) {
+            for (Map<String, String> scope : scopes) {
+                if (scope.containsKey(name)) return scope.get(name);
+            }
+            return null;
+        }
+
+        private void addDep(String typeRef) {
+            String dep = normalizeDependencyName(typeRef);
             if (dep != null && !dep.isBlank()) deps.add(dep);
-        });
+        }
 
-        // 2) Method calls with resolvable scope
-        body.walk(MethodCallExpr.class, mc -> {
-            if (mc == null) return;
-            Expression scope = mc.getScope().orElse(null);
-            if (scope == null) return;
+        // --- scopes ---
 
-            // x.foo() where x is local/param
-            if (scope instanceof NameExpr) {
-                String n = ((NameExpr) scope).getNameAsString();
-                if (n != null && locals.containsKey(n)) {
-                    String dep = normalizeDependencyName(locals.get(n));
-                    if (dep != null && !dep.isBlank()) deps.add(dep);
-                    return;
-                }
+        @Override
+        public void visit(BlockStmt n, Void arg) {
+            enterScope();
+            super.visit(n, arg);
+            exitScope();
+        }
 
-                // Foo.bar() where Foo is a type name
-                if (n != null && !n.isBlank()) {
-                    String typeQn = TypeResolver.resolveWithNestedScope(n, ctx, nestedByOuter, nestedScopeChain);
-                    String dep = normalizeDependencyName(typeQn);
-                    if (dep != null && !dep.isBlank()) deps.add(dep);
-                }
-                return;
+        @Override
+        public void visit(ForStmt n, Void arg) {
+            enterScope();
+            super.visit(n, arg);
+            exitScope();
+        }
+
+        @Override
+        public void visit(SwitchStmt n, Void arg) {
+            enterScope();
+            super.visit(n, arg);
+            exitScope();
+        }
+
+        @Override
+        public void visit(SwitchExpr n, Void arg) {
+            enterScope();
+            super.visit(n, arg);
+            exitScope();
+        }
+
+        @Override
+        public void visit(ForEachStmt n, Void arg) {
+            n.getIterable().accept(this, arg);
+            enterScope();
+            for (VariableDeclarator vd : n.getVariable().getVariables()) {
+                declare(vd.getNameAsString(), vd.getType(), "foreach");
             }
+            n.getBody().accept(this, arg);
+            exitScope();
+        }
+
+        @Override
+        public void visit(CatchClause n, Void arg) {
+            enterScope();
+            declare(n.getParameter().getNameAsString(), n.getParameter().getType(), "catch");
+            n.getBody().accept(this, arg);
+            exitScope();
+        }
+
+        @Override
+        public void visit(TryStmt n, Void arg) {
+            // Resources are visible in the try block only.
+            enterScope();
+            n.getResources().forEach(r -> r.accept(this, arg));
+            n.getTryBlock().accept(this, arg);
+            exitScope();
+            n.getCatchClauses().forEach(c -> c.accept(this, arg));
+            n.getFinallyBlock().ifPresent(f -> f.accept(this, arg));
+        }
+
+        @Override
+        public void visit(LambdaExpr n, Void arg) {
+            enterScope();
+            for (Parameter p : n.getParameters()) declareUnknown(p.getNameAsString());
+            n.getBody().accept(this, arg);
+            exitScope();
+        }
+
+        @Override
+        public void visit(MethodDeclaration n, Void arg) {
+            // Methods of local/anonymous classes
+            enterScope();
+            for (Parameter p : n.getParameters()) declareUnknown(p.getNameAsString());
+            n.getBody().ifPresent(b -> b.accept(this, arg));
+            exitScope();
+        }
 
-            // this.field.foo()
-            if (scope instanceof FieldAccessExpr) {
+        @Override
+        public void visit(ConstructorDeclaration n, Void arg) {
+            enterScope();
+            for (Parameter p : n.getParameters()) declareUnknown(p.getNameAsString());
+            n.getBody().accept(this, arg);
+            exitScope();
+        }
+
+        // --- declarations ---
+
+        @Override
+        public void visit(VariableDeclarator n, Void arg) {
+            declare(n.getNameAsString(), n.getType(), "local");
+            n.getInitializer().ifPresent(i -> i.accept(this, arg));
+        }
+
+        // --- dependencies ---
+
+        @Override
+        public void visit(ObjectCreationExpr n, Void arg) {
+            // 1) new Foo(...)
+            String r = TypeResolver.resolveTypeRef(n.getType(), ctx, nestedByOuter, nestedScopeChain, model, ownerQn,
+                    "new '" + n.getType().getNameAsString() + "' (body)");
+            addDep(r);
+
+            n.getScope().ifPresent(s -> s.accept(this, arg));
+            n.getArguments().forEach(a -> a.accept(this, arg));
+            n.getAnonymousClassBody().ifPresent(members -> {
+                enterScope();
+                members.forEach(m -> m.accept(this, arg));
+                exitScope();
+            });
+        }
+
+        @Override
+        public void visit(MethodCallExpr n, Void arg) {
+            // 2) Method calls with resolvable scope
+            Expression scope = n.getScope().orElse(null);
+            if (scope instanceof NameExpr) {
+                String name = ((NameExpr) scope).getNameAsString();
+                if (isLocal(name)) {
+                    // x.foo() where x is local/param
+                    addDep(localType(name));
+                } else if (name != null && !name.isBlank()) {
+                    // Foo.bar() where Foo is a type name
+                    addDep(TypeResolver.resolveWithNestedScope(name, ctx, nestedByOuter, nestedScopeChain));
+                }
+            } else if (scope instanceof FieldAccessExpr) {
+                // this.field.foo()
                 FieldAccessExpr fa = (FieldAccessExpr) scope;
-                if (fa.getScope() instanceof ThisExpr) {
-                    String fn = fa.getNameAsString();
-                    if (fn != null && fieldTypeByName != null) {
-                        String ft = fieldTypeByName.get(fn);
-                        String dep = normalizeDependencyName(ft);
-                        if (dep != null && !dep.isBlank()) deps.add(dep);
-                    }
+                if (fa.getScope() instanceof ThisExpr && fieldTypeByName != null) {
+                    addDep(fieldTypeByName.get(fa.getNameAsString()));
                 }
-                return;
             }
-
             // If scope is more complex (method chain, cast, etc.), we skip in this conservative pass.
-        });
 
-        // Remove self-deps (can happen for constructors/new of same type or fluent patterns)
-        deps.remove(ownerQn);
-        return deps;
+            super.visit(n, arg);
+        }
     }
 
     private static String normalizeDependencyName(String typeRef) {
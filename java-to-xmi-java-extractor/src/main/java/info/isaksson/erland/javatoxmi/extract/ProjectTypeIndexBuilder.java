@@ -1,50 +1,73 @@
 package info.isaksson.erland.javatoxmi.extract;
 
+import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.*;
 
 import java.util.*;
 
 /**
  * Builds a project-local type index (qualified name -> stub) including nested member types.
+ *
+ * <p>The index is assembled from per-unit {@link TypeIndexContribution}s, so contributions can also come
+ * from the {@link ExtractionCache} instead of a parsed AST.</p>
  */
 final class ProjectTypeIndexBuilder {
 
     private ProjectTypeIndexBuilder() {}
 
     static ProjectTypeIndex build(List<ParsedUnit> units) {
+        List<TypeIndexContribution> contributions = new ArrayList<>(units.size());
+        for (ParsedUnit u : units) {
+            contributions.add(contribution(u.cu));
+        }
+        return buildFromContributions(contributions);
+    }
+
+    static ProjectTypeIndex buildFromContributions(List<TypeIndexContribution> contributions) {
         // qualified name -> stub
         Map<String, TypeStub> projectTypes = new HashMap<>();
         // outerQualifiedName -> (nestedSimpleName -> nestedQualifiedName)
         Map<String, Map<String, String>> nestedByOuter = new HashMap<>();
-        List<TypeInfo> allTypeInfos = new ArrayList<>();
 
-        for (ParsedUnit u : units) {
-            String pkg = u.cu.getPackageDeclaration().map(pd -> pd.getNameAsString()).orElse("");
-            for (TypeDeclaration<?> td : u.cu.getTypes()) {
-                if (!isSupportedType(td)) continue;
-                collectTypeInfosRecursive(allTypeInfos, nestedByOuter, pkg, td, null, td.getNameAsString());
+        for (TypeIndexContribution c : contributions) {
+            for (TypeIndexContribution.NestedMember m : c.nestedMembers) {
+                nestedByOuter
+                        .computeIfAbsent(m.outerQualifiedName(), __ -> new HashMap<>())
+                        .put(m.simpleName(), m.qualifiedName());
             }
         }
-
-        for (TypeInfo ti : allTypeInfos) {
-            projectTypes.put(ti.qualifiedName(), new TypeStub(ti.qualifiedName(), ti.packageName(), ti.simpleName()));
+        for (TypeIndexContribution c : contributions) {
+            for (TypeStub stub : c.types) {
+                projectTypes.put(stub.qualifiedName(), stub);
+            }
         }
 
         return new ProjectTypeIndex(projectTypes, nestedByOuter, Set.copyOf(projectTypes.keySet()));
     }
 
-    private static void collectTypeInfosRecursive(
-            List<TypeInfo> out,
-            Map<String, Map<String, String>> nestedByOuter,
+    /** Collect the index contribution of one compilation unit. */
+    static TypeIndexContribution contribution(CompilationUnit cu) {
+        List<TypeStub> types = new ArrayList<>();
+        List<TypeIndexContribution.NestedMember> nested = new ArrayList<>();
+        String pkg = cu.getPackageDeclaration().map(pd -> pd.getNameAsString()).orElse("");
+        for (TypeDeclaration<?> td : cu.getTypes()) {
+            if (!isSupportedType(td)) continue;
+            collectTypesRecursive(types, nested, pkg, td, td.getNameAsString());
+        }
+        return new TypeIndexContribution(types, nested);
+    }
+
+    private static void collectTypesRecursive(
+            List<TypeStub> out,
+            List<TypeIndexContribution.NestedMember> nested,
             String pkg,
             TypeDeclaration<?> td,
-            String outerQn,
             String pathFromTop
     ) {
         if (!isSupportedType(td)) return;
         String simpleName = td.getNameAsString();
         String qn = qualifiedName(pkg, pathFromTop);
-        out.add(new TypeInfo(pkg, simpleName, qn, outerQn, td));
+        out.add(new TypeStub(qn, pkg, simpleName));
 
         // Collect nested member types recursively
         for (BodyDeclaration<?> member : getMembers(td)) {
@@ -55,11 +78,9 @@ final class ProjectTypeIndexBuilder {
             String childPath = pathFromTop + "." + childName;
             String childQn = qualifiedName(pkg, childPath);
 
-            nestedByOuter
-                    .computeIfAbsent(qn, __ -> new HashMap<>())
-                    .put(childName, childQn);
+            nested.add(new TypeIndexContribution.NestedMember(qn, childName, childQn));
 
-            collectTypeInfosRecursive(out, nestedByOuter, pkg, child, qn, childPath);
+            collectTypesRecursive(out, nested, pkg, child, childPath);
         }
     }
 
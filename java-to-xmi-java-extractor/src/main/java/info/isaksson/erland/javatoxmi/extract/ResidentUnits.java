@@ -0,0 +1,36 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/** Counts parsed compilation units (ASTs) currently held by the extractor and remembers the peak. */
+class ResidentUnits {
+
+    private final AtomicInteger current = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+
+    void hold(int units) {
+        int now = current.addAndGet(units);
+        peak.accumulateAndGet(now, Math::max);
+    }
+
+    void release(int units) {
+        current.addAndGet(-units);
+    }
+
+    /** Wrap a per-unit step so the unit counts as resident while the step runs. */
+    <T> Function<ParsedUnit, T> around(Function<ParsedUnit, T> step) {
+        return u -> {
+            hold(1);
+            try {
+                return step.apply(u);
+            } finally {
+                release(1);
+            }
+        };
+    }
+
+    int peak() {
+        return peak.get();
+    }
+}
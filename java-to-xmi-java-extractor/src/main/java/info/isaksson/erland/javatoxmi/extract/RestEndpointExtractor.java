@@ -1,5 +1,6 @@
 package info.isaksson.erland.javatoxmi.extract;
 
+import info.isaksson.erland.javatoxmi.io.SourceReader;
 import info.isaksson.erland.javatoxmi.model.JAnnotationUse;
 import info.isaksson.erland.javatoxmi.model.JMethod;
 import info.isaksson.erland.javatoxmi.model.JModel;
@@ -19,7 +20,7 @@ import java.util.Map;
  * <p>Outputs {@link JRuntimeAnnotation} entries that the UML builder can annotate onto
  * existing classifiers/operations.</p>
  */
-final class RestEndpointExtractor {
+final class RestEndpointExtractor implements SemanticsExtractor {
 
     // Runtime tag keys (shared convention with IrRuntime).
     static final String TAG_PREFIX = "runtime.";
@@ -46,38 +47,44 @@ final class RestEndpointExtractor {
     private static final String SPRING_DELETE_MAPPING = "org.springframework.web.bind.annotation.DeleteMapping";
     private static final String SPRING_PATCH_MAPPING = "org.springframework.web.bind.annotation.PatchMapping";
 
-    void extract(JModel model) {
-        if (model == null || model.types == null || model.types.isEmpty()) return;
+    @Override
+    public String id() {
+        return "rest";
+    }
 
-        List<JRuntimeAnnotation> out = new ArrayList<>();
-        for (JType t : model.types) {
-            if (t == null) continue;
+    @Override
+    public void visitType(JType t, SemanticsOutput collected) {
+        List<JRuntimeAnnotation> out = collected.runtimeAnnotations;
 
-            RestClassInfo rc = detectRestClass(t);
-            if (!rc.isRest) continue;
+        RestClassInfo rc = detectRestClass(t);
+        if (!rc.isRest) return;
 
-            // Class stereotype
-            Map<String, String> classTags = new LinkedHashMap<>();
-            if (!rc.basePath.isBlank()) classTags.put(TAG_PATH, rc.basePath);
-            out.add(new JRuntimeAnnotation(t.qualifiedName, ST_REST_RESOURCE, classTags));
+        // Class stereotype
+        Map<String, String> classTags = new LinkedHashMap<>();
+        if (!rc.basePath.isBlank()) classTags.put(TAG_PATH, rc.basePath);
+        out.add(new JRuntimeAnnotation(t.qualifiedName, ST_REST_RESOURCE, classTags));
 
-            // Methods
-            for (JMethod m : t.methods) {
-                if (m == null) continue;
-                RestMethodInfo rm = detectRestMethod(m);
-                if (!rm.isRest) continue;
+        // Methods
+        for (JMethod m : t.methods) {
+            if (m == null) continue;
+            RestMethodInfo rm = detectRestMethod(m);
+            if (!rm.isRest) continue;
 
-                String fullPath = normalizePath(joinPaths(rc.basePath, rm.path));
+            String fullPath = normalizePath(joinPaths(rc.basePath, rm.path));
 
-                Map<String, String> tags = new LinkedHashMap<>();
-                if (!fullPath.isBlank()) tags.put(TAG_PATH, fullPath);
-                if (!rm.httpMethods.isBlank()) tags.put(TAG_HTTP_METHOD, rm.httpMethods);
-                if (!rm.consumes.isBlank()) tags.put(TAG_CONSUMES, rm.consumes);
-                if (!rm.produces.isBlank()) tags.put(TAG_PRODUCES, rm.produces);
+            Map<String, String> tags = new LinkedHashMap<>();
+            if (!fullPath.isBlank()) tags.put(TAG_PATH, fullPath);
+            if (!rm.httpMethods.isBlank()) tags.put(TAG_HTTP_METHOD, rm.httpMethods);
+            if (!rm.consumes.isBlank()) tags.put(TAG_CONSUMES, rm.consumes);
+            if (!rm.produces.isBlank()) tags.put(TAG_PRODUCES, rm.produces);
 
-                out.add(new JRuntimeAnnotation(methodKey(t, m), ST_REST_OPERATION, tags));
-            }
+            out.add(new JRuntimeAnnotation(methodKey(t, m), ST_REST_OPERATION, tags));
         }
+    }
+
+    @Override
+    public void complete(JModel model, SemanticsOutput collected, SourceReader reader) {
+        List<JRuntimeAnnotation> out = collected.runtimeAnnotations;
 
         // Deterministic ordering
         out.sort((a, b) -> {
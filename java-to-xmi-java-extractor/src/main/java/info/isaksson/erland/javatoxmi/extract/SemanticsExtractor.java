@@ -0,0 +1,58 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import com.github.javaparser.ast.Node;
+import info.isaksson.erland.javatoxmi.io.SourceReader;
+import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.model.JType;
+
+import java.util.Set;
+
+/**
+ * A runtime-semantics extractor (REST endpoints, CDI events, migrations, ...) plugged into {@link JavaExtractor}.
+ *
+ * <p>Extractors do not walk anything themselves. They register callbacks and the pipeline drives them:</p>
+ * <ol>
+ *   <li>{@link #visitNode}: every compilation unit is walked once (pre-order) and each node whose class is
+ *       assignable to one of {@link #nodeTypes()} is handed to every extractor that asked for it;</li>
+ *   <li>{@link #visitType}: once all units are merged, the extracted types are iterated once (in file order)
+ *       for all extractors;</li>
+ *   <li>{@link #complete}: called once per extractor, in registration order, with everything it collected.</li>
+ * </ol>
+ *
+ * <p>The built-in extractors are always registered first; additional ones are discovered with
+ * {@link java.util.ServiceLoader} ({@code META-INF/services/info.isaksson.erland.javatoxmi.extract.SemanticsExtractor}).
+ * Implementations must be stateless apart from what they keep in {@link SemanticsUnit#state}, and their output must
+ * be a function of the unit and the project type index only: per-unit results are kept in the
+ * {@link ExtractionCache}, keyed by {@link #id()}.</p>
+ */
+public interface SemanticsExtractor {
+
+    /** Unique, stable identifier. Change it when the extractor's output changes, to invalidate cached results. */
+    String id();
+
+    /** AST node types passed to {@link #visitNode}; empty means the extractor only looks at extracted types. */
+    default Set<Class<? extends Node>> nodeTypes() {
+        return Set.of();
+    }
+
+    /** Called for every node of a registered type, in pre-order, during the single walk of a compilation unit. */
+    default void visitNode(Node node, SemanticsUnit unit) {
+    }
+
+    /** Called for every extracted type (file order, outer types before their members). */
+    default void visitType(JType type, SemanticsOutput out) {
+    }
+
+    /**
+     * Add the collected results to the model. {@code collected} holds the per-unit outputs (file order) followed by
+     * what {@link #visitType} produced; its type references have already been added to the model.
+     *
+     * <p>The default adds everything unchanged.</p>
+     */
+    default void complete(JModel model, SemanticsOutput collected, SourceReader reader) {
+        model.runtimeRelations.addAll(collected.runtimeRelations);
+        model.runtimeAnnotations.addAll(collected.runtimeAnnotations);
+        model.migrationArtifacts.addAll(collected.migrationArtifacts);
+        model.javaModules.addAll(collected.javaModules);
+    }
+}
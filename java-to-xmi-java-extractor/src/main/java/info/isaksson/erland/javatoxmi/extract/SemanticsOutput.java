@@ -0,0 +1,37 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import info.isaksson.erland.javatoxmi.model.JJavaModule;
+import info.isaksson.erland.javatoxmi.model.JMigrationArtifact;
+import info.isaksson.erland.javatoxmi.model.JRuntimeAnnotation;
+import info.isaksson.erland.javatoxmi.model.JRuntimeRelation;
+import info.isaksson.erland.javatoxmi.model.UnresolvedTypeRef;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What one {@link SemanticsExtractor} produced, either for a single compilation unit or collected over the
+ * whole project. Serializable so per-unit outputs can be kept in the {@link ExtractionCache}.
+ */
+public final class SemanticsOutput implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public final List<JRuntimeRelation> runtimeRelations = new ArrayList<>();
+    public final List<JRuntimeAnnotation> runtimeAnnotations = new ArrayList<>();
+    public final List<JMigrationArtifact> migrationArtifacts = new ArrayList<>();
+    public final List<JJavaModule> javaModules = new ArrayList<>();
+
+    /** Type references recorded through {@link SemanticsUnit#resolveType}. */
+    public final List<UnresolvedTypeRef> externalTypeRefs = new ArrayList<>();
+    public final List<UnresolvedTypeRef> unresolvedTypes = new ArrayList<>();
+
+    void addAll(SemanticsOutput other) {
+        runtimeRelations.addAll(other.runtimeRelations);
+        runtimeAnnotations.addAll(other.runtimeAnnotations);
+        migrationArtifacts.addAll(other.migrationArtifacts);
+        javaModules.addAll(other.javaModules);
+        externalTypeRefs.addAll(other.externalTypeRefs);
+        unresolvedTypes.addAll(other.unresolvedTypes);
+    }
+}
@@ -0,0 +1,133 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import com.github.javaparser.ast.Node;
+import info.isaksson.erland.javatoxmi.io.SourceReader;
+import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.model.JType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drives the registered {@link SemanticsExtractor}s: one pre-order walk per compilation unit dispatching to all
+ * node callbacks, one pass over the extracted types, then completion in registration order.
+ *
+ * <p>Thread-safe; a pipeline can serve units extracted concurrently.</p>
+ */
+final class SemanticsPipeline {
+
+    private final List<SemanticsExtractor> extractors;
+    /** Node class -> indexes of the extractors that registered for it (or a supertype of it). */
+    private final Map<Class<?>, int[]> dispatch = new ConcurrentHashMap<>();
+    private final boolean walksNodes;
+    private final String key;
+
+    SemanticsPipeline(List<SemanticsExtractor> extractors) {
+        this.extractors = List.copyOf(extractors);
+        Set<String> ids = new HashSet<>();
+        StringBuilder key = new StringBuilder();
+        boolean walks = false;
+        for (SemanticsExtractor e : this.extractors) {
+            String id = e.id();
+            if (id == null || id.isBlank()) {
+                throw new IllegalArgumentException("Semantics extractor without id: " + e.getClass().getName());
+            }
+            if (!ids.add(id)) throw new IllegalArgumentException("Duplicate semantics extractor id: " + id);
+            key.append(id).append(',');
+            walks |= !e.nodeTypes().isEmpty();
+        }
+        this.walksNodes = walks;
+        this.key = key.toString();
+    }
+
+    /** Built-in extractors, in their historical order, followed by those found with {@link ServiceLoader}. */
+    static SemanticsPipeline standard() {
+        List<SemanticsExtractor> all = new ArrayList<>(List.of(
+                new RestEndpointExtractor(),
+                new CdiEventExtractor(),
+                new InterceptorAndTransactionExtractor(),
+                new MessagingAndSchedulingExtractor(),
+                new FlywayMigrationExtractor(),
+                new JpmsModuleExtractor()
+        ));
+        for (SemanticsExtractor e : ServiceLoader.load(SemanticsExtractor.class, SemanticsExtractor.class.getClassLoader())) {
+            all.add(e);
+        }
+        return new SemanticsPipeline(all);
+    }
+
+    List<SemanticsExtractor> extractors() {
+        return extractors;
+    }
+
+    /** Identifies the registered extractors; part of the cache key of per-unit results. */
+    String key() {
+        return key;
+    }
+
+    /** Walk one unit, returning each extractor's output by id (registration order). */
+    LinkedHashMap<String, SemanticsOutput> extractUnit(ParsedUnit u, ImportContext ctx, ProjectTypeIndex index) {
+        SemanticsUnit[] units = new SemanticsUnit[extractors.size()];
+        for (int i = 0; i < units.length; i++) {
+            units[i] = new SemanticsUnit(u, ctx, index);
+        }
+        if (walksNodes) {
+            u.cu.walk(node -> {
+                for (int i : dispatch.computeIfAbsent(node.getClass(), this::subscribers)) {
+                    extractors.get(i).visitNode(node, units[i]);
+                }
+            });
+        }
+        LinkedHashMap<String, SemanticsOutput> out = new LinkedHashMap<>();
+        for (int i = 0; i < units.length; i++) {
+            out.put(extractors.get(i).id(), units[i].finish());
+        }
+        return out;
+    }
+
+    /**
+     * Visit the merged types, then let each extractor add its per-unit outputs (file order) plus what it
+     * collected from the types to the model.
+     */
+    void complete(JModel model, List<Map<String, SemanticsOutput>> unitOutputs, SourceReader reader) {
+        SemanticsOutput[] collected = new SemanticsOutput[extractors.size()];
+        for (int i = 0; i < collected.length; i++) {
+            collected[i] = new SemanticsOutput();
+            String id = extractors.get(i).id();
+            for (Map<String, SemanticsOutput> unit : unitOutputs) {
+                SemanticsOutput o = unit.get(id);
+                if (o != null) collected[i].addAll(o);
+            }
+        }
+        for (JType t : model.types) {
+            if (t == null) continue;
+            for (int i = 0; i < collected.length; i++) {
+                extractors.get(i).visitType(t, collected[i]);
+            }
+        }
+        for (int i = 0; i < collected.length; i++) {
+            model.externalTypeRefs.addAll(collected[i].externalTypeRefs);
+            model.unresolvedTypes.addAll(collected[i].unresolvedTypes);
+            extractors.get(i).complete(model, collected[i], reader);
+        }
+    }
+
+    private int[] subscribers(Class<?> nodeClass) {
+        List<Integer> found = new ArrayList<>();
+        for (int i = 0; i < extractors.size(); i++) {
+            for (Class<? extends Node> t : extractors.get(i).nodeTypes()) {
+                if (t.isAssignableFrom(nodeClass)) {
+                    found.add(i);
+                    break;
+                }
+            }
+        }
+        return found.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,93 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.type.Type;
+import info.isaksson.erland.javatoxmi.model.JModel;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * One compilation unit as seen by one {@link SemanticsExtractor} during the single AST walk: the unit itself,
+ * name resolution against the project type index, scratch state and the extractor's {@link SemanticsOutput}.
+ */
+public final class SemanticsUnit {
+
+    private final ParsedUnit unit;
+    final ImportContext ctx;
+    final ProjectTypeIndex index;
+    private final SemanticsOutput output = new SemanticsOutput();
+    /** Receives the references recorded while resolving; moved into {@link #output} by {@link #finish()}. */
+    private final JModel refs = new JModel(null, List.of());
+    private Object state;
+
+    SemanticsUnit(ParsedUnit unit, ImportContext ctx, ProjectTypeIndex index) {
+        this.unit = unit;
+        this.ctx = ctx;
+        this.index = index;
+    }
+
+    public CompilationUnit compilationUnit() {
+        return unit.cu;
+    }
+
+    public Path file() {
+        return unit.file;
+    }
+
+    /** Package of the unit ({@code ""} for the default package). */
+    public String packageName() {
+        return ctx.currentPackage;
+    }
+
+    public SemanticsOutput output() {
+        return output;
+    }
+
+    /** Per-unit scratch state of the extractor, created on first use. */
+    @SuppressWarnings("unchecked")
+    public <T> T state(Supplier<T> initial) {
+        if (state == null) state = initial.get();
+        return (T) state;
+    }
+
+    /**
+     * Resolve a type as seen from inside {@code fromQualifiedName} (a type declared in this unit), recording
+     * external/unresolved references in {@link #output()}.
+     *
+     * @return the qualified (possibly generic) type name, or {@code null}
+     */
+    public String resolveType(Type type, String fromQualifiedName, String where) {
+        return resolveType(type, nestedScopeChain(fromQualifiedName), fromQualifiedName, where);
+    }
+
+    String resolveType(Type type, List<String> nestedScopeChain, String fromQualifiedName, String where) {
+        return TypeResolver.resolveTypeRef(type, ctx, index.nestedByOuter, nestedScopeChain, refs, fromQualifiedName, where);
+    }
+
+    /** Enclosing type chain (outermost first) of a type declared in this unit. */
+    List<String> nestedScopeChain(String qualifiedName) {
+        String pkg = ctx.currentPackage;
+        String path = pkg.isEmpty() || !qualifiedName.startsWith(pkg + ".")
+                ? qualifiedName
+                : qualifiedName.substring(pkg.length() + 1);
+        List<String> chain = new ArrayList<>();
+        String cur = "";
+        for (String seg : path.split("\\.")) {
+            cur = cur.isEmpty() ? seg : cur + "." + seg;
+            chain.add(TypeExtractionEngine.qualifiedName(pkg, cur));
+        }
+        return chain;
+    }
+
+    SemanticsOutput finish() {
+        output.externalTypeRefs.addAll(refs.externalTypeRefs);
+        output.unresolvedTypes.addAll(refs.unresolvedTypes);
+        refs.externalTypeRefs.clear();
+        refs.unresolvedTypes.clear();
+        state = null;
+        return output;
+    }
+}
@@ -0,0 +1,170 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import info.isaksson.erland.javatoxmi.io.SourceReader;
+import info.isaksson.erland.javatoxmi.model.JModel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded-memory extraction: ASTs are dropped right after use.
+ *
+ * <ol>
+ *   <li>collect each file's {@link TypeIndexContribution} with the {@link TypeHeaderLexer} (no AST); files the
+ *       lexer declines are parsed for it instead;</li>
+ *   <li>build the {@link ProjectTypeIndex}, then parse, extract and drop each unit in turn (parse errors are
+ *       recorded here).</li>
+ *   <li>where the parser indexed a unit differently from the lexer (broken or unreadable units), extract again
+ *       the units that mention one of the affected type names; they are counted in {@code reextracted}.</li>
+ * </ol>
+ *
+ * <p>At most one AST per parse worker is alive at any time. The result is identical to the in-memory path.</p>
+ */
+final class StreamingExtraction {
+
+    private StreamingExtraction() {}
+
+    static List<UnitExtraction> run(JModel model, SourceReader reader, Path sourceRoot, List<Path> javaFiles,
+                                    boolean includeDependencies, int parseThreads, SemanticsPipeline semantics,
+                                    ResidentUnits resident, AtomicLong reextracted) {
+        // 1) Index contributions from declaration headers only
+        TypeIndexContribution[] contributions = new TypeIndexContribution[javaFiles.size()];
+        List<Path> declined = new ArrayList<>();
+        List<Integer> declinedAt = new ArrayList<>();
+        for (int i = 0; i < javaFiles.size(); i++) {
+            try {
+                contributions[i] = TypeHeaderLexer.contribution(reader.read(javaFiles.get(i)));
+            } catch (IOException e) {
+                continue; // reported by the second pass
+            }
+            if (contributions[i] == null) {
+                declined.add(javaFiles.get(i));
+                declinedAt.add(i);
+            }
+        }
+        List<TypeIndexContribution> parsedContributions = JavaCompilationUnitParser.parseEach(JavaExtractor::newParser, reader,
+                sourceRoot, declined, new JModel(sourceRoot, declined), parseThreads,
+                resident.around(u -> ProjectTypeIndexBuilder.contribution(u.cu)));
+        for (int k = 0; k < declined.size(); k++) {
+            contributions[declinedAt.get(k)] = parsedContributions.get(k);
+        }
+
+        // 2) Parse, extract and drop each unit, keeping what the parser would have indexed
+        TypeIndexContribution[] parsed = new TypeIndexContribution[javaFiles.size()];
+        List<UnitExtraction> results = extract(reader, sourceRoot, javaFiles, model, includeDependencies, parseThreads,
+                semantics, resident, index(contributions), parsed);
+
+        // The lexer does not validate: a broken unit the parser recovered from (or could not read) may index
+        // differently. Every lookup in the index is keyed by a name written in the looking-up unit, so only units
+        // that mention a type whose entry differs can resolve differently; redo those with the parser's view so
+        // the result matches the in-memory path.
+        Set<String> changed = new HashSet<>();
+        for (int i = 0; i < javaFiles.size(); i++) {
+            if (results.get(i) == null) parsed[i] = null;
+            addChangedNames(contributions[i], parsed[i], changed);
+        }
+        if (!changed.isEmpty()) {
+            List<Path> redo = new ArrayList<>();
+            List<Integer> redoAt = new ArrayList<>();
+            for (int i = 0; i < javaFiles.size(); i++) {
+                if (results.get(i) != null && mentionsAny(read(reader, javaFiles.get(i)), changed)) {
+                    redo.add(javaFiles.get(i));
+                    redoAt.add(i);
+                }
+            }
+            List<UnitExtraction> redone = extract(reader, sourceRoot, redo, new JModel(sourceRoot, redo), includeDependencies,
+                    parseThreads, semantics, resident, index(parsed), new TypeIndexContribution[redo.size()]);
+            for (int k = 0; k < redo.size(); k++) {
+                results.set(redoAt.get(k), redone.get(k));
+            }
+            reextracted.addAndGet(redo.size());
+        }
+
+        List<UnitExtraction> out = new ArrayList<>(javaFiles.size());
+        for (UnitExtraction r : results) {
+            if (r != null) out.add(r);
+        }
+        return out;
+    }
+
+    /** Adds the simple names of the types and nested members present in only one of {@code a} and {@code b}. */
+    private static void addChangedNames(TypeIndexContribution a, TypeIndexContribution b, Set<String> out) {
+        for (TypeStub t : symmetricDifference(a == null ? List.of() : a.types, b == null ? List.of() : b.types)) {
+            out.add(lastSegment(t.qualifiedName()));
+        }
+        for (TypeIndexContribution.NestedMember m : symmetricDifference(a == null ? List.of() : a.nestedMembers,
+                b == null ? List.of() : b.nestedMembers)) {
+            out.add(m.simpleName());
+            out.add(lastSegment(m.outerQualifiedName()));
+            out.add(lastSegment(m.qualifiedName()));
+        }
+    }
+
+    private static <T> Set<T> symmetricDifference(List<T> a, List<T> b) {
+        if (a.equals(b)) return Set.of();
+        Set<T> onlyA = new HashSet<>(a);
+        b.forEach(onlyA::remove);
+        Set<T> out = new HashSet<>(b);
+        a.forEach(out::remove);
+        out.addAll(onlyA);
+        return out;
+    }
+
+    private static String lastSegment(String qualifiedName) {
+        return qualifiedName.substring(Math.max(qualifiedName.lastIndexOf('.'), qualifiedName.lastIndexOf('$')) + 1);
+    }
+
+    /** Whether {@code code} contains one of {@code names} as an identifier (split at '$'; comments count too). */
+    static boolean mentionsAny(String code, Set<String> names) {
+        if (code == null) return true;
+        int n = code.length();
+        int i = 0;
+        while (i < n) {
+            char c = code.charAt(i);
+            if (c != '$' && Character.isJavaIdentifierStart(c)) {
+                int start = i++;
+                while (i < n && code.charAt(i) != '$' && Character.isJavaIdentifierPart(code.charAt(i))) i++;
+                if (names.contains(code.substring(start, i))) return true;
+            } else {
+                i++;
+            }
+        }
+        return false;
+    }
+
+    private static String read(SourceReader reader, Path file) {
+        try {
+            return reader.read(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static ProjectTypeIndex index(TypeIndexContribution[] contributions) {
+        List<TypeIndexContribution> present = new ArrayList<>();
+        for (TypeIndexContribution c : contributions) {
+            if (c != null) present.add(c);
+        }
+        return ProjectTypeIndexBuilder.buildFromContributions(present);
+    }
+
+    private static List<UnitExtraction> extract(SourceReader reader, Path sourceRoot, List<Path> javaFiles, JModel errors,
+                                                boolean includeDependencies, int parseThreads, SemanticsPipeline semantics,
+                                                ResidentUnits resident, ProjectTypeIndex index,
+                                                TypeIndexContribution[] parsed) {
+        Map<Path, Integer> position = new HashMap<>();
+        for (int i = 0; i < javaFiles.size(); i++) position.put(javaFiles.get(i), i);
+        return JavaCompilationUnitParser.parseEach(JavaExtractor::newParser, reader, sourceRoot, javaFiles, errors,
+                parseThreads, resident.around(u -> {
+                    parsed[position.get(u.file)] = ProjectTypeIndexBuilder.contribution(u.cu);
+                    return UnitExtraction.extract(u, index, includeDependencies, semantics);
+                }));
+    }
+}
@@ -16,16 +16,30 @@ final class TypeExtractionEngine {
 
     static void extractAllTypes(JModel model, List<ParsedUnit> units, ProjectTypeIndex index, boolean includeDependencies) {
         for (ParsedUnit u : units) {
-            String pkg = u.cu.getPackageDeclaration().map(pd -> pd.getNameAsString()).orElse("");
-            ImportContext ctx = ImportContext.from(u.cu, pkg, index.projectTypeQualifiedNames);
+            extractUnitTypes(model, u, index, includeDependencies);
+        }
+    }
+
+    /** Extract the types of a single compilation unit (the per-file import context is built here). */
+    static void extractUnitTypes(JModel model, ParsedUnit u, ProjectTypeIndex index, boolean includeDependencies) {
+        extractUnitTypes(model, u, importContext(u, index), index, includeDependencies);
+    }
 
-            for (TypeDeclaration<?> td : u.cu.getTypes()) {
-                if (!isSupportedType(td)) continue;
-                extractTypeRecursive(model, ctx, index.nestedByOuter, pkg, td, null, null, List.of(), includeDependencies);
-            }
+    /** Extract the types of a single compilation unit using an existing import context for that unit. */
+    static void extractUnitTypes(JModel model, ParsedUnit u, ImportContext ctx, ProjectTypeIndex index, boolean includeDependencies) {
+        String pkg = ctx.currentPackage;
+
+        for (TypeDeclaration<?> td : u.cu.getTypes()) {
+            if (!isSupportedType(td)) continue;
+            extractTypeRecursive(model, ctx, index.nestedByOuter, pkg, td, null, null, List.of(), includeDependencies);
         }
     }
 
+    static ImportContext importContext(ParsedUnit u, ProjectTypeIndex index) {
+        String pkg = u.cu.getPackageDeclaration().map(pd -> pd.getNameAsString()).orElse("");
+        return ImportContext.from(u.cu, pkg, index.projectTypeQualifiedNames);
+    }
+
     private static void extractTypeRecursive(
             JModel model,
             ImportContext ctx,
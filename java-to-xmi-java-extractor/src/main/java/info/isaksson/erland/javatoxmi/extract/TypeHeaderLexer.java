@@ -0,0 +1,353 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Header-only scanner that computes a unit's {@link TypeIndexContribution} without building an AST.
+ *
+ * <p>Only the package declaration and type declaration headers are read. Member bodies, initializers and
+ * annotation arguments are skipped by balancing brackets. Comments, string/char literals and text blocks are
+ * lexed so that brackets inside them are ignored. The result is the same as
+ * {@link ProjectTypeIndexBuilder#contribution} on the parsed unit: classes, interfaces, enums and annotation
+ * types plus their member types. Records (and everything nested in them), local and anonymous classes and enum
+ * constant bodies are left out.</p>
+ *
+ * <p>When the source is not plain enough to be sure (unicode escapes, unbalanced brackets, unexpected tokens),
+ * {@link #contribution(String)} returns {@code null} and the caller falls back to a full parse. It does not
+ * validate the source; a unit that fails to parse must still be excluded by the caller.</p>
+ */
+final class TypeHeaderLexer {
+
+    private static final int EOF = -1;
+    private static final int WORD = -2;
+    private static final int LITERAL = -3;
+
+    private final String src;
+    private int pos;
+    /** Current token: {@link #EOF}, {@link #WORD}, {@link #LITERAL} or the symbol character itself. */
+    private int tok;
+    private String word;
+    /** Token before the current one (to tell {@code Foo.class} from a declaration). */
+    private int prev;
+
+    private final List<TypeStub> types = new ArrayList<>();
+    private final List<TypeIndexContribution.NestedMember> nested = new ArrayList<>();
+    private String pkg = "";
+
+    private TypeHeaderLexer(String src) {
+        this.src = src;
+    }
+
+    /** The index contribution of one source file, or {@code null} if it must be parsed instead. */
+    static TypeIndexContribution contribution(String source) {
+        if (source == null || source.contains("\\u")) return null;
+        TypeHeaderLexer lx = new TypeHeaderLexer(source);
+        try {
+            lx.compilationUnit();
+        } catch (Unsure e) {
+            return null;
+        }
+        return new TypeIndexContribution(lx.types, lx.nested);
+    }
+
+    private void compilationUnit() {
+        boolean seenType = false;
+        next();
+        while (tok != EOF) {
+            if (tok == '@') {
+                next();
+                if (isWord("interface")) {
+                    typeDeclaration(null, null);
+                    seenType = true;
+                } else {
+                    skipAnnotationRest();
+                }
+            } else if (tok == WORD && word.equals("package") && !seenType) {
+                next();
+                pkg = qualifiedName();
+                expect(';');
+            } else if (tok == WORD && word.equals("import")) {
+                skipPast(';');
+            } else if (isTypeKeyword()) {
+                typeDeclaration(null, null);
+                seenType = true;
+            } else if (isRecordHeader()) {
+                skipUnsupportedType();
+                seenType = true;
+            } else if (tok == '{') {
+                skipBalanced('{', '}'); // module body
+            } else if (tok == WORD || tok == ';' || tok == '.' || tok == '-') {
+                next(); // modifiers (incl. non-sealed), module names, stray semicolons
+            } else {
+                throw new Unsure();
+            }
+        }
+    }
+
+    /** Current token is {@code class}/{@code interface}/{@code enum} (or {@code interface} after {@code @}). */
+    private void typeDeclaration(String outerQn, String outerPath) {
+        boolean isEnum = word.equals("enum");
+        next();
+        if (tok != WORD) throw new Unsure();
+        String name = word;
+        String path = outerPath == null ? name : outerPath + "." + name;
+        String qn = pkg.isEmpty() ? path : pkg + "." + path;
+        types.add(new TypeStub(qn, pkg, name));
+        if (outerQn != null) nested.add(new TypeIndexContribution.NestedMember(outerQn, name, qn));
+
+        // Header: type parameters, extends/implements/permits, type annotations.
+        next();
+        while (tok != '{') {
+            if (tok == EOF || tok == ';' || tok == '}') throw new Unsure();
+            if (tok == '(') {
+                skipBalanced('(', ')');
+            } else {
+                next();
+            }
+        }
+        next();
+        if (isEnum && !enumConstants()) return;
+        body(qn, path);
+    }
+
+    /** Skip enum constants; returns false if the body ended without a member section. */
+    private boolean enumConstants() {
+        while (true) {
+            switch (tok) {
+                case EOF:
+                    throw new Unsure();
+                case '}':
+                    next();
+                    return false;
+                case ';':
+                    next();
+                    return true;
+                case '(':
+                    skipBalanced('(', ')');
+                    break;
+                case '{':
+                    skipBalanced('{', '}'); // constant class body
+                    break;
+                default:
+                    next();
+            }
+        }
+    }
+
+    /** Members of a type body up to and including its closing brace. */
+    private void body(String qn, String path) {
+        while (true) {
+            if (tok == EOF) throw new Unsure();
+            if (tok == '}') {
+                next();
+                return;
+            }
+            if (tok == '@') {
+                next();
+                if (isWord("interface")) {
+                    typeDeclaration(qn, path);
+                } else {
+                    skipAnnotationRest();
+                }
+            } else if (isTypeKeyword()) {
+                typeDeclaration(qn, path);
+            } else if (isRecordHeader()) {
+                skipUnsupportedType();
+            } else if (tok == '=') {
+                skipInitializer();
+            } else if (tok == '(') {
+                skipBalanced('(', ')');
+            } else if (tok == '{') {
+                skipBalanced('{', '}'); // method body or initializer
+            } else if (tok == ')') {
+                throw new Unsure();
+            } else {
+                next();
+            }
+        }
+    }
+
+    private boolean isTypeKeyword() {
+        return tok == WORD && prev != '.' && (word.equals("class") || word.equals("interface") || word.equals("enum"));
+    }
+
+    /** {@code record Name} (a contextual keyword: a record header is the only place it precedes a name). */
+    private boolean isRecordHeader() {
+        if (tok != WORD || !word.equals("record")) return false;
+        int savePos = pos;
+        int savePrev = prev;
+        next();
+        boolean header = tok == WORD;
+        pos = savePos;
+        prev = savePrev;
+        tok = WORD;
+        word = "record";
+        return header;
+    }
+
+    /** Skip a record declaration (not indexed, nor are its members). */
+    private void skipUnsupportedType() {
+        next();
+        while (tok != '{') {
+            if (tok == EOF || tok == ';' || tok == '}') throw new Unsure();
+            if (tok == '(') {
+                skipBalanced('(', ')');
+            } else {
+                next();
+            }
+        }
+        skipBalanced('{', '}');
+    }
+
+    /** Skip a field initializer up to and including the terminating semicolon. */
+    private void skipInitializer() {
+        next();
+        while (tok != ';') {
+            switch (tok) {
+                case EOF:
+                case '}':
+                case ')':
+                case ']':
+                    throw new Unsure();
+                case '(':
+                    skipBalanced('(', ')');
+                    break;
+                case '{':
+                    skipBalanced('{', '}');
+                    break;
+                case '[':
+                    skipBalanced('[', ']');
+                    break;
+                default:
+                    next();
+            }
+        }
+        next();
+    }
+
+    /** After {@code @}: the annotation name and optional arguments. */
+    private void skipAnnotationRest() {
+        qualifiedName();
+        if (tok == '(') skipBalanced('(', ')');
+    }
+
+    /** Reads {@code a.b.c} starting at the current token; leaves the token after it current. */
+    private String qualifiedName() {
+        if (tok != WORD) throw new Unsure();
+        StringBuilder sb = new StringBuilder(word);
+        next();
+        while (tok == '.') {
+            next();
+            if (tok != WORD) throw new Unsure();
+            sb.append('.').append(word);
+            next();
+        }
+        return sb.toString();
+    }
+
+    private void expect(int symbol) {
+        if (tok != symbol) throw new Unsure();
+        next();
+    }
+
+    private void skipPast(int symbol) {
+        while (tok != symbol) {
+            if (tok == EOF) throw new Unsure();
+            next();
+        }
+        next();
+    }
+
+    /** Current token is {@code open}; skips to the matching {@code close} (nested brackets of any kind). */
+    private void skipBalanced(int open, int close) {
+        int depth = 0;
+        while (true) {
+            if (tok == EOF) throw new Unsure();
+            if (tok == '(' || tok == '{' || tok == '[') depth++;
+            if (tok == ')' || tok == '}' || tok == ']') {
+                depth--;
+                if (depth == 0) {
+                    if (tok != close) throw new Unsure();
+                    next();
+                    return;
+                }
+            }
+            next();
+        }
+    }
+
+    private boolean isWord(String w) {
+        return tok == WORD && word.equals(w);
+    }
+
+    // --- lexer ---
+
+    private void next() {
+        prev = tok;
+        while (true) {
+            if (pos >= src.length()) {
+                tok = EOF;
+                return;
+            }
+            char c = src.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '/' && pos + 1 < src.length() && src.charAt(pos + 1) == '/') {
+                int nl = src.indexOf('\n', pos);
+                pos = nl < 0 ? src.length() : nl + 1;
+            } else if (c == '/' && pos + 1 < src.length() && src.charAt(pos + 1) == '*') {
+                int end = src.indexOf("*/", pos + 2);
+                if (end < 0) throw new Unsure();
+                pos = end + 2;
+            } else {
+                break;
+            }
+        }
+        char c = src.charAt(pos);
+        if (Character.isJavaIdentifierStart(c) || Character.isDigit(c)) {
+            int start = pos++;
+            while (pos < src.length() && Character.isJavaIdentifierPart(src.charAt(pos))) pos++;
+            word = src.substring(start, pos);
+            tok = WORD;
+        } else if (c == '"') {
+            if (src.startsWith("\"\"\"", pos)) {
+                pos = skipQuoted(pos + 3, "\"\"\"");
+            } else {
+                pos = skipQuoted(pos + 1, "\"");
+            }
+            tok = LITERAL;
+        } else if (c == '\'') {
+            pos = skipQuoted(pos + 1, "'");
+            tok = LITERAL;
+        } else {
+            pos++;
+            tok = c;
+        }
+    }
+
+    /** Position after the closing {@code terminator}, honouring backslash escapes. */
+    private int skipQuoted(int from, String terminator) {
+        int i = from;
+        while (i < src.length()) {
+            char c = src.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (src.startsWith(terminator, i)) {
+                return i + terminator.length();
+            } else if (c == '\n' && terminator.length() == 1) {
+                throw new Unsure();
+            } else {
+                i++;
+            }
+        }
+        throw new Unsure();
+    }
+
+    /** The source cannot be handled without a full parse. */
+    private static final class Unsure extends RuntimeException {
+        Unsure() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The part of the {@link ProjectTypeIndex} contributed by a single compilation unit: its supported type
+ * declarations (including nested member types) and the nested-member mapping.
+ *
+ * <p>Serializable so it can be kept in the {@link ExtractionCache} and the index rebuilt without parsing.</p>
+ */
+final class TypeIndexContribution implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Types in declaration order (outer types before their members). */
+    final List<TypeStub> types;
+    /** Nested member types as (outer qualified name, simple name, qualified name). */
+    final List<NestedMember> nestedMembers;
+
+    TypeIndexContribution(List<TypeStub> types, List<NestedMember> nestedMembers) {
+        this.types = List.copyOf(types);
+        this.nestedMembers = List.copyOf(nestedMembers);
+    }
+
+    record NestedMember(String outerQualifiedName, String simpleName, String qualifiedName) implements Serializable {}
+}
@@ -7,6 +7,9 @@ import java.util.*;
 
 /**
  * Parse a JavaParser {@link Type} into a best-effort {@link TypeRef} without symbol solving.
+ *
+ * <p>The structure is taken from the AST nodes; each level's raw text is composed from its children's raw
+ * text instead of pretty-printing every node (see {@link TypeRenderer}).</p>
  */
 final class TypeRefParser {
 
@@ -20,15 +23,14 @@ final class TypeRefParser {
                          JModel model,
                          String fromQn,
                          String where) {
-        String raw = TypeResolver.renderType(t);
         if (t == null) {
-            return TypeRef.simple(raw, "Object", "java.lang.Object");
+            return TypeRef.simple(TypeResolver.renderType(null), "Object", "java.lang.Object");
         }
         if (t instanceof VoidType) {
             return TypeRef.simple("void", "void", "");
         }
         if (t instanceof PrimitiveType) {
-            String s = t.toString();
+            String s = TypeRenderer.render(t);
             return TypeRef.simple(s, s, "");
         }
         if (t instanceof VarType) {
@@ -36,25 +38,29 @@ final class TypeRefParser {
         }
         if (t instanceof ArrayType) {
             int dims = 0;
+            boolean plain = true;
             Type inner = t;
             while (inner instanceof ArrayType) {
                 dims++;
+                plain &= TypeRenderer.isPlain(inner);
                 inner = ((ArrayType) inner).getComponentType();
             }
             TypeRef comp = parse(inner, visibleTypeParams, ctx, nestedByOuter, nestedScopeChain, model, fromQn, where);
+            String raw = plain ? comp.raw + "[]".repeat(dims) : TypeRenderer.render(t);
             return TypeRef.array(raw, comp, dims);
         }
         if (t instanceof WildcardType) {
             WildcardType wt = (WildcardType) t;
+            boolean plain = TypeRenderer.isPlain(wt);
             if (wt.getExtendedType().isPresent()) {
                 TypeRef bound = parse(wt.getExtendedType().get(), visibleTypeParams, ctx, nestedByOuter, nestedScopeChain, model, fromQn, where);
-                return TypeRef.wildcard(raw, WildcardBoundKind.EXTENDS, bound);
+                return TypeRef.wildcard(plain ? "? extends " + bound.raw : TypeRenderer.render(t), WildcardBoundKind.EXTENDS, bound);
             }
             if (wt.getSuperType().isPresent()) {
                 TypeRef bound = parse(wt.getSuperType().get(), visibleTypeParams, ctx, nestedByOuter, nestedScopeChain, model, fromQn, where);
-                return TypeRef.wildcard(raw, WildcardBoundKind.SUPER, bound);
+                return TypeRef.wildcard(plain ? "? super " + bound.raw : TypeRenderer.render(t), WildcardBoundKind.SUPER, bound);
             }
-            return TypeRef.wildcard(raw, WildcardBoundKind.UNBOUNDED, null);
+            return TypeRef.wildcard(plain ? "?" : TypeRenderer.render(t), WildcardBoundKind.UNBOUNDED, null);
         }
         if (t instanceof ClassOrInterfaceType) {
             ClassOrInterfaceType cit = (ClassOrInterfaceType) t;
@@ -64,7 +70,7 @@ final class TypeRefParser {
                     && cit.getTypeArguments().isEmpty()
                     && cit.getScope().isEmpty());
             if (isTypeVar) {
-                return TypeRef.typeVar(raw, simple);
+                return TypeRef.typeVar(TypeRenderer.render(t), simple);
             }
 
             String nameWithScope = cit.getNameWithScope();
@@ -75,17 +81,25 @@ final class TypeRefParser {
                 resolved = ext == null ? "" : ext;
             }
 
-            if (cit.getTypeArguments().isPresent() && !cit.getTypeArguments().get().isEmpty()) {
-                List<TypeRef> args = new ArrayList<>();
+            // Arguments are built first; the raw text is then composed from their raw text.
+            List<TypeRef> args = new ArrayList<>();
+            if (cit.getTypeArguments().isPresent()) {
                 for (Type at : cit.getTypeArguments().get()) {
                     args.add(parse(at, visibleTypeParams, ctx, nestedByOuter, nestedScopeChain, model, fromQn, where));
                 }
-                return TypeRef.param(raw, simple, resolved == null ? "" : resolved, args);
             }
+            String[] argRaws = new String[args.size()];
+            for (int i = 0; i < argRaws.length; i++) argRaws[i] = args.get(i).raw;
+            String raw = TypeRenderer.renderClassType(cit, argRaws);
+            if (raw == null) raw = TypeRenderer.render(t);
 
-            return TypeRef.simple(raw, simple, resolved == null ? "" : resolved);
+            if (!args.isEmpty()) {
+                return TypeRef.param(raw, simple, resolved, args);
+            }
+            return TypeRef.simple(raw, simple, resolved);
         }
 
+        String raw = TypeRenderer.render(t);
         return TypeRef.simple(raw, raw, "");
     }
 
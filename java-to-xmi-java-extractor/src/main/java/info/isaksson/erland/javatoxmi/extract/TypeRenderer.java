@@ -0,0 +1,115 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.type.ArrayType;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.PrimitiveType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.VarType;
+import com.github.javaparser.ast.type.VoidType;
+import com.github.javaparser.ast.type.WildcardType;
+
+/**
+ * Renders JavaParser {@link Type} nodes to source text directly from the AST.
+ *
+ * <p>The output is identical to {@code Type.toString()} (JavaParser's pretty printer), which is comparatively
+ * expensive and is otherwise invoked for every field, parameter, local and {@code new} expression. Nodes the
+ * pretty printer would decorate (type annotations, comments) and less common type forms (union/intersection
+ * types) are delegated to {@code toString()}.</p>
+ */
+final class TypeRenderer {
+
+    private TypeRenderer() {}
+
+    static String render(Type t) {
+        StringBuilder sb = new StringBuilder();
+        if (append(sb, t)) return sb.toString();
+        return t.toString();
+    }
+
+    /**
+     * Raw text of a class/interface type whose type arguments are already rendered, e.g. while building a
+     * {@code TypeRef} bottom-up. Returns null when the node must be rendered by the pretty printer.
+     */
+    static String renderClassType(ClassOrInterfaceType cit, String[] renderedArgs) {
+        if (!isPlain(cit) || !isPlain(cit.getName())) return null;
+        StringBuilder sb = new StringBuilder();
+        if (cit.getScope().isPresent()) {
+            if (!append(sb, cit.getScope().get())) return null;
+            sb.append('.');
+        }
+        sb.append(cit.getName().getIdentifier());
+        if (cit.getTypeArguments().isPresent()) {
+            sb.append('<');
+            for (int i = 0; i < renderedArgs.length; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(renderedArgs[i]);
+            }
+            sb.append('>');
+        }
+        return sb.toString();
+    }
+
+    /** @return false if {@code t} (or a nested node) cannot be rendered here */
+    private static boolean append(StringBuilder sb, Type t) {
+        if (!isPlain(t)) return false;
+        if (t instanceof ClassOrInterfaceType) {
+            ClassOrInterfaceType cit = (ClassOrInterfaceType) t;
+            if (!isPlain(cit.getName())) return false;
+            if (cit.getScope().isPresent()) {
+                if (!append(sb, cit.getScope().get())) return false;
+                sb.append('.');
+            }
+            sb.append(cit.getName().getIdentifier());
+            if (cit.getTypeArguments().isPresent()) {
+                NodeList<Type> args = cit.getTypeArguments().get();
+                sb.append('<');
+                for (int i = 0; i < args.size(); i++) {
+                    if (i > 0) sb.append(", ");
+                    if (!append(sb, args.get(i))) return false;
+                }
+                sb.append('>');
+            }
+            return true;
+        }
+        if (t instanceof ArrayType) {
+            ArrayType at = (ArrayType) t;
+            if (!append(sb, at.getComponentType())) return false;
+            sb.append("[]");
+            return true;
+        }
+        if (t instanceof WildcardType) {
+            WildcardType wt = (WildcardType) t;
+            sb.append('?');
+            if (wt.getExtendedType().isPresent()) {
+                sb.append(" extends ");
+                return append(sb, wt.getExtendedType().get());
+            }
+            if (wt.getSuperType().isPresent()) {
+                sb.append(" super ");
+                return append(sb, wt.getSuperType().get());
+            }
+            return true;
+        }
+        if (t instanceof PrimitiveType) {
+            sb.append(((PrimitiveType) t).getType().asString());
+            return true;
+        }
+        if (t instanceof VoidType) {
+            sb.append("void");
+            return true;
+        }
+        if (t instanceof VarType) {
+            sb.append("var");
+            return true;
+        }
+        return false;
+    }
+
+    /** True if the pretty printer would print nothing but the type itself for this node. */
+    static boolean isPlain(Node n) {
+        if (n.getComment().isPresent() || !n.getOrphanComments().isEmpty()) return false;
+        return !(n instanceof Type) || ((Type) n).getAnnotations().isEmpty();
+    }
+}
@@ -0,0 +1,104 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memoized {@link TypeResolver} results for one compilation unit (owned by its {@link ImportContext}).
+ *
+ * <p>Entries are keyed by nested scope chain and type name. A cached type reference keeps the external and
+ * unresolved references its resolution recorded, so they can be replayed into the model with the caller's
+ * context and the bookkeeping stays the same as without the cache.</p>
+ */
+final class TypeResolutionCache {
+
+    /** Marks a cached name that did not resolve. */
+    private static final Object UNRESOLVED = new Object();
+
+    private Map<String, Map<String, String>> nestedByOuter;
+    private final Map<List<String>, Scope> scopes = new HashMap<>();
+
+    // The same chain instance is typically used for all members of a type.
+    private List<String> lastChain;
+    private Scope lastScope;
+
+    private long hits;
+    private long misses;
+
+    long hits() {
+        return hits;
+    }
+
+    long misses() {
+        return misses;
+    }
+
+    /**
+     * Scope for a chain, or null if results must not be cached. The nested-member map is the same for all
+     * lookups of a compilation unit; a caller passing a different one bypasses the cache.
+     */
+    Scope scope(Map<String, Map<String, String>> nestedByOuter, List<String> nestedScopeChain) {
+        if (this.nestedByOuter == null) {
+            this.nestedByOuter = nestedByOuter;
+        } else if (this.nestedByOuter != nestedByOuter) {
+            return null;
+        }
+        List<String> chain = nestedScopeChain == null ? List.of() : nestedScopeChain;
+        if (chain == lastChain) return lastScope;
+        Scope s = scopes.computeIfAbsent(List.copyOf(chain), __ -> new Scope());
+        lastChain = chain;
+        lastScope = s;
+        return s;
+    }
+
+    /** A resolved type reference and the refs recorded while resolving it. */
+    static final class Resolution {
+        final String result;
+        final List<Ref> refs;
+
+        Resolution(String result, List<Ref> refs) {
+            this.result = result;
+            this.refs = refs;
+        }
+    }
+
+    /** A recorded external ({@code true}) or unresolved ({@code false}) type reference. */
+    record Ref(boolean external, String typeName) {}
+
+    final class Scope {
+        private final Map<String, Resolution> typeRefs = new HashMap<>();
+        private final Map<String, Object> names = new HashMap<>();
+
+        Resolution typeRef(String rendered) {
+            Resolution r = typeRefs.get(rendered);
+            count(r != null);
+            return r;
+        }
+
+        void putTypeRef(String rendered, Resolution r) {
+            typeRefs.put(rendered, r);
+        }
+
+        /** @return the cached name resolution, {@link #UNRESOLVED} if cached as unresolvable, or null on a miss */
+        Object name(String typeName) {
+            Object r = names.get(typeName);
+            count(r != null);
+            return r;
+        }
+
+        void putName(String typeName, String resolved) {
+            names.put(typeName, resolved == null ? UNRESOLVED : resolved);
+        }
+
+        /** @return the resolved name for a non-null result of {@link #name(String)}, or null if it is unresolvable */
+        String resolvedName(Object cached) {
+            return cached == UNRESOLVED ? null : (String) cached;
+        }
+    }
+
+    private void count(boolean hit) {
+        if (hit) hits++;
+        else misses++;
+    }
+}
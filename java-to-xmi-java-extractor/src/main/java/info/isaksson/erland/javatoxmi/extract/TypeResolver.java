@@ -6,6 +6,7 @@ import com.github.javaparser.ast.type.VoidType;
 import info.isaksson.erland.javatoxmi.model.JModel;
 import info.isaksson.erland.javatoxmi.model.UnresolvedTypeRef;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -26,6 +27,31 @@ final class TypeResolver {
                                 String where) {
         // Preserve full textual form, but resolve the outer-most type name where possible.
         String rendered = renderType(t);
+
+        TypeResolutionCache.Scope scope = ctx.resolutionCache.scope(nestedByOuter, nestedScopeChain);
+        TypeResolutionCache.Resolution r = scope == null ? null : scope.typeRef(rendered);
+        if (r == null) {
+            List<TypeResolutionCache.Ref> refs = new ArrayList<>(0);
+            String result = resolveRendered(rendered, ctx, nestedByOuter, nestedScopeChain, refs);
+            r = new TypeResolutionCache.Resolution(result, refs);
+            if (scope != null) scope.putTypeRef(rendered, r);
+        }
+
+        for (TypeResolutionCache.Ref ref : r.refs) {
+            if (ref.external()) {
+                model.externalTypeRefs.add(new UnresolvedTypeRef(ref.typeName(), fromQn, where));
+            } else {
+                model.unresolvedTypes.add(new UnresolvedTypeRef(ref.typeName(), fromQn, where));
+            }
+        }
+        return r.result;
+    }
+
+    private static String resolveRendered(String rendered,
+                                          ImportContext ctx,
+                                          Map<String, Map<String, String>> nestedByOuter,
+                                          List<String> nestedScopeChain,
+                                          List<TypeResolutionCache.Ref> refs) {
         Set<String> baseNames = TypeNameUtil.extractBaseTypeNames(rendered);
 
         String primary = TypeNameUtil.primaryBaseName(rendered);
@@ -36,7 +62,7 @@ final class TypeResolver {
         String resolvedPrimary = resolveWithNestedScope(primary, ctx, nestedByOuter, nestedScopeChain);
         if (resolvedPrimary == null) {
             if (primary.contains(".")) {
-                model.externalTypeRefs.add(new UnresolvedTypeRef(primary, fromQn, where));
+                refs.add(new TypeResolutionCache.Ref(true, primary));
                 return rendered;
             }
             if (TypeNameUtil.isNonReferenceType(primary)) {
@@ -44,10 +70,10 @@ final class TypeResolver {
             }
             String ext = ctx.qualifyExternal(primary);
             if (ext != null) {
-                model.externalTypeRefs.add(new UnresolvedTypeRef(ext, fromQn, where));
+                refs.add(new TypeResolutionCache.Ref(true, ext));
                 return TypeNameUtil.replacePrimaryBaseName(rendered, primary, ext);
             }
-            model.unresolvedTypes.add(new UnresolvedTypeRef(primary, fromQn, where));
+            refs.add(new TypeResolutionCache.Ref(false, primary));
             return rendered;
         }
 
@@ -57,13 +83,13 @@ final class TypeResolver {
             String r = resolveWithNestedScope(bn, ctx, nestedByOuter, nestedScopeChain);
             if (r == null) {
                 if (bn.contains(".")) {
-                    model.externalTypeRefs.add(new UnresolvedTypeRef(bn, fromQn, where));
+                    refs.add(new TypeResolutionCache.Ref(true, bn));
                 } else {
                     String ext = ctx.qualifyExternal(bn);
                     if (ext != null) {
-                        model.externalTypeRefs.add(new UnresolvedTypeRef(ext, fromQn, where));
+                        refs.add(new TypeResolutionCache.Ref(true, ext));
                     } else {
-                        model.unresolvedTypes.add(new UnresolvedTypeRef(bn, fromQn, where));
+                        refs.add(new TypeResolutionCache.Ref(false, bn));
                     }
                 }
             }
@@ -84,9 +110,6 @@ final class TypeResolver {
 
     /**
      * Resolve simple names to nested member types visible in the enclosing type scope.
-     */
-        /**
-     * Resolve simple names to nested member types visible in the enclosing type scope.
      */
     static String resolveWithNestedScope(String typeName,
                                          ImportContext ctx,
@@ -94,6 +117,20 @@ final class TypeResolver {
                                          List<String> nestedScopeChain) {
         if (typeName == null || typeName.isBlank()) return null;
 
+        TypeResolutionCache.Scope scope = ctx.resolutionCache.scope(nestedByOuter, nestedScopeChain);
+        if (scope == null) return resolveNameUncached(typeName, ctx, nestedByOuter, nestedScopeChain);
+        Object cached = scope.name(typeName);
+        if (cached != null) return scope.resolvedName(cached);
+        String resolved = resolveNameUncached(typeName, ctx, nestedByOuter, nestedScopeChain);
+        scope.putName(typeName, resolved);
+        return resolved;
+    }
+
+    private static String resolveNameUncached(String typeName,
+                                              ImportContext ctx,
+                                              Map<String, Map<String, String>> nestedByOuter,
+                                              List<String> nestedScopeChain) {
+
         // Normalize Java binary nested name separators ($) to source-style dots.
         String tn = typeName.indexOf('$') >= 0 ? typeName.replace('$', '.') : typeName;
 
@@ -171,6 +208,6 @@ final class TypeResolver {
     static String renderType(Type t) {
         if (t == null) return "java.lang.Object";
         if (t instanceof VoidType) return "void";
-        return t.toString();
+        return TypeRenderer.render(t);
     }
 }
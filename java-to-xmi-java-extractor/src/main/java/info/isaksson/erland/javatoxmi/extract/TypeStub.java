@@ -1,4 +1,6 @@
 package info.isaksson.erland.javatoxmi.extract;
 
+import java.io.Serializable;
+
 /** Package-private type stub used for project-local type index. */
-record TypeStub(String qualifiedName, String pkg, String simpleName) {}
+record TypeStub(String qualifiedName, String pkg, String simpleName) implements Serializable {}
@@ -0,0 +1,54 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.model.JType;
+import info.isaksson.erland.javatoxmi.model.UnresolvedTypeRef;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Everything extracted from a single compilation unit, given a {@link ProjectTypeIndex}.
+ *
+ * <p>{@link JavaExtractor} merges these in file order, which reproduces exactly what the whole-project
+ * extraction steps would add to the {@link JModel}. Serializable so results can be kept in the
+ * {@link ExtractionCache}.</p>
+ */
+final class UnitExtraction implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Types in extraction order (outer types before their members). */
+    final List<JType> types;
+    /** External/unresolved references recorded while extracting types. */
+    final List<UnresolvedTypeRef> externalTypeRefs;
+    final List<UnresolvedTypeRef> unresolvedTypes;
+
+    /** Output of each {@link SemanticsExtractor}, by id in registration order. */
+    final LinkedHashMap<String, SemanticsOutput> semantics;
+
+    /** Type resolution cache counters of this extraction (zero when the result came from the cache). */
+    transient long typeResolutionHits;
+    transient long typeResolutionMisses;
+
+    private UnitExtraction(JModel typeScratch, LinkedHashMap<String, SemanticsOutput> semantics) {
+        this.types = new ArrayList<>(typeScratch.types);
+        this.externalTypeRefs = new ArrayList<>(typeScratch.externalTypeRefs);
+        this.unresolvedTypes = new ArrayList<>(typeScratch.unresolvedTypes);
+        this.semantics = semantics;
+    }
+
+    /** Run all per-unit extraction steps for one parsed unit. */
+    static UnitExtraction extract(ParsedUnit u, ProjectTypeIndex index, boolean includeDependencies, SemanticsPipeline semantics) {
+        ImportContext ctx = TypeExtractionEngine.importContext(u, index);
+
+        JModel typeScratch = new JModel(null, List.of());
+        TypeExtractionEngine.extractUnitTypes(typeScratch, u, ctx, index, includeDependencies);
+
+        UnitExtraction r = new UnitExtraction(typeScratch, semantics.extractUnit(u, ctx, index));
+        r.typeResolutionHits = ctx.resolutionCache.hits();
+        r.typeResolutionMisses = ctx.resolutionCache.misses();
+        return r;
+    }
+}
@@ -0,0 +1,29 @@
+package info.isaksson.erland.javatoxmi.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/** Default file system backed {@link SourceReader}. */
+final class FileSystemSourceReader implements SourceReader {
+    static final FileSystemSourceReader INSTANCE = new FileSystemSourceReader();
+
+    private FileSystemSourceReader() {}
+
+    @Override
+    public String read(Path file) throws IOException {
+        return Files.readString(file, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public List<Path> listAllFiles(Path root) throws IOException {
+        if (!Files.exists(root)) return List.of();
+        try (Stream<Path> stream = Files.walk(root)) {
+            return stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package info.isaksson.erland.javatoxmi.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-scan counters recorded by {@link SourceScanner}.
+ *
+ * <p>Counters are updated concurrently by the scanner's walker threads and are safe to read once
+ * {@link SourceScanner#scan(java.nio.file.Path, java.util.List, boolean, ScanStats)} has returned.</p>
+ */
+public final class ScanStats {
+    private final AtomicLong visitedDirectories = new AtomicLong();
+    private final AtomicLong prunedDirectories = new AtomicLong();
+    private final AtomicLong javaFiles = new AtomicLong();
+
+    /** Directories whose entries were listed (including the source root). */
+    public long visitedDirectories() {
+        return visitedDirectories.get();
+    }
+
+    /** Directories skipped without being entered (build output, test folders, excluded globs). */
+    public long prunedDirectories() {
+        return prunedDirectories.get();
+    }
+
+    /** Java files returned by the scan. */
+    public long javaFiles() {
+        return javaFiles.get();
+    }
+
+    void directoryVisited() {
+        visitedDirectories.incrementAndGet();
+    }
+
+    void directoryPruned() {
+        prunedDirectories.incrementAndGet();
+    }
+
+    void javaFilesFound(long count) {
+        javaFiles.addAndGet(count);
+    }
+
+    @Override
+    public String toString() {
+        return "ScanStats{" +
+                "visitedDirectories=" + visitedDirectories() +
+                ", prunedDirectories=" + prunedDirectories() +
+                ", javaFiles=" + javaFiles() +
+                '}';
+    }
+}
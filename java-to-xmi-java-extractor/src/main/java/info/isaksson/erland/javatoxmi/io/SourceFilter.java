@@ -0,0 +1,130 @@
+package info.isaksson.erland.javatoxmi.io;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exclude/include rules for Java source discovery, evaluated on paths relative to the source root
+ * using '/' separators.
+ *
+ * <p>Shared by {@link SourceScanner} (directory trees) and {@link ZipSourceReader} (archive entries) so both
+ * select exactly the same files.</p>
+ */
+final class SourceFilter {
+
+    private final List<ExcludeRule> excludes;
+    private final boolean includeTests;
+
+    private SourceFilter(List<ExcludeRule> excludes, boolean includeTests) {
+        this.excludes = excludes;
+        this.includeTests = includeTests;
+    }
+
+    /**
+     * @param excludeGlobs list of glob patterns (matched against the relative path)
+     * @param includeTests whether to include common test folders (e.g. src/test, test)
+     */
+    static SourceFilter compile(List<String> excludeGlobs, boolean includeTests) {
+        return new SourceFilter(compileExcludeRules(excludeGlobs), includeTests);
+    }
+
+    /** Whether the file at {@code rel} is a Java source that should be scanned. */
+    boolean acceptsFile(String rel) {
+        if (!rel.endsWith(".java")) return false;
+        if (!includeTests && looksLikeTestPath(rel)) return false;
+        if (isInCommonBuildDir(rel)) return false;
+        for (ExcludeRule r : excludes) {
+            if (r.matchesFile(rel)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * True when no file below the directory {@code rel} can be accepted. The file rules are prefix/substring
+     * checks on the relative path, so applying them to {@code rel + "/"} is exact for everything beneath it.
+     */
+    boolean prunesDirectory(String rel) {
+        String asPrefix = rel + "/";
+        if (isInCommonBuildDir(asPrefix)) return true;
+        if (!includeTests && looksLikeTestPath(asPrefix)) return true;
+        for (ExcludeRule r : excludes) {
+            if (r.prunesDirectory(rel)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * A compiled exclude glob. Globs of the form {@code <prefix>/**} also match every directory matching
+     * {@code <prefix>} as a whole subtree, which allows pruning it.
+     */
+    private static final class ExcludeRule {
+        private final PathMatcher fileMatcher;
+        private final PathMatcher subtreeMatcher;
+
+        ExcludeRule(PathMatcher fileMatcher, PathMatcher subtreeMatcher) {
+            this.fileMatcher = fileMatcher;
+            this.subtreeMatcher = subtreeMatcher;
+        }
+
+        boolean matchesFile(String rel) {
+            return fileMatcher.matches(Path.of(rel));
+        }
+
+        boolean prunesDirectory(String rel) {
+            return subtreeMatcher != null && subtreeMatcher.matches(Path.of(rel));
+        }
+    }
+
+    private static List<ExcludeRule> compileExcludeRules(List<String> excludeGlobs) {
+        if (excludeGlobs == null || excludeGlobs.isEmpty()) return Collections.emptyList();
+
+        FileSystem fs = FileSystems.getDefault();
+        List<ExcludeRule> out = new ArrayList<>();
+        for (String raw : excludeGlobs) {
+            if (raw == null) continue;
+            String pattern = raw.trim();
+            if (pattern.isEmpty()) continue;
+
+            // Normalize to use forward slashes to be consistent across OSes.
+            pattern = pattern.replace("\\", "/");
+
+            // If the user supplies a directory pattern without wildcards, treat it as "under this directory".
+            if (!pattern.contains("*") && !pattern.contains("?") && !pattern.contains("[") && !pattern.endsWith("/")) {
+                pattern = pattern + "/**";
+            }
+
+            PathMatcher subtree = null;
+            if (pattern.endsWith("/**") && pattern.length() > 3) {
+                subtree = fs.getPathMatcher("glob:" + pattern.substring(0, pattern.length() - 3));
+            }
+            out.add(new ExcludeRule(fs.getPathMatcher("glob:" + pattern), subtree));
+        }
+        return out;
+    }
+
+    private static boolean looksLikeTestPath(String rel) {
+        // Common Maven/Gradle test roots, plus generic /test/ folders.
+        return rel.startsWith("src/test/")
+                || rel.startsWith("src/integrationTest/")
+                || rel.startsWith("src/it/")
+                || rel.startsWith("test/")
+                || rel.contains("/test/")
+                || rel.contains("/tests/");
+    }
+
+    private static boolean isInCommonBuildDir(String rel) {
+        // Avoid scanning under build output folders by default.
+        return rel.startsWith("target/")
+                || rel.startsWith("build/")
+                || rel.startsWith("out/")
+                || rel.startsWith(".git/")
+                || rel.startsWith(".idea/")
+                || rel.startsWith(".gradle/")
+                || rel.startsWith("node_modules/");
+    }
+}
@@ -0,0 +1,28 @@
+package info.isaksson.erland.javatoxmi.io;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Access to source file contents for extraction.
+ *
+ * <p>The default implementation reads from the file system. {@link ZipSources} serves files read straight
+ * from a ZIP archive, so nothing has to be unpacked to disk first.</p>
+ */
+public interface SourceReader {
+
+    /** Read a source file as UTF-8 text. Malformed input is reported as an {@link IOException}. */
+    String read(Path file) throws IOException;
+
+    /**
+     * List every regular file below {@code root} (not only Java sources, and without exclude rules).
+     * Used for resource discovery such as Flyway migrations.
+     */
+    List<Path> listAllFiles(Path root) throws IOException;
+
+    /** Reads from the default file system. */
+    static SourceReader fileSystem() {
+        return FileSystemSourceReader.INSTANCE;
+    }
+}
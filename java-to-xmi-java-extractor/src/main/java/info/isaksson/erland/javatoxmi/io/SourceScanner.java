@@ -1,22 +1,29 @@
 package info.isaksson.erland.javatoxmi.io;
 
 import java.io.IOException;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
-import java.util.function.Predicate;
-import java.util.stream.Stream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Step 2: Deterministic Java source discovery with exclude/include rules.
  *
  * The scanner returns a stable, sorted list of .java files under a source root.
+ *
+ * <p>Directories that can only contain excluded files (common build output folders, test folders when
+ * tests are not included, and directories matched by a {@code .../**} exclude glob) are pruned before
+ * they are entered. Independent subtrees are listed in parallel; the result is sorted afterwards, so
+ * the output does not depend on traversal order.</p>
  */
 public final class SourceScanner {
 
@@ -30,80 +37,115 @@ public final class SourceScanner {
      * @param includeTests whether to include common test folders (e.g. src/test, test)
      */
     public static List<Path> scan(Path sourceRoot, List<String> excludeGlobs, boolean includeTests) throws IOException {
+        return scan(sourceRoot, excludeGlobs, includeTests, null);
+    }
+
+    /**
+     * Scan for .java files under {@code sourceRoot}, recording directory counters into {@code stats}.
+     *
+     * @param stats optional counters for this scan (may be null)
+     */
+    public static List<Path> scan(Path sourceRoot, List<String> excludeGlobs, boolean includeTests, ScanStats stats) throws IOException {
         Objects.requireNonNull(sourceRoot, "sourceRoot");
 
-        final List<Predicate<Path>> excludeMatchers = compileExcludeMatchers(excludeGlobs);
+        final Rules rules = new Rules(sourceRoot, SourceFilter.compile(excludeGlobs, includeTests),
+                stats == null ? new ScanStats() : stats);
 
-        try (Stream<Path> stream = Files.walk(sourceRoot)) {
-            List<Path> out = new ArrayList<>();
-            stream
-                .filter(Files::isRegularFile)
-                .filter(p -> p.getFileName().toString().endsWith(".java"))
-                .filter(p -> includeTests || !looksLikeTestPath(sourceRoot, p))
-                .filter(p -> !isInCommonBuildDir(sourceRoot, p))
-                .filter(p -> !matchesAny(sourceRoot, p, excludeMatchers))
-                .forEach(out::add);
-
-            // Stable deterministic ordering (relative path)
-            out.sort(Comparator.comparing(p -> normalizeRel(sourceRoot, p)));
-            return out;
+        final List<Path> out;
+        if (Files.isDirectory(sourceRoot)) {
+            try {
+                out = WalkPool.POOL.invoke(new DirectoryWalk(sourceRoot, rules));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        } else {
+            // Degenerate case: a single file (or a missing root, which fails like Files.walk would).
+            BasicFileAttributes attrs = Files.readAttributes(sourceRoot, BasicFileAttributes.class);
+            out = new ArrayList<>();
+            if (attrs.isRegularFile() && rules.acceptsFile(sourceRoot)) out.add(sourceRoot);
         }
-    }
 
-    private static boolean matchesAny(Path root, Path absolutePath, List<Predicate<Path>> matchers) {
-        if (matchers.isEmpty()) return false;
-        final Path rel = root.relativize(absolutePath);
-        for (Predicate<Path> m : matchers) {
-            if (m.test(rel)) return true;
-        }
-        return false;
+        // Stable deterministic ordering (relative path)
+        out.sort(Comparator.comparing(p -> normalizeRel(sourceRoot, p)));
+        rules.stats.javaFilesFound(out.size());
+        return out;
     }
 
-    private static List<Predicate<Path>> compileExcludeMatchers(List<String> excludeGlobs) {
-        if (excludeGlobs == null || excludeGlobs.isEmpty()) return Collections.emptyList();
+    /**
+     * One pool for all scans, created on first use (server, worker and batch modes scan once per request). Its
+     * own pool rather than the common one, because directory listing blocks on I/O; daemon threads, so an idle
+     * pool does not keep the JVM alive.
+     */
+    private static final class WalkPool {
+        static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("source-scan-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
 
-        FileSystem fs = FileSystems.getDefault();
-        List<Predicate<Path>> out = new ArrayList<>();
-        for (String raw : excludeGlobs) {
-            if (raw == null) continue;
-            String pattern = raw.trim();
-            if (pattern.isEmpty()) continue;
+    /** Lists one directory and forks a subtask per child directory that survives pruning. */
+    private static final class DirectoryWalk extends RecursiveTask<List<Path>> {
+        private final Path dir;
+        private final Rules rules;
 
-            // Normalize to use forward slashes to be consistent across OSes.
-            pattern = pattern.replace("\\", "/");
+        DirectoryWalk(Path dir, Rules rules) {
+            this.dir = dir;
+            this.rules = rules;
+        }
 
-            // If the user supplies a directory pattern without wildcards, treat it as "under this directory".
-            if (!pattern.contains("*") && !pattern.contains("?") && !pattern.contains("[") && !pattern.endsWith("/")) {
-                pattern = pattern + "/**";
+        @Override
+        protected List<Path> compute() {
+            rules.stats.directoryVisited();
+            List<Path> out = new ArrayList<>();
+            List<DirectoryWalk> children = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path p : entries) {
+                    // Like Files.walk: do not follow symlinked directories, but accept symlinked files.
+                    BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isDirectory()) {
+                        if (rules.prunesDirectory(p)) {
+                            rules.stats.directoryPruned();
+                        } else {
+                            children.add(new DirectoryWalk(p, rules));
+                        }
+                    } else if (attrs.isRegularFile() || (attrs.isSymbolicLink() && Files.isRegularFile(p))) {
+                        if (rules.acceptsFile(p)) out.add(p);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
 
-            final var matcher = fs.getPathMatcher("glob:" + pattern);
-            out.add(p -> matcher.matches(Path.of(normalizePathString(p))));
+            if (!children.isEmpty()) {
+                for (DirectoryWalk child : invokeAll(children)) {
+                    out.addAll(child.join());
+                }
+            }
+            return out;
         }
-        return out;
     }
 
-    private static boolean looksLikeTestPath(Path root, Path absolutePath) {
-        String rel = normalizeRel(root, absolutePath);
-        // Common Maven/Gradle test roots, plus generic /test/ folders.
-        return rel.startsWith("src/test/")
-                || rel.startsWith("src/integrationTest/")
-                || rel.startsWith("src/it/")
-                || rel.startsWith("test/")
-                || rel.contains("/test/")
-                || rel.contains("/tests/");
-    }
+    /** Include/exclude decisions for one scan, bound to its root and counters. */
+    private static final class Rules {
+        final Path root;
+        final SourceFilter filter;
+        final ScanStats stats;
+
+        Rules(Path root, SourceFilter filter, ScanStats stats) {
+            this.root = root;
+            this.filter = filter;
+            this.stats = stats;
+        }
 
-    private static boolean isInCommonBuildDir(Path root, Path absolutePath) {
-        String rel = normalizeRel(root, absolutePath);
-        // Avoid scanning under build output folders by default.
-        return rel.startsWith("target/")
-                || rel.startsWith("build/")
-                || rel.startsWith("out/")
-                || rel.startsWith(".git/")
-                || rel.startsWith(".idea/")
-                || rel.startsWith(".gradle/")
-                || rel.startsWith("node_modules/");
+        boolean acceptsFile(Path p) {
+            return filter.acceptsFile(normalizeRel(root, p));
+        }
+
+        boolean prunesDirectory(Path dir) {
+            return filter.prunesDirectory(normalizeRel(root, dir));
+        }
     }
 
     private static String normalizeRel(Path root, Path p) {
@@ -0,0 +1,166 @@
+package info.isaksson.erland.javatoxmi.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Deterministic Java source discovery directly from ZIP archives, without unpacking them to disk.
+ *
+ * <p>Entry names are matched with the same exclude/test rules as {@link SourceScanner}. A ZIP file on disk is
+ * read through its central directory, so excluded entries are never inflated; byte arrays and streams are read
+ * sequentially with a {@link ZipInputStream}.</p>
+ *
+ * <p>Archives are untrusted input, so reading is bounded by {@link Limits}: the number of entries, the
+ * decompressed size of each Java entry and the decompressed size of all Java entries together. Exceeding a limit
+ * fails with an {@link IOException}; declared entry sizes are not trusted, the inflated bytes are counted.</p>
+ */
+public final class ZipSourceReader {
+
+    /** Bounds on what a single archive may expand to. */
+    public static final class Limits {
+        public static final Limits DEFAULT = new Limits(100_000, 16L * 1024 * 1024, 512L * 1024 * 1024);
+
+        /** Maximum number of entries (files and directories) in the archive. */
+        public final int maxEntries;
+        /** Maximum decompressed size of one Java source entry. */
+        public final long maxEntryBytes;
+        /** Maximum decompressed size of all Java source entries together. */
+        public final long maxTotalBytes;
+
+        public Limits(int maxEntries, long maxEntryBytes, long maxTotalBytes) {
+            this.maxEntries = maxEntries;
+            this.maxEntryBytes = Math.min(maxEntryBytes, Integer.MAX_VALUE - 8);
+            this.maxTotalBytes = maxTotalBytes;
+        }
+    }
+
+    private ZipSourceReader() {}
+
+    /** Read sources from a ZIP file on disk, within {@link Limits#DEFAULT}. */
+    public static ZipSources read(Path zipFile, List<String> excludeGlobs, boolean includeTests) throws IOException {
+        return read(zipFile, excludeGlobs, includeTests, Limits.DEFAULT);
+    }
+
+    /** Read sources from a ZIP file on disk. */
+    public static ZipSources read(Path zipFile, List<String> excludeGlobs, boolean includeTests, Limits limits) throws IOException {
+        Objects.requireNonNull(zipFile, "zipFile");
+        SourceFilter filter = SourceFilter.compile(excludeGlobs, includeTests);
+        Collector c = new Collector(limits);
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry e = entries.nextElement();
+                String rel = c.accept(e);
+                if (rel == null || !filter.acceptsFile(rel)) continue;
+                try (InputStream in = zip.getInputStream(e)) {
+                    c.addJava(rel, in);
+                }
+            }
+        }
+        return c.toSources();
+    }
+
+    /** Read sources from an in-memory ZIP archive, within {@link Limits#DEFAULT}. */
+    public static ZipSources read(byte[] zipBytes, List<String> excludeGlobs, boolean includeTests) throws IOException {
+        return read(zipBytes, excludeGlobs, includeTests, Limits.DEFAULT);
+    }
+
+    /** Read sources from an in-memory ZIP archive. */
+    public static ZipSources read(byte[] zipBytes, List<String> excludeGlobs, boolean includeTests, Limits limits) throws IOException {
+        Objects.requireNonNull(zipBytes, "zipBytes");
+        return read(new ByteArrayInputStream(zipBytes), excludeGlobs, includeTests, limits);
+    }
+
+    /** Read sources from a ZIP stream, within {@link Limits#DEFAULT}. The stream is consumed but not closed. */
+    public static ZipSources read(InputStream zipStream, List<String> excludeGlobs, boolean includeTests) throws IOException {
+        return read(zipStream, excludeGlobs, includeTests, Limits.DEFAULT);
+    }
+
+    /** Read sources from a ZIP stream. The stream is consumed but not closed. */
+    public static ZipSources read(InputStream zipStream, List<String> excludeGlobs, boolean includeTests, Limits limits) throws IOException {
+        Objects.requireNonNull(zipStream, "zipStream");
+        SourceFilter filter = SourceFilter.compile(excludeGlobs, includeTests);
+        Collector c = new Collector(limits);
+        ZipInputStream zin = new ZipInputStream(zipStream);
+        ZipEntry e;
+        while ((e = zin.getNextEntry()) != null) {
+            String rel = c.accept(e);
+            if (rel != null && filter.acceptsFile(rel)) {
+                c.addJava(rel, zin);
+            }
+            zin.closeEntry();
+        }
+        return c.toSources();
+    }
+
+    /**
+     * Normalizes an entry name to a '/'-separated relative path. Entries that would escape the archive root
+     * are rejected, mirroring the zip-slip protection of the unpacking service.
+     */
+    static String normalizeEntryName(String name) throws IOException {
+        String s = name.replace('\\', '/');
+        while (s.startsWith("/")) s = s.substring(1);
+        for (String segment : s.split("/")) {
+            if (segment.equals("..")) throw new IOException("Unsafe zip entry path: " + name);
+        }
+        return s;
+    }
+
+    /** Accumulates entries within the limits; duplicate names keep the first occurrence. */
+    private static final class Collector {
+        final Map<Path, byte[]> javaContent = new HashMap<>();
+        final Map<String, Path> allFiles = new HashMap<>();
+        final Limits limits;
+        int entries;
+        long totalBytes;
+
+        Collector(Limits limits) {
+            this.limits = Objects.requireNonNull(limits, "limits");
+        }
+
+        /** Returns the relative path of a new regular file entry, or null to skip it. */
+        String accept(ZipEntry e) throws IOException {
+            if (++entries > limits.maxEntries) {
+                throw new IOException("Zip archive has more than " + limits.maxEntries + " entries");
+            }
+            if (e.isDirectory()) return null;
+            String rel = normalizeEntryName(e.getName());
+            if (rel.isEmpty() || allFiles.containsKey(rel)) return null;
+            allFiles.put(rel, Path.of(rel));
+            return rel;
+        }
+
+        void addJava(String rel, InputStream in) throws IOException {
+            byte[] content = in.readNBytes((int) limits.maxEntryBytes + 1);
+            if (content.length > limits.maxEntryBytes) {
+                throw new IOException("Zip entry " + rel + " exceeds " + limits.maxEntryBytes + " bytes when decompressed");
+            }
+            totalBytes += content.length;
+            if (totalBytes > limits.maxTotalBytes) {
+                throw new IOException("Zip archive sources exceed " + limits.maxTotalBytes + " bytes when decompressed");
+            }
+            javaContent.put(allFiles.get(rel), content);
+        }
+
+        ZipSources toSources() {
+            Comparator<Path> byRel = Comparator.comparing(p -> p.toString().replace('\\', '/'));
+            List<Path> java = new ArrayList<>(javaContent.keySet());
+            java.sort(byRel);
+            List<Path> all = new ArrayList<>(allFiles.values());
+            all.sort(byRel);
+            return new ZipSources(java, all, javaContent);
+        }
+    }
+}
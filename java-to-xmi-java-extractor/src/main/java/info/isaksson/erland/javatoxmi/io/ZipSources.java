@@ -0,0 +1,55 @@
+package info.isaksson.erland.javatoxmi.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sources read from a ZIP archive and held in memory.
+ *
+ * <p>Paths are relative to the archive root ({@link #root()} is the empty path), so they relativize the same
+ * way files under an unpacked source directory would. Only the selected Java sources are kept in memory;
+ * other entries are recorded by name for resource discovery.</p>
+ *
+ * @see ZipSourceReader
+ */
+public final class ZipSources implements SourceReader {
+
+    private static final Path ROOT = Path.of("");
+
+    /** Selected Java sources, sorted by relative path (same order as {@link SourceScanner}). */
+    public final List<Path> javaFiles;
+
+    /** Every regular file entry in the archive, sorted by relative path. */
+    public final List<Path> allFiles;
+
+    private final Map<Path, byte[]> javaContent;
+
+    ZipSources(List<Path> javaFiles, List<Path> allFiles, Map<Path, byte[]> javaContent) {
+        this.javaFiles = List.copyOf(javaFiles);
+        this.allFiles = List.copyOf(allFiles);
+        this.javaContent = javaContent;
+    }
+
+    /** Virtual source root that {@link #javaFiles} are relative to. */
+    public Path root() {
+        return ROOT;
+    }
+
+    @Override
+    public String read(Path file) throws IOException {
+        byte[] bytes = javaContent.get(file);
+        if (bytes == null) throw new NoSuchFileException(file.toString());
+        // Decode strictly, like Files.readString, so malformed input surfaces as an IO error.
+        return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+    }
+
+    @Override
+    public List<Path> listAllFiles(Path root) {
+        return allFiles;
+    }
+}
@@ -1,5 +1,6 @@
 package info.isaksson.erland.javatoxmi.model;
 
+import java.io.Serializable;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -10,7 +11,9 @@ import java.util.Objects;
  * <p>MVP note: values are normalised to strings by the extractor. More structured
  * representations (arrays, nested annotations, etc.) can be introduced later.</p>
  */
-public final class JAnnotationUse {
+public final class JAnnotationUse implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /** Simple name, e.g. {@code Entity}. */
     public final String simpleName;
 
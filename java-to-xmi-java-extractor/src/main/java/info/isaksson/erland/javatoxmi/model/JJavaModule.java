@@ -1,5 +1,6 @@
 package info.isaksson.erland.javatoxmi.model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,7 +9,9 @@ import java.util.List;
  *
  * <p>This is used to emit UML packages representing modules and dependencies representing {@code requires} edges.</p>
  */
-public final class JJavaModule {
+public final class JJavaModule implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public final String name;
 
     /** Packages exported by this module (as qualified package names). */
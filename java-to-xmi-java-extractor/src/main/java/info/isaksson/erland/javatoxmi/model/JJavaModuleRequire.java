@@ -1,7 +1,11 @@
 package info.isaksson.erland.javatoxmi.model;
 
+import java.io.Serializable;
+
 /** A JPMS {@code requires} directive. */
-public final class JJavaModuleRequire {
+public final class JJavaModuleRequire implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public final String moduleName;
     public final boolean isStatic;
     public final boolean isTransitive;
@@ -1,10 +1,13 @@
 package info.isaksson.erland.javatoxmi.model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
-public final class JMethod {
+public final class JMethod implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public final String name;
     public final String returnType; // constructors may use empty string
     /** Parsed structural representation of {@link #returnType}. May be null until populated by extractor. */
@@ -1,5 +1,6 @@
 package info.isaksson.erland.javatoxmi.model;
 
+import java.io.Serializable;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -10,7 +11,9 @@ import java.util.Objects;
  * <p>This is represented in UML as an {@code Artifact} with the {@code FlywayMigration}
  * runtime stereotype marker and tagged values.</p>
  */
-public final class JMigrationArtifact {
+public final class JMigrationArtifact implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public enum Kind { VERSIONED, REPEATABLE, JAVA }
 
     /** Stable id for determinism (used for dependency id / artifact id). */
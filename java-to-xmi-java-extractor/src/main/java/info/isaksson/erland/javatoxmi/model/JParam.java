@@ -1,10 +1,13 @@
 package info.isaksson.erland.javatoxmi.model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
-public final class JParam {
+public final class JParam implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public final String name;
     public final String type; // may be unresolved; keep as string
     /** Parsed structural representation of {@link #type}. May be null until populated by extractor. */
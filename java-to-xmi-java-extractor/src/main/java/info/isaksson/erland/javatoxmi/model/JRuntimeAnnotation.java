@@ -1,5 +1,6 @@
 package info.isaksson.erland.javatoxmi.model;
 
+import java.io.Serializable;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -12,7 +13,8 @@ import java.util.Objects;
  * with {@code java-to-xmi:runtime} + {@code java-to-xmi:tags}, and the XMI writer post-processes
  * these into proper stereotype applications.</p>
  */
-public final class JRuntimeAnnotation {
+public final class JRuntimeAnnotation implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Target key for resolving to a UML element.
@@ -1,5 +1,6 @@
 package info.isaksson.erland.javatoxmi.model;
 
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -14,7 +15,9 @@ import java.util.Objects;
  * <p>These relations are designed to be emitted as UML dependencies (or related UML elements)
  * with a stereotype (role) and tagged values (metadata).</p>
  */
-public final class JRuntimeRelation {
+public final class JRuntimeRelation implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /** Optional stable id (e.g. from IR relation id). */
     public final String id;
 
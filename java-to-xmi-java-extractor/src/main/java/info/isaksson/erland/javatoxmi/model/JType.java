@@ -1,10 +1,13 @@
 package info.isaksson.erland.javatoxmi.model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
-public final class JType {
+public final class JType implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public final String packageName;
     public final String name;
     public final String qualifiedName;
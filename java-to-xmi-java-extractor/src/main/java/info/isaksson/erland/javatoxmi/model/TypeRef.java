@@ -1,5 +1,6 @@
 package info.isaksson.erland.javatoxmi.model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -11,7 +12,9 @@ import java.util.Objects;
  * (and perhaps {@link #simpleName}), then later refine with {@link #qnameHint},
  * generic {@link #args}, array dimensions, and wildcard/type-variable details.</p>
  */
-public final class TypeRef {
+public final class TypeRef implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /** Original pretty-printed type string, e.g. {@code List<Foo[]>}. */
     public final String raw;
     public final TypeRefKind kind;
@@ -81,4 +84,14 @@ public final class TypeRef {
         return new TypeRef(raw, TypeRefKind.WILDCARD, "", "", List.of(), 0, "",
                 boundKind, boundType);
     }
+
+    /**
+     * Top-level generic arguments: those of a {@link TypeRefKind#PARAM} type, or of an array's component type
+     * (the arguments of {@code List<Foo>[]} are {@code [Foo]}). Empty for anything else.
+     */
+    public List<TypeRef> typeArguments() {
+        if (kind == TypeRefKind.PARAM) return args;
+        if (kind == TypeRefKind.ARRAY && !args.isEmpty()) return args.get(0).typeArguments();
+        return List.of();
+    }
 }
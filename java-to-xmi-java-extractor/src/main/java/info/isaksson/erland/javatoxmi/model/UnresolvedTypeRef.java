@@ -1,8 +1,11 @@
 package info.isaksson.erland.javatoxmi.model;
 
+import java.io.Serializable;
 import java.util.Objects;
 
-public final class UnresolvedTypeRef {
+public final class UnresolvedTypeRef implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public final String referencedType;     // e.g. java.util.List or Foo
     public final String fromQualifiedType;  // e.g. com.example.MyClass
     public final String where;              // e.g. field 'x', method 'm' param 'p'
@@ -0,0 +1,127 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import info.isaksson.erland.javatoxmi.io.SourceScanner;
+import info.isaksson.erland.javatoxmi.model.JModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExtractionCacheTest {
+
+    @Test
+    void everyExtractedKindSurvivesTheDeserializationFilter(@TempDir Path tmp) throws Exception {
+        Path root = writeProject(tmp.resolve("src"));
+        List<Path> files = SourceScanner.scan(root, List.of(), false);
+        JModel expected = new JavaExtractor(1).extract(root, files, true);
+        assertFalse(expected.runtimeRelations.isEmpty());
+        assertFalse(expected.runtimeAnnotations.isEmpty());
+        assertFalse(expected.javaModules.isEmpty());
+
+        extract(tmp, root, files);
+        ExtractionCache warm = extract(tmp, root, files);
+        assertEquals(files.size(), warm.hits());
+        assertEquals(0, warm.misses());
+    }
+
+    @Test
+    void entriesWithClassesOutsideTheAllowListAreMisses(@TempDir Path tmp) throws Exception {
+        Path root = writeProject(tmp.resolve("src"));
+        List<Path> files = SourceScanner.scan(root, List.of(), false);
+        extract(tmp, root, files);
+
+        // Replace every entry with a well-formed stream of classes the cache never writes.
+        TreeMap<String, File> foreign = new TreeMap<>();
+        foreign.put("f", new File("x"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(foreign);
+        }
+        List<Path> entries;
+        try (Stream<Path> s = Files.walk(tmp.resolve("cache"))) {
+            entries = s.filter(p -> p.toString().endsWith(".bin")).collect(Collectors.toList());
+        }
+        assertFalse(entries.isEmpty());
+        for (Path p : entries) Files.write(p, bytes.toByteArray());
+
+        ExtractionCache cache = extract(tmp, root, files);
+        assertEquals(0, cache.hits());
+        assertEquals(files.size(), cache.misses());
+    }
+
+    @Test
+    void extractorVersionIsADigestOfTheExtractorClasses(@TempDir Path tmp) throws Exception {
+        assertTrue(ExtractionCache.extractorVersion().matches("[0-9a-f]{64}"), ExtractionCache.extractorVersion());
+
+        Path dir = tmp.resolve("classes");
+        write(dir, "info/isaksson/erland/javatoxmi/extract/A.class", "a");
+        write(dir, "info/isaksson/erland/javatoxmi/model/B.class", "b");
+        write(dir, "com/other/C.class", "c");
+        Path jar = tmp.resolve("x.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (String name : List.of("info/isaksson/erland/javatoxmi/model/B.class", "info/isaksson/erland/javatoxmi/extract/A.class")) {
+                out.putNextEntry(new JarEntry(name));
+                out.write(Files.readAllBytes(dir.resolve(name)));
+            }
+        }
+        String digest = ExtractionCache.classesDigest(dir);
+        assertEquals(digest, ExtractionCache.classesDigest(jar));
+
+        write(dir, "com/other/C.class", "changed");
+        assertEquals(digest, ExtractionCache.classesDigest(dir));
+        write(dir, "info/isaksson/erland/javatoxmi/extract/A.class", "changed");
+        assertNotEquals(digest, ExtractionCache.classesDigest(dir));
+    }
+
+    private static ExtractionCache extract(Path tmp, Path root, List<Path> files) {
+        ExtractionCache cache = new ExtractionCache(tmp.resolve("cache"));
+        new JavaExtractor(1, cache).extract(root, files, true);
+        return cache;
+    }
+
+    /** Sources covering types, members, generics, annotations, runtime semantics and a module descriptor. */
+    private static Path writeProject(Path root) throws Exception {
+        write(root, "module-info.java", "module shop { requires transitive java.sql; exports com.acme; }");
+        write(root, "com/acme/Kind.java", "package com.acme; public enum Kind { A, B }");
+        write(root, "com/acme/Order.java", """
+                package com.acme;
+                import java.util.List;
+                import java.util.Map;
+                import javax.enterprise.event.Event;
+                import javax.inject.Inject;
+                import jakarta.ws.rs.GET;
+                import jakarta.ws.rs.Path;
+                @Path("/orders")
+                public class Order {
+                  @Deprecated(since = "1") private Map<String, List<? extends Line>> lines;
+                  @Inject Event<Placed> placed;
+                  @GET public List<Line> all(Kind kind) { placed.fire(new Placed()); return List.of(); }
+                  public static class Line { }
+                }
+                """);
+        write(root, "com/acme/Placed.java", """
+                package com.acme;
+                import javax.enterprise.event.Observes;
+                public class Placed { void on(@Observes Placed e) { Unknown u; } }
+                """);
+        return root;
+    }
+
+    private static void write(Path root, String rel, String content) throws Exception {
+        Path p = root.resolve(rel);
+        Files.createDirectories(p.getParent());
+        Files.writeString(p, content);
+    }
+}
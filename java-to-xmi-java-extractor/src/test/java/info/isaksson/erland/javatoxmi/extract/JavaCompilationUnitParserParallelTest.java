@@ -0,0 +1,69 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import info.isaksson.erland.javatoxmi.io.SourceReader;
+import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.model.JType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JavaCompilationUnitParserParallelTest {
+
+    @Test
+    void parallelParseKeepsInputOrderForUnitsAndErrors(@TempDir Path tmp) throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Path f = tmp.resolve("p/T" + String.format("%02d", i) + ".java");
+            Files.createDirectories(f.getParent());
+            files.add(f);
+            // Every 7th file is missing to interleave IO errors with successful units.
+            if (i % 7 == 0) continue;
+            Files.writeString(f, "package p; class T" + i + " { T" + ((i + 1) % 40) + " next; }");
+        }
+
+        JModel sequential = new JModel(tmp, files);
+        List<ParsedUnit> seqUnits = JavaCompilationUnitParser.parseAll(JavaExtractor::newParser, SourceReader.fileSystem(), tmp, files, sequential, 1);
+
+        JModel parallel = new JModel(tmp, files);
+        List<ParsedUnit> parUnits = JavaCompilationUnitParser.parseAll(JavaExtractor::newParser, SourceReader.fileSystem(), tmp, files, parallel, 4);
+
+        assertEquals(seqUnits.stream().map(u -> u.file).collect(Collectors.toList()),
+                parUnits.stream().map(u -> u.file).collect(Collectors.toList()));
+        assertEquals(6, sequential.parseErrors.size());
+        assertEquals(sequential.parseErrors, parallel.parseErrors);
+    }
+
+    @Test
+    void extractorOutputIsIndependentOfParseThreads(@TempDir Path tmp) throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Path f = tmp.resolve("q/C" + i + ".java");
+            Files.createDirectories(f.getParent());
+            Files.writeString(f, "package q; import java.util.List; public class C" + i
+                    + " { private List<C" + ((i + 1) % 12) + "> items; public void run() { new C0(); } }");
+            files.add(f);
+        }
+
+        JModel a = new JavaExtractor(1).extract(tmp, files, true);
+        JModel b = new JavaExtractor(0).extract(tmp, files, true);
+
+        assertEquals(describe(a), describe(b));
+        assertEquals(a.parseErrors, b.parseErrors);
+    }
+
+    private static List<String> describe(JModel m) {
+        List<String> out = new ArrayList<>();
+        for (JType t : m.types) {
+            out.add(t.qualifiedName + " fields=" + t.fields.stream().map(f -> f.name + ":" + f.type).collect(Collectors.toList())
+                    + " deps=" + t.methodBodyTypeDependencies);
+        }
+        return out;
+    }
+}
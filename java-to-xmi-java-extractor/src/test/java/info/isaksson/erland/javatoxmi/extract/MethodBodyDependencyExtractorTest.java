@@ -90,4 +90,76 @@ public class MethodBodyDependencyExtractorTest {
         // Should remove self-deps.
         assertFalse(deps.contains("p.A"), "Did not expect self dependency but got: " + deps);
     }
+
+    @Test
+    void localsAreBlockScoped() throws Exception {
+        String code = """
+                package p;
+
+                class A {
+                    void m(boolean flag) {
+                        if (flag) {
+                            Service x = null;
+                            x.run();
+                        } else {
+                            Other x = null;
+                            x.touch();
+                        }
+                        for (Item it : items()) { it.use(); }
+                        try { } catch (Failure f) { f.report(); }
+                        Runnable r = () -> { Helper h = null; h.help(); };
+                    }
+                    java.util.List<Item> items() { return null; }
+                }
+
+                class Service { void run() {} }
+                class Other { void touch() {} }
+                class Item { void use() {} }
+                class Failure extends RuntimeException { void report() {} }
+                class Helper { void help() {} }
+                """;
+
+        Set<String> deps = extractDeps(code, Set.of("p.A", "p.Service", "p.Other", "p.Item", "p.Failure", "p.Helper"));
+
+        // Both same-named locals resolve to their own block's type (previously the last declaration won).
+        assertEquals(Set.of("p.Service", "p.Other", "p.Item", "p.Failure", "p.Helper"), deps);
+    }
+
+    @Test
+    void localShadowsTypeNameAndUnknownLocalsDoNotResolveAsTypes() throws Exception {
+        String code = """
+                package p;
+
+                class A {
+                    void m() {
+                        var Util = "shadowed";
+                        Util.doIt();
+                    }
+                    void n() {
+                        Util.doIt();
+                    }
+                }
+
+                class Util { static void doIt() {} }
+                """;
+
+        Set<String> projectTypes = Set.of("p.A", "p.Util");
+        assertEquals(Set.of(), extractDeps(code, projectTypes, "m"));
+        assertEquals(Set.of("p.Util"), extractDeps(code, projectTypes, "n"));
+    }
+
+    private static Set<String> extractDeps(String code, Set<String> projectTypes) throws Exception {
+        return extractDeps(code, projectTypes, "m");
+    }
+
+    private static Set<String> extractDeps(String code, Set<String> projectTypes, String method) throws Exception {
+        CompilationUnit cu = new JavaParser(new ParserConfiguration().setCharacterEncoding(StandardCharsets.UTF_8))
+                .parse(code).getResult().orElseThrow();
+        ClassOrInterfaceDeclaration a = cu.findFirst(ClassOrInterfaceDeclaration.class, c -> "A".equals(c.getNameAsString()))
+                .orElseThrow();
+        MethodDeclaration md = a.getMethodsByName(method).get(0);
+        JModel model = new JModel(Path.of("."), List.of());
+        ImportContext ctx = ImportContext.from(cu, "p", projectTypes);
+        return MethodBodyDependencyExtractor.extract(md, ctx, Map.of(), List.of("p.A"), model, "p.A", Map.of());
+    }
 }
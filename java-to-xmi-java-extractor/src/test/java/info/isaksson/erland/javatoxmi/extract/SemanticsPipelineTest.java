@@ -0,0 +1,104 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import info.isaksson.erland.javatoxmi.io.SourceScanner;
+import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.model.JRuntimeAnnotation;
+import info.isaksson.erland.javatoxmi.model.JRuntimeRelation;
+import info.isaksson.erland.javatoxmi.model.JType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SemanticsPipelineTest {
+
+    /**
+     * Registered through {@code META-INF/services} in the test resources. Only reacts to types named
+     * {@code *Widget}, so other tests in this module are unaffected.
+     */
+    public static final class WidgetExtractor implements SemanticsExtractor {
+        @Override
+        public String id() {
+            return "test-widgets";
+        }
+
+        @Override
+        public Set<Class<? extends Node>> nodeTypes() {
+            return Set.of(ObjectCreationExpr.class);
+        }
+
+        @Override
+        public void visitNode(Node node, SemanticsUnit unit) {
+            ObjectCreationExpr oce = (ObjectCreationExpr) node;
+            if (!oce.getType().getNameAsString().endsWith("Widget")) return;
+            Node cur = oce.getParentNode().orElse(null);
+            while (cur != null && !(cur instanceof TypeDeclaration)) cur = cur.getParentNode().orElse(null);
+            if (!(cur instanceof TypeDeclaration<?> owner)) return;
+            String from = TypeExtractionEngine.qualifiedName(unit.packageName(), owner.getNameAsString());
+            String target = unit.resolveType(oce.getType(), from, "new");
+            unit.output().runtimeRelations.add(new JRuntimeRelation(null, from, target, null, "CreatesWidget", Map.of()));
+        }
+
+        @Override
+        public void visitType(JType type, SemanticsOutput out) {
+            if (type.name.endsWith("Widget")) {
+                out.runtimeAnnotations.add(new JRuntimeAnnotation(type.qualifiedName, "Widget", Map.of()));
+            }
+        }
+    }
+
+    @Test
+    void serviceLoaderExtractorsRunAfterBuiltIns() {
+        List<String> ids = SemanticsPipeline.standard().extractors().stream()
+                .map(SemanticsExtractor::id)
+                .collect(Collectors.toList());
+        assertEquals(List.of("rest", "cdi", "interceptor", "messaging", "flyway", "jpms", "test-widgets"), ids);
+        assertTrue(SemanticsPipeline.standard().key().contains("test-widgets"));
+    }
+
+    @Test
+    void nodeAndTypeCallbacksContributeToModel(@TempDir Path root) throws Exception {
+        Files.createDirectories(root.resolve("p"));
+        Files.writeString(root.resolve("p/BlueWidget.java"), "package p; public class BlueWidget {}\n");
+        Files.writeString(root.resolve("p/Factory.java"), String.join("\n",
+                "package p;",
+                "import com.acme.FooWidget;",
+                "public class Factory {",
+                "  Object blue() { return new BlueWidget(); }",
+                "  Object foo() { return new FooWidget(); }",
+                "  Object other() { return new StringBuilder(); }",
+                "}",
+                ""));
+
+        List<Path> files = SourceScanner.scan(root, List.of(), false);
+        JModel model = new JavaExtractor().extract(root, files);
+
+        List<String> created = model.runtimeRelations.stream()
+                .filter(r -> "CreatesWidget".equals(r.stereotype))
+                .map(r -> r.sourceQualifiedName + "->" + r.targetQualifiedName)
+                .collect(Collectors.toList());
+        assertEquals(List.of("p.Factory->p.BlueWidget", "p.Factory->com.acme.FooWidget"), created);
+
+        assertTrue(model.externalTypeRefs.stream().anyMatch(u ->
+                u.referencedType.equals("com.acme.FooWidget") && u.fromQualifiedType.equals("p.Factory") && u.where.equals("new")));
+
+        assertTrue(model.runtimeAnnotations.stream().anyMatch(a ->
+                a.targetKey.equals("p.BlueWidget") && "Widget".equals(a.stereotype)));
+    }
+
+    @Test
+    void rejectsDuplicateIds() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SemanticsPipeline(List.of(new WidgetExtractor(), new WidgetExtractor())));
+    }
+}
@@ -0,0 +1,154 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import com.github.javaparser.ast.CompilationUnit;
+import info.isaksson.erland.javatoxmi.io.SourceReader;
+import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.model.JType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingExtractionTest {
+
+    private static final int FILES = 40;
+
+    @Test
+    void streamingKeepsAtMostOneAstPerThread(@TempDir Path tmp) throws Exception {
+        List<Path> files = writeProject(tmp);
+
+        JavaExtractor inMemory = new JavaExtractor(1);
+        JModel expected = inMemory.extract(tmp, files, true);
+        assertEquals(FILES - 1, inMemory.peakResidentUnits());
+        assertEquals(1, expected.parseErrors.size());
+
+        JavaExtractor sequential = new JavaExtractor(1, null, true);
+        JModel a = sequential.extract(tmp, files, true);
+        assertEquals(1, sequential.peakResidentUnits());
+        // The missing file has no index entry either way.
+        assertEquals(0, sequential.reextractedUnits());
+
+        JavaExtractor parallel = new JavaExtractor(3, null, true);
+        JModel b = parallel.extract(tmp, files, true);
+        assertTrue(parallel.peakResidentUnits() >= 1 && parallel.peakResidentUnits() <= 3,
+                "peak resident units: " + parallel.peakResidentUnits());
+
+        assertEquals(describe(expected), describe(a));
+        assertEquals(describe(expected), describe(b));
+    }
+
+    @Test
+    void streamingWithCacheKeepsAtMostOneAstPerThread(@TempDir Path tmp) throws Exception {
+        Path src = tmp.resolve("src");
+        List<Path> files = writeProject(src);
+        JModel expected = new JavaExtractor(1).extract(src, files, true);
+
+        for (int run = 0; run < 2; run++) {
+            ExtractionCache cache = new ExtractionCache(tmp.resolve("cache"));
+            JavaExtractor extractor = new JavaExtractor(2, cache, true);
+            JModel m = extractor.extract(src, files, true);
+            assertTrue(extractor.peakResidentUnits() <= 2, "peak resident units: " + extractor.peakResidentUnits());
+            assertEquals(describe(expected), describe(m));
+        }
+    }
+
+    @Test
+    void brokenUnitIsIndexedAsTheParserSeesIt(@TempDir Path tmp) throws Exception {
+        List<Path> files = writeProject(tmp);
+        // The header lexer indexes Bad; the parser recovers from the error with no types at all.
+        Path bad = tmp.resolve("p/Bad.java");
+        Files.writeString(bad, "package p; public class Bad { int x = ; }");
+        files.add(bad);
+        Path user = tmp.resolve("p/UsesBad.java");
+        Files.writeString(user, "package p; public class UsesBad { Bad bad; }");
+        files.add(user);
+
+        JModel expected = new JavaExtractor(1).extract(tmp, files, true);
+        assertEquals(1, expected.parseErrors.size());
+        JavaExtractor streaming = new JavaExtractor(2, null, true);
+        JModel streamed = streaming.extract(tmp, files, true);
+        assertEquals(describe(expected), describe(streamed));
+        // Only Bad and UsesBad, the units naming Bad, are extracted again; not the whole project.
+        assertEquals(2, streaming.reextractedUnits());
+    }
+
+    @Test
+    void parsedUnitsAreCollectableOnceTheirStepReturns(@TempDir Path tmp) throws Exception {
+        List<Path> files = writeProject(tmp);
+        RetentionProbe probe = new RetentionProbe();
+        List<UnitExtraction> results = StreamingExtraction.run(new JModel(tmp, files), SourceReader.fileSystem(), tmp, files,
+                true, 1, SemanticsPipeline.standard(), probe, new AtomicLong());
+
+        assertEquals(FILES - 1, probe.seen.size());
+        assertEquals(0, probe.retained, "ASTs of earlier units still reachable while the next unit was extracted");
+        // Nor does anything kept in the results hold on to an AST.
+        assertEquals(0, probe.reachable(), "ASTs reachable from the extraction results");
+        Reference.reachabilityFence(results);
+    }
+
+    /**
+     * Before each step, collects garbage and counts the ASTs of earlier steps that are still reachable. Sequential
+     * runs only: with one worker every earlier unit must be gone.
+     */
+    private static final class RetentionProbe extends ResidentUnits {
+        final List<WeakReference<CompilationUnit>> seen = new ArrayList<>();
+        int retained;
+
+        @Override
+        <T> Function<ParsedUnit, T> around(Function<ParsedUnit, T> step) {
+            Function<ParsedUnit, T> counted = super.around(step);
+            return u -> {
+                retained = Math.max(retained, reachable());
+                seen.add(new WeakReference<>(u.cu));
+                return counted.apply(u);
+            };
+        }
+
+        int reachable() {
+            int alive = 0;
+            for (int attempt = 0; attempt < 5; attempt++) {
+                System.gc();
+                alive = (int) seen.stream().filter(r -> r.get() != null).count();
+                if (alive == 0) break;
+            }
+            return alive;
+        }
+    }
+
+    /** A chain of classes referencing each other (so every unit needs the full index), plus one missing file. */
+    private static List<Path> writeProject(Path root) throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            Path f = root.resolve("p/C" + String.format("%02d", i) + ".java");
+            Files.createDirectories(f.getParent());
+            files.add(f);
+            if (i == 17) continue; // missing: reported as an error, in file order
+            Files.writeString(f, "package p; import java.util.List; public class C" + String.format("%02d", i)
+                    + " { private List<C" + String.format("%02d", (i + 1) % FILES) + "> next;"
+                    + " public static class Inner { Inner self; }"
+                    + " void run() { new C00(); } }");
+        }
+        return files;
+    }
+
+    private static List<String> describe(JModel m) {
+        List<String> out = new ArrayList<>(m.parseErrors);
+        for (JType t : m.types) {
+            out.add(t.qualifiedName + " fields=" + t.fields.stream().map(f -> f.name + ":" + f.type).collect(Collectors.toList())
+                    + " deps=" + t.methodBodyTypeDependencies);
+        }
+        m.externalTypeRefs.forEach(r -> out.add("ext " + r));
+        m.unresolvedTypes.forEach(r -> out.add("unresolved " + r));
+        return out;
+    }
+}
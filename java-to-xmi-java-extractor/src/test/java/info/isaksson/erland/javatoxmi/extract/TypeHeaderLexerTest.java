@@ -0,0 +1,115 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import com.github.javaparser.ast.CompilationUnit;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TypeHeaderLexerTest {
+
+    @Test
+    void matchesParsedContributionOnTrickySource() {
+        String src = String.join("\n",
+                "/* header { */",
+                "@Deprecated",
+                "package p.q; // trailing {",
+                "import java.util.*;",
+                "import static java.util.Map.Entry;",
+                "@SuppressWarnings({\"a\", \"b\"})",
+                "public sealed class Outer<T extends Comparable<T>> extends Base implements A, B permits Outer.Sub {",
+                "    static final String S = \"}{\\\"\";",
+                "    static final char C = '}';",
+                "    static final char Q = '\\'';",
+                "    static final String BLOCK = \"\"\"",
+                "        class NotAType { \"\"\\\"",
+                "        \"\"\";",
+                "    Class<?> k = Outer.class;",
+                "    int[] arr = {1, 2};",
+                "    Runnable r = () -> { class LocalInLambda {} };",
+                "    Object anon = new Object() { class InAnon {} };",
+                "    static { class LocalInInit {} }",
+                "    void m(int record) { class Local {} int x = record; }",
+                "    Outer record() { return null; }",
+                "    @Ann(k = Outer.class) non-sealed static class Sub extends Outer<String> {",
+                "        interface Deep { enum E { A { class InConstant {} }, B(1); E() {} E(int i) {} class InEnum {} } }",
+                "    }",
+                "    record R(int a) { class InRecord {} }",
+                "    @interface Marker { Class<?> value() default Object.class; String[] names() default {}; class InAnnotation {} }",
+                "    enum Empty { }",
+                "}",
+                "record Top(String s) {}",
+                "interface Second { int X = 1; }",
+                "");
+
+        TypeIndexContribution lexed = TypeHeaderLexer.contribution(src);
+        assertNotNull(lexed);
+        assertSameIndex(parsed(src), lexed);
+        assertEquals(List.of("p.q.Outer", "p.q.Outer.Sub", "p.q.Outer.Sub.Deep", "p.q.Outer.Sub.Deep.E",
+                        "p.q.Outer.Sub.Deep.E.InEnum", "p.q.Outer.Marker", "p.q.Outer.Marker.InAnnotation",
+                        "p.q.Outer.Empty", "p.q.Second"),
+                lexed.types.stream().map(TypeStub::qualifiedName).collect(Collectors.toList()));
+    }
+
+    @Test
+    void defaultPackageAndModuleInfo() {
+        assertSameIndex(parsed("class A { class B {} }"), TypeHeaderLexer.contribution("class A { class B {} }"));
+        String module = "open module a.b { requires transitive c.d; exports a.b; }";
+        assertTrue(TypeHeaderLexer.contribution(module).types.isEmpty());
+    }
+
+    @Test
+    void declinesWhenUnsure() {
+        assertNull(TypeHeaderLexer.contribution("package p; class A { void m() { "));
+        assertNull(TypeHeaderLexer.contribution("package p; class \\u0041 {}"));
+        assertNull(TypeHeaderLexer.contribution("package p; class A { String s = \"unterminated; }"));
+    }
+
+    /** Every source file of this repository is either handled exactly like the parser does or declined. */
+    @Test
+    void agreesWithParserOnRepositorySources() throws Exception {
+        Path root = Path.of("..").toAbsolutePath().normalize();
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> modules = Files.list(root)) {
+            for (Path module : modules.filter(m -> m.getFileName().toString().startsWith("java-to-xmi-")).sorted().collect(Collectors.toList())) {
+                if (!Files.isDirectory(module.resolve("src"))) continue;
+                try (Stream<Path> s = Files.walk(module.resolve("src"))) {
+                    s.filter(p -> p.toString().endsWith(".java")).sorted().forEach(files::add);
+                }
+            }
+        }
+        assertFalse(files.isEmpty());
+
+        int declined = 0;
+        for (Path f : files) {
+            String src = Files.readString(f);
+            TypeIndexContribution lexed = TypeHeaderLexer.contribution(src);
+            if (lexed == null) {
+                declined++;
+                continue;
+            }
+            assertSameIndex(parsed(src), lexed, f.toString());
+        }
+        assertTrue(declined * 10 < files.size(), declined + " of " + files.size() + " files declined");
+    }
+
+    private static TypeIndexContribution parsed(String src) {
+        CompilationUnit cu = JavaExtractor.newParser().parse(src).getResult().orElseThrow();
+        return ProjectTypeIndexBuilder.contribution(cu);
+    }
+
+    private static void assertSameIndex(TypeIndexContribution expected, TypeIndexContribution actual) {
+        assertSameIndex(expected, actual, "");
+    }
+
+    private static void assertSameIndex(TypeIndexContribution expected, TypeIndexContribution actual, String message) {
+        assertEquals(expected.types, actual.types, message);
+        assertEquals(expected.nestedMembers, actual.nestedMembers, message);
+    }
+}
@@ -0,0 +1,68 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.type.Type;
+import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.model.TypeRef;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Structural rendering must match JavaParser's pretty printer exactly. */
+public class TypeRendererTest {
+
+    private static final List<String> TYPES = List.of(
+            "int",
+            "String",
+            "java.util.List<String>",
+            "Map<String, List<Foo[]>>",
+            "Map.Entry<K, V>",
+            "Outer<T>.Inner<U>",
+            "List<? extends Number>",
+            "Comparator<? super T>",
+            "Class<?>",
+            "int[][]",
+            "List<String>[]",
+            "Foo<Bar<Baz<Qux>>>",
+            "@NotNull String",
+            "List<@NotNull String>",
+            "java.util.@Nullable List<String>",
+            "String @Size(max = 3) []"
+    );
+
+    @Test
+    void rendersLikePrettyPrinter() {
+        for (String s : TYPES) {
+            Type t = StaticJavaParser.parseType(s);
+            assertEquals(t.toString(), TypeRenderer.render(t), s);
+        }
+        Type diamond = StaticJavaParser.parseExpression("new java.util.ArrayList<>()").asObjectCreationExpr().getType();
+        assertEquals(diamond.toString(), TypeRenderer.render(diamond));
+    }
+
+    @Test
+    void typeRefRawMatchesPrettyPrinterAtEveryLevel() {
+        CompilationUnit cu = StaticJavaParser.parse("package p; class A {}");
+        ImportContext ctx = ImportContext.from(cu, "p", Set.of("p.A"));
+        JModel model = new JModel(Path.of("."), List.of());
+        for (String s : TYPES) {
+            Type t = StaticJavaParser.parseType(s);
+            TypeRef ref = TypeRefParser.parse(t, Set.of("T", "U", "K", "V"), ctx, Map.of(), List.of("p.A"), model, "p.A", "test");
+            assertRawMatches(t, ref);
+        }
+    }
+
+    private static void assertRawMatches(Type t, TypeRef ref) {
+        assertEquals(t.toString(), ref.raw);
+        if (t.isClassOrInterfaceType() && t.asClassOrInterfaceType().getTypeArguments().isPresent()) {
+            List<Type> args = t.asClassOrInterfaceType().getTypeArguments().get();
+            for (int i = 0; i < args.size(); i++) assertRawMatches(args.get(i), ref.args.get(i));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package info.isaksson.erland.javatoxmi.extract;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.type.Type;
+import info.isaksson.erland.javatoxmi.model.JModel;
+import info.isaksson.erland.javatoxmi.model.UnresolvedTypeRef;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Cached type resolution must record the same external/unresolved refs as an uncached one. */
+public class TypeResolutionCacheTest {
+
+    @Test
+    void cachedResolutionReplaysRefsWithCallerContext() {
+        ImportContext ctx = ImportContext.from(null, "p", Set.of("p.Owner", "p.Order", "p.Box"));
+        Map<String, Map<String, String>> nested = Map.of();
+        List<String> chain = List.of("p.Owner");
+        Type t = StaticJavaParser.parseType("Box<Missing>");
+        JModel model = new JModel(Path.of("."), List.of());
+
+        String first = TypeResolver.resolveTypeRef(t, ctx, nested, chain, model, "p.Owner", "field 'a'");
+        String second = TypeResolver.resolveTypeRef(t, ctx, nested, chain, model, "p.Order", "param 'b'");
+
+        assertEquals(first, second);
+        assertEquals("p.Box<Missing>", first);
+        assertEquals(List.of("java.lang.Missing|p.Owner|field 'a'", "java.lang.Missing|p.Order|param 'b'"),
+                render(model.externalTypeRefs));
+        assertEquals(1, ctx.resolutionCache.hits());
+    }
+
+    @Test
+    void scopesAreCachedPerNestedChain() {
+        ImportContext ctx = ImportContext.from(null, "p", Set.of("p.A", "p.A.Inner", "p.B", "p.B.Inner"));
+        Map<String, Map<String, String>> nested = Map.of(
+                "p.A", Map.of("Inner", "p.A.Inner"),
+                "p.B", Map.of("Inner", "p.B.Inner"));
+
+        assertEquals("p.A.Inner", TypeResolver.resolveWithNestedScope("Inner", ctx, nested, List.of("p.A")));
+        assertEquals("p.B.Inner", TypeResolver.resolveWithNestedScope("Inner", ctx, nested, List.of("p.B")));
+        assertEquals("p.A.Inner", TypeResolver.resolveWithNestedScope("Inner", ctx, nested, List.of("p.A")));
+        assertNull(TypeResolver.resolveWithNestedScope("Nope", ctx, nested, List.of("p.A")));
+        assertNull(TypeResolver.resolveWithNestedScope("Nope", ctx, nested, List.of("p.A")));
+        assertEquals(2, ctx.resolutionCache.hits());
+    }
+
+    @Test
+    void extractorReportsCacheCounters() throws Exception {
+        Path root = Files.createTempDirectory("j2x-resolution-cache");
+        Path f = root.resolve("Shop.java");
+        Files.writeString(f, """
+                package p;
+                import java.util.List;
+                public class Shop {
+                  List<Order> orders;
+                  List<Order> open() { List<Order> out = null; return out; }
+                  void add(Order o, List<Order> more) { }
+                }
+                class Order { }
+                """);
+        JavaExtractor extractor = new JavaExtractor();
+        extractor.extract(root, List.of(f));
+        assertTrue(extractor.typeResolutionHits() > 0, "hits: " + extractor.typeResolutionHits());
+        assertTrue(extractor.typeResolutionMisses() > 0, "misses: " + extractor.typeResolutionMisses());
+    }
+
+    private static List<String> render(List<UnresolvedTypeRef> refs) {
+        return refs.stream().map(r -> r.referencedType + "|" + r.fromQualifiedType + "|" + r.where).collect(Collectors.toList());
+    }
+}
@@ -48,4 +48,14 @@ public class TypeRefTest {
         assertEquals(WildcardBoundKind.EXTENDS, wc.wildcardBoundKind);
         assertNotNull(wc.wildcardBoundType);
     }
+
+    @Test
+    void typeArguments_ofParamsAndArraysOfParams() {
+        TypeRef foo = TypeRef.simple("Foo", "Foo", "");
+        TypeRef list = TypeRef.param("List<Foo>", "List", "java.util.List", List.of(foo));
+        assertEquals(List.of(foo), list.typeArguments());
+        assertEquals(List.of(foo), TypeRef.array("List<Foo>[][]", list, 2).typeArguments());
+        assertEquals(List.of(), TypeRef.array("Foo[]", foo, 1).typeArguments());
+        assertEquals(List.of(), foo.typeArguments());
+    }
 }
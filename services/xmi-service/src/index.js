@@ -2,7 +2,8 @@ import express from "express";
 import multer from "multer";
 import fs from "node:fs";
 import path from "node:path";
-import { makeWorkdir, unzipSafe, gitClone, execOrThrow, resolveJavaToXmiJar } from "./utils.js";
+import { makeWorkdir, gitClone, execOrThrow, resolveJavaToXmiJar } from "./utils.js";
+import { JavaWorkerPool } from "./workerPool.js";
 
 const app = express();
 const upload = multer({
@@ -15,6 +16,36 @@ const upload = multer({
 
 const JAR_ENV = process.env.JAVA_TO_XMI_JAR;
 
+// Warm JVM workers (java-to-xmi --worker), opt-in; 0 runs a fresh `java -jar` per request.
+const WORKERS = Number(process.env.JAVA_TO_XMI_WORKERS ?? 0);
+const WORKER_MAX_JOBS = Number(process.env.JAVA_TO_XMI_WORKER_MAX_JOBS ?? 50);
+const WORKER_MAX_HEAP_RATIO = Number(process.env.JAVA_TO_XMI_WORKER_MAX_HEAP_RATIO ?? 0.8);
+
+/** @type {JavaWorkerPool | null} */
+let pool = null;
+
+/**
+ * Runs the java-to-xmi CLI with `args` (without `-jar`), on a pooled worker when enabled.
+ * @param {string} jar
+ * @param {string[]} args
+ * @param {number} timeoutMs
+ */
+async function runJavaToXmi(jar, args, timeoutMs) {
+  if (WORKERS <= 0) {
+    return await execOrThrow("java", ["-jar", jar, ...args], { timeoutMs });
+  }
+  if (!pool || pool.jar !== jar) {
+    pool?.close();
+    pool = new JavaWorkerPool({
+      jar,
+      size: WORKERS,
+      maxJobsPerWorker: WORKER_MAX_JOBS,
+      maxHeapRatio: WORKER_MAX_HEAP_RATIO,
+    });
+  }
+  return await pool.exec(args, { timeoutMs });
+}
+
 app.get("/health", (_req, res) => res.json({ ok: true }));
 
 app.post(
@@ -44,7 +75,7 @@ app.post(
     const outXmi = path.join(outDir, "model.xmi");
     const outIr = path.join(outDir, "model.ir.json");
 
-    const args = ["-jar", JAR];
+    const args = [];
 
     // pass-through options
     const addOpt = (flag, val) => {
@@ -85,7 +116,7 @@ app.post(
 
       args.push("--ir", irPath);
       args.push("--output", outXmi);
-      await execOrThrow("java", args, { timeoutMs: 5 * 60_000 });
+      await runJavaToXmi(JAR, args, 5 * 60_000);
 
       const xmi = await fs.promises.readFile(outXmi);
       res.status(200).type("application/xml").send(xmi);
@@ -97,22 +128,25 @@ app.post(
       return res.status(400).json({ error: "Provide irJson, or language=java with inputZip/repoUrl" });
     }
 
-    const sourceDir = path.join(wd.root, "source");
+    // The CLI reads a .zip source in place (entries are filtered and parsed straight from the archive),
+    // so uploads are no longer unpacked here.
+    let source;
     if (repoUrl) {
-      await gitClone(repoUrl, sourceDir);
+      source = path.join(wd.root, "source");
+      await gitClone(repoUrl, source);
     } else if (req.files?.inputZip?.[0]) {
-      const zipPath = path.join(wd.root, "input.zip");
-      await fs.promises.writeFile(zipPath, req.files.inputZip[0].buffer);
-      await unzipSafe(zipPath, sourceDir);
+      // Named so the default model name ("source") matches the previous unpacked-directory layout.
+      source = path.join(wd.root, "source.zip");
+      await fs.promises.writeFile(source, req.files.inputZip[0].buffer);
     } else {
       return res.status(400).json({ error: "Provide inputZip or repoUrl" });
     }
 
-    args.push("--source", sourceDir);
+    args.push("--source", source);
     args.push("--output", outXmi);
     // Also materialize an IR snapshot (schema v2) so callers can request IR as final output.
     args.push("--write-ir", outIr);
-    await execOrThrow("java", args, { timeoutMs: 8 * 60_000 });
+    await runJavaToXmi(JAR, args, 8 * 60_000);
 
     if (resultFormat === "ir") {
       const ir = await fs.promises.readFile(outIr, "utf-8");
@@ -3,7 +3,6 @@ import path from "node:path";
 import os from "node:os";
 import crypto from "node:crypto";
 import { spawn } from "node:child_process";
-import unzipper from "unzipper";
 
 /**
  * @typedef {{ root: string, cleanup: () => Promise<void> }} Workdir
@@ -24,41 +23,6 @@ export async function makeWorkdir(prefix) {
   };
 }
 
-/**
- * Safely extracts a zip into destDir with zip-slip protection.
- * @param {string} zipPath
- * @param {string} destDir
- */
-export async function unzipSafe(zipPath, destDir) {
-  await fs.promises.mkdir(destDir, { recursive: true });
-
-  const directory = await unzipper.Open.file(zipPath);
-
-  for (const entry of directory.files) {
-    const fileName = entry.path;
-
-    // prevent zip-slip
-    const resolved = path.resolve(destDir, fileName);
-    if (!resolved.startsWith(path.resolve(destDir) + path.sep)) {
-      throw new Error(`Unsafe zip entry path: ${fileName}`);
-    }
-
-    if (entry.type === "Directory") {
-      await fs.promises.mkdir(resolved, { recursive: true });
-      continue;
-    }
-
-    await fs.promises.mkdir(path.dirname(resolved), { recursive: true });
-    await new Promise((resolve, reject) => {
-      entry
-        .stream()
-        .pipe(fs.createWriteStream(resolved))
-        .on("finish", () => resolve())
-        .on("error", reject);
-    });
-  }
-}
-
 /**
  * @param {string} repoUrl
  * @param {string} destDir
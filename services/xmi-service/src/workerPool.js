@@ -0,0 +1,170 @@
+import { spawn } from "node:child_process";
+import { execOrThrow } from "./utils.js";
+
+/**
+ * Pool of persistent `java -jar <jar> --worker` processes, so conversions run in warm JVMs instead of paying
+ * JVM startup and class loading on every request.
+ *
+ * Protocol (both directions): 4-byte big-endian length + UTF-8 JSON.
+ * Job: { id, args } with the same CLI arguments as a one-shot run.
+ * Reply: { id, exitCode, stdout, stderr, heapUsed, heapMax }.
+ *
+ * A worker is retired after `maxJobsPerWorker` jobs or once its used heap crosses `maxHeapRatio` of its max heap.
+ * When all `size` workers are busy, the job falls back to a one-shot `java -jar` process.
+ *
+ * @typedef {{ exitCode: number, stdout: string, stderr: string, heapUsed?: number, heapMax?: number }} JobResult
+ */
+export class JavaWorkerPool {
+  /**
+   * @param {{ jar: string, size: number, maxJobsPerWorker?: number, maxHeapRatio?: number, javaArgs?: string[] }} opts
+   */
+  constructor(opts) {
+    this.jar = opts.jar;
+    this.size = opts.size;
+    this.maxJobsPerWorker = opts.maxJobsPerWorker ?? 50;
+    this.maxHeapRatio = opts.maxHeapRatio ?? 0.8;
+    this.javaArgs = opts.javaArgs ?? [];
+    /** @type {Set<Worker>} */
+    this.workers = new Set();
+  }
+
+  /**
+   * Runs the CLI with `args` (without `-jar <jar>`) and rejects like `execOrThrow` on a non-zero exit code.
+   *
+   * @param {string[]} args
+   * @param {{ timeoutMs?: number }=} opts
+   * @returns {Promise<{ stdout: string, stderr: string }>}
+   */
+  async exec(args, opts) {
+    const timeoutMs = opts?.timeoutMs ?? 5 * 60_000;
+
+    const live = [...this.workers].filter((w) => !w.retired);
+    let worker = live.find((w) => !w.busy);
+    // Retired workers are only finishing up or exiting; they do not take a slot.
+    if (!worker && live.length < this.size) {
+      worker = new Worker(this.jar, this.javaArgs, () => this.workers.delete(worker));
+      this.workers.add(worker);
+    }
+    if (!worker) {
+      // Pool exhausted: spawn a one-shot process rather than queueing.
+      return await execOrThrow("java", [...this.javaArgs, "-jar", this.jar, ...args], { timeoutMs });
+    }
+
+    const res = await worker.run(args, timeoutMs);
+    if (
+      worker.jobs >= this.maxJobsPerWorker ||
+      (res.heapMax && res.heapUsed && res.heapUsed > this.maxHeapRatio * res.heapMax)
+    ) {
+      worker.retire();
+    }
+    if (res.exitCode !== 0) {
+      throw new Error(`Command failed (${res.exitCode}): java -jar ${this.jar} ${args.join(" ")}\n${res.stderr}`);
+    }
+    return { stdout: res.stdout, stderr: res.stderr };
+  }
+
+  /** Stops all workers (they exit when their stdin closes). */
+  close() {
+    for (const w of this.workers) w.retire();
+  }
+}
+
+class Worker {
+  /**
+   * @param {string} jar
+   * @param {string[]} javaArgs
+   * @param {() => void} onExit
+   */
+  constructor(jar, javaArgs, onExit) {
+    this.busy = false;
+    this.retired = false;
+    this.jobs = 0;
+    this.nextId = 1;
+    /** @type {null | { id: number, resolve: (r: JobResult) => void, reject: (e: Error) => void, timer: NodeJS.Timeout }} */
+    this.pending = null;
+    this.buffer = Buffer.alloc(0);
+    this.stderr = "";
+
+    this.child = spawn("java", [...javaArgs, "-jar", jar, "--worker"], { stdio: ["pipe", "pipe", "pipe"] });
+    this.child.stdout.on("data", (d) => this.onData(d));
+    // Anything the worker prints outside a job (e.g. JVM warnings) helps explain a crash.
+    this.child.stderr.on("data", (d) => {
+      this.stderr = (this.stderr + d.toString("utf-8")).slice(-8192);
+    });
+    this.child.stdin.on("error", () => {
+      // surfaced through the exit handler
+    });
+    this.child.on("error", (err) => this.fail(err));
+    this.child.on("exit", (code) => {
+      this.retired = true;
+      onExit();
+      this.fail(new Error(`java-to-xmi worker exited (${code})\n${this.stderr}`));
+    });
+  }
+
+  /**
+   * @param {string[]} args
+   * @param {number} timeoutMs
+   * @returns {Promise<JobResult>}
+   */
+  run(args, timeoutMs) {
+    this.busy = true;
+    this.jobs++;
+    const id = this.nextId++;
+    return new Promise((resolve, reject) => {
+      const timer = setTimeout(() => {
+        this.child.kill("SIGKILL");
+        this.fail(new Error(`Command timed out: java -jar --worker ${args.join(" ")}`));
+      }, timeoutMs);
+      this.pending = { id, resolve, reject, timer };
+
+      const payload = Buffer.from(JSON.stringify({ id, args }), "utf-8");
+      const header = Buffer.alloc(4);
+      header.writeUInt32BE(payload.length, 0);
+      this.child.stdin.write(Buffer.concat([header, payload]));
+    });
+  }
+
+  /** @param {Buffer} chunk */
+  onData(chunk) {
+    this.buffer = Buffer.concat([this.buffer, chunk]);
+    while (this.buffer.length >= 4) {
+      const len = this.buffer.readUInt32BE(0);
+      if (this.buffer.length < 4 + len) return;
+      const frame = this.buffer.subarray(4, 4 + len);
+      this.buffer = this.buffer.subarray(4 + len);
+
+      const p = this.pending;
+      if (!p) continue;
+      let reply;
+      try {
+        reply = JSON.parse(frame.toString("utf-8"));
+      } catch (err) {
+        this.child.kill("SIGKILL");
+        this.fail(new Error(`Invalid reply from java-to-xmi worker: ${err.message}`));
+        return;
+      }
+      if (reply.id !== p.id) continue;
+      clearTimeout(p.timer);
+      this.pending = null;
+      this.busy = false;
+      if (this.retired) this.child.stdin.end();
+      p.resolve(reply);
+    }
+  }
+
+  /** @param {Error} err */
+  fail(err) {
+    this.retired = true;
+    const p = this.pending;
+    if (!p) return;
+    clearTimeout(p.timer);
+    this.pending = null;
+    p.reject(err);
+  }
+
+  retire() {
+    this.retired = true;
+    if (!this.busy) this.child.stdin.end();
+  }
+}